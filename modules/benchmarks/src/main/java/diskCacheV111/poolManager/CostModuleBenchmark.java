@@ -0,0 +1,125 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package diskCacheV111.poolManager;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.dcache.pool.classic.IoQueueManager;
+import org.dcache.poolmanager.PoolInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures pool selection lookups in {@link CostModuleV1} while pools are sending heartbeats.
+ * <p>
+ * Heartbeat threads continuously report new cost information for random pools, as during a
+ * heartbeat storm after a pool manager restart. Selection threads look up the cost of a set of
+ * candidate pools and the percentile cost, like a partition does for every pool selection.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CostModuleBenchmark {
+
+    private static final int CANDIDATES = 20;
+
+    @Param({"1000"})
+    private int pools;
+
+    private CostModuleV1 costModule;
+    private String[] poolNames;
+    private CellMessage[] envelopes;
+
+    @Setup
+    public void setUp() {
+        costModule = new CostModuleV1();
+        poolNames = new String[pools];
+        envelopes = new CellMessage[pools];
+        for (int i = 0; i < pools; i++) {
+            poolNames[i] = "pool" + i;
+            envelopes[i] = new CellMessage(new CellAddressCore("PoolManager"), null);
+            envelopes[i].addSourceAddress(new CellAddressCore(poolNames[i], "poolDomain"));
+            costModule.messageArrived(envelopes[i], poolUp(i, 0));
+        }
+    }
+
+    private PoolManagerPoolUpMessage poolUp(int pool, int active) {
+        PoolCostInfo cost = new PoolCostInfo(poolNames[pool], IoQueueManager.DEFAULT_QUEUE);
+        cost.setSpaceUsage(1_000_000_000_000L, 500_000_000_000L, 0, 100_000_000_000L);
+        cost.addExtendedMoverQueueSizes(IoQueueManager.DEFAULT_QUEUE, active, 100, 0, active, 0);
+        return new PoolManagerPoolUpMessage(poolNames[pool], 0,
+              new PoolV2Mode(PoolV2Mode.ENABLED), cost);
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(2)
+    public void heartbeat() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pool = random.nextInt(pools);
+        costModule.messageArrived(envelopes[pool], poolUp(pool, random.nextInt(100)));
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(6)
+    public double select() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> candidates = new ArrayList<>(CANDIDATES);
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidates.add(poolNames[random.nextInt(pools)]);
+        }
+        Map<String, PoolInfo> info = costModule.getPoolInfoAsMap(candidates);
+        return info.size() + costModule.getPoolsPercentilePerformanceCost(0.95);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+              .include(CostModuleBenchmark.class.getSimpleName())
+              .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.math.IntMath;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares multi-threaded route resolution of {@link CellRoutingTable} with the previous
+ * implementation that took a monitor per route category on every lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Threads(8)
+public class CellRoutingTableBenchmark {
+
+    private static final Optional<String> ZONE = Optional.empty();
+
+    @Param({"snapshot", "synchronized"})
+    private String implementation;
+
+    @Param({"100"})
+    private int domains;
+
+    private CellRoutingTable table;
+    private SynchronizedRoutingTable legacy;
+
+    private CellAddressCore[] wellknown;
+    private CellAddressCore[] remote;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = new CellRoutingTable();
+        legacy = new SynchronizedRoutingTable();
+
+        List<CellAddressCore> wellknownCells = new ArrayList<>();
+        List<CellAddressCore> remoteCells = new ArrayList<>();
+        for (int i = 0; i < domains; i++) {
+            String domain = "domain" + i;
+            CellAddressCore tunnel = new CellAddressCore("tunnel" + i, "core");
+            add(new CellRoute(domain, tunnel, ZONE, CellRoute.DOMAIN));
+
+            String cell = "pool" + i;
+            add(new CellRoute(cell, tunnel, ZONE, CellRoute.QUEUE));
+            wellknownCells.add(new CellAddressCore(cell, "local"));
+            remoteCells.add(new CellAddressCore(cell, domain));
+        }
+        add(new CellRoute(null, new CellAddressCore("upstream", "core"), ZONE,
+              CellRoute.DEFAULT));
+
+        wellknown = wellknownCells.toArray(CellAddressCore[]::new);
+        remote = remoteCells.toArray(CellAddressCore[]::new);
+    }
+
+    private void add(CellRoute route) {
+        table.add(route);
+        legacy.add(route);
+    }
+
+    private CellRoute find(CellAddressCore address) {
+        return implementation.equals("snapshot")
+              ? table.find(address, ZONE, true)
+              : legacy.find(address, ZONE, true);
+    }
+
+    @Benchmark
+    public CellRoute findQueueRoute() {
+        return find(wellknown[ThreadLocalRandom.current().nextInt(wellknown.length)]);
+    }
+
+    @Benchmark
+    public CellRoute findDomainRoute() {
+        return find(remote[ThreadLocalRandom.current().nextInt(remote.length)]);
+    }
+
+    @Benchmark
+    public CellRoute findDefaultRoute() {
+        return find(new CellAddressCore("unknown", "elsewhere"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+              .include(CellRoutingTableBenchmark.class.getSimpleName())
+              .build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * The lookup path of the routing table before lookups were served from immutable snapshots.
+     */
+    private static class SynchronizedRoutingTable {
+
+        private final ListMultimap<String, CellRoute> _queue = ArrayListMultimap.create();
+        private final SetMultimap<String, CellRoute> _domain = LinkedHashMultimap.create();
+        private final SetMultimap<String, CellRoute> _exact = LinkedHashMultimap.create();
+        private final List<CellRoute> _default = new ArrayList<>();
+
+        void add(CellRoute route) {
+            switch (route.getRouteType()) {
+                case CellRoute.QUEUE:
+                    synchronized (_queue) {
+                        _queue.put(route.getCellName(), route);
+                    }
+                    break;
+                case CellRoute.DOMAIN:
+                    synchronized (_domain) {
+                        _domain.put(route.getDomainName(), route);
+                    }
+                    break;
+                case CellRoute.DEFAULT:
+                    synchronized (_default) {
+                        _default.add(route);
+                    }
+                    break;
+                default:
+                    synchronized (_exact) {
+                        _exact.put(route.getCellName() + '@' + route.getDomainName(), route);
+                    }
+                    break;
+            }
+        }
+
+        CellRoute find(CellAddressCore addr, Optional<String> zone, boolean allowRemote) {
+            String cellName = addr.getCellName();
+            String domainName = addr.getCellDomainName();
+            Optional<CellRoute> route;
+            synchronized (_exact) {
+                route = _exact.get(cellName + '@' + domainName).stream().findFirst();
+            }
+            if (route.isPresent()) {
+                return route.get();
+            }
+            if (domainName.equals("local")) {
+                synchronized (_queue) {
+                    List<CellRoute> routes = _queue.get(cellName);
+                    if (!routes.isEmpty()) {
+                        if (zone.isPresent()) {
+                            CellRoute[] localRoutes = routes.stream()
+                                  .filter(r -> r.getZone().equals(zone))
+                                  .toArray(CellRoute[]::new);
+                            if (localRoutes.length > 0) {
+                                return localRoutes[ThreadLocalRandom.current()
+                                      .nextInt(localRoutes.length)];
+                            }
+                        }
+                        return routes.get(ThreadLocalRandom.current().nextInt(routes.size()));
+                    }
+                }
+            } else {
+                synchronized (_domain) {
+                    route = _domain.get(domainName).stream().findFirst();
+                }
+                if (route.isPresent()) {
+                    return route.get();
+                }
+            }
+            synchronized (_default) {
+                if (_default.isEmpty()) {
+                    return null;
+                }
+                return _default.get(IntMath.mod(addr.hashCode(), _default.size()));
+            }
+        }
+    }
+}
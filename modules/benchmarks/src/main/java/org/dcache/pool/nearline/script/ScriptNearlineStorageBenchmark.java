@@ -0,0 +1,150 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.script;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.dcache.pool.nearline.spi.RemoveRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the request rate of {@link ScriptNearlineStorage} against a stub HSM script that
+ * completes every request immediately, thus the benchmark measures the overhead of invoking
+ * the script, either by launching it per request or by submitting requests to a co-process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ScriptNearlineStorageBenchmark {
+
+    private static final URI LOCATION = URI.create("osm://osm/?store=test&group=test&bfid=1");
+
+    @Param({"false", "true"})
+    private boolean coprocess;
+
+    private Path script;
+    private ScriptNearlineStorage storage;
+
+    @Setup
+    public void setUp() throws Exception {
+        script = Files.createTempFile("hsm-stub", ".sh",
+              PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        Files.write(script, List.of(
+              "#!/bin/sh",
+              "[ \"$1\" = coprocess ] || exit 0",
+              "while IFS= read -r line; do",
+              "  printf '%s\\t0\\n' \"${line%%\t*}\"",
+              "done"), US_ASCII);
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(ScriptNearlineStorage.COMMAND, script.toString());
+        if (coprocess) {
+            properties.put(ScriptNearlineStorage.COPROCESS, "");
+        }
+        storage = new ScriptNearlineStorage("osm", "osm");
+        storage.configure(properties);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        storage.shutdown();
+        Files.deleteIfExists(script);
+    }
+
+    @Benchmark
+    public void remove() throws Exception {
+        storage.remove(new StubRemoveRequest());
+    }
+
+    private static class StubRemoveRequest implements RemoveRequest {
+
+        private final UUID id = UUID.randomUUID();
+
+        @Override
+        public URI getUri() {
+            return LOCATION;
+        }
+
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public long getDeadline() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public ListenableFuture<Void> activate() {
+            return Futures.immediateFuture(null);
+        }
+
+        @Override
+        public void failed(Exception cause) {
+        }
+
+        @Override
+        public void failed(int rc, String msg) {
+        }
+
+        @Override
+        public void completed(Void result) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+              .include(ScriptNearlineStorageBenchmark.class.getSimpleName())
+              .build();
+
+        new Runner(opt).run();
+    }
+}
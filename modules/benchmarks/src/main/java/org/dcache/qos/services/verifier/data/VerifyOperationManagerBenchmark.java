@@ -0,0 +1,247 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.qos.services.verifier.data;
+
+import static org.dcache.qos.data.QoSMessageType.SYSTEM_SCAN;
+
+import diskCacheV111.util.PnfsId;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.dcache.qos.data.FileQoSUpdate;
+import org.dcache.qos.data.QoSAction;
+import org.dcache.qos.data.QoSMessageType;
+import org.dcache.qos.services.verifier.data.VerifyOperationQueueIndex.QueueType;
+import org.dcache.qos.services.verifier.data.db.VerifyOperationDao;
+import org.dcache.qos.services.verifier.handlers.VerifyAndUpdateHandler;
+import org.dcache.qos.services.verifier.util.QoSVerifierCounters;
+import org.dcache.qos.util.QoSHistory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how long {@link VerifyOperationManager} takes to drain a backlog of verify
+ * operations, such as the one created by a pool going down, from concurrent producers.
+ * <p>
+ * Verification itself is stubbed out:  every operation is voided as soon as it runs, so the
+ * benchmark measures the scheduling overhead of the manager and its queues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class VerifyOperationManagerBenchmark {
+
+    private static final String POOL = "pool";
+
+    @Param({"1000000"})
+    private int operations;
+
+    @Param({"8"})
+    private int producers;
+
+    @Param({"200"})
+    private int maxRunning;
+
+    private VerifyOperationManager manager;
+    private ExecutorService producerService;
+    private ExecutorService verifierService;
+    private ExecutorService postProcessService;
+    private ExecutorService removalService;
+    private volatile CountDownLatch completed;
+    private PnfsId[] pnfsIds;
+
+    @Setup(Level.Trial)
+    public void createIds() {
+        pnfsIds = new PnfsId[operations];
+        for (int i = 0; i < operations; i++) {
+            pnfsIds[i] = new PnfsId(String.format("0000%032X", i));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        producerService = Executors.newFixedThreadPool(producers);
+        verifierService = Executors.newFixedThreadPool(8);
+        postProcessService = Executors.newFixedThreadPool(8);
+        removalService = Executors.newSingleThreadExecutor();
+        completed = new CountDownLatch(operations);
+
+        QueueType queueType = new QueueType();
+        queueType.setName("all");
+        queueType.setDescription("all message types");
+        queueType.setMessageTypes(Arrays.asList(QoSMessageType.values()));
+        queueType.setExecutorService(verifierService);
+
+        VerifyOperationQueueIndex queueIndex = new VerifyOperationQueueIndex();
+        queueIndex.setQueueTypes(List.of(queueType));
+
+        QoSVerifierCounters counters = new QoSVerifierCounters();
+        counters.initialize();
+
+        QoSHistory history = new QoSHistory();
+        history.initialize();
+
+        manager = new VerifyOperationManager();
+        manager.setTimeout(1);
+        manager.setTimeoutUnit(TimeUnit.SECONDS);
+        manager.setMaxRunning(maxRunning);
+        manager.setMaxRetries(1);
+        manager.setCounters(counters);
+        manager.setHistory(history);
+        manager.setDao(new NopDao());
+        manager.setHandler(new VoidingHandler());
+        manager.setQueueIndex(queueIndex);
+        manager.setPostProcessExecutor(postProcessService);
+        manager.setRemovalExecutor(removalService);
+        manager.setReloadGracePeriod(1);
+        manager.setReloadGracePeriodUnit(TimeUnit.MILLISECONDS);
+        manager.initialize();
+        manager.reload();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        manager.shutdown();
+        producerService.shutdownNow();
+        verifierService.shutdownNow();
+        postProcessService.shutdownNow();
+        removalService.shutdownNow();
+    }
+
+    @Benchmark
+    public void drainBacklog() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        int slice = (operations + producers - 1) / producers;
+        for (int p = 0; p < producers; p++) {
+            int from = p * slice;
+            int to = Math.min(from + slice, operations);
+            futures.add(producerService.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    manager.createOrUpdateOperation(
+                          new FileQoSUpdate(pnfsIds[i], POOL, SYSTEM_SCAN));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        completed.await();
+    }
+
+    /**
+     * Voids each operation as soon as it is verified and counts the completed operations.
+     */
+    private class VoidingHandler implements VerifyAndUpdateHandler {
+
+        @Override
+        public void handleUpdate(FileQoSUpdate data) {
+        }
+
+        @Override
+        public void handleVerification(PnfsId pnfsId) {
+            manager.updateVoided(manager.get(pnfsId));
+        }
+
+        @Override
+        public void updateScanRecord(String pool, boolean failed) {
+        }
+
+        @Override
+        public void handleQoSActionCompleted(PnfsId pnfsId, VerifyOperationState opState,
+              QoSAction action, Serializable exception) {
+            completed.countDown();
+        }
+
+        @Override
+        public void operationAborted(VerifyOperation operation, String pool, Set<String> tried,
+              int maxRetries) {
+        }
+
+        @Override
+        public void cancelCurrentFileOpForPool(String pool) {
+        }
+    }
+
+    /**
+     * System scan operations are never stored.
+     */
+    private static class NopDao implements VerifyOperationDao {
+
+        @Override
+        public boolean store(VerifyOperation operation) {
+            return true;
+        }
+
+        @Override
+        public int delete(VerifyOperationCriterion operation) {
+            return 0;
+        }
+
+        @Override
+        public void deleteBatch(List<PnfsId> targets, int batchSize) {
+        }
+
+        @Override
+        public List<VerifyOperation> load() {
+            return List.of();
+        }
+
+        @Override
+        public VerifyOperationCriterion where() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VerifyOperationUpdate set() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+              .include(VerifyOperationManagerBenchmark.class.getSimpleName())
+              .forks(1)
+              .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -30,6 +30,7 @@ import org.dcache.vehicles.FileAttributes;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -43,16 +44,36 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 @BenchmarkMode(Mode.Throughput)
 public class PooSelectionUnitBenchmark {
 
+    /**
+     * Number of additional experiment store units.
+     */
+    private static final int EXPERIMENTS = 500;
+
     private PoolSelectionUnitV2 psu;
     private final Predicate<String> excludeNoPools = p -> false;
 
-    private FileAttributes fileAttributes = FileAttributes.of()
-          .storageInfo(GenericStorageInfo.valueOf("a:b@osm", "*"))
-          .build();
+    /**
+     * Whether store units are resolved by regular expression matching. If on, the experiment
+     * store units are patterns rather than exact names.
+     */
+    @Param({"off", "on"})
+    private String regex;
+
+    /**
+     * Storage unit of the file to write.
+     */
+    @Param({"a:b@osm", "exp250:raw@osm"})
+    private String storageUnit;
+
+    private FileAttributes fileAttributes;
 
     @Setup
     public void setUp() throws CommandException {
 
+        fileAttributes = FileAttributes.of()
+              .storageInfo(GenericStorageInfo.valueOf(storageUnit, "*"))
+              .build();
+
         psu = new PoolSelectionUnitV2();
         var ci = new CommandInterpreter(psu);
 
@@ -114,6 +135,12 @@ public class PooSelectionUnitBenchmark {
         ci.command(new Args("psu addto ugroup all herab:u2@osm"));
         ci.command(new Args("psu addto ugroup all *@*"));
 
+        for (int i = 0; i < EXPERIMENTS; i++) {
+            String unit = regex.equals("on") ? "exp" + i + ":.*@osm" : "exp" + i + ":raw@osm";
+            ci.command(new Args("psu create unit -store " + unit));
+            ci.command(new Args("psu addto ugroup all " + unit));
+        }
+
         ci.command(new Args("psu addto ugroup all-hera h1:u1@osm"));
         ci.command(new Args("psu addto ugroup all-hera h1:u2@osm"));
         ci.command(new Args("psu addto ugroup all-hera zeus:u1@osm"));
@@ -294,6 +321,7 @@ public class PooSelectionUnitBenchmark {
         ci.command(new Args("psu addto link default-write-link-in default-write-pools"));
 
         ci.command("psu set allpoolsactive on");
+        ci.command("psu set regex " + regex);
 
     }
 
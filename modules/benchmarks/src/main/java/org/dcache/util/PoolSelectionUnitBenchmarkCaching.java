@@ -18,6 +18,7 @@
  */
 package org.dcache.util;
 
+import com.google.common.cache.CacheStats;
 import diskCacheV111.poolManager.PoolPreferenceLevel;
 import diskCacheV111.poolManager.PoolSelectionUnit.DirectionType;
 import diskCacheV111.poolManager.PoolSelectionUnitV2;
@@ -31,20 +32,26 @@ import java.util.function.Predicate;
 import org.dcache.vehicles.FileAttributes;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
-@State(Scope.Thread)
+@State(Scope.Benchmark)
 @BenchmarkMode(Mode.Throughput)
 public class PoolSelectionUnitBenchmarkCaching {
 
+    @Param({"false", "true"})
+    private boolean caching;
+
     private PoolSelectionUnitV2 psu;
     private final Predicate<String> excludeNoPools = p -> false;
 
@@ -57,6 +64,7 @@ public class PoolSelectionUnitBenchmarkCaching {
     public void setUp() throws CommandException {
 
         psu = new PoolSelectionUnitV2();
+        psu.setCachingEnabeled(caching);
         var ci = new CommandInterpreter(psu);
 
         StorageInfos.injectInto(GenericStorageInfo.valueOf("*", "*"), fileAttributes);
@@ -340,6 +348,15 @@ public class PoolSelectionUnitBenchmarkCaching {
 
     }
 
+    @TearDown(Level.Trial)
+    public void reportCacheStats() {
+        if (caching) {
+            CacheStats stats = psu.getSelectionCacheStats();
+            System.out.printf("%nSelection cache: %d requests, hit ratio %.4f%n",
+                  stats.requestCount(), stats.hitRate());
+        }
+    }
+
     /*
      * test case: check that write with unknow storage group goes only to default-write pool
      */
@@ -17,6 +17,7 @@
  */
 package dmg.cells.network;
 
+import com.google.common.base.Throwables;
 import dmg.cells.nucleus.CellAdapter;
 import dmg.cells.nucleus.CellDomainInfo;
 import dmg.cells.nucleus.CellDomainRole;
@@ -45,9 +46,15 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.nio.channels.AsynchronousCloseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.concurrent.atomic.LongAdder;
 import org.dcache.util.Args;
 import org.dcache.util.NDC;
@@ -67,6 +74,19 @@ public class LocationMgrTunnel
     private static final Logger _log =
           LoggerFactory.getLogger(LocationMgrTunnel.class);
 
+    /**
+     * Maximum number of messages waiting to be written to the peer. Cell threads delivering
+     * messages to the tunnel block once the queue is full.
+     */
+    private static final int OUTBOUND_QUEUE_SIZE = 4096;
+
+    /**
+     * Maximum number of messages written to the socket with a single flush.
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     private final CellNucleus _nucleus;
 
     private final CellDomainInfo _localDomainInfo;
@@ -74,6 +94,7 @@ public class LocationMgrTunnel
     private boolean _allowForwardingOfRemoteMessages;
 
     private Thread _thread;
+    private Thread _writerThread;
     private final Socket _socket;
 
     private final OutputStream _rawOut;
@@ -84,17 +105,29 @@ public class LocationMgrTunnel
 
     private SerializationHandler.Serializer _serializer;
 
+    /**
+     * Messages waiting for the writer thread.
+     */
+    private final BlockingQueue<OutboundMessage> _outbound =
+          new ArrayBlockingQueue<>(OUTBOUND_QUEUE_SIZE);
+
+    private volatile boolean _isClosed;
+
     //
     // some statistics
     //
     private LongAdder _messagesToTunnel = new LongAdder();
     private LongAdder _messagesToSystem = new LongAdder();
+    private LongAdder _batches = new LongAdder();
+    private LongAccumulator _maxBatchSize = new LongAccumulator(Math::max, 0);
+    private LongAdder _queueDelay = new LongAdder();
+    private LongAccumulator _maxQueueDelay = new LongAccumulator(Math::max, 0);
 
     public LocationMgrTunnel(String cellName, StreamEngine engine, Args args) {
         super(cellName, "System", args);
         _nucleus = getNucleus();
         _socket = engine.getSocket();
-        _rawOut = new BufferedOutputStream(engine.getOutputStream());
+        _rawOut = new BufferedOutputStream(engine.getOutputStream(), OUTPUT_BUFFER_SIZE);
         _rawIn = new BufferedInputStream(engine.getInputStream());
         CellDomainRole role = args.hasOption("role") ? CellDomainRole.valueOf(
               args.getOption("role").toUpperCase()) : CellDomainRole.SATELLITE;
@@ -114,6 +147,8 @@ public class LocationMgrTunnel
     @Override
     protected void started() {
         installRoutes();
+        _writerThread = _nucleus.newThread(this::writeMessages, "Tunnel-writer");
+        _writerThread.start();
         _thread = _nucleus.newThread(this, "Tunnel");
         _thread.start();
     }
@@ -122,7 +157,12 @@ public class LocationMgrTunnel
     public void stopped() {
         _log.info("Closing tunnel to {}", getRemoteDomainName());
         _tunnels.remove(this);
+        _isClosed = true;
         try {
+            if (_writerThread != null) {
+                _writerThread.interrupt();
+                _writerThread.join(2_000);
+            }
             _socket.shutdownOutput();
             if (_thread != null) {
                 _thread.join(2_000);
@@ -138,6 +178,7 @@ public class LocationMgrTunnel
             } catch (IOException e) {
                 _log.warn("Failed to close socket: {}", e.getMessage());
             }
+            rejectQueuedMessages();
         }
     }
 
@@ -179,6 +220,14 @@ public class LocationMgrTunnel
 
                 SerializationHandler.Serializer serializer = samedVersionEndpoint ?
                       _nucleus.getMsgSerialization() : SerializationHandler.Serializer.JOS;
+
+                // The compact schema encoding is only understood by identical versions
+                if (serializer == SerializationHandler.Serializer.SCHEMA
+                      && !_remoteDomainInfo.getVersion().equals(_localDomainInfo.getVersion())) {
+                    _log.info("Using standard serialization with {} due to version mismatch.",
+                          _remoteDomainInfo);
+                    serializer = SerializationHandler.Serializer.JOS;
+                }
                 this._serializer = serializer;
                 /* Since dCache 3.0 we use raw encoding of CellMessage. */
                 _input = new RawObjectSource(_rawIn);
@@ -218,24 +267,96 @@ public class LocationMgrTunnel
         }
     }
 
+    /**
+     * Body of the writer thread. Takes messages from the outbound queue and writes all messages
+     * that are ready, up to {@link #MAX_BATCH_SIZE}, with a single flush of the socket.
+     * <p>
+     * The writer never waits for further messages: a batch consists of whatever was queued while
+     * the previous batch was written, thus latency is not increased when the tunnel is idle.
+     */
+    private void writeMessages() {
+        NDC.push(_remoteDomainInfo.toString());
+        List<OutboundMessage> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try {
+            while (!_isClosed) {
+                batch.add(_outbound.take());
+                _outbound.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                long now = System.nanoTime();
+                for (OutboundMessage message : batch) {
+                    long delay = now - message.queued;
+                    _queueDelay.add(delay);
+                    _maxQueueDelay.accumulate(delay);
+                    _output.writeObject(message.message);
+                }
+                _output.flush();
+
+                _batches.increment();
+                _maxBatchSize.accumulate(batch.size());
+                _messagesToTunnel.add(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException ignored) {
+        } catch (IOException e) {
+            _log.warn("Error while sending message: {}", e.getMessage());
+            closeAfterWriteFailure(batch);
+        } catch (Throwable t) {
+            /* Without a writer, cell threads delivering to the tunnel would wait for
+             * space in the queue forever, so the tunnel must be shut down.
+             */
+            _log.error("Unexpected failure while sending message, closing tunnel.", t);
+            closeAfterWriteFailure(batch);
+            Throwables.throwIfInstanceOf(t, Error.class);
+        } finally {
+            NDC.pop();
+        }
+    }
+
+    private void closeAfterWriteFailure(List<OutboundMessage> batch) {
+        _isClosed = true;
+        kill();
+        batch.forEach(m -> returnToSender(m.message));
+        rejectQueuedMessages();
+    }
+
+    private void rejectQueuedMessages() {
+        OutboundMessage message;
+        while ((message = _outbound.poll()) != null) {
+            returnToSender(message.message);
+        }
+    }
+
+    private void returnToSender(CellMessage msg) {
+        NoRouteToCellException noRoute =
+              new NoRouteToCellException(msg,
+                    "Communication failure. Message could not be delivered.");
+        CellMessage envelope = new CellMessage(msg.getSourcePath().revert(), noRoute);
+        envelope.setLastUOID(msg.getUOID());
+        _nucleus.sendMessage(envelope, true, true, true);
+    }
+
     @Override
     public void messageArrived(MessageEvent me) {
         if (me instanceof RoutedMessageEvent) {
             CellMessage msg = me.getMessage();
             try {
-                _messagesToTunnel.increment();
-                _output.writeObject(msg);
-            } catch (IOException e) {
+                OutboundMessage message = new OutboundMessage(_output.encode(msg));
+                while (!_outbound.offer(message, 100, TimeUnit.MILLISECONDS)) {
+                    if (_isClosed) {
+                        returnToSender(msg);
+                        return;
+                    }
+                }
+                if (_isClosed) {
+                    /* The writer may have terminated before picking up the message.
+                     */
+                    rejectQueuedMessages();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 NDC.push(_remoteDomainInfo.toString());
                 try {
-                    kill();
-                    _log.warn("Error while sending message: {}", e.getMessage());
-                    NoRouteToCellException noRoute =
-                          new NoRouteToCellException(msg,
-                                "Communication failure. Message could not be delivered.");
-                    CellMessage envelope = new CellMessage(msg.getSourcePath().revert(), noRoute);
-                    envelope.setLastUOID(msg.getUOID());
-                    _nucleus.sendMessage(envelope, true, true, true);
+                    returnToSender(msg);
                 } finally {
                     NDC.pop();
                 }
@@ -283,6 +404,16 @@ public class LocationMgrTunnel
         pw.println("Messages delivered to");
         pw.println("   Peer       : " + _messagesToTunnel);
         pw.println("   Local      : " + _messagesToSystem);
+        long batches = _batches.sum();
+        long messages = _messagesToTunnel.sum();
+        pw.println("Outbound queue");
+        pw.println("   Queued     : " + _outbound.size());
+        pw.println("   Batches    : " + batches);
+        pw.println("   Batch size : " + String.format("%.1f avg, %d max",
+              batches == 0 ? 0.0 : (double) messages / batches, _maxBatchSize.get()));
+        pw.println("   Delay      : " + String.format("%d µs avg, %d µs max",
+              messages == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(_queueDelay.sum() / messages),
+              TimeUnit.NANOSECONDS.toMicros(_maxQueueDelay.get())));
         pw.println("Local domain");
         pw.println("   Name       : " + _localDomainInfo.getCellDomainName());
         pw.println("   Version    : " + _localDomainInfo.getVersion());
@@ -352,9 +483,28 @@ public class LocationMgrTunnel
         }
     }
 
+    private static class OutboundMessage {
+
+        private final CellMessage message;
+        private final long queued = System.nanoTime();
+
+        private OutboundMessage(CellMessage message) {
+            this.message = message;
+        }
+    }
+
     private interface ObjectSink {
 
+        /**
+         * Returns the message with its payload in the encoding used on the wire. Called by the
+         * thread delivering the message to the tunnel, such that serialization does not block the
+         * writer thread.
+         */
+        CellMessage encode(CellMessage message);
+
         void writeObject(CellMessage message) throws IOException;
+
+        void flush() throws IOException;
     }
 
     private static class RawObjectSink implements ObjectSink {
@@ -368,12 +518,19 @@ public class LocationMgrTunnel
         }
 
         @Override
-        public void writeObject(CellMessage message) throws IOException {
+        public CellMessage encode(CellMessage message) {
             // Older versions do not support the new serialization format
             // Due to lack of message versioning support, always use JOS with different dCache versions
-            message.ensureEncodedWith(serializer);
+            return message.ensureEncodedWith(serializer);
+        }
 
+        @Override
+        public void writeObject(CellMessage message) throws IOException {
             message.writeTo(out);
+        }
+
+        @Override
+        public void flush() throws IOException {
             out.flush();
         }
     }
@@ -39,6 +39,7 @@ import java.util.concurrent.atomic.LongAdder;
 import org.apache.curator.framework.CuratorFramework;
 import org.dcache.util.Args;
 import org.dcache.util.Version;
+import org.dcache.util.VirtualThreads;
 import org.dcache.util.cli.CommandExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +69,13 @@ public class CellAdapter
     public static final String MAX_MESSAGE_THREADS = "cell.max-message-threads";
     public static final String MAX_MESSAGES_QUEUED = "cell.max-messages-queued";
 
+    /**
+     * Selects the threads used for message delivery: either {@code platform} (the default) or
+     * {@code virtual}. In the latter case {@link #MAX_MESSAGE_THREADS} limits the number of
+     * messages processed concurrently rather than the size of a thread pool.
+     */
+    public static final String MESSAGE_THREADS = "cell.message-threads";
+
     private final CellVersion _version = new CellVersion(Version.of(this));
 
     private final LongAdder _routeAddedCounter = new LongAdder();
@@ -160,7 +168,26 @@ public class CellAdapter
             setCommandExceptionEnabled(false);
         }
 
-        _nucleus = new CellNucleus(this, cellName, cellType, executor);
+        String messageThreads = Strings.nullToEmpty(_args.getOption(MESSAGE_THREADS));
+        switch (messageThreads) {
+            case "":
+            case "platform":
+                break;
+            case "virtual":
+                try {
+                    VirtualThreads.checkSupported();
+                } catch (UnsupportedOperationException e) {
+                    throw new IllegalArgumentException(
+                          "Invalid value for -" + MESSAGE_THREADS + ": " + e.getMessage());
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(
+                      "Invalid value for -" + MESSAGE_THREADS + ": " + messageThreads);
+        }
+
+        _nucleus = new CellNucleus(this, cellName, cellType, executor,
+              messageThreads.equals("virtual"));
         if (!Strings.isNullOrEmpty(_args.getOption(MAX_MESSAGE_THREADS))) {
             _nucleus.setMaximumPoolSize(_args.getIntOption(MAX_MESSAGE_THREADS));
         }
@@ -610,6 +637,14 @@ public class CellAdapter
             if (lng || full) {
                 StringBuilder sb = new StringBuilder();
                 sb.append(getInfo()).append('\n');
+                if (_nucleus.isUsingVirtualThreads()) {
+                    sb.append("\nMessage threads : virtual, ")
+                          .append(_nucleus.getMessageThreadCount()).append(" of ")
+                          .append(_nucleus.getMaximumPoolSize()).append(" active\n");
+                    sb.append("Pinned          : ").append(_nucleus.getPinnedCount())
+                          .append(" times, ").append(_nucleus.getPinnedTime().toMillis())
+                          .append(" ms\n");
+                }
                 Map<UOID, CellLock> map = _nucleus.getWaitQueue();
                 if (!map.isEmpty()) {
                     sb.append("\nWe are waiting for the following messages\n");
@@ -246,8 +246,13 @@ public final class CellMessage implements Cloneable, Serializable {
         checkArgument(handler != null,
               "Cannot ensure CellMessage is encoded. The given msg payload serializer is null.");
 
-        // only one serialization is supported
-        return this;
+        if (SerializationHandler.isEncodedWith(_messageStream, handler)) {
+            return this;
+        }
+        CellMessage encoded = clone();
+        encoded._messageStream = SerializationHandler.encode(
+              SerializationHandler.decode(_messageStream), handler);
+        return encoded;
     }
 
     public CellMessage decode() throws SerializationException {
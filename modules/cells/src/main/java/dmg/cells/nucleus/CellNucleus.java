@@ -21,6 +21,7 @@ import dmg.util.logback.RootFilterThresholds;
 import java.io.FileNotFoundException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -50,6 +51,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import javax.annotation.Nonnull;
@@ -58,6 +60,7 @@ import org.apache.curator.framework.CuratorFramework;
 import org.dcache.util.BoundedCachedExecutor;
 import org.dcache.util.BoundedExecutor;
 import org.dcache.util.FireAndForgetTask;
+import org.dcache.util.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -135,6 +138,20 @@ public class CellNucleus implements ThreadFactory {
     private final BoundedExecutor _messageExecutor;
     private final AtomicInteger _eventQueueSize = new AtomicInteger();
 
+    /**
+     * Whether messages are delivered on virtual threads.
+     */
+    private final boolean _isUsingVirtualThreads;
+
+    /**
+     * Registration for pinning events of this cell's virtual threads; null if messages are
+     * delivered on platform threads.
+     */
+    private final AutoCloseable _pinningListener;
+
+    private final LongAdder _pinnedCount = new LongAdder();
+    private final LongAdder _pinnedTime = new LongAdder();
+
     /**
      * Timer for periodic low-priority maintenance tasks. Shared among all cell instances. Since a
      * Timer is single-threaded, it is important that the timer is not used for long-running or
@@ -177,6 +194,19 @@ public class CellNucleus implements ThreadFactory {
 
 
     public CellNucleus(Cell cell, String name, String type, Executor executor) {
+        this(cell, name, type, executor, false);
+    }
+
+    /**
+     * Creates a new nucleus.
+     *
+     * @param executor       executor used to deliver messages, or null to create one for this cell
+     * @param virtualThreads whether the message executor created for this cell runs on virtual
+     *                       threads; ignored if an executor is provided
+     * @throws UnsupportedOperationException if virtual threads are requested but not supported
+     */
+    public CellNucleus(Cell cell, String name, String type, Executor executor,
+          boolean virtualThreads) {
         String cellName = name.replace('@', '+');
 
         if (cellName.isEmpty()) {
@@ -219,8 +249,21 @@ public class CellNucleus implements ThreadFactory {
                     : parentNucleus.getLoggingThresholds();
         setLoggingThresholds(new FilterThresholdSet(parentThresholds));
 
-        _messageExecutor = (executor == null) ? new BoundedCachedExecutor(this, 1)
-              : new BoundedExecutor(executor, 1);
+        _isUsingVirtualThreads = virtualThreads && executor == null;
+        if (_isUsingVirtualThreads) {
+            String prefix = cellName + "-vt-";
+            _messageExecutor = VirtualThreads.newBoundedExecutor(prefix, 1);
+            _pinningListener = VirtualThreads.addPinningListener((thread, duration) -> {
+                if (thread.startsWith(prefix)) {
+                    _pinnedCount.increment();
+                    _pinnedTime.add(duration.toNanos());
+                }
+            });
+        } else {
+            _messageExecutor = (executor == null) ? new BoundedCachedExecutor(this, 1)
+                  : new BoundedExecutor(executor, 1);
+            _pinningListener = null;
+        }
 
         CuratorFramework curatorFramework = __cellGlue.getCuratorFramework();
         _curatorFramework = new CellCuratorFramework(curatorFramework, _messageExecutor);
@@ -361,7 +404,11 @@ public class CellNucleus implements ThreadFactory {
             info.setEventQueueSize(eventQueueSize);
             info.setExpectedQueueTime((eventQueueSize == 0) ? 0 : _lastQueueTime);
             info.setState(_state.externalState);
-            info.setThreadCount(_threads.activeCount());
+            int threadCount = _threads.activeCount();
+            if (_isUsingVirtualThreads) {
+                threadCount += _messageExecutor.getThreadCount();
+            }
+            info.setThreadCount(threadCount);
         } catch (Exception e) {
             info.setEventQueueSize(0);
             info.setState(0);
@@ -402,6 +449,34 @@ public class CellNucleus implements ThreadFactory {
         return _messageExecutor.getMaximumQueueSize();
     }
 
+    /**
+     * Returns whether messages are delivered on virtual threads.
+     */
+    public boolean isUsingVirtualThreads() {
+        return _isUsingVirtualThreads;
+    }
+
+    /**
+     * Returns the number of threads currently delivering messages to this cell.
+     */
+    public int getMessageThreadCount() {
+        return _messageExecutor.getThreadCount();
+    }
+
+    /**
+     * Returns how often a message thread of this cell was pinned to its carrier thread.
+     */
+    public long getPinnedCount() {
+        return _pinnedCount.sum();
+    }
+
+    /**
+     * Returns the total time message threads of this cell were pinned to their carrier threads.
+     */
+    public Duration getPinnedTime() {
+        return Duration.ofNanos(_pinnedTime.sum());
+    }
+
     public void sendMessage(CellMessage msg, boolean locally, boolean remotely,
           boolean shouldAddSource)
           throws SerializationException {
@@ -1053,6 +1128,13 @@ public class CellNucleus implements ThreadFactory {
             if (!MoreExecutors.shutdownAndAwaitTermination(_messageExecutor, 2, TimeUnit.SECONDS)) {
                 LOGGER.warn("Failed to flush message queue during shutdown.");
             }
+            if (_pinningListener != null) {
+                try {
+                    _pinningListener.close();
+                } catch (Exception e) {
+                    LOGGER.warn("Failed to stop monitoring virtual threads: {}", e.toString());
+                }
+            }
 
             /* Shut down cell.
              */
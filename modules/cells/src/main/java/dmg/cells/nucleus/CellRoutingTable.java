@@ -1,185 +1,149 @@
 package dmg.cells.nucleus;
 
-import static java.util.stream.Collectors.toList;
-
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import com.google.common.math.IntMath;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.dcache.util.ColumnWriter;
 
+/**
+ * The routing table of a cell domain.
+ * <p>
+ * Routes are resolved for every message that leaves a cell, while the table itself rarely
+ * changes. Lookups are therefore served from an immutable snapshot of all routes that is
+ * published through a volatile field and never take a lock. Modifications are serialized on the
+ * routing table, update the mutable master copy and publish a new snapshot.
+ */
 public class CellRoutingTable implements Serializable {
 
     private static final long serialVersionUID = -1456280129622980563L;
 
+    /* Master copy of the routing table. Guarded by this. */
     private final ListMultimap<String, CellRoute> _queue = ArrayListMultimap.create();
     private final SetMultimap<String, CellRoute> _domain = LinkedHashMultimap.create();
     private final SetMultimap<String, CellRoute> _exact = LinkedHashMultimap.create();
-    private final Map<String, CopyOnWriteArraySet<CellRoute>> _topic = new HashMap<>();
-    private final AtomicReference<CellRoute> _dumpster = new AtomicReference<>();
+    private final SetMultimap<String, CellRoute> _topic = LinkedHashMultimap.create();
     private final List<CellRoute> _default = new ArrayList<>();
+    private CellRoute _dumpster;
+
+    /* Immutable view of the master copy used for lookups. */
+    private volatile Snapshot _snapshot = new Snapshot(this);
 
-    public void add(CellRoute route)
+    public synchronized void add(CellRoute route)
           throws IllegalArgumentException {
         String dest;
         switch (route.getRouteType()) {
             case CellRoute.EXACT:
             case CellRoute.ALIAS:
                 dest = route.getCellName() + '@' + route.getDomainName();
-                synchronized (_exact) {
-                    if (!_exact.put(dest, route)) {
-                        throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                    }
+                if (!_exact.put(dest, route)) {
+                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
                 }
                 break;
             case CellRoute.QUEUE:
                 dest = route.getCellName();
-                synchronized (_queue) {
-                    if (_queue.containsEntry(dest, route)) {
-                        throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                    }
-                    _queue.put(dest, route);
+                if (_queue.containsEntry(dest, route)) {
+                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
                 }
+                _queue.put(dest, route);
                 break;
             case CellRoute.TOPIC:
                 dest = route.getCellName();
-                synchronized (_topic) {
-                    if (!_topic.computeIfAbsent(dest, key -> new CopyOnWriteArraySet())
-                          .add(route)) {
-                        throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                    }
+                if (!_topic.put(dest, route)) {
+                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
                 }
                 break;
             case CellRoute.DOMAIN:
                 dest = route.getDomainName();
-                synchronized (_domain) {
-                    if (!_domain.put(dest, route)) {
-                        throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                    }
+                if (!_domain.put(dest, route)) {
+                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
                 }
                 break;
             case CellRoute.DEFAULT:
-                synchronized (_default) {
-                    if (!_default.contains(route)) {
-                        _default.add(route);
-                    }
+                if (_default.contains(route)) {
+                    return;
                 }
+                _default.add(route);
                 break;
             case CellRoute.DUMPSTER:
-                if (!_dumpster.compareAndSet(null, route)) {
+                if (_dumpster != null) {
                     throw new IllegalArgumentException("Duplicated route entry for dumpster");
                 }
+                _dumpster = route;
                 break;
         }
+        _snapshot = new Snapshot(this);
     }
 
-    public void delete(CellRoute route)
+    public synchronized void delete(CellRoute route)
           throws IllegalArgumentException {
         String dest;
         switch (route.getRouteType()) {
             case CellRoute.EXACT:
             case CellRoute.ALIAS:
                 dest = route.getCellName() + '@' + route.getDomainName();
-                synchronized (_exact) {
-                    if (!_exact.remove(dest, route)) {
-                        throw new IllegalArgumentException("Route entry not found for : " + dest);
-                    }
+                if (!_exact.remove(dest, route)) {
+                    throw new IllegalArgumentException("Route entry not found for : " + dest);
                 }
                 break;
             case CellRoute.QUEUE:
                 dest = route.getCellName();
-                synchronized (_queue) {
-                    if (!_queue.remove(dest, route)) {
-                        throw new IllegalArgumentException("Route entry not found for : " + dest);
-                    }
+                if (!_queue.remove(dest, route)) {
+                    throw new IllegalArgumentException("Route entry not found for : " + dest);
                 }
                 break;
             case CellRoute.TOPIC:
                 dest = route.getCellName();
-                synchronized (_topic) {
-                    Set<CellRoute> routes = _topic.get(dest);
-                    if (!routes.remove(route)) {
-                        throw new IllegalArgumentException("Route entry not found for : " + dest);
-                    }
-                    if (routes.isEmpty()) {
-                        _topic.remove(dest);
-                    }
+                if (!_topic.remove(dest, route)) {
+                    throw new IllegalArgumentException("Route entry not found for : " + dest);
                 }
                 break;
             case CellRoute.DOMAIN:
                 dest = route.getDomainName();
-                synchronized (_domain) {
-                    if (!_domain.remove(dest, route)) {
-                        throw new IllegalArgumentException("Route entry not found for : " + dest);
-                    }
+                if (!_domain.remove(dest, route)) {
+                    throw new IllegalArgumentException("Route entry not found for : " + dest);
                 }
                 break;
             case CellRoute.DEFAULT:
-                synchronized (_default) {
-                    if (!_default.remove(route)) {
-                        throw new IllegalArgumentException("Route entry not found for default");
-                    }
+                if (!_default.remove(route)) {
+                    throw new IllegalArgumentException("Route entry not found for default");
                 }
                 break;
             case CellRoute.DUMPSTER:
-                CellRoute currentDumpster = _dumpster.get();
-                if (!Objects.equals(currentDumpster, route) || !_dumpster.compareAndSet(
-                      currentDumpster, null)) {
+                if (_dumpster == null || !_dumpster.equals(route)) {
                     throw new IllegalArgumentException("Route entry not found dumpster");
                 }
+                _dumpster = null;
                 break;
         }
+        _snapshot = new Snapshot(this);
     }
 
-    public Collection<CellRoute> delete(CellAddressCore target) {
+    public synchronized Collection<CellRoute> delete(CellAddressCore target) {
         Collection<CellRoute> deleted = new ArrayList<>();
-
-        synchronized (_exact) {
-            delete(_exact.values(), target, deleted);
-        }
-        synchronized (_queue) {
-            delete(_queue.values(), target, deleted);
-        }
-        synchronized (_domain) {
-            delete(_domain.values(), target, deleted);
-        }
-        synchronized (_topic) {
-            /* We cannot use the regular delete method because a CopyOnWriteArraySet iterator
-             * doesn't allow manipulating operations. We trade expensive deletion for not having
-             * to copy the set of topic routes in findTopicRoutes.
-             */
-            Iterator<CopyOnWriteArraySet<CellRoute>> iterator = _topic.values().iterator();
-            while (iterator.hasNext()) {
-                Set<CellRoute> routes = iterator.next();
-                List<CellRoute> toRemove =
-                      routes.stream().filter(route -> route.getTarget().equals(target))
-                            .collect(toList());
-                routes.removeAll(toRemove);
-                if (routes.isEmpty()) {
-                    iterator.remove();
-                }
-                deleted.addAll(toRemove);
-            }
-        }
-        synchronized (_default) {
-            delete(_default, target, deleted);
+        delete(_exact.values(), target, deleted);
+        delete(_queue.values(), target, deleted);
+        delete(_domain.values(), target, deleted);
+        delete(_topic.values(), target, deleted);
+        delete(_default, target, deleted);
+        if (!deleted.isEmpty()) {
+            _snapshot = new Snapshot(this);
         }
         return deleted;
     }
@@ -197,12 +161,11 @@ public class CellRoutingTable implements Serializable {
     }
 
     public CellRoute find(CellAddressCore addr, Optional<String> zone, boolean allowRemote) {
+        Snapshot snapshot = _snapshot;
         String cellName = addr.getCellName();
         String domainName = addr.getCellDomainName();
-        Optional<CellRoute> route;
-        synchronized (_exact) {
-            route = _exact.get(cellName + '@' + domainName).stream().findFirst();
-        }
+        Optional<CellRoute> route = snapshot.exact.get(cellName + '@' + domainName).stream()
+              .findFirst();
         if (route.isPresent()) {
             return route.get();
         }
@@ -211,57 +174,50 @@ public class CellRoutingTable implements Serializable {
             // this is not really local but wellknown
             // we checked for local before we called this.
             //
-            synchronized (_queue) {
-                List<CellRoute> routes = _queue.get(cellName);
-                Random random = ThreadLocalRandom.current();
-                if (!allowRemote) {
-                    CellRoute[] localRoutes =
-                          routes.stream().filter(r -> !r.getTarget().isDomainAddress())
-                                .toArray(CellRoute[]::new);
-                    return (localRoutes.length > 0) ? localRoutes[random.nextInt(
-                          localRoutes.length)] : null;
-                } else if (!routes.isEmpty()) {
-
-                    if (zone.isPresent()) {
-                        CellRoute[] localRoutes = routes
-                              .stream()
-                              .filter(r -> r.getZone().equals(zone))
-                              .toArray(CellRoute[]::new);
+            Random random = ThreadLocalRandom.current();
+            if (!allowRemote) {
+                List<CellRoute> localRoutes = snapshot.localQueue.get(cellName);
+                return localRoutes.isEmpty()
+                      ? null : localRoutes.get(random.nextInt(localRoutes.size()));
+            }
+            List<CellRoute> routes = snapshot.queue.get(cellName);
+            if (!routes.isEmpty()) {
+                if (zone.isPresent()) {
+                    CellRoute[] zonedRoutes = routes
+                          .stream()
+                          .filter(r -> r.getZone().equals(zone))
+                          .toArray(CellRoute[]::new);
 
-                        if (localRoutes.length > 0) {
-                            return localRoutes[random.nextInt(localRoutes.length)];
-                        }
+                    if (zonedRoutes.length > 0) {
+                        return zonedRoutes[random.nextInt(zonedRoutes.length)];
                     }
-                    return routes.get(random.nextInt(routes.size()));
                 }
+                return routes.get(random.nextInt(routes.size()));
             }
         } else {
-            synchronized (_domain) {
-                route = _domain.get(domainName).stream().findFirst();
-            }
+            route = snapshot.domain.get(domainName).stream().findFirst();
             if (route.isPresent()) {
                 return route.get();
             }
         }
-        synchronized (_default) {
 
-            if (_default.isEmpty()) {
-                return null;
-            }
+        List<CellRoute> defaults = snapshot.defaults;
+        if (defaults.isEmpty()) {
+            return null;
+        }
 
-            if (zone.isPresent()) {
-                Optional<CellRoute> defaultZonedRoute = _default
-                      .stream()
-                      .filter(r -> r.getZone().equals(zone))
-                      .findAny();
+        if (zone.isPresent()) {
+            Optional<CellRoute> defaultZonedRoute = defaults
+                  .stream()
+                  .filter(r -> r.getZone().equals(zone))
+                  .findAny();
 
-                if (defaultZonedRoute.isPresent()) {
-                    return defaultZonedRoute.get();
-                }
+            if (defaultZonedRoute.isPresent()) {
+                return defaultZonedRoute.get();
             }
-
-            return _default.get(IntMath.mod(addr.hashCode(), _default.size()));
         }
+
+        return defaults.get(IntMath.mod(addr.hashCode(), defaults.size()));
     }
 
     public Set<CellRoute> findTopicRoutes(CellAddressCore addr) {
@@ -270,11 +226,7 @@ public class CellRoutingTable implements Serializable {
         if (!domainName.equals("local")) {
             return Collections.emptySet();
         }
-        CopyOnWriteArraySet<CellRoute> routes;
-        synchronized (_topic) {
-            routes = _topic.get(cellName);
-        }
-        return (routes != null) ? routes : Collections.emptySet();
+        return _snapshot.topic.get(cellName);
     }
 
     public String toString() {
@@ -291,55 +243,67 @@ public class CellRoutingTable implements Serializable {
                     .value("gateway", route.getTarget())
                     .value("type", route.getRouteTypeName());
 
-        synchronized (_topic) {
-            _topic.values().forEach(routes -> routes.forEach(append));
-        }
-        synchronized (_exact) {
-            _exact.values().forEach(append);
-        }
-        synchronized (_queue) {
-            _queue.values().forEach(append);
-        }
-        synchronized (_domain) {
-            _domain.values().forEach(append);
-        }
-        synchronized (_default) {
-            _default.forEach(append);
-        }
-        CellRoute dumpsterRoute = _dumpster.get();
-        if (dumpsterRoute != null) {
-            append.accept(dumpsterRoute);
-        }
+        _snapshot.forEach(append);
         return writer.toString();
     }
 
     public CellRoute[] getRoutingList() {
         List<CellRoute> routes = new ArrayList<>();
-        synchronized (_topic) {
-            _topic.values().forEach(routes::addAll);
-        }
-        synchronized (_exact) {
-            routes.addAll(_exact.values());
-        }
-        synchronized (_queue) {
-            routes.addAll(_queue.values());
-        }
-        synchronized (_domain) {
-            routes.addAll(_domain.values());
-        }
-        synchronized (_default) {
-            routes.addAll(_default);
-        }
-        CellRoute dumpsterRoute = _dumpster.get();
-        if (dumpsterRoute != null) {
-            routes.add(dumpsterRoute);
-        }
+        _snapshot.forEach(routes::add);
         return routes.toArray(CellRoute[]::new);
     }
 
     public boolean hasDefaultRoute() {
-        synchronized (_default) {
-            return !_default.isEmpty();
+        return !_snapshot.defaults.isEmpty();
+    }
+
+    /**
+     * Immutable copy of the routing table.
+     */
+    private static class Snapshot implements Serializable {
+
+        private static final long serialVersionUID = 6318291465458563420L;
+
+        private final ImmutableSetMultimap<String, CellRoute> exact;
+        private final ImmutableListMultimap<String, CellRoute> queue;
+        private final ImmutableListMultimap<String, CellRoute> localQueue;
+        private final ImmutableSetMultimap<String, CellRoute> topic;
+        private final ImmutableSetMultimap<String, CellRoute> domain;
+        private final ImmutableList<CellRoute> defaults;
+        private final CellRoute dumpster;
+
+        /**
+         * Creates a snapshot of the given routing table. Must be called while holding the monitor
+         * of the routing table.
+         */
+        Snapshot(CellRoutingTable table) {
+            exact = ImmutableSetMultimap.copyOf(table._exact);
+            queue = ImmutableListMultimap.copyOf(table._queue);
+            localQueue = ImmutableListMultimap.copyOf(filterLocal(table._queue));
+            topic = ImmutableSetMultimap.copyOf(table._topic);
+            domain = ImmutableSetMultimap.copyOf(table._domain);
+            defaults = ImmutableList.copyOf(table._default);
+            dumpster = table._dumpster;
+        }
+
+        private static Multimap<String, CellRoute> filterLocal(
+              ListMultimap<String, CellRoute> routes) {
+            ListMultimap<String, CellRoute> local = ArrayListMultimap.create();
+            routes.entries().stream()
+                  .filter(e -> !e.getValue().getTarget().isDomainAddress())
+                  .forEach(e -> local.put(e.getKey(), e.getValue()));
+            return local;
+        }
+
+        void forEach(Consumer<CellRoute> consumer) {
+            topic.values().forEach(consumer);
+            exact.values().forEach(consumer);
+            queue.values().forEach(consumer);
+            domain.values().forEach(consumer);
+            defaults.forEach(consumer);
+            if (dumpster != null) {
+                consumer.accept(dumpster);
+            }
         }
     }
 }
@@ -0,0 +1,63 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A hand-written binary codec for a single message payload class.
+ * <p>
+ * Codecs are used by {@link MsgSerializerSchema} and are discovered through
+ * {@link java.util.ServiceLoader}. A codec is only used for objects whose class is exactly
+ * {@link #getType()}; subclasses are encoded with Java object serialization.
+ * <p>
+ * Every codec carries a wire identifier that must be unique among all codecs and a schema version
+ * that must be incremented whenever the encoding changes. The decoder receives the version the
+ * object was encoded with and must either understand it or fail with an {@link IOException}.
+ *
+ * @param <T> the type of payload handled by the codec
+ */
+public interface MessageCodec<T> {
+
+    /**
+     * Returns the exact class of objects handled by this codec.
+     */
+    Class<T> getType();
+
+    /**
+     * Returns the wire identifier of this codec.
+     */
+    short getId();
+
+    /**
+     * Returns the schema version written by {@link #encode}.
+     */
+    byte getVersion();
+
+    /**
+     * Writes the given object to the output.
+     */
+    void encode(T object, DataOutput out) throws IOException;
+
+    /**
+     * Reads an object that was written with the given schema version.
+     */
+    T decode(DataInput in, byte version) throws IOException;
+}
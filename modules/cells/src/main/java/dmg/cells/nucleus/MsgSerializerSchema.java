@@ -0,0 +1,337 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class contains methods for serializing and deserializing objects to/from a byte array
+ * representation. It uses hand-written, versioned {@link MessageCodec}s for the payload classes
+ * that have one and falls back to native Java Object Serialization for everything else.
+ * <p>
+ * A schema encoded payload starts with {@link #MAGIC}, followed by the codec identifier, the codec
+ * schema version and the codec specific body. Java serialization streams always start with
+ * {@code 0xACED}, thus both encodings can be told apart by the first byte.
+ * <p>
+ * The encoding of enums by ordinal and the lack of field tags make the format only suitable
+ * between domains running the same dCache version. {@link dmg.cells.network.LocationMgrTunnel}
+ * enforces this during the handshake.
+ */
+public final class MsgSerializerSchema {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MsgSerializerSchema.class);
+
+    /**
+     * First byte of a schema encoded payload.
+     */
+    public static final byte MAGIC = (byte) 0xDC;
+
+    private static final byte NESTED_NULL = 0;
+    private static final byte NESTED_JOS = 1;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * Buffers larger than this are not retained by the encoding threads.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS =
+          ThreadLocal.withInitial(() -> new Buffer(INITIAL_BUFFER_SIZE));
+
+    private static final Map<Class<?>, MessageCodec<?>> CODECS_BY_TYPE = new HashMap<>();
+    private static final Map<Short, MessageCodec<?>> CODECS_BY_ID = new HashMap<>();
+
+    static {
+        for (MessageCodec<?> codec : ServiceLoader.load(MessageCodec.class)) {
+            register(codec);
+        }
+    }
+
+    private MsgSerializerSchema() {
+    }
+
+    private static void register(MessageCodec<?> codec) {
+        MessageCodec<?> existing = CODECS_BY_ID.putIfAbsent(codec.getId(), codec);
+        if (existing != null) {
+            LOGGER.error("Ignoring message codec {}: identifier {} is already used by {}.",
+                  codec.getClass().getName(), codec.getId(), existing.getClass().getName());
+            return;
+        }
+        CODECS_BY_TYPE.put(codec.getType(), codec);
+    }
+
+    /**
+     * Returns true if the given payload has a schema codec.
+     */
+    public static boolean hasCodec(Object message) {
+        return message != null && CODECS_BY_TYPE.containsKey(message.getClass());
+    }
+
+    /**
+     * Returns true if the encoded payload was written by a schema codec.
+     */
+    public static boolean isSchemaEncoded(byte[] messageStream) {
+        return messageStream.length > 0 && messageStream[0] == MAGIC;
+    }
+
+    public static byte[] encode(Object message) {
+        checkState(message != null, "Unencoded message payload is null.");
+        @SuppressWarnings("unchecked")
+        MessageCodec<Object> codec = (MessageCodec<Object>) CODECS_BY_TYPE.get(message.getClass());
+        if (codec == null) {
+            return MsgSerializerJos.encode(message);
+        }
+
+        Buffer buffer = BUFFERS.get();
+        buffer.reset();
+        try {
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(MAGIC);
+            out.writeShort(codec.getId());
+            out.writeByte(codec.getVersion());
+            codec.encode(message, out);
+            return buffer.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to serialize object of type "
+                  + message.getClass().getName() + ": " + e + " (this is usually a bug)", e);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                BUFFERS.remove();
+            }
+        }
+    }
+
+    public static Object decode(byte[] messageStream) {
+        checkState(messageStream != null, "Encoded message payload is null.");
+        if (!isSchemaEncoded(messageStream)) {
+            return MsgSerializerJos.decode(messageStream);
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(messageStream));
+            in.readByte();
+            return readWithCodec(in);
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof SerializationException) {
+                throw (SerializationException) e;
+            }
+            throw new SerializationException("Failed to deserialize object: " + e, e);
+        }
+    }
+
+    private static Object readWithCodec(DataInput in) throws IOException {
+        short id = in.readShort();
+        byte version = in.readByte();
+        MessageCodec<?> codec = CODECS_BY_ID.get(id);
+        if (codec == null) {
+            throw new SerializationException(
+                  "Failed to deserialize object: No codec with identifier " + id
+                        + ". Is there a software version mismatch in your installation?");
+        }
+        if (version > codec.getVersion()) {
+            throw new SerializationException("Failed to deserialize object of type "
+                  + codec.getType().getName() + ": Unsupported schema version " + version
+                  + ". Is there a software version mismatch in your installation?");
+        }
+        return codec.decode(in, version);
+    }
+
+    /*
+     * Helper methods for codec implementations.
+     */
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeStrings(DataOutput out, Collection<String> values)
+          throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+    }
+
+    public static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    public static void writeStringMap(DataOutput out, Map<String, String> values)
+          throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+    }
+
+    public static Map<String, String> readStringMap(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, String> values = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.put(in.readUTF(), readString(in));
+        }
+        return values;
+    }
+
+    /**
+     * Writes a set of enum constants as a bit mask over their ordinals.
+     */
+    public static <E extends Enum<E>> void writeEnumSet(DataOutput out, Set<E> values)
+          throws IOException {
+        if (values == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        long mask = 0;
+        for (E value : values) {
+            checkArgument(value.ordinal() < Long.SIZE, "Too many enum constants: %s", value);
+            mask |= 1L << value.ordinal();
+        }
+        out.writeBoolean(true);
+        out.writeLong(mask);
+    }
+
+    public static <E extends Enum<E>> EnumSet<E> readEnumSet(DataInput in, Class<E> type)
+          throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long mask = in.readLong();
+        EnumSet<E> values = EnumSet.noneOf(type);
+        for (E value : type.getEnumConstants()) {
+            if ((mask & (1L << value.ordinal())) != 0) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Writes a nested object. Objects with a registered codec are written inline with that codec,
+     * everything else is embedded using Java object serialization.
+     */
+    public static void writeObject(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NESTED_NULL);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        MessageCodec<Object> codec = (MessageCodec<Object>) CODECS_BY_TYPE.get(value.getClass());
+        if (codec == null) {
+            byte[] bytes = MsgSerializerJos.encode(value);
+            out.writeByte(NESTED_JOS);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeByte(MAGIC);
+            out.writeShort(codec.getId());
+            out.writeByte(codec.getVersion());
+            codec.encode(value, out);
+        }
+    }
+
+    /**
+     * Reads an object written by {@link #writeObject}.
+     */
+    public static <T extends Serializable> T readObject(DataInput in, Class<T> type)
+          throws IOException {
+        Object value;
+        byte tag = in.readByte();
+        switch (tag) {
+            case NESTED_NULL:
+                return null;
+            case NESTED_JOS:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                value = MsgSerializerJos.decode(bytes);
+                break;
+            case MAGIC:
+                value = readWithCodec(in);
+                break;
+            default:
+                throw new IOException("Invalid nested object tag: " + tag);
+        }
+        if (!type.isInstance(value)) {
+            throw new IOException("Expected " + type.getName() + " but found "
+                  + value.getClass().getName());
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * A reusable output buffer.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        Buffer(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
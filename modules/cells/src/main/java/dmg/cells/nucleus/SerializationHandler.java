@@ -26,14 +26,14 @@ import org.slf4j.LoggerFactory;
  * The class contains methods for serializing and deserializing objects to/from a byte array
  * representation. It selects the deserialization method based on a header that is appended to
  * serialized byte arrays based on the used serializer. Currently the class can differentiate
- * between JOS and FST.
+ * between JOS and the compact schema based encoding of {@link MsgSerializerSchema}.
  */
 public final class SerializationHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SerializationHandler.class);
 
     public enum Serializer {
-        UNDEFINED("undefined"), JOS("standard");
+        UNDEFINED("undefined"), JOS("standard"), SCHEMA("compact");
 
         private final String displayName;
 
@@ -57,6 +57,8 @@ public final class SerializationHandler {
         switch (serializerString) {
             case "standard":
                 return Serializer.JOS;
+            case "compact":
+                return Serializer.SCHEMA;
             case "experimental":
                 // keep the keyword for the future use.
             default:
@@ -68,13 +70,24 @@ public final class SerializationHandler {
     }
 
     public static boolean isEncodedWith(byte[] msgStream, Serializer serializer) {
-        return true; // we expect only one serialization type
+        switch (serializer) {
+            case JOS:
+                return !MsgSerializerSchema.isSchemaEncoded(msgStream);
+            case SCHEMA:
+                // the schema serializer falls back to JOS for unknown types
+                return true;
+            case UNDEFINED:
+            default:
+                return false;
+        }
     }
 
     public static byte[] encode(Object message, Serializer serializer) {
         switch (serializer) {
             case JOS:
                 return MsgSerializerJos.encode(message);
+            case SCHEMA:
+                return MsgSerializerSchema.encode(message);
             case UNDEFINED:
             default:
                 throw new UnsupportedOperationException(
@@ -83,7 +96,7 @@ public final class SerializationHandler {
     }
 
     public static Object decode(byte[] messageStream) {
-        return MsgSerializerJos.decode(messageStream);
+        return MsgSerializerSchema.decode(messageStream);
     }
 
 }
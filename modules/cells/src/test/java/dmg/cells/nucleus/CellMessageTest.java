@@ -3,6 +3,7 @@ package dmg.cells.nucleus;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -63,6 +64,32 @@ public class CellMessageTest {
     }
      */
 
+    @Test
+    public void shouldDeserializeSerializedMessage_Schema() throws Exception {
+        CellMessage message = new CellMessage(new CellPath("foo", "bar"), "payload");
+        CellMessage encoded = message.encodeWith(SerializationHandler.Serializer.SCHEMA);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream outStream = new DataOutputStream(out);
+        encoded.writeTo(outStream);
+
+        DataInputStream inStream = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        CellMessage decoded = CellMessage.createFrom(inStream).decode();
+
+        assertEquals(message.getUOID(), decoded.getUOID());
+        assertEquals(message.getDestinationPath(), decoded.getDestinationPath());
+        assertEquals("payload", decoded.getMessageObject());
+    }
+
+    @Test
+    public void shouldKeepJosEncodingWhenRepackedToJos() throws Exception {
+        CellMessage message = new CellMessage(new CellPath("foo", "bar"), "payload");
+        CellMessage encoded = message.encodeWith(SerializationHandler.Serializer.JOS);
+
+        assertSame(encoded, encoded.ensureEncodedWith(SerializationHandler.Serializer.JOS));
+        assertSame(encoded, encoded.ensureEncodedWith(SerializationHandler.Serializer.SCHEMA));
+    }
+
     @Test(expected = IllegalStateException.class)
     public void shouldFailToSerializedUnencodedMessages() throws Exception {
         CellMessage message = new CellMessage(new CellPath("foo", "bar"), "payload");
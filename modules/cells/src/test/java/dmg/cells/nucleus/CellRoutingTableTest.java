@@ -102,6 +102,31 @@ public class CellRoutingTableTest {
         assertEquals(2, alternativeRoutes.size());
     }
 
+    @Test
+    public void testDeleteGatewayRemovesTopicRoutes() {
+
+        CellAddressCore gateway = new CellAddressCore("gw", "core");
+        CellRoute route = new CellRoute("topic-A", gateway, Optional.empty(), CellRoute.TOPIC);
+
+        routingTable.add(route);
+        assertEquals(1, routingTable.findTopicRoutes(new CellAddressCore("topic-A")).size());
+
+        routingTable.delete(gateway);
+        assertTrue(routingTable.findTopicRoutes(new CellAddressCore("topic-A")).isEmpty());
+    }
+
+    @Test
+    public void testFindLocalQueueRouteOnly() {
+
+        CellAddressCore tunnel = new CellAddressCore("tunnel", "core");
+        CellAddressCore domain = new CellAddressCore("*", "remote");
+        routingTable.add(new CellRoute("cell-A", tunnel, Optional.empty(), CellRoute.QUEUE));
+        routingTable.add(new CellRoute("cell-B", domain, Optional.empty(), CellRoute.QUEUE));
+
+        assertNotNull(routingTable.find(new CellAddressCore("cell-A"), Optional.empty(), false));
+        assertNull(routingTable.find(new CellAddressCore("cell-B"), Optional.empty(), false));
+    }
+
     @Test
     public void testMultipleRoutesForDefault() {
 
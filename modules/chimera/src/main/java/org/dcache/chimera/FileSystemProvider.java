@@ -160,6 +160,27 @@ public interface FileSystemProvider extends Closeable {
           throws ChimeraFsException;
 
 
+    /**
+     * Returns a page of the entries of a directory in the order of the inode numbers of the
+     * entries.
+     * <p>
+     * The page starts with the entries whose inode number is {@code from} or larger. Paging
+     * through a directory by passing the inode number following the one of the last entry of the
+     * previous page lets the database resume the listing, so that only the entries of the
+     * requested page are read. Unlike a position, the inode number of an entry is not affected by
+     * the creation or removal of other entries. All links of the directory to the same inode are
+     * returned in the same page, thus a page may contain more than {@code limit} entries. The
+     * entries '.' and '..' are not included.
+     *
+     * @param dir   inode of the directory to list
+     * @param from  smallest inode number of the entries to return, 0 for the first page
+     * @param limit minimum number of entries to return unless the end of the directory is reached
+     * @return directory entries in inode number order, less than {@code limit} entries if the end
+     * of the directory was reached
+     */
+    List<ChimeraDirectoryEntry> listDirectory(FsInode dir, long from, int limit)
+          throws ChimeraFsException;
+
     /**
      * Returns {@link DirectoryStreamB} of ChimeraDirectoryEntry in the directory.
      * <p>
@@ -287,6 +287,52 @@ public class FsSqlDriver implements AutoCloseable {
         };
     }
 
+    /**
+     * Returns the entries of directory {@code dir} whose inode number is {@code from} or larger,
+     * in inode number order. At least {@code limit} entries are returned unless the end of the
+     * directory is reached. The links to the inode of the last entry are either all returned or
+     * none, thus more than {@code limit} entries may be returned. The entries '.' and '..' are
+     * not included.
+     *
+     * @param dir   inode of the directory to list
+     * @param from  smallest inode number of the entries to return
+     * @param limit minimum number of entries to return
+     * @return directory entries in inode number order
+     */
+    List<ChimeraDirectoryEntry> listDirectory(FsInode dir, long from, int limit) {
+        List<ChimeraDirectoryEntry> entries = _jdbc.query(
+              con -> {
+                  PreparedStatement ps = con.prepareStatement(
+                        "SELECT i.*, d.iname FROM t_dirs d JOIN t_inodes i ON i.inumber = d.ichild "
+                              + "WHERE d.iparent=? AND d.ichild >= ? ORDER BY d.ichild");
+                  ps.setMaxRows(limit);
+                  ps.setFetchSize(Math.min(limit, 1000));
+                  ps.setLong(1, dir.ino());
+                  ps.setLong(2, from);
+                  return ps;
+              },
+              (rs, rowNum) -> toDirectoryEntry(dir, rs));
+        if (entries.size() == limit) {
+            /* The limit may have cut off some of the links to the last inode. */
+            long last = entries.get(limit - 1).getInode().ino();
+            entries.removeIf(e -> e.getInode().ino() == last);
+            entries.addAll(_jdbc.query(
+                  "SELECT i.*, d.iname FROM t_dirs d JOIN t_inodes i ON i.inumber = d.ichild "
+                        + "WHERE d.iparent=? AND d.ichild=?",
+                  (rs, rowNum) -> toDirectoryEntry(dir, rs),
+                  dir.ino(), last));
+        }
+        return entries;
+    }
+
+    private ChimeraDirectoryEntry toDirectoryEntry(FsInode dir, ResultSet rs) throws SQLException {
+        Stat stat = toStat(rs);
+        FsInode inode = new FsInode(dir.getFs(), rs.getLong("inumber"), FsInodeType.INODE, 0,
+              stat);
+        inode.setParent(dir);
+        return new ChimeraDirectoryEntry(rs.getString("iname"), inode, stat);
+    }
+
     /**
      * Removes the hard link {@code name} in {@code parent} to {@code inode}. If the last link is
      * removed the object is deleted.
@@ -1163,19 +1209,23 @@ public class FsSqlDriver implements AutoCloseable {
 
 
     /**
-     * adds a new location for the inode
+     * adds a new location for the inode. Nothing is added if the inode does not exist, thus a
+     * missing inode does not fail the statement.
      *
      * @param inode
      * @param type
      * @param location
+     * @return the number of added locations, which is zero if the location already exists or
+     * the inode does not exist
      */
-    void addInodeLocation(FsInode inode, int type, String location) {
+    int addInodeLocation(FsInode inode, int type, String location) {
         Timestamp now = new Timestamp(System.currentTimeMillis());
-        _jdbc.update(
+        return _jdbc.update(
               "INSERT INTO t_locationinfo (inumber,itype,ilocation,ipriority,ictime,iatime,istate) "
                     +
                     "(SELECT * FROM (VALUES (?,?,?,?,?,?,?)) v WHERE NOT EXISTS " +
-                    "(SELECT 1 FROM t_locationinfo WHERE inumber=? AND itype=? AND ilocation=?))",
+                    "(SELECT 1 FROM t_locationinfo WHERE inumber=? AND itype=? AND ilocation=?) " +
+                    "AND EXISTS (SELECT 1 FROM t_inodes WHERE inumber=?))",
               ps -> {
                   ps.setLong(1, inode.ino());
                   ps.setInt(2, type);
@@ -1187,6 +1237,7 @@ public class FsSqlDriver implements AutoCloseable {
                   ps.setLong(8, inode.ino());
                   ps.setInt(9, type);
                   ps.setString(10, location);
+                  ps.setLong(11, inode.ino());
               });
     }
 
@@ -40,6 +40,7 @@ import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -51,6 +52,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import javax.sql.DataSource;
 import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
 import org.dcache.acl.ACE;
@@ -556,6 +558,31 @@ public class JdbcFs implements FileSystemProvider, LeaderLatchListener {
         }
     }
 
+    @Override
+    public List<ChimeraDirectoryEntry> listDirectory(FsInode dir, long from, int limit)
+          throws ChimeraFsException {
+        checkArgument(limit > 0, "limit must be positive");
+        if (dir.type() == FsInodeType.INODE) {
+            return _sqlDriver.listDirectory(dir, from, limit);
+        }
+        try (DirectoryStreamB<ChimeraDirectoryEntry> stream = newDirectoryStream(dir)) {
+            List<ChimeraDirectoryEntry> entries = stream.stream()
+                  .filter(e -> !e.getName().equals(".") && !e.getName().equals(".."))
+                  .filter(e -> e.getInode().ino() >= from)
+                  .sorted(Comparator.comparingLong(e -> e.getInode().ino()))
+                  .collect(Collectors.toList());
+            if (entries.size() <= limit) {
+                return entries;
+            }
+            long last = entries.get(limit - 1).getInode().ino();
+            return entries.stream()
+                  .takeWhile(e -> e.getInode().ino() <= last)
+                  .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ChimeraFsException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public DirectoryStreamB<ChimeraDirectoryEntry> virtualDirectoryStream(FsInode dir,
           String labelname) throws ChimeraFsException {
@@ -1281,14 +1308,19 @@ public class JdbcFs implements FileSystemProvider, LeaderLatchListener {
     @Override
     public void addInodeLocation(FsInode inode, int type, String location)
           throws ChimeraFsException {
-        inTransaction(status -> {
+        int added = inTransaction(status -> {
             try {
-                _sqlDriver.addInodeLocation(inode, type, location);
+                return _sqlDriver.addInodeLocation(inode, type, location);
             } catch (ForeignKeyViolationException e) {
                 throw FileNotFoundChimeraFsException.of(inode, e);
             }
-            return null;
         });
+        /* A missing inode is reported after the transaction, so that it does not mark an
+         * enclosing transaction rollback-only.
+         */
+        if (added == 0 && _sqlDriver.stat(inode) == null) {
+            throw FileNotFoundChimeraFsException.of(inode);
+        }
     }
 
     @Override
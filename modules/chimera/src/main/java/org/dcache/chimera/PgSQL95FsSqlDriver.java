@@ -351,11 +351,11 @@ public class PgSQL95FsSqlDriver extends FsSqlDriver {
      * @param type
      * @param location
      */
-    void addInodeLocation(FsInode inode, int type, String location) {
-        _jdbc.update(
-              "INSERT INTO t_locationinfo (inumber,itype,ilocation,ipriority,ictime,iatime,istate) VALUES(?,?,?,?,?,?,?) "
-                    +
-                    "ON CONFLICT ON CONSTRAINT t_locationinfo_pkey DO NOTHING",
+    int addInodeLocation(FsInode inode, int type, String location) {
+        return _jdbc.update(
+              "INSERT INTO t_locationinfo (inumber,itype,ilocation,ipriority,ictime,iatime,istate) "
+                    + "SELECT ?,?,?,?,?,?,? WHERE EXISTS (SELECT 1 FROM t_inodes WHERE inumber=?) "
+                    + "ON CONFLICT ON CONSTRAINT t_locationinfo_pkey DO NOTHING",
               ps -> {
                   Timestamp now = new Timestamp(System.currentTimeMillis());
                   ps.setLong(1, inode.ino());
@@ -365,6 +365,7 @@ public class PgSQL95FsSqlDriver extends FsSqlDriver {
                   ps.setTimestamp(5, now);
                   ps.setTimestamp(6, now);
                   ps.setInt(7, 1); // online
+                  ps.setLong(8, inode.ino());
               });
     }
 
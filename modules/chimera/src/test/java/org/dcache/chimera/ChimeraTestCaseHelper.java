@@ -24,6 +24,7 @@ public abstract class ChimeraTestCaseHelper {
     protected FileSystemProvider _fs;
     protected FsInode _rootInode;
     protected HikariDataSource _dataSource;
+    protected PlatformTransactionManager _txManager;
 
     @Before
     public void setUp() throws Exception {
@@ -49,8 +50,8 @@ public abstract class ChimeraTestCaseHelper {
             liquibase.update("");
         }
 
-        PlatformTransactionManager txManager = new DataSourceTransactionManager(_dataSource);
-        _fs = new JdbcFs(_dataSource, txManager, "strong");
+        _txManager = new DataSourceTransactionManager(_dataSource);
+        _fs = new JdbcFs(_dataSource, _txManager, "strong");
         _rootInode = _fs.path2inode("/");
     }
 
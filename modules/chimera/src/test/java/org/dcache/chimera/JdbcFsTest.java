@@ -1,6 +1,7 @@
 package org.dcache.chimera;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
 import static org.dcache.chimera.FileSystemProvider.SetXattrMode;
 import static org.dcache.chimera.FileSystemProvider.StatCacheOption.NO_STAT;
 import static org.dcache.chimera.FileSystemProvider.StatCacheOption.STAT;
@@ -43,6 +44,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 public class JdbcFsTest extends ChimeraTestCaseHelper {
 
@@ -676,6 +679,20 @@ public class JdbcFsTest extends ChimeraTestCaseHelper {
         }
     }
 
+    @Test
+    public void testAddLocationForNonexistingKeepsTransaction() throws Exception {
+        FsInode inode = new FsInode(_fs, Long.MAX_VALUE);
+        TransactionStatus status = _txManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            _fs.addInodeLocation(inode, StorageGenericLocation.DISK, "/dev/null");
+            fail("was able to add cache location for non existing file");
+        } catch (FileNotFoundChimeraFsException e) {
+            assertFalse(status.isRollbackOnly());
+        } finally {
+            _txManager.rollback(status);
+        }
+    }
+
     @Test
     public void testDupAddLocation() throws Exception {
 
@@ -974,6 +991,46 @@ public class JdbcFsTest extends ChimeraTestCaseHelper {
         assertEquals("Invalid parent", dir13, newInode.inodeOf("..", NO_STAT));
     }
 
+    @Test
+    public void testListDirectoryInPages() throws Exception {
+        FsInode dir = _rootInode.mkdir("dir", 0, 0, 0755);
+        for (String name : List.of("e", "b", "d", "a", "c")) {
+            dir.create(name, 0, 0, 0644);
+        }
+
+        List<ChimeraDirectoryEntry> first = _fs.listDirectory(dir, 0, 2);
+        List<ChimeraDirectoryEntry> second = _fs.listDirectory(dir,
+              first.get(1).getInode().ino() + 1, 2);
+        List<ChimeraDirectoryEntry> last = _fs.listDirectory(dir,
+              second.get(1).getInode().ino() + 1, 2);
+
+        assertThat(first.stream().map(ChimeraDirectoryEntry::getName).collect(toList()),
+              contains("e", "b"));
+        assertThat(second.stream().map(ChimeraDirectoryEntry::getName).collect(toList()),
+              contains("d", "a"));
+        assertThat(last.stream().map(ChimeraDirectoryEntry::getName).collect(toList()),
+              contains("c"));
+        assertEquals(dir.inodeOf("d", NO_STAT), second.get(0).getInode());
+        assertEquals(dir.inodeOf("d", STAT).stat().getIno(), second.get(0).getStat().getIno());
+    }
+
+    @Test
+    public void testListDirectoryKeepsHardLinksInOnePage() throws Exception {
+        FsInode dir = _rootInode.mkdir("dir", 0, 0, 0755);
+        FsInode a = dir.create("a", 0, 0, 0644);
+        _fs.createHLink(dir, a, "a1");
+        _fs.createHLink(dir, a, "a2");
+        dir.create("b", 0, 0, 0644);
+
+        List<ChimeraDirectoryEntry> first = _fs.listDirectory(dir, 0, 2);
+        List<ChimeraDirectoryEntry> last = _fs.listDirectory(dir, a.ino() + 1, 2);
+
+        assertThat(first.stream().map(ChimeraDirectoryEntry::getName).collect(toList()),
+              containsInAnyOrder("a", "a1", "a2"));
+        assertThat(last.stream().map(ChimeraDirectoryEntry::getName).collect(toList()),
+              contains("b"));
+    }
+
     @Test(expected = NotDirChimeraException.class)
     public void testMoveIntoFile() throws Exception {
 
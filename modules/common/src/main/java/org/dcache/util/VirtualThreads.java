@@ -0,0 +1,201 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads.
+ * <p>
+ * dCache is compiled for a Java release without virtual threads, so the API is looked up at
+ * runtime. All methods degrade gracefully when running on a JVM without virtual threads.
+ */
+public class VirtualThreads {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle newThreadPerTaskExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+                  MethodType.methodType(ofVirtualBuilder));
+            name = lookup.findVirtual(builder, "name",
+                  MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory",
+                  MethodType.methodType(ThreadFactory.class));
+            newThreadPerTaskExecutor = lookup.findStatic(Executors.class,
+                  "newThreadPerTaskExecutor",
+                  MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private static final List<BiConsumer<String, Duration>> PINNING_LISTENERS =
+          new CopyOnWriteArrayList<>();
+
+    private static RecordingStream pinningStream;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Returns true if the JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Fails if the JVM does not support virtual threads. Meant to be called when virtual threads
+     * are configured, so that the configuration is rejected with a clear message.
+     *
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    public static void checkSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer, "
+                  + "but dCache is running on Java " + Runtime.version().feature() + ".");
+        }
+    }
+
+    /**
+     * Returns a factory for virtual threads named by the given prefix followed by a counter.
+     *
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        checkSupported();
+        try {
+            Object builder = OF_VIRTUAL.invoke();
+            builder = NAME.invoke(builder, prefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Returns a BoundedExecutor that runs each worker on a new virtual thread.
+     * <p>
+     * Virtual threads are not pooled: the maximum pool size of the returned executor bounds the
+     * number of tasks running concurrently, i.e. it acts as a semaphore on the number of live
+     * virtual threads rather than as the size of a thread pool.
+     *
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    public static BoundedExecutor newBoundedExecutor(String prefix, int maxThreads) {
+        ThreadFactory factory = newThreadFactory(prefix);
+        try {
+            ExecutorService executor =
+                  (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(factory);
+            return new BoundedCachedExecutor(executor, maxThreads);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Registers a listener that is notified with the thread name and duration whenever a virtual
+     * thread is pinned to its carrier thread for longer than the JFR threshold of the
+     * {@code jdk.VirtualThreadPinned} event.
+     * <p>
+     * Pinning is observed through a JFR recording stream that is started when the first listener
+     * is registered and closed when the last listener is unregistered. If JFR is not available,
+     * the listener is never called.
+     *
+     * @return a handle that unregisters the listener when closed
+     */
+    public static synchronized AutoCloseable addPinningListener(
+          BiConsumer<String, Duration> listener) {
+        PINNING_LISTENERS.add(listener);
+        startPinningStream();
+        return () -> removePinningListener(listener);
+    }
+
+    private static synchronized void removePinningListener(
+          BiConsumer<String, Duration> listener) {
+        if (PINNING_LISTENERS.remove(listener) && PINNING_LISTENERS.isEmpty()
+              && pinningStream != null) {
+            pinningStream.close();
+            pinningStream = null;
+        }
+    }
+
+    /**
+     * Returns true while pinning of virtual threads is being monitored.
+     */
+    static synchronized boolean isMonitoringPinning() {
+        return pinningStream != null;
+    }
+
+    private static void startPinningStream() {
+        if (pinningStream != null || !isSupported()) {
+            return;
+        }
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable(PINNED_EVENT);
+            stream.onEvent(PINNED_EVENT, event -> {
+                RecordedThread thread = event.getThread();
+                String name = (thread == null) ? "" : thread.getJavaName();
+                for (BiConsumer<String, Duration> listener : PINNING_LISTENERS) {
+                    listener.accept(name, event.getDuration());
+                }
+            });
+            stream.startAsync();
+            pinningStream = stream;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to monitor pinning of virtual threads: {}", e.toString());
+        }
+    }
+}
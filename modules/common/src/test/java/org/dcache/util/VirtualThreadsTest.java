@@ -0,0 +1,89 @@
+package org.dcache.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldRejectExecutorWithoutVirtualThreads() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        VirtualThreads.newBoundedExecutor("test-", 1);
+    }
+
+    @Test
+    public void shouldNameRequiredJavaVersionWithoutVirtualThreads() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        try {
+            VirtualThreads.checkSupported();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            assertThat(e.getMessage(), containsString("Java 21"));
+        }
+    }
+
+    @Test
+    public void shouldStopMonitoringPinningWithLastListener() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        AutoCloseable first = VirtualThreads.addPinningListener((thread, duration) -> {});
+        AutoCloseable second = VirtualThreads.addPinningListener((thread, duration) -> {});
+        first.close();
+        assertThat(VirtualThreads.isMonitoringPinning(), is(true));
+
+        second.close();
+        assertThat(VirtualThreads.isMonitoringPinning(), is(false));
+    }
+
+    @Test
+    public void shouldRunTasksOnNamedThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        BoundedExecutor executor = VirtualThreads.newBoundedExecutor("test-", 1);
+        AtomicReference<String> name = new AtomicReference<>();
+        executor.submit(() -> name.set(Thread.currentThread().getName())).get();
+        executor.shutdown();
+
+        assertThat(name.get(), startsWith("test-"));
+    }
+
+    @Test
+    public void shouldLimitConcurrentTasks() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        BoundedExecutor executor = VirtualThreads.newBoundedExecutor("test-", 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ignored) {
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+        executor.shutdown();
+    }
+}
@@ -70,6 +70,7 @@ import static org.dcache.services.bulk.util.BulkRequestTarget.State.SKIPPED;
 import static org.dcache.services.bulk.util.BulkRequestTarget.computeFsPath;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -96,6 +97,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import javax.security.auth.Subject;
 import org.dcache.auth.attributes.Restriction;
 import org.dcache.cells.AbstractMessageCallback;
@@ -120,6 +122,7 @@ import org.dcache.util.list.DirectoryStream;
 import org.dcache.util.list.ListDirectoryHandler;
 import org.dcache.vehicles.FileAttributes;
 import org.dcache.vehicles.PnfsGetFileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributesBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -705,6 +708,7 @@ public final class BulkRequestContainerJob
     private ExecutorService callbackExecutor;
     private Semaphore dirListSemaphore;
     private Semaphore inFlightSemaphore;
+    private int attributePrefetchWindow;
 
     private volatile ContainerState containerState;
 
@@ -886,6 +890,10 @@ public final class BulkRequestContainerJob
         this.dirListSemaphore = dirListSemaphore;
     }
 
+    public void setAttributePrefetchWindow(int attributePrefetchWindow) {
+        this.attributePrefetchWindow = attributePrefetchWindow;
+    }
+
     public void setInFlightSemaphore(Semaphore inFlightSemaphore) {
         this.inFlightSemaphore = inFlightSemaphore;
     }
@@ -1034,6 +1042,11 @@ public final class BulkRequestContainerJob
             return;
         }
 
+        if (attributePrefetchWindow > 1) {
+            processPrefetchedFileTargets(requestTargets);
+            return;
+        }
+
         for (BulkRequestTarget target : requestTargets) {
             try {
                 checkForRequestCancellation();
@@ -1047,6 +1060,78 @@ public final class BulkRequestContainerJob
         }
     }
 
+    /**
+     * Looks up the attributes of the initial targets a window at a time, each window with a
+     * single request to PnfsManager. The lookup of the next window is sent before the tasks of
+     * the current window are submitted, so that the lookups overlap with waiting for in-flight
+     * permits.
+     */
+    private void processPrefetchedFileTargets(List<BulkRequestTarget> requestTargets) {
+        List<List<BulkRequestTarget>> windows = Lists.partition(requestTargets,
+              attributePrefetchWindow);
+        ListenableFuture<PnfsGetFileAttributesBatch> next = prefetchAttributes(windows.get(0));
+
+        try {
+            for (int i = 0; i < windows.size(); i++) {
+                checkForRequestCancellation();
+                ListenableFuture<PnfsGetFileAttributesBatch> current = next;
+                next = i + 1 < windows.size() ? prefetchAttributes(windows.get(i + 1)) : null;
+
+                PnfsGetFileAttributesBatch reply;
+                try {
+                    reply = current.get();
+                } catch (ExecutionException e) {
+                    LOGGER.warn("{} - prefetching attributes failed, looking up targets "
+                          + "individually: {}", ruid, Throwables.getRootCause(e).toString());
+                    reply = null;
+                }
+
+                for (BulkRequestTarget target : windows.get(i)) {
+                    checkForRequestCancellation();
+                    submitPrefetched(target, reply);
+                }
+            }
+        } catch (InterruptedException e) {
+            /*
+             * Cancel most likely called; stop processing.
+             */
+            if (next != null) {
+                next.cancel(true);
+            }
+        }
+    }
+
+    private ListenableFuture<PnfsGetFileAttributesBatch> prefetchAttributes(
+          List<BulkRequestTarget> targets) {
+        List<String> paths = targets.stream()
+              .map(t -> findAbsolutePath(targetPrefix, t.getPath().toString()).toString())
+              .collect(Collectors.toList());
+        LOGGER.debug("{} - prefetchAttributes for {} targets.", ruid, paths.size());
+        return pnfsHandler.requestAsync(
+              new PnfsGetFileAttributesBatch(paths, MINIMALLY_REQUIRED_ATTRIBUTES));
+    }
+
+    /**
+     * Submits a target whose attributes were prefetched straight to handling the target. Falls
+     * back to fetching the attributes individually if the reply does not cover the target.
+     */
+    private void submitPrefetched(BulkRequestTarget target, PnfsGetFileAttributesBatch reply)
+          throws InterruptedException {
+        String path = findAbsolutePath(targetPrefix, target.getPath().toString()).toString();
+        FileAttributes attributes = reply == null ? null : reply.getFileAttributes(path);
+        CacheException failure = reply == null ? null : reply.getFailure(path);
+
+        if (attributes != null) {
+            target.setAttributes(attributes);
+            new TargetTask(target, TaskState.HANDLE_TARGET).submitAsync();
+        } else if (failure != null) {
+            LOGGER.error("{} - prefetchAttributes, failure for {}.", ruid, target);
+            new TargetTask(target, TaskState.FETCH_ATTRIBUTES).storeOrUpdate(failure);
+        } else {
+            new TargetTask(target, TaskState.FETCH_ATTRIBUTES).submitAsync();
+        }
+    }
+
     private synchronized void setRunThread(Thread runThread) {
         this.runThread = runThread;
         if (runThread != null) {
@@ -103,6 +103,7 @@ public final class RequestContainerJobFactory {
     private BulkServiceStatistics statistics;
     private Semaphore dirListSemaphore;
     private Semaphore inFlightSemaphore;
+    private int attributePrefetchWindow;
     private BoundedCachedExecutor taskExecutor;
     private BoundedCachedExecutor callbackExecutor;
     private BoundedCachedExecutor listExecutor;
@@ -136,6 +137,7 @@ public final class RequestContainerJobFactory {
         containerJob.setListHandler(listHandler);
         containerJob.setDirListSemaphore(dirListSemaphore);
         containerJob.setInFlightSemaphore(inFlightSemaphore);
+        containerJob.setAttributePrefetchWindow(attributePrefetchWindow);
         containerJob.setExecutor(taskExecutor);
         containerJob.setListExecutor(listExecutor);
         containerJob.setCallbackExecutor(callbackExecutor);
@@ -156,6 +158,11 @@ public final class RequestContainerJobFactory {
         this.activityFactory = activityFactory;
     }
 
+    @Required
+    public void setAttributePrefetchWindow(int attributePrefetchWindow) {
+        this.attributePrefetchWindow = attributePrefetchWindow;
+    }
+
     @Required
     public void setCallbackExecutor(BoundedCachedExecutor callbackExecutor) {
         this.callbackExecutor = callbackExecutor;
@@ -61,6 +61,7 @@ package org.dcache.services.bulk.store.jdbc.request;
 
 import static org.dcache.services.bulk.BulkRequestInfo.NO_FURTHER_ENTRIES;
 import static org.dcache.services.bulk.BulkRequestStatus.CANCELLED;
+import static org.dcache.services.bulk.BulkRequestStatus.COMPLETED;
 import static org.dcache.services.bulk.BulkRequestStatus.CANCELLING;
 import static org.dcache.services.bulk.BulkRequestStatus.QUEUED;
 import static org.dcache.services.bulk.BulkRequestStatus.STARTED;
@@ -537,6 +538,7 @@ public final class JdbcBulkRequestStore implements BulkRequestStore {
          *  cumulative from start up.
          */
         LOGGER.trace("reset {}.", uid);
+        targetStore.flush();
         requestTargetDao.delete(requestTargetDao.where().pids(PID.ROOT.ordinal()).ruids(uid));
         if (skipTerminated) {
             requestTargetDao.delete(requestTargetDao.where().pids(DISCOVERED.ordinal()).ruids(uid)
@@ -568,6 +570,7 @@ public final class JdbcBulkRequestStore implements BulkRequestStore {
     @Override
     public int retryFailed() throws BulkStorageException {
         AtomicInteger count = new AtomicInteger(0);
+        targetStore.flush();
         List<String> uids = requestTargetDao.getRequestsOfFailed();
         for (String uid: uids) {
             reset(uid, false);
@@ -660,6 +663,12 @@ public final class JdbcBulkRequestStore implements BulkRequestStore {
     public boolean update(String uid, BulkRequestStatus status)
           throws BulkStorageException {
         LOGGER.trace("update {}, {}.", uid, status);
+        if (status == COMPLETED || status == CANCELLED) {
+            /*
+             *  Whether the request is done is decided from the state of its targets.
+             */
+            targetStore.flush();
+        }
         BulkRequest stored = valid(uid);
         BulkRequestStatus storedStatus = stored.getStatusInfo().getStatus();
 
@@ -811,6 +820,7 @@ public final class JdbcBulkRequestStore implements BulkRequestStore {
 
     private void conditionallyClearTerminalRequest(BulkRequest stored) {
         Long rid = stored.getId();
+        targetStore.flush();
         if (requestTargetDao.count(requestTargetDao.where().rid(rid).state(FAILED)) > 0) {
             if (stored.isClearOnFailure()) {
                 clear(stored.getUid());
@@ -871,6 +881,7 @@ public final class JdbcBulkRequestStore implements BulkRequestStore {
         /*
          *  Order by id from offset.  Limit is FETCH_SIZE per swatch.
          */
+        targetStore.flush();
         List<BulkRequestTarget> targets = new ArrayList<>(requestTargetDao.get(
               requestTargetDao.where().rid(id).offset(offset).notRootRequest()
                     .sorter("request_target.id"), FETCH_SIZE));
@@ -63,9 +63,12 @@ import static org.dcache.services.bulk.util.BulkRequestTarget.NON_TERMINAL;
 import static org.dcache.services.bulk.util.BulkRequestTarget.PID.DISCOVERED;
 import static org.dcache.services.bulk.util.BulkRequestTarget.State.CREATED;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.dcache.namespace.FileType;
 import org.dcache.services.bulk.BulkStorageException;
 import org.dcache.services.bulk.store.BulkTargetStore;
@@ -79,12 +82,76 @@ import org.springframework.beans.factory.annotation.Required;
 
 /**
  * Uses underlying JDBC Dao implementations to satisfy the API.
+ * <p>
+ * Updates of individual targets are written behind: they are buffered, merged per target and
+ * written as JDBC batches when the buffer is full, periodically, and before any query or bulk
+ * update of the target table, so that readers of this store always see their own writes.
+ * Inserts are written immediately, as the caller needs the generated id.
+ * <p>
+ * Updates still buffered when the service dies are lost. The affected targets are left in an
+ * earlier, non-terminal state in the database, and are therefore processed again when the
+ * request is reloaded on restart.
  */
 public final class JdbcBulkTargetStore implements BulkTargetStore {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcBulkTargetStore.class);
 
+    /*
+     *  Guarded by itself.
+     */
+    private final Map<Long, JdbcRequestTargetUpdate> pendingUpdates = new HashMap<>();
+
+    /*
+     *  Serializes flushes so that a later update can never be overwritten by an earlier one.
+     */
+    private final Object flushLock = new Object();
+
     private JdbcRequestTargetDao targetDao;
+    private ScheduledExecutorService flushScheduler;
+    private long flushInterval;
+    private TimeUnit flushIntervalUnit;
+    private int maxPendingUpdates;
+
+    public void initialize() {
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval,
+              flushIntervalUnit);
+    }
+
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        flushQuietly();
+    }
+
+    /**
+     * Writes all buffered target updates to the database.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, JdbcRequestTargetUpdate> updates;
+            synchronized (pendingUpdates) {
+                if (pendingUpdates.isEmpty()) {
+                    return;
+                }
+                updates = new HashMap<>(pendingUpdates);
+                pendingUpdates.clear();
+            }
+
+            LOGGER.trace("flush {} target updates.", updates.size());
+
+            try {
+                targetDao.updateBatch(updates);
+            } catch (RuntimeException e) {
+                /*
+                 *  Put the updates back underneath any which arrived in the meantime.
+                 */
+                synchronized (pendingUpdates) {
+                    updates.forEach((id, update) -> pendingUpdates.merge(id, update,
+                          (later, earlier) -> earlier.merge(later)));
+                }
+                throw e;
+            }
+        }
+    }
 
     @Override
     public void abort(BulkRequestTarget target)
@@ -106,33 +173,38 @@ public final class JdbcBulkTargetStore implements BulkTargetStore {
 
     @Override
     public void cancel(long id) {
-        targetDao.update(targetDao.where().id(id), targetDao.set().state(State.CANCELLED));
+        defer(id, targetDao.set().state(State.CANCELLED));
     }
 
     @Override
     public void cancelAll(Long rid) {
+        flush();
         targetDao.update(targetDao.where().rid(rid).state(NON_TERMINAL),
               targetDao.set().state(State.CANCELLED));
     }
 
     @Override
     public long count(BulkTargetFilter filter) {
+        flush();
         return targetDao.count(targetDao.where().filter(filter));
     }
 
     @Override
     public int countUnprocessed(Long rid) throws BulkStorageException {
+        flush();
         return targetDao.count(targetDao.where().rid(rid).state(NON_TERMINAL));
     }
 
     @Override
     public int countFailed(Long rid) throws BulkStorageException {
+        flush();
         return targetDao.count(targetDao.where().rid(rid).state(State.FAILED));
     }
 
     @Override
     public Map<String, Long> counts(BulkTargetFilter filter, boolean excludeRoot,
           String classifier) {
+        flush();
         JdbcRequestTargetCriterion criterion = targetDao.where().filter(filter);
         if (excludeRoot) {
             criterion = criterion.notRootRequest();
@@ -142,17 +214,20 @@ public final class JdbcBulkTargetStore implements BulkTargetStore {
 
     @Override
     public Map<String, Long> countsByState() {
+        flush();
         return targetDao.countStates();
     }
 
     @Override
     public List<BulkRequestTarget> find(BulkTargetFilter jobFilter, Integer limit)
           throws BulkStorageException {
+        flush();
         return targetDao.get(targetDao.where().filter(jobFilter).sorter("request_target.id"), limit);
     }
 
     @Override
     public List<BulkRequestTarget> getInitialTargets(Long rid, boolean nonterminal) {
+        flush();
         JdbcRequestTargetCriterion criterion = targetDao.where().rid(rid).pids(PID.INITIAL.ordinal())
               .sorter("request_target.id");
         if (nonterminal) {
@@ -164,12 +239,14 @@ public final class JdbcBulkTargetStore implements BulkTargetStore {
     @Override
     public List<BulkRequestTarget> nextReady(Long rid, FileType type, Integer limit)
           throws BulkStorageException {
+        flush();
         return targetDao.get(
               targetDao.where().rid(rid).state(CREATED).type(type).sorter("request_target.id")
                     .join(), limit);
     }
 
     public Optional<BulkRequestTarget> getTarget(long id) throws BulkStorageException {
+        flush();
         List<BulkRequestTarget> list = targetDao.get(targetDao.where().id(id).join(), 1);
         if (list.isEmpty()) {
             return Optional.empty();
@@ -177,6 +254,26 @@ public final class JdbcBulkTargetStore implements BulkTargetStore {
         return Optional.of(list.get(0));
     }
 
+    @Required
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    @Required
+    public void setFlushIntervalUnit(TimeUnit flushIntervalUnit) {
+        this.flushIntervalUnit = flushIntervalUnit;
+    }
+
+    @Required
+    public void setFlushScheduler(ScheduledExecutorService flushScheduler) {
+        this.flushScheduler = flushScheduler;
+    }
+
+    @Required
+    public void setMaxPendingUpdates(int maxPendingUpdates) {
+        this.maxPendingUpdates = maxPendingUpdates;
+    }
+
     @Required
     public void setTargetDao(JdbcRequestTargetDao targetDao) {
         this.targetDao = targetDao;
@@ -195,14 +292,42 @@ public final class JdbcBulkTargetStore implements BulkTargetStore {
         if (id == null) {
             store(target);
         } else {
-            targetDao.update(targetDao.where().id(id), prepareUpdate(target));
+            defer(id, prepareUpdate(target));
         }
     }
 
     @Override
     public void update(Long id, State state, String errorType, String errorMessage) throws BulkStorageException {
-        targetDao.update(targetDao.where().id(id),
-              targetDao.set().state(state).errorType(errorType).errorMessage(errorMessage));
+        defer(id, targetDao.set().state(state).errorType(errorType).errorMessage(errorMessage));
+    }
+
+    /**
+     * Buffers the update of the target with the given id, merging it with a buffered earlier
+     * update of the same target. Flushes the buffer in the calling thread if it is full.
+     */
+    private void defer(Long id, JdbcRequestTargetUpdate update) {
+        if (maxPendingUpdates <= 0) {
+            targetDao.update(targetDao.where().id(id), update);
+            return;
+        }
+
+        int pending;
+        synchronized (pendingUpdates) {
+            pendingUpdates.merge(id, update, JdbcRequestTargetUpdate::merge);
+            pending = pendingUpdates.size();
+        }
+
+        if (pending >= maxPendingUpdates) {
+            flush();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not write buffered target updates: {}.", e.toString());
+        }
     }
 
     private JdbcRequestTargetUpdate prepareUpdate(BulkRequestTarget target) {
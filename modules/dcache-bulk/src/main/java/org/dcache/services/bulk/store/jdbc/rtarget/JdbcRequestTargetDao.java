@@ -71,6 +71,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -269,6 +270,20 @@ public final class JdbcRequestTargetDao extends JdbcDaoSupport {
         return utils.update(criterion, update, TABLE_NAME, this);
     }
 
+    /**
+     * Applies the updates to the targets with the given ids. Updates setting the same columns
+     * are sent to the database as a single JDBC batch.
+     */
+    public void updateBatch(Map<Long, JdbcRequestTargetUpdate> updates) {
+        Map<String, List<Object[]>> batches = new HashMap<>();
+        updates.forEach((id, update) -> {
+            String sql = "UPDATE " + TABLE_NAME + " SET " + update.getUpdate() + " WHERE id = ?";
+            batches.computeIfAbsent(sql, s -> new ArrayList<>())
+                  .add(utils.concatArguments(update.getArguments(), List.of(id)));
+        });
+        batches.forEach((sql, arguments) -> utils.updateBatch(sql, arguments, this));
+    }
+
     public JdbcRequestTargetCriterion where() {
         return new JdbcRequestTargetCriterion();
     }
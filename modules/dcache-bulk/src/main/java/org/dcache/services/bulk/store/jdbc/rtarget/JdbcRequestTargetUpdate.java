@@ -95,6 +95,15 @@ public final class JdbcRequestTargetUpdate extends JdbcUpdate {
         return this;
     }
 
+    /**
+     * Adds the columns set by a later update to this one, overwriting the values of columns set
+     * by both.
+     */
+    public JdbcRequestTargetUpdate merge(JdbcRequestTargetUpdate later) {
+        updates.putAll(later.updates);
+        return this;
+    }
+
     public String getStateName() {
         return (String)updates().get("state");
     }
@@ -0,0 +1,117 @@
+package org.dcache.services.bulk.store.jdbc.rtarget;
+
+import static org.dcache.services.bulk.util.BulkRequestTarget.State.COMPLETED;
+import static org.dcache.services.bulk.util.BulkRequestTarget.State.FAILED;
+import static org.dcache.services.bulk.util.BulkRequestTarget.State.RUNNING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(JdbcRequestTargetDao.class)
+@PowerMockIgnore({"com.sun.org.apache.xerces.*",
+      "javax.xml.*", "org.xml.*", "org.w3c.*", "jdk.xml.*"})
+public class JdbcBulkTargetStoreTest {
+
+    private JdbcRequestTargetDao targetDao;
+    private JdbcBulkTargetStore store;
+    private List<Map<Long, String>> flushedStates;
+
+    @Before
+    public void setUp() {
+        targetDao = PowerMockito.mock(JdbcRequestTargetDao.class);
+        given(targetDao.set()).willAnswer(i -> new JdbcRequestTargetUpdate());
+        given(targetDao.where()).willAnswer(i -> new JdbcRequestTargetCriterion());
+
+        flushedStates = new ArrayList<>();
+        willAnswer(i -> {
+            Map<Long, JdbcRequestTargetUpdate> updates = i.getArgument(0);
+            Map<Long, String> states = new HashMap<>();
+            updates.forEach((id, update) -> states.put(id, update.getStateName()));
+            flushedStates.add(states);
+            return null;
+        }).given(targetDao).updateBatch(any());
+
+        store = new JdbcBulkTargetStore();
+        store.setTargetDao(targetDao);
+        store.setMaxPendingUpdates(100);
+    }
+
+    @Test
+    public void shouldWriteLatestUpdateOfEachTarget() throws Exception {
+        store.update(1L, RUNNING, null, null);
+        store.update(2L, RUNNING, null, null);
+        store.update(1L, COMPLETED, null, null);
+
+        store.flush();
+
+        assertThat(flushedStates, is(List.of(Map.of(1L, "COMPLETED", 2L, "RUNNING"))));
+    }
+
+    @Test
+    public void shouldRequeueFailedFlushWithoutLosingNewerUpdates() throws Exception {
+        store.update(1L, RUNNING, null, null);
+        store.update(2L, RUNNING, null, null);
+        willAnswer(i -> {
+            store.update(1L, COMPLETED, null, null);
+            throw new IllegalStateException("database unavailable");
+        }).given(targetDao).updateBatch(any());
+
+        try {
+            store.flush();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+
+        List<Map<Long, JdbcRequestTargetUpdate>> flushed = new ArrayList<>();
+        willAnswer(i -> flushed.add(new HashMap<>(i.getArgument(0))))
+              .given(targetDao).updateBatch(any());
+        store.flush();
+
+        assertThat(flushed.size(), is(1));
+        assertThat(flushed.get(0).get(1L).getStateName(), is("COMPLETED"));
+        assertThat(flushed.get(0).get(2L).getStateName(), is("RUNNING"));
+    }
+
+    @Test
+    public void shouldFlushBeforeReading() throws Exception {
+        store.update(1L, FAILED, "error", "failed");
+
+        store.countFailed(1L);
+
+        InOrder order = inOrder(targetDao);
+        order.verify(targetDao).updateBatch(any());
+        order.verify(targetDao).count(any());
+    }
+
+    @Test
+    public void shouldFlushWhenBufferIsFull() throws Exception {
+        store.setMaxPendingUpdates(2);
+
+        store.update(1L, RUNNING, null, null);
+        verify(targetDao, never()).updateBatch(any());
+
+        store.update(2L, RUNNING, null, null);
+        verify(targetDao, times(1)).updateBatch(any());
+    }
+}
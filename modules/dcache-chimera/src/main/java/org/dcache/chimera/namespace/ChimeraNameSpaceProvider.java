@@ -1295,29 +1295,32 @@ public class ChimeraNameSpaceProvider
             try (DirectoryStreamB<ChimeraDirectoryEntry> dirStream = dir
                   .newDirectoryStream()) {
                 for (ChimeraDirectoryEntry entry : dirStream) {
-                    try {
-                        String name = entry.getName();
-                        if (!name.equals(".") && !name.equals("..") &&
-                              (pattern == null || pattern.matcher(name)
-                                    .matches()) &&
-                              range.contains(counter++)) {
+                    String name = entry.getName();
+                    if (!name.equals(".") && !name.equals("..") &&
+                          (pattern == null || pattern.matcher(name)
+                                .matches()) &&
+                          range.contains(counter++)) {
+                        FileAttributes fa;
+                        try {
                             // FIXME: actually, ChimeraDirectoryEntry
                             // already contains most of attributes
-                            FileAttributes fa =
-                                  attrs.isEmpty()
-                                        ? null
-                                        : getFileAttributes(
-                                              new ExtendedInode(_fs, entry.getInode()), attrs);
-                            handler.addEntry(name, fa);
+                            fa = attrs.isEmpty()
+                                  ? null
+                                  : getFileAttributes(
+                                        new ExtendedInode(_fs, entry.getInode()), attrs);
+                        } catch (FileNotFoundChimeraFsException e) {
+                            /* Not an error; files may be deleted during the
+                             * list operation.
+                             */
+                            continue;
+                        } catch (CacheException e) {
+                            LOGGER.error(AlarmMarkerFactory.getMarker(PredefinedAlarm.INACCESSIBLE_FILE,
+                                            "namespace"),
+                                    "Failed to retrieve file attributes {} : {}", entry.getStat().getId(), e.toString());
+                            continue;
                         }
-                    } catch (FileNotFoundChimeraFsException e) {
-                        /* Not an error; files may be deleted during the
-                         * list operation.
-                         */
-                    } catch (CacheException e) {
-                        LOGGER.error(AlarmMarkerFactory.getMarker(PredefinedAlarm.INACCESSIBLE_FILE,
-                                        "namespace"),
-                                "Failed to retrieve file attributes {} : {}", entry.getStat().getId(), e.toString());
+                        /* Failures of the handler, e.g. a cancelled listing, abort the listing. */
+                        handler.addEntry(name, fa);
                     }
                 }
             }
@@ -38,8 +38,11 @@ import diskCacheV111.vehicles.PnfsCreateEntryMessage;
 import diskCacheV111.vehicles.PnfsCreateUploadPath;
 import diskCacheV111.vehicles.PnfsDeleteEntryMessage;
 import diskCacheV111.vehicles.PnfsGetCacheLocationsMessage;
+import diskCacheV111.vehicles.PnfsMessage;
 import diskCacheV111.vehicles.PnfsRenameMessage;
 import diskCacheV111.vehicles.StorageInfo;
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
@@ -73,6 +76,7 @@ import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
 import org.dcache.vehicles.FileAttributes;
 import org.dcache.vehicles.PnfsGetFileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributesBatch;
 import org.dcache.vehicles.PnfsSetFileAttributes;
 import org.junit.After;
 import org.junit.Before;
@@ -143,6 +147,7 @@ public class PnfsManagerTest {
         _pnfsManager = new PnfsManagerV3();
         _pnfsManager.setThreads(1);
         _pnfsManager.setListThreads(1);
+        _pnfsManager.setFlowControlledListThreads(1);
         _pnfsManager.setCacheModificationRelay(null);
         _pnfsManager.setLogSlowThreshold(0);
         _pnfsManager.setNameSpaceProvider(chimera);
@@ -310,6 +315,98 @@ public class PnfsManagerTest {
               pnfsGetFileAttributes.getReturnCode() == CacheException.FILE_NOT_FOUND);
     }
 
+    @Test
+    public void testBatchedAddCacheLocation() {
+        PnfsId file1 = createFile("/pnfs/testRoot/testBatchedAddCacheLocation1");
+        PnfsId file2 = createFile("/pnfs/testRoot/testBatchedAddCacheLocation2");
+
+        PnfsAddCacheLocationMessage add1 = new PnfsAddCacheLocationMessage(file1, "aPool");
+        PnfsAddCacheLocationMessage add2 = new PnfsAddCacheLocationMessage(file2, "aPool");
+        _pnfsManager.processPnfsMessages(List.of(envelope(add1), envelope(add2)));
+
+        assertEquals(0, add1.getReturnCode());
+        assertEquals(0, add2.getReturnCode());
+        assertEquals(List.of("aPool"), getCacheLocations(file1));
+        assertEquals(List.of("aPool"), getCacheLocations(file2));
+    }
+
+    @Test
+    public void testBatchedGetFileAttributesWithMissingFile() {
+        PnfsId file1 = createFile("/pnfs/testRoot/testBatchedGetFileAttributes1");
+        PnfsId missing = new PnfsId(FsInode.generateNewID());
+        PnfsId file2 = createFile("/pnfs/testRoot/testBatchedGetFileAttributes2");
+
+        PnfsGetFileAttributes get1 = new PnfsGetFileAttributes(file1, EnumSet.of(TYPE));
+        PnfsGetFileAttributes getMissing = new PnfsGetFileAttributes(missing, EnumSet.of(TYPE));
+        PnfsGetFileAttributes get2 = new PnfsGetFileAttributes(file2, EnumSet.of(TYPE));
+        _pnfsManager.processPnfsMessages(
+              List.of(envelope(get1), envelope(getMissing), envelope(get2)));
+
+        assertEquals(0, get1.getReturnCode());
+        assertEquals(REGULAR, get1.getFileAttributes().getFileType());
+        assertEquals(CacheException.FILE_NOT_FOUND, getMissing.getReturnCode());
+        assertEquals(0, get2.getReturnCode());
+        assertEquals(REGULAR, get2.getFileAttributes().getFileType());
+        assertEquals("batch should not fall back to individual processing", 0,
+              _pnfsManager.getBatchedCounters().getCounterFailed(PnfsGetFileAttributes.class));
+    }
+
+    @Test
+    public void testBatchedAddCacheLocationWithMissingFile() {
+        PnfsId file = createFile("/pnfs/testRoot/testBatchedAddCacheLocationWithMissingFile");
+        PnfsId missing = new PnfsId(FsInode.generateNewID());
+
+        PnfsAddCacheLocationMessage addMissing = new PnfsAddCacheLocationMessage(missing, "aPool");
+        PnfsAddCacheLocationMessage add = new PnfsAddCacheLocationMessage(file, "aPool");
+        _pnfsManager.processPnfsMessages(List.of(envelope(addMissing), envelope(add)));
+
+        assertEquals(CacheException.FILE_NOT_FOUND, addMissing.getReturnCode());
+        assertEquals(0, add.getReturnCode());
+        assertEquals(List.of("aPool"), getCacheLocations(file));
+        assertEquals(0, _pnfsManager.getBatchedCounters()
+              .getCounterFailed(PnfsAddCacheLocationMessage.class));
+    }
+
+    @Test
+    public void testGetFileAttributesBatchWithMissingFile() {
+        String file = "/pnfs/testRoot/testGetFileAttributesBatch";
+        String missing = "/pnfs/testRoot/testGetFileAttributesBatchMissing";
+        PnfsId pnfsId = createFile(file);
+
+        PnfsGetFileAttributesBatch message =
+              new PnfsGetFileAttributesBatch(List.of(file, missing), EnumSet.of(PNFSID, TYPE));
+        _pnfsManager.processPnfsMessage(envelope(message), message);
+
+        assertEquals(0, message.getReturnCode());
+        assertEquals(pnfsId, message.getFileAttributes(file).getPnfsId());
+        assertEquals(REGULAR, message.getFileAttributes(file).getFileType());
+        assertEquals(null, message.getFailure(file));
+        assertEquals(null, message.getFileAttributes(missing));
+        assertEquals(CacheException.FILE_NOT_FOUND, message.getFailure(missing).getRc());
+    }
+
+    private PnfsId createFile(String path) {
+        PnfsCreateEntryMessage message = new PnfsCreateEntryMessage(path,
+              FileAttributes.ofFileType(REGULAR));
+        _pnfsManager.createEntry(message);
+        assertEquals("failed to create an entry", 0, message.getReturnCode());
+        return message.getPnfsId();
+    }
+
+    private List<String> getCacheLocations(PnfsId pnfsId) {
+        PnfsGetCacheLocationsMessage message = new PnfsGetCacheLocationsMessage(pnfsId);
+        _pnfsManager.getCacheLocations(message);
+        assertEquals("failed to get cache location", 0, message.getReturnCode());
+        return message.getCacheLocations();
+    }
+
+    private static CellMessage envelope(PnfsMessage message) {
+        message.setReplyRequired(false);
+        CellMessage envelope = new CellMessage(new CellAddressCore("PnfsManager"), message);
+        envelope.addSourceAddress(new CellAddressCore("door", "doorDomain"));
+        return envelope;
+    }
+
     @Test
     public void testCreateDupFile() {
         PnfsCreateEntryMessage message = new PnfsCreateEntryMessage("/pnfs/testRoot/testCreateDup",
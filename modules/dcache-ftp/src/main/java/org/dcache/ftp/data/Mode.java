@@ -54,9 +54,9 @@ public abstract class Mode extends AbstractMultiplexerListener {
     protected long _fileSize;
 
     /**
-     * Buffer for transferTo and transferFrom.
+     * Buffer for transferFrom.
      */
-    private final ByteBuffer _buffer = ByteBuffer.allocate(KiB.toBytes(8));
+    private final ByteBuffer _buffer = ByteBuffer.allocateDirect(KiB.toBytes(8));
 
     /**
      * The address to connect to for outgoing connections.
@@ -219,35 +219,17 @@ public abstract class Mode extends AbstractMultiplexerListener {
     /**
      * Like calling _file.transferTo().
      * <p>
-     * This method behaves similarly to FileChannel.transferTo, except that it never uses zero-copy
-     * mode. FileChannel.transferTo has been subject to a large number of bugs throughout the
-     * history of Java.
+     * In contrast to RepositoryChannel.transferTo(), this method detects end-of-file and returns
+     * -1 in that case. The data is transferred with zero-copy if the underlying channel supports
+     * it.
      */
     protected long transferTo(long position, long count, SocketChannel socket)
           throws IOException {
-        long tr = 0;                        // Total bytes read
-        long pos = position;
-        _buffer.clear();
-        while (tr < count) {
-            _buffer.limit((int) Math.min((count - tr),
-                  (long) _buffer.capacity()));
-            int nr = _file.read(_buffer, pos);
-            if (nr < 0 && tr == 0) {
-                return -1;
-            }
-            if (nr <= 0) {
-                break;
-            }
-            _buffer.flip();
-            int nw = socket.write(_buffer);
-            tr += nw;
-            if (nw != nr) {
-                break;
-            }
-            pos += nw;
-            _buffer.clear();
+        long nbytes = _file.transferTo(position, count, socket);
+        if (nbytes == 0 && count > 0 && position >= _file.size()) {
+            return -1;
         }
-        return tr;
+        return nbytes;
     }
 
     /**
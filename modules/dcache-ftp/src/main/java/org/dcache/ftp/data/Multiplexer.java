@@ -15,6 +15,8 @@ import org.slf4j.LoggerFactory;
  * little functionality.
  * <p>
  * Notice that the multiplexer is not thread-safe.
+ *
+ * @see MultiplexerPool for multiplexers sharing event loops
  */
 public class Multiplexer {
 
@@ -27,8 +29,15 @@ public class Multiplexer {
      * Constructs a new multiplexer. The multiplexer must be destroyed by a call to close().
      */
     public Multiplexer() throws IOException {
+        this(Selector.open());
+    }
+
+    /**
+     * Constructs a new multiplexer using the given selector.
+     */
+    protected Multiplexer(Selector selector) {
         _shutdown = false;
-        _selector = Selector.open();
+        _selector = selector;
     }
 
     /**
@@ -0,0 +1,274 @@
+package org.dcache.ftp.data;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fixed set of event loops shared by the multiplexers of many transfers.
+ * <p>
+ * Each event loop runs a Java NIO selector on its own thread. A multiplexer created by the pool
+ * is bound to the event loop with the fewest multiplexers, and all its listeners are called on
+ * the thread of that event loop. The thread calling {@link Multiplexer#loop()} merely waits for
+ * the transfer to complete.
+ * <p>
+ * Since the listeners of many transfers share a thread, they must not block other than for
+ * accessing the file.
+ */
+public class MultiplexerPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexerPool.class);
+
+    private final EventLoop[] _loops;
+
+    /**
+     * Creates a pool with the given number of event loops. The threads of the event loops are
+     * daemon threads named by the given prefix followed by a counter.
+     */
+    public MultiplexerPool(String name, int threads) throws IOException {
+        checkArgument(threads > 0, "Number of threads must be positive");
+        _loops = new EventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            _loops[i] = new EventLoop(name + "-" + i);
+        }
+    }
+
+    /**
+     * Returns the number of event loops of this pool.
+     */
+    public int getThreads() {
+        return _loops.length;
+    }
+
+    /**
+     * Constructs a new multiplexer bound to one of the event loops of this pool. The
+     * multiplexer must be destroyed by a call to close().
+     */
+    public Multiplexer newMultiplexer() {
+        EventLoop loop = Arrays.stream(_loops)
+              .min(Comparator.comparingInt(l -> l._multiplexers.get()))
+              .orElseThrow();
+        return new PooledMultiplexer(loop);
+    }
+
+    /**
+     * A task executed on an event loop.
+     */
+    @FunctionalInterface
+    private interface IoTask {
+
+        void run() throws IOException;
+    }
+
+    private record Registration(PooledMultiplexer multiplexer, MultiplexerListener listener) {
+
+    }
+
+    private static class EventLoop implements Runnable {
+
+        private final Selector _selector;
+        private final Thread _thread;
+        private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger _multiplexers = new AtomicInteger();
+
+        EventLoop(String name) throws IOException {
+            _selector = Selector.open();
+            _thread = new Thread(this, name);
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+
+        boolean inEventLoop() {
+            return Thread.currentThread() == _thread;
+        }
+
+        /**
+         * Executes the task on the event loop and waits for it to complete.
+         */
+        void execute(IoTask task) throws IOException {
+            if (inEventLoop()) {
+                task.run();
+                return;
+            }
+
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            _tasks.add(() -> {
+                try {
+                    task.run();
+                    result.complete(null);
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+            _selector.wakeup();
+
+            try {
+                Uninterruptibles.getUninterruptibly(result);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Throwables.throwIfInstanceOf(cause, IOException.class);
+                Throwables.throwIfUnchecked(cause);
+                throw new RuntimeException(cause);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    _selector.select();
+
+                    Runnable task;
+                    while ((task = _tasks.poll()) != null) {
+                        task.run();
+                    }
+
+                    for (SelectionKey key : _selector.selectedKeys()) {
+                        Registration registration = (Registration) key.attachment();
+                        registration.multiplexer().dispatch(registration.listener(), key);
+                    }
+                    _selector.selectedKeys().clear();
+                } catch (IOException e) {
+                    LOGGER.error("Event loop failed to select: {}", e.toString());
+                } catch (RuntimeException e) {
+                    LOGGER.error("Bug detected in event loop, please report this to "
+                          + "<support@dcache.org>", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A multiplexer of a single transfer. Apart from construction, loop() and close(), all
+     * methods are called on the thread of the event loop.
+     */
+    private static class PooledMultiplexer extends Multiplexer {
+
+        private final EventLoop _loop;
+        private final Set<SelectionKey> _keys = new HashSet<>();
+        private final CompletableFuture<Void> _done = new CompletableFuture<>();
+        private boolean _isClosed;
+
+        PooledMultiplexer(EventLoop loop) {
+            super(loop._selector);
+            _loop = loop;
+            _loop._multiplexers.incrementAndGet();
+        }
+
+        @Override
+        public SelectionKey register(MultiplexerListener listener, int op,
+              SelectableChannel channel) throws IOException {
+            checkState(_loop.inEventLoop(), "Channels must be registered on the event loop");
+            SelectionKey key = channel.register(_selector, op, new Registration(this, listener));
+            _keys.add(key);
+            return key;
+        }
+
+        @Override
+        public void add(MultiplexerListener listener) throws IOException {
+            _loop.execute(() -> listener.register(this));
+        }
+
+        /**
+         * Waits until the transfer has completed, i.e. until shutdown() is called or a listener
+         * fails.
+         */
+        @Override
+        public void loop() throws IOException, FTPException, InterruptedException {
+            try {
+                _done.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Throwables.throwIfInstanceOf(cause, IOException.class);
+                Throwables.throwIfInstanceOf(cause, FTPException.class);
+                Throwables.throwIfInstanceOf(cause, InterruptedException.class);
+                Throwables.throwIfUnchecked(cause);
+                throw new RuntimeException(cause);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            _loop.execute(() -> {
+                if (!_isClosed) {
+                    _isClosed = true;
+                    _done.complete(null);
+                    try {
+                        for (SelectionKey key : _keys) {
+                            key.channel().close();
+                        }
+                    } finally {
+                        _keys.clear();
+                        _loop._multiplexers.decrementAndGet();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            LOGGER.trace("Multiplexer shutting down");
+            _shutdown = true;
+            complete(null);
+        }
+
+        private void dispatch(MultiplexerListener listener, SelectionKey key) {
+            if (_done.isDone()) {
+                if (key.isValid()) {
+                    key.interestOps(0);
+                }
+                return;
+            }
+            try {
+                if (key.isValid() && key.isConnectable()) {
+                    listener.connect(this, key);
+                }
+                if (key.isValid() && key.isAcceptable()) {
+                    listener.accept(this, key);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    listener.read(this, key);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    listener.write(this, key);
+                }
+            } catch (Throwable t) {
+                complete(t);
+            }
+        }
+
+        /**
+         * Completes the transfer. Once completed, the channels of the transfer are no longer
+         * selected, as nobody would handle the events.
+         */
+        private void complete(Throwable failure) {
+            boolean completed = (failure == null)
+                  ? _done.complete(null)
+                  : _done.completeExceptionally(failure);
+            if (completed && _loop.inEventLoop()) {
+                for (SelectionKey key : _keys) {
+                    if (key.isValid()) {
+                        key.interestOps(0);
+                    }
+                }
+            }
+        }
+    }
+}
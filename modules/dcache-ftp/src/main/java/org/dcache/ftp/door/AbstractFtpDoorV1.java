@@ -1651,6 +1651,7 @@ public abstract class AbstractFtpDoorV1
         _pnfs.setSubject(mappedSubject);
         _pnfs.setRestriction(_authz);
         _listSource = new ListDirectoryHandler(_pnfs);
+        _listSource.setWindow(_settings.getPnfsListWindow());
 
         _subject = mappedSubject;
         _cwd = cwd;
@@ -1843,10 +1844,10 @@ public abstract class AbstractFtpDoorV1
         }
     }
 
-    public void messageArrived(PnfsListDirectoryMessage message) {
+    public void messageArrived(CellMessage envelope, PnfsListDirectoryMessage message) {
         ListDirectoryHandler listSource = _listSource;
         if (listSource != null) {
-            listSource.messageArrived(message);
+            listSource.messageArrived(envelope, message);
         }
     }
 
@@ -114,6 +114,11 @@ public class FtpDoorSettings {
           defaultValue = "SECONDS")
     protected TimeUnit pnfsTimeoutUnit;
 
+    @Option(name = "pnfsListWindow",
+          description = "Partial listing replies PnfsManager may send ahead of the client",
+          defaultValue = "0")
+    protected int pnfsListWindow;
+
     @Option(name = "poolTimeout",
           defaultValue = "300")
     protected int poolTimeout;
@@ -312,6 +317,10 @@ public class FtpDoorSettings {
         return performanceMarkerPeriodUnit;
     }
 
+    public int getPnfsListWindow() {
+        return pnfsListWindow;
+    }
+
     public String getRoot() {
         return root;
     }
@@ -49,6 +49,7 @@ import org.dcache.ftp.data.ModeE;
 import org.dcache.ftp.data.ModeS;
 import org.dcache.ftp.data.ModeX;
 import org.dcache.ftp.data.Multiplexer;
+import org.dcache.ftp.data.MultiplexerPool;
 import org.dcache.ftp.data.Role;
 import org.dcache.namespace.FileAttribute;
 import org.dcache.pool.repository.FileRepositoryChannel;
@@ -100,6 +101,12 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
      */
     public static final int MODE_X_DEFAULT_BLOCK_SIZE = KiB.toBytes(128);
 
+    /**
+     * Event loops shared by all FTP movers in this domain. Created on first use with the number
+     * of event loops configured for the mover that uses it first.
+     */
+    private static MultiplexerPool _multiplexerPool;
+
     /**
      * The cell owning this mover. Log messages are sent to it.
      */
@@ -178,6 +185,12 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
      */
     protected boolean _inProgress;
 
+    /**
+     * The number of shared event loops to run transfers on, or zero to run each transfer on its
+     * own event loop in the thread of the mover.
+     */
+    protected int _eventLoops;
+
     private Mode _mode;
 
     public GFtpProtocol_2_nio(CellEndpoint cell) {
@@ -236,9 +249,12 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
         _status = "None";
 
         /* Startup the transfer. The transfer is performed on a single
-         * thread, no matter the number of streams.
+         * thread, no matter the number of streams. That thread is either
+         * shared with other transfers or the thread of this mover.
          */
-        _multiplexer = new Multiplexer();
+        _multiplexer = (_eventLoops > 0)
+              ? getMultiplexerPool(_eventLoops).newMultiplexer()
+              : new Multiplexer();
         try {
             _inProgress = true;
             _multiplexer.add(mode);
@@ -296,6 +312,14 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
         }
     }
 
+    private static synchronized MultiplexerPool getMultiplexerPool(int threads)
+          throws IOException {
+        if (_multiplexerPool == null) {
+            _multiplexerPool = new MultiplexerPool("ftp-mover", threads);
+        }
+        return _multiplexerPool;
+    }
+
     private void addDesiredChecksums(GFtpProtocolInfo info) {
         String type = info.getChecksumType();
 
@@ -717,6 +741,10 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
     public void setCellArgs(Args args) {
         _allowPassivePool = args.getBooleanOption("ftpAllowIncomingConnections");
 
+        if (args.hasOption("ftpEventLoops")) {
+            _eventLoops = args.getIntOption("ftpEventLoops");
+        }
+
         if (args.hasOption("gsiftpBlockSize")) {
             _blockSize = args.getIntOption("gsiftpBlockSize");
         }
@@ -0,0 +1,102 @@
+package org.dcache.ftp.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.dcache.pool.repository.FileRepositoryChannel;
+import org.dcache.pool.repository.RepositoryChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiplexerPoolTest {
+
+    private static final ConnectionMonitor MONITOR = new ConnectionMonitor() {
+        @Override
+        public void receivedBlock(long position, long size) {
+        }
+
+        @Override
+        public void sentBlock(long position, long size) {
+        }
+    };
+
+    private Path file;
+    private byte[] data;
+    private ExecutorService clients;
+
+    @Before
+    public void setUp() throws Exception {
+        data = new byte[1024 * 1024];
+        new Random(42).nextBytes(data);
+        file = Files.createTempFile("multiplexer", ".dat");
+        Files.write(file, data);
+        clients = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        clients.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void shouldRunConcurrentTransfersOnSharedEventLoop() throws Exception {
+        MultiplexerPool pool = new MultiplexerPool("test", 1);
+
+        Future<?> first = clients.submit(() -> send(pool));
+        Future<?> second = clients.submit(() -> send(pool));
+
+        first.get();
+        second.get();
+    }
+
+    private Void send(MultiplexerPool pool) throws Exception {
+        try (RepositoryChannel channel = new FileRepositoryChannel(file,
+              EnumSet.of(StandardOpenOption.READ))) {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            Mode mode = new ModeS(Role.Sender, channel, MONITOR, 64 * 1024);
+            mode.setPassive(server);
+
+            Future<byte[]> received = clients.submit(() -> receive(
+                  (InetSocketAddress) server.getLocalAddress()));
+
+            Multiplexer multiplexer = pool.newMultiplexer();
+            try {
+                multiplexer.add(mode);
+                multiplexer.loop();
+            } finally {
+                multiplexer.close();
+            }
+
+            assertThat(mode.hasCompletedSuccessfully(), is(true));
+            assertThat(received.get(), is(data));
+        }
+        return null;
+    }
+
+    private static byte[] receive(InetSocketAddress address) throws Exception {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort());
+              InputStream in = socket.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -81,6 +81,7 @@ import org.dcache.chimera.QuotaChimeraFsException;
 import org.dcache.chimera.StorageGenericLocation;
 import org.dcache.chimera.UnixPermission;
 import org.dcache.chimera.quota.Quota;
+import org.dcache.nfs.status.BadCookieException;
 import org.dcache.nfs.status.BadHandleException;
 import org.dcache.nfs.status.BadOwnerException;
 import org.dcache.nfs.status.DQuotException;
@@ -190,6 +191,29 @@ public class ChimeraVfs implements VirtualFileSystem, AclCheckable, QuotaVfs {
           .toArray(String[]::new);
 
 
+    /**
+     * Number of directory entries read from the database at once.
+     */
+    private static final int LIST_PAGE_SIZE = 1024;
+
+    /**
+     * Size in bytes of the READDIR reply assumed if the maxcount of the request is unknown, as
+     * for NFSv3.
+     */
+    private static final int DEFAULT_READDIR_MAXCOUNT = 1024 * 1024;
+
+    /**
+     * Cookies 1 and 2 are reserved by NFSv4, cookie 0 starts a new listing. The cookies of the
+     * other entries are assigned by {@link DirectoryCookies}.
+     */
+    private static final long DOT_COOKIE = 3;
+    private static final long DOT_DOT_COOKIE = 4;
+
+    /**
+     * The maxcount of the READDIR request processed by the current thread, if known.
+     */
+    private static final ThreadLocal<Integer> READDIR_MAXCOUNT = new ThreadLocal<>();
+
     private final JdbcFs _fs;
     private final NfsIdMapping _idMapping;
 
@@ -349,13 +373,68 @@ public class ChimeraVfs implements VirtualFileSystem, AclCheckable, QuotaVfs {
         //nop (all IO is FILE_SYNC so no commits expected)
     }
 
+    /**
+     * Lists a directory starting after the entry identified by {@code cookie}.
+     * <p>
+     * Regular directories are read from the database in pages of {@link #LIST_PAGE_SIZE} entries
+     * until the entries fill the maxcount of the READDIR request. The cookie of an entry encodes
+     * its position in the listing, see {@link DirectoryCookies}, thus a listing resumes from any
+     * cookie returned before without state kept by the door, and the verifier sent by the client
+     * is ignored.
+     */
     @Override
     public DirectoryStream list(Inode inode, byte[] verifier, long cookie) throws IOException {
         FsInode parentFsInode = toFsInode(inode);
 
-        // ignore whatever is sent by client
-        byte[] currentVerifier = directoryVerifier(inode);
+        if (parentFsInode.type() != FsInodeType.INODE) {
+            // ignore whatever is sent by client
+            return listAll(parentFsInode, directoryVerifier(inode));
+        }
 
+        if (cookie > DOT_DOT_COOKIE && cookie < DirectoryCookies.FIRST_ENTRY_COOKIE) {
+            throw new BadCookieException("invalid cookie: " + cookie);
+        }
+
+        List<DirectoryEntry> entries = new ArrayList<>();
+        long size = 0;
+        if (cookie == 0) {
+            entries.add(new DirectoryEntry(".", inode, fromChimeraStat(parentFsInode.stat()),
+                  DOT_COOKIE));
+            size += DirectoryCookies.encodedSize(".");
+        }
+        if (cookie < DOT_DOT_COOKIE) {
+            FsInode parent = parentFsInode.getParent();
+            if (parent != null) {
+                entries.add(new DirectoryEntry("..", toInode(parent),
+                      fromChimeraStat(parent.stat()), DOT_DOT_COOKIE));
+                size += DirectoryCookies.encodedSize("..");
+            }
+        }
+
+        Integer maxcount = READDIR_MAXCOUNT.get();
+        long budget = (maxcount == null) ? DEFAULT_READDIR_MAXCOUNT : maxcount;
+        for (DirectoryCookies.Entry e : DirectoryCookies.list(_fs, parentFsInode, cookie,
+              LIST_PAGE_SIZE, budget - size)) {
+            ChimeraDirectoryEntry entry = e.entry();
+            entries.add(new DirectoryEntry(entry.getName(), toInode(entry.getInode()),
+                  fromChimeraStat(entry.getStat()), e.cookie()));
+        }
+        return new DirectoryStream(directoryVerifier(inode), entries);
+    }
+
+    /**
+     * Sets the maxcount of the READDIR request processed by the current thread.
+     */
+    static void setReaddirMaxcount(int maxcount) {
+        READDIR_MAXCOUNT.set(maxcount);
+    }
+
+    static void clearReaddirMaxcount() {
+        READDIR_MAXCOUNT.remove();
+    }
+
+    private DirectoryStream listAll(FsInode parentFsInode, byte[] currentVerifier)
+          throws IOException {
         try (Stream<ChimeraDirectoryEntry> dirStream = DirectoryStreamHelper.streamOf(
               parentFsInode)) {
             TreeSet<DirectoryEntry> list = dirStream.map(
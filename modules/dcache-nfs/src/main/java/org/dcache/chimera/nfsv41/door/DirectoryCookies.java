@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.chimera.nfsv41.door;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import org.dcache.chimera.ChimeraDirectoryEntry;
+import org.dcache.chimera.ChimeraFsException;
+import org.dcache.chimera.FileSystemProvider;
+import org.dcache.chimera.FsInode;
+
+/**
+ * Lists chimera directories in pages that start at a READDIR cookie.
+ * <p>
+ * The cookie of an entry holds the inode number of the entry in the upper bits and a hash of
+ * its name in the lower {@link #HASH_BITS} bits. As the database returns the entries of a
+ * directory in inode number order, the cookies of a listing increase from entry to entry, and a
+ * listing resumes with the entries whose inode number is not smaller than that of the cookie. A
+ * cookie depends on nothing but its own entry, thus it stays valid when the door restarts, when
+ * the client moves to another door and when entries are created or removed, including the entry
+ * the cookie was returned with.
+ * <p>
+ * The hash tells apart the links to the same inode within a directory. If the hashes of two
+ * links collide, the link that sorts later by name uses the next free hash.
+ */
+final class DirectoryCookies {
+
+    /**
+     * Number of bits of a cookie that hold the hash of the name.
+     */
+    static final int HASH_BITS = 20;
+
+    private static final int HASH_MASK = (1 << HASH_BITS) - 1;
+
+    /**
+     * Smallest cookie of an entry. Inode numbers start at 1, thus smaller cookies are free for
+     * the entries '.' and '..'.
+     */
+    static final long FIRST_ENTRY_COOKIE = 1L << HASH_BITS;
+
+    /**
+     * Largest inode number that fits into a cookie.
+     */
+    private static final long MAX_INUMBER = Long.MAX_VALUE >>> HASH_BITS;
+
+    /**
+     * A directory entry and its cookie.
+     */
+    record Entry(ChimeraDirectoryEntry entry, long cookie) {
+    }
+
+    private DirectoryCookies() {
+    }
+
+    /**
+     * Returns the entries of {@code dir} with a cookie larger than {@code cookie} in cookie
+     * order. The directory is read in pages of {@code pageSize} entries until the entries fill
+     * {@code maxcount} bytes of a READDIR reply or the end of the directory is reached.
+     *
+     * @param fs       file system to read the directory from
+     * @param dir      directory to list
+     * @param cookie   cookie of the last entry the client received, or a cookie smaller than
+     *                 {@link #FIRST_ENTRY_COOKIE} to start with the first entry
+     * @param pageSize number of entries read from the database at once
+     * @param maxcount number of bytes of the reply to fill
+     */
+    static List<Entry> list(FileSystemProvider fs, FsInode dir, long cookie, int pageSize,
+          long maxcount) throws ChimeraFsException {
+        List<Entry> entries = new ArrayList<>();
+        long from = (cookie < FIRST_ENTRY_COOKIE) ? 0 : cookie >>> HASH_BITS;
+        long size = 0;
+        List<ChimeraDirectoryEntry> page;
+        do {
+            page = fs.listDirectory(dir, from, pageSize);
+            for (Entry e : cookiesOf(page)) {
+                if (e.cookie() > cookie) {
+                    entries.add(e);
+                    size += encodedSize(e.entry().getName());
+                }
+            }
+            if (!page.isEmpty()) {
+                from = page.get(page.size() - 1).getInode().ino() + 1;
+            }
+        } while (page.size() >= pageSize && size <= maxcount);
+        return entries;
+    }
+
+    /**
+     * Returns the smallest number of bytes an entry with the given name occupies in a READDIR
+     * reply: the cookie, the name, an empty attribute bitmap and value, and the list link. The
+     * attributes requested by the client are not accounted for, thus a listing may read more
+     * entries than fit into the reply. It never reads fewer, as a reply with fewer entries than
+     * fit would tell the client that the end of the directory was reached.
+     */
+    static long encodedSize(String name) {
+        int length = name.getBytes(UTF_8).length;
+        return 8 + 4 + ((length + 3) & ~3) + 4 + 4 + 4;
+    }
+
+    /**
+     * Assigns cookies to a page of entries in inode number order, in which all links to the same
+     * inode are adjacent.
+     */
+    private static List<Entry> cookiesOf(List<ChimeraDirectoryEntry> page)
+          throws ChimeraFsException {
+        List<Entry> entries = new ArrayList<>(page.size());
+        int i = 0;
+        while (i < page.size()) {
+            long ino = page.get(i).getInode().ino();
+            if (ino > MAX_INUMBER) {
+                throw new ChimeraFsException("Inode number too large for a directory cookie: "
+                      + ino);
+            }
+            int end = i + 1;
+            while (end < page.size() && page.get(end).getInode().ino() == ino) {
+                end++;
+            }
+            List<ChimeraDirectoryEntry> links = new ArrayList<>(page.subList(i, end));
+            links.sort(Comparator.comparing(ChimeraDirectoryEntry::getName));
+            BitSet used = new BitSet();
+            List<Entry> linkEntries = new ArrayList<>(links.size());
+            for (ChimeraDirectoryEntry link : links) {
+                int hash = link.getName().hashCode() & HASH_MASK;
+                while (used.get(hash)) {
+                    hash = (hash + 1) & HASH_MASK;
+                }
+                used.set(hash);
+                linkEntries.add(new Entry(link, ino << HASH_BITS | hash));
+            }
+            linkEntries.sort(Comparator.comparingLong(Entry::cookie));
+            entries.addAll(linkEntries);
+            i = end;
+        }
+        return entries;
+    }
+}
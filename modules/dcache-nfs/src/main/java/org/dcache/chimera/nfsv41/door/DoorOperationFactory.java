@@ -50,6 +50,7 @@ import org.dcache.nfs.v4.MDSOperationExecutor;
 import org.dcache.nfs.v4.OperationCREATE;
 import org.dcache.nfs.v4.OperationGETATTR;
 import org.dcache.nfs.v4.OperationOPEN;
+import org.dcache.nfs.v4.OperationREADDIR;
 import org.dcache.nfs.v4.OperationREMOVE;
 import org.dcache.nfs.v4.OperationRENAME;
 import org.dcache.nfs.v4.OperationSETATTR;
@@ -201,6 +202,9 @@ public class DoorOperationFactory extends MDSOperationExecutor {
             case nfs_opnum4.OP_SETATTR:
                 operation = setattrOp.apply(op);
                 break;
+            case nfs_opnum4.OP_READDIR:
+                operation = new OpReaddir(op);
+                break;
             default:
                 operation = super.getOperation(op);
         }
@@ -247,6 +251,28 @@ public class DoorOperationFactory extends MDSOperationExecutor {
 
     }
 
+    /**
+     * Passes the maxcount of the request to ChimeraVfs, such that the listing only reads as
+     * many entries from the database as fit into the reply.
+     */
+    private static class OpReaddir extends OperationREADDIR {
+
+        public OpReaddir(nfs_argop4 args) {
+            super(args);
+        }
+
+        @Override
+        public void process(CompoundContext context, nfs_resop4 result)
+              throws ChimeraNFSException, IOException, OncRpcException {
+            ChimeraVfs.setReaddirMaxcount(_args.opreaddir.maxcount.value);
+            try {
+                super.process(context, result);
+            } finally {
+                ChimeraVfs.clearReaddirMaxcount();
+            }
+        }
+    }
+
     private class OpSetattr extends OperationSETATTR {
 
         public OpSetattr(nfs_argop4 args) {
@@ -503,7 +503,8 @@ public class NFSv41Door extends AbstractCellComponent implements
         _chimeraVfs = new ChimeraVfs(_fileFileSystemProvider, _idMapper);
         var quotaSvc = new QuotaSvc(_chimeraVfs, _exportFile);
         _vfsCache = new VfsCache(_chimeraVfs, _vfsCacheConfig);
-        _vfs = _eventNotifier == null ? _vfsCache : wrapWithMonitoring(_vfsCache);
+        VirtualFileSystem vfs = new PagedListingVfs(_vfsCache, _chimeraVfs);
+        _vfs = _eventNotifier == null ? vfs : wrapWithMonitoring(vfs);
 
         OncRpcSvcBuilder oncRpcSvcBuilder = new OncRpcSvcBuilder()
               .withPort(_port)
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.chimera.nfsv41.door;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import org.dcache.nfs.vfs.DirectoryStream;
+import org.dcache.nfs.vfs.ForwardingFileSystem;
+import org.dcache.nfs.vfs.Inode;
+import org.dcache.nfs.vfs.VirtualFileSystem;
+
+/**
+ * A VirtualFileSystem that forwards all requests to a caching VirtualFileSystem, except for
+ * directory listings, which are served by {@link ChimeraVfs} directly.
+ * <p>
+ * ChimeraVfs returns directory listings in pages starting at the cookie provided by the client.
+ * Such a page must not be cached as the complete listing of the directory.
+ */
+public class PagedListingVfs extends ForwardingFileSystem {
+
+    private final VirtualFileSystem inner;
+    private final ChimeraVfs chimeraVfs;
+
+    public PagedListingVfs(VirtualFileSystem inner, ChimeraVfs chimeraVfs) {
+        this.inner = requireNonNull(inner);
+        this.chimeraVfs = requireNonNull(chimeraVfs);
+    }
+
+    @Override
+    protected VirtualFileSystem delegate() {
+        return inner;
+    }
+
+    @Override
+    public DirectoryStream list(Inode inode, byte[] verifier, long cookie) throws IOException {
+        return chimeraVfs.list(inode, verifier, cookie);
+    }
+}
@@ -5,6 +5,10 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -40,12 +44,16 @@ import org.dcache.oncrpc4j.rpc.RpcCall;
 import org.dcache.oncrpc4j.rpc.RpcTransport;
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
 import org.dcache.util.NetworkUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A {@link ProxyIoAdapter} which proxies requests to another NFSv4.1 server.
  */
 public class NfsProxyIo implements ProxyIoAdapter {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(NfsProxyIo.class);
+
     private static final int ROOT_UID = 0;
     private static final int ROOT_GID = 0;
     private static final int[] ROOT_GIDS = new int[0];
@@ -65,6 +73,12 @@ public class NfsProxyIo implements ProxyIoAdapter {
      */
     private static final int SEQ_UP_TO_DATE = 0;
 
+    /**
+     * Maximal number of READ requests sent ahead of a sequentially reading client. The actual
+     * number is further limited by the number of slots in the session with the pool.
+     */
+    private static final int READ_AHEAD_DEPTH = 4;
+
     private clientid4 _clientIdByServer;
     private sequenceid4 _sequenceID;
 
@@ -79,6 +93,11 @@ public class NfsProxyIo implements ProxyIoAdapter {
 
     private ClientSession clientSession;
 
+    /**
+     * READ requests sent ahead of the client.
+     */
+    private final ReadAhead<READ4resok> readAhead;
+
     /**
      * Creates a NfsProxyIo instance.
      *
@@ -86,10 +105,12 @@ public class NfsProxyIo implements ProxyIoAdapter {
      * @param context     Original request compound context.
      * @param inode       inode to access.
      * @param stateid     stateid to use.
+     * @param readAheadExecutor executor for READ requests sent ahead of the client.
      * @throws IOException if an I/O error occurs.
      */
     public NfsProxyIo(InetSocketAddress poolAddress, CompoundContext context, Inode inode,
-                      stateid4 stateid, long timeout, TimeUnit timeUnit) throws IOException {
+                      stateid4 stateid, long timeout, TimeUnit timeUnit,
+                      Executor readAheadExecutor) throws IOException {
         this.remoteClient = context.getRemoteSocketAddress();
         rpcsvc = new OncRpcSvcBuilder()
               .withClientMode()
@@ -116,6 +137,7 @@ public class NfsProxyIo implements ProxyIoAdapter {
                           "proxy-nfs-session-" + poolAddress.getAddress().getHostAddress() + "-%d")
                     .build()
         );
+        readAhead = new ReadAhead<>(this::readFromPool, readAheadExecutor);
 
         exchange_id();
         create_session();
@@ -123,25 +145,64 @@ public class NfsProxyIo implements ProxyIoAdapter {
         this.stateid = new stateid4(stateid.other, SEQ_UP_TO_DATE);
     }
 
+    /**
+     * Reads from the pool. Requests are not serialized: concurrent reads are sent in parallel over
+     * the slots of the session. If the client reads sequentially, the following blocks are
+     * requested ahead of time.
+     */
     @Override
-    public synchronized ReadResult read(ByteBuffer dst, long position) throws IOException {
-
+    public ReadResult read(ByteBuffer dst, long position) throws IOException {
         int needToRead = dst.remaining();
+
+        int depth = Math.min(READ_AHEAD_DEPTH, clientSession.maxRequests() - 1);
+        CompletableFuture<READ4resok> pending = readAhead.read(position, needToRead, depth);
+
+        READ4resok res = (pending == null)
+              ? readFromPool(needToRead, position)
+              : awaitReadAhead(pending, needToRead, position);
+
+        ByteBuffer data = res.data;
+        boolean eof = res.eof && data.remaining() <= needToRead;
+        if (data.remaining() > needToRead) {
+            data.limit(data.position() + needToRead);
+        }
+        int count = data.remaining();
+        dst.put(data);
+        if (eof) {
+            readAhead.eof(position + count);
+        }
+        return new ReadResult(needToRead - dst.remaining(), eof);
+    }
+
+    private READ4resok readFromPool(int count, long position) throws IOException {
         COMPOUND4args args = new CompoundBuilder()
               .withPutfh(fh)
-              .withRead(dst.remaining(), position, stateid)
+              .withRead(count, position, stateid)
               .withTag("pNFS read")
               .build();
         COMPOUND4res compound4res = sendCompoundInSession(args);
-        READ4resok res = compound4res.resarray.get(2).opread.resok4;
-        dst.put(res.data);
-        return new ReadResult(needToRead - dst.remaining(), res.eof);
+        return compound4res.resarray.get(2).opread.resok4;
+    }
+
+    private READ4resok awaitReadAhead(CompletableFuture<READ4resok> pending, int count,
+          long position) throws IOException {
+        try {
+            return pending.get(IO_TIMEOUT, IO_TIMEOUT_UNIT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DelayException(e.getMessage(), e);
+        } catch (CancellationException | ExecutionException | TimeoutException e) {
+            LOGGER.debug("Read-ahead at {} failed, reading again: {}", position, e.toString());
+            return readFromPool(count, position);
+        }
     }
 
     @Override
-    public synchronized VirtualFileSystem.WriteResult write(ByteBuffer src, long position)
+    public VirtualFileSystem.WriteResult write(ByteBuffer src, long position)
           throws IOException {
 
+        readAhead.invalidate();
+
         COMPOUND4args args = new CompoundBuilder()
               .withPutfh(fh)
               .withWrite(position, src, stateid)
@@ -170,6 +231,7 @@ public class NfsProxyIo implements ProxyIoAdapter {
     @Override
     public void close() throws IOException {
         sessionThread.shutdown();
+        readAhead.invalidate();
         try {
             destroy_session();
             destroy_clientid();
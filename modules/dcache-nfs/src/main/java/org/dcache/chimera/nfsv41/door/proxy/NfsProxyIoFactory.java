@@ -7,11 +7,14 @@ import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -62,6 +65,12 @@ public class NfsProxyIoFactory implements ProxyIoFactory {
     private static final TimeUnit TIMEOUT_STEP_UNIT = TimeUnit.MILLISECONDS;
     private static final long TIMEOUT_STEP = 100;
 
+    /**
+     * Maximal number of threads sending READ requests ahead of clients, shared by all proxied
+     * files.
+     */
+    private static final int READ_AHEAD_THREADS = 32;
+
     private static final Logger _log = LoggerFactory.getLogger(NfsProxyIoFactory.class);
 
     private final Cache<stateid4, ProxyIoAdapter> _proxyIO
@@ -70,6 +79,7 @@ public class NfsProxyIoFactory implements ProxyIoFactory {
 
     private final NFSv41DeviceManager deviceManager;
     private final ExponentialBackoffAlgorithmFactory backoffFactory;
+    private final ThreadPoolExecutor readAheadExecutor;
 
 
     /**
@@ -96,6 +106,13 @@ public class NfsProxyIoFactory implements ProxyIoFactory {
         backoffFactory = new ExponentialBackoffAlgorithmFactory();
         backoffFactory.setMinDelay(TIMEOUT_STEP);
         backoffFactory.setMinUnit(TIMEOUT_STEP_UNIT);
+        readAheadExecutor = new ThreadPoolExecutor(READ_AHEAD_THREADS, READ_AHEAD_THREADS,
+              60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder()
+                    .setNameFormat("proxy-nfs-read-%d")
+                    .setDaemon(true)
+                    .build());
+        readAheadExecutor.allowCoreThreadTimeOut(true);
     }
 
 
@@ -221,7 +238,7 @@ public class NfsProxyIoFactory implements ProxyIoFactory {
                             });
                             return new NfsProxyIo(poolSocketAddress,
                                   context, inode, ffLayoutSegment.ffl_mirrors[0].ffm_data_servers[0].ffds_stateid , timeout,
-                                  TIMEOUT_STEP_UNIT);
+                                  TIMEOUT_STEP_UNIT, readAheadExecutor);
                         } catch (IOException e) {
                             _log.warn("Failed to connect to remote mover {} : {}", address,
                                   e.getMessage());
@@ -271,6 +288,7 @@ public class NfsProxyIoFactory implements ProxyIoFactory {
 
     @Override
     public void shutdown() {
+        readAheadExecutor.shutdownNow();
     }
 
     @Override
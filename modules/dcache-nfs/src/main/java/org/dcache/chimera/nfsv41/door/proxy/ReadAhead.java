@@ -0,0 +1,152 @@
+package org.dcache.chimera.nfsv41.door.proxy;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Keeps track of READ requests sent ahead of a sequentially reading client.
+ *
+ * @param <T> type of the reply to a READ request
+ */
+class ReadAhead<T> {
+
+    /**
+     * Sends a single READ request to the pool.
+     */
+    @FunctionalInterface
+    interface Reader<T> {
+
+        T read(int count, long position) throws IOException;
+    }
+
+    private final Reader<T> reader;
+    private final Executor executor;
+
+    /**
+     * Outstanding read-ahead requests by file offset.
+     */
+    @GuardedBy("this")
+    private final Map<Long, Block<T>> blocks = new HashMap<>();
+
+    /**
+     * The offset at which the next read of a sequentially reading client is expected.
+     */
+    @GuardedBy("this")
+    private long nextSequentialOffset = -1;
+
+    /**
+     * Offset of the end of file as observed by the last read reporting EOF.
+     */
+    @GuardedBy("this")
+    private long eofOffset = Long.MAX_VALUE;
+
+    ReadAhead(Reader<T> reader, Executor executor) {
+        this.reader = reader;
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a read of the client. If the client reads sequentially, READ requests for up to
+     * {@code depth} following blocks are sent.
+     *
+     * @return the pending reply of a READ request sent ahead for this block or null if there is
+     * none
+     */
+    synchronized CompletableFuture<T> read(long position, int count, int depth) {
+        CompletableFuture<T> pending = null;
+        Block<T> ahead = blocks.remove(position);
+        if (ahead != null) {
+            if (ahead.count() >= count) {
+                pending = ahead.result();
+            } else {
+                ahead.result().cancel(false);
+            }
+        }
+        /* Clients issue reads in parallel, thus a read of a block that was requested
+         * ahead counts as sequential even if the previous block is still outstanding.
+         */
+        if (position == nextSequentialOffset || ahead != null) {
+            schedule(position + count, count, depth);
+        }
+        nextSequentialOffset = position + count;
+        return pending;
+    }
+
+    /**
+     * Records that a read reported the end of file at {@code offset}.
+     */
+    synchronized void eof(long offset) {
+        eofOffset = Math.min(eofOffset, offset);
+    }
+
+    /**
+     * Drops all outstanding read-ahead, e.g. because the file was modified. READ requests that
+     * were not sent yet are never sent.
+     */
+    synchronized void invalidate() {
+        cancelAll();
+        nextSequentialOffset = -1;
+        eofOffset = Long.MAX_VALUE;
+    }
+
+    @GuardedBy("this")
+    private void schedule(long offset, int count, int depth) {
+        blocks.entrySet().removeIf(e -> {
+            if (e.getKey() < offset) {
+                e.getValue().result().cancel(false);
+                return true;
+            }
+            return false;
+        });
+        if (blocks.size() > depth) {
+            /* Left over from an earlier sequential run. */
+            cancelAll();
+        }
+        for (int i = 0; i < depth; i++) {
+            long position = offset + (long) i * count;
+            if (position >= eofOffset) {
+                break;
+            }
+            if (!blocks.containsKey(position)) {
+                blocks.put(position, new Block<>(count, send(count, position)));
+            }
+        }
+    }
+
+    private CompletableFuture<T> send(int count, long position) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    /* Cancelled before it was sent. */
+                    return;
+                }
+                try {
+                    result.complete(reader.read(count, position));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @GuardedBy("this")
+    private void cancelAll() {
+        blocks.values().forEach(b -> b.result().cancel(false));
+        blocks.clear();
+    }
+
+    /**
+     * A READ request sent ahead of the client.
+     */
+    private record Block<T>(int count, CompletableFuture<T> result) {
+    }
+}
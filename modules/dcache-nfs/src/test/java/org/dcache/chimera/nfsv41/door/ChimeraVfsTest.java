@@ -1,6 +1,7 @@
 package org.dcache.chimera.nfsv41.door;
 
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -10,9 +11,11 @@ import com.zaxxer.hikari.HikariDataSource;
 import java.io.InputStream;
 import java.net.URL;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import liquibase.Liquibase;
 import liquibase.database.Database;
@@ -24,6 +27,7 @@ import org.dcache.chimera.FsFactory;
 import org.dcache.chimera.FsInode;
 import org.dcache.chimera.JdbcFs;
 import org.dcache.chimera.NoLabelChimeraException;
+import org.dcache.nfs.status.BadCookieException;
 import org.dcache.nfs.status.NoEntException;
 import org.dcache.nfs.vfs.DirectoryEntry;
 import org.dcache.nfs.vfs.DirectoryStream;
@@ -183,5 +187,62 @@ public class ChimeraVfsTest {
 
     }
 
+    @Test
+    public void shouldResumeListingFromCookie() throws Exception {
+        FsInode dir = _fs.path2inode("/").mkdir("parent");
+        FsInode aFile = _fs.createFile(dir, "aFile");
+        _fs.createFile(dir, "bFile");
+        _fs.createFile(dir, "cFile");
+
+        Inode inode = _chimeraVfs.lookup(_chimeraVfs.getRootInode(), "parent");
+
+        DirectoryStream stream = _chimeraVfs.list(inode, new byte[8], 0);
+        long cookie = cookieOf(stream, "aFile");
 
+        /* Neither removing the entry of the cookie nor creating entries shifts the listing. */
+        _fs.remove(dir, "aFile", aFile);
+        _fs.createFile(dir, "a0File");
+
+        List<String> names = new ArrayList<>();
+        for (DirectoryEntry entry : _chimeraVfs.list(inode, stream.getVerifier(), cookie)) {
+            assertTrue(entry.getCookie() > cookie);
+            names.add(entry.getName());
+        }
+        assertEquals(List.of("bFile", "cFile", "a0File"), names);
+    }
+
+    @Test
+    public void shouldResumeListingOfOtherInstance() throws Exception {
+        FsInode dir = _fs.path2inode("/").mkdir("parent");
+        _fs.createFile(dir, "aFile");
+        _fs.createFile(dir, "bFile");
+
+        Inode inode = _chimeraVfs.lookup(_chimeraVfs.getRootInode(), "parent");
+        DirectoryStream stream = _chimeraVfs.list(inode, new byte[8], 0);
+
+        ChimeraVfs otherVfs = new ChimeraVfs(_fileFileSystemProvider, null);
+        List<String> names = new ArrayList<>();
+        for (DirectoryEntry entry : otherVfs.list(inode, new byte[8], cookieOf(stream, "aFile"))) {
+            names.add(entry.getName());
+        }
+        assertEquals(List.of("bFile"), names);
+    }
+
+    @Test(expected = BadCookieException.class)
+    public void shouldRejectInvalidCookie() throws Exception {
+        _fs.path2inode("/").mkdir("parent");
+
+        Inode inode = _chimeraVfs.lookup(_chimeraVfs.getRootInode(), "parent");
+
+        _chimeraVfs.list(inode, new byte[8], DirectoryCookies.FIRST_ENTRY_COOKIE - 1);
+    }
+
+    private static long cookieOf(DirectoryStream stream, String name) {
+        for (DirectoryEntry entry : stream) {
+            if (entry.getName().equals(name)) {
+                return entry.getCookie();
+            }
+        }
+        throw new AssertionError("No entry " + name);
+    }
 }
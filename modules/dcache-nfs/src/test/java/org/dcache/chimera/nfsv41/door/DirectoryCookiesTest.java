@@ -0,0 +1,175 @@
+package org.dcache.chimera.nfsv41.door;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import com.google.common.io.Resources;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.InputStream;
+import java.net.URL;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.dcache.chimera.FileSystemProvider;
+import org.dcache.chimera.FsFactory;
+import org.dcache.chimera.FsInode;
+import org.dcache.chimera.JdbcFs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+public class DirectoryCookiesTest {
+
+    private static final URL DB_TEST_PROPERTIES =
+          Resources.getResource("org/dcache/chimera/chimera-test.properties");
+
+    private HikariDataSource _dataSource;
+    private FileSystemProvider _fs;
+    private FsInode _dir;
+
+    @Before
+    public void setUp() throws Exception {
+        Properties dbProperties = new Properties();
+        try (InputStream input = Resources.asByteSource(DB_TEST_PROPERTIES).openStream()) {
+            dbProperties.load(input);
+        }
+
+        _dataSource = FsFactory.getDataSource(
+              dbProperties.getProperty("chimera.db.url"),
+              dbProperties.getProperty("chimera.db.user"),
+              dbProperties.getProperty("chimera.db.password"));
+
+        try (Connection conn = _dataSource.getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+            Database database = DatabaseFactory.getInstance()
+                  .findCorrectDatabaseImplementation(new JdbcConnection(conn));
+            Liquibase liquibase = new Liquibase("org/dcache/chimera/changelog/changelog-master.xml",
+                  new ClassLoaderResourceAccessor(), database);
+
+            liquibase.update("");
+        }
+
+        _fs = new JdbcFs(_dataSource, new DataSourceTransactionManager(_dataSource), "strong");
+        _dir = _fs.path2inode("/").mkdir("dir");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (Connection conn = _dataSource.getConnection()) {
+            conn.createStatement().execute("SHUTDOWN;");
+        }
+        _dataSource.close();
+        _fs.close();
+    }
+
+    @Test
+    public void shouldListEmptyDirectory() throws Exception {
+        assertThat(DirectoryCookies.list(_fs, _dir, 0, 3, Long.MAX_VALUE), is(empty()));
+    }
+
+    @Test
+    public void shouldReadPagesUntilMaxcountIsFilled() throws Exception {
+        List<String> created = createFiles(10);
+
+        List<DirectoryCookies.Entry> entries =
+              DirectoryCookies.list(_fs, _dir, 0, 3, Long.MAX_VALUE);
+
+        assertThat(namesOf(entries), contains(created.toArray()));
+    }
+
+    @Test
+    public void shouldReadOnePageIfItFillsMaxcount() throws Exception {
+        createFiles(10);
+
+        assertThat(DirectoryCookies.list(_fs, _dir, 0, 3, 1), hasSize(3));
+    }
+
+    @Test
+    public void shouldResumeFromCookie() throws Exception {
+        List<String> created = createFiles(10);
+
+        List<String> names = new ArrayList<>();
+        long cookie = 0;
+        List<DirectoryCookies.Entry> page;
+        while (!(page = DirectoryCookies.list(_fs, _dir, cookie, 3, 1)).isEmpty()) {
+            for (DirectoryCookies.Entry e : page) {
+                assertThat(e.cookie(), greaterThan(cookie));
+                cookie = e.cookie();
+                names.add(e.entry().getName());
+            }
+        }
+
+        assertThat(names, contains(created.toArray()));
+    }
+
+    @Test
+    public void shouldResumeAfterEntryOfCookieWasRemoved() throws Exception {
+        createFiles(4);
+
+        List<DirectoryCookies.Entry> first = DirectoryCookies.list(_fs, _dir, 0, 2, 1);
+        for (DirectoryCookies.Entry e : first) {
+            _fs.remove(_dir, e.entry().getName(), e.entry().getInode());
+        }
+        long cookie = first.get(first.size() - 1).cookie();
+
+        assertThat(namesOf(DirectoryCookies.list(_fs, _dir, cookie, 2, Long.MAX_VALUE)),
+              contains("file-2", "file-3"));
+    }
+
+    @Test
+    public void shouldListNewEntriesAfterExistingEntries() throws Exception {
+        createFiles(2);
+
+        List<DirectoryCookies.Entry> first = DirectoryCookies.list(_fs, _dir, 0, 2, 1);
+        _fs.createFile(_dir, "a-new-file");
+        long cookie = first.get(first.size() - 1).cookie();
+
+        assertThat(namesOf(DirectoryCookies.list(_fs, _dir, cookie, 2, Long.MAX_VALUE)),
+              contains("a-new-file"));
+    }
+
+    @Test
+    public void shouldGiveHardLinksDistinctCookies() throws Exception {
+        FsInode file = _fs.createFile(_dir, "file");
+        _fs.createHLink(_dir, file, "link-1");
+        _fs.createHLink(_dir, file, "link-2");
+
+        List<DirectoryCookies.Entry> entries = DirectoryCookies.list(_fs, _dir, 0, 2, 1);
+
+        assertThat(namesOf(entries), containsInAnyOrder("file", "link-1", "link-2"));
+        assertThat(entries.get(1).cookie(), greaterThan(entries.get(0).cookie()));
+        assertThat(entries.get(2).cookie(), greaterThan(entries.get(1).cookie()));
+        assertThat(namesOf(DirectoryCookies.list(_fs, _dir, entries.get(1).cookie(), 2, 1)),
+              contains(entries.get(2).entry().getName()));
+    }
+
+    private List<String> createFiles(int count) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = "file-" + i;
+            _fs.createFile(_dir, name);
+            names.add(name);
+        }
+        return names;
+    }
+
+    private static List<String> namesOf(List<DirectoryCookies.Entry> entries) {
+        return entries.stream()
+              .map(e -> e.entry().getName())
+              .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,88 @@
+package org.dcache.chimera.nfsv41.door.proxy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadAheadTest {
+
+    private static final int BLOCK = 100;
+    private static final int DEPTH = 4;
+
+    private List<Long> sent;
+    private List<Runnable> queued;
+    private ReadAhead<String> readAhead;
+
+    @Before
+    public void setUp() {
+        sent = new ArrayList<>();
+        queued = new ArrayList<>();
+        readAhead = new ReadAhead<>((count, position) -> {
+            sent.add(position);
+            return "data@" + position;
+        }, queued::add);
+    }
+
+    @Test
+    public void shouldReadAheadOfSequentialReader() throws Exception {
+        assertThat(readAhead.read(0, BLOCK, DEPTH), is(nullValue()));
+        assertThat(readAhead.read(100, BLOCK, DEPTH), is(nullValue()));
+        runQueued();
+
+        assertThat(sent, is(List.of(200L, 300L, 400L, 500L)));
+        assertThat(readAhead.read(200, BLOCK, DEPTH).get(), is("data@200"));
+    }
+
+    @Test
+    public void shouldNotReadAheadOfRandomReader() {
+        readAhead.read(0, BLOCK, DEPTH);
+        readAhead.read(1000, BLOCK, DEPTH);
+        readAhead.read(500, BLOCK, DEPTH);
+
+        assertThat(queued, is(empty()));
+    }
+
+    @Test
+    public void shouldNotReadAheadPastEof() {
+        readAhead.eof(400);
+        readAhead.read(0, BLOCK, DEPTH);
+        readAhead.read(100, BLOCK, DEPTH);
+        runQueued();
+
+        assertThat(sent, is(List.of(200L, 300L)));
+    }
+
+    @Test
+    public void shouldDropReadAheadOnInvalidate() {
+        readAhead.read(0, BLOCK, DEPTH);
+        readAhead.read(100, BLOCK, DEPTH);
+        runQueued();
+
+        readAhead.invalidate();
+
+        assertThat(readAhead.read(200, BLOCK, DEPTH), is(nullValue()));
+    }
+
+    @Test
+    public void shouldNotSendReadAheadInvalidatedBeforeItWasSent() {
+        readAhead.read(0, BLOCK, DEPTH);
+        readAhead.read(100, BLOCK, DEPTH);
+
+        readAhead.invalidate();
+        runQueued();
+
+        assertThat(sent, is(empty()));
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+}
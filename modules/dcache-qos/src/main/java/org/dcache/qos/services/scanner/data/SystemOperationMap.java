@@ -63,9 +63,16 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.EvictingQueue;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.PermissionDeniedCacheException;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -91,6 +98,11 @@ import org.slf4j.LoggerFactory;
  * <p/>
  * Provides methods for cancellation of running scans, and for ad hoc submission of a scan.
  * <p/>
+ * The progress of running scans is checkpointed to a file as the inumber from which the scan
+ * would have to be resumed, i.e., the lowest start index of the partitions which have not yet
+ * completed.  If the service is restarted while a scan is running, the scan is resumed from
+ * that index instead of waiting for the next window and then starting over.
+ * <p/>
  * Class is not marked final for stubbing/mocking purposes.
  */
 public class SystemOperationMap extends ScanOperationMap {
@@ -100,6 +112,12 @@ public class SystemOperationMap extends ScanOperationMap {
     private static final String SCAN_DURATION
           = "\n\t%s days, %s hours, %s minutes, %s seconds\n\n";
 
+    private static final String ONLINE_CHECKPOINT = "online";
+    private static final String QOS_NEARLINE_CHECKPOINT = "qos";
+
+    private static final String SCAN_PROGRESS = "%s scan: inumber %s to %s, resume from %s (%s%%), "
+          + "%s files dispatched (%s files/s)\n";
+
     private static final byte ONLINE = 0x2;
     private static final byte QOS_NEARLINE = 0x4;
 
@@ -115,8 +133,10 @@ public class SystemOperationMap extends ScanOperationMap {
     static class ScanIndices {
         final long start;
         final long end;
+        final long started = System.currentTimeMillis();
         long currentOffset = 0L;
         long nextOffset = 0L;
+        long dispatched = 0L;
 
         public ScanIndices(long start, long end) {
             this.start = start;
@@ -168,6 +188,10 @@ public class SystemOperationMap extends ScanOperationMap {
     private ScanIndices qosIndices;
     private ScanIndices onlineIndices;
 
+    private String checkpointFile;
+    private Long qosNearlineResumeIndex;
+    private Long onlineResumeIndex;
+
     private SysOpHandler handler;
     private QoSScannerCounters counters;
 
@@ -203,10 +227,13 @@ public class SystemOperationMap extends ScanOperationMap {
             if (qos) {
                 this.qosNearline.values().forEach(this::cancel);
                 this.qosNearline.clear();
+                qosNearlineResumeIndex = null;
             } else {
                 this.online.values().forEach(this::cancel);
                 this.online.clear();
+                onlineResumeIndex = null;
             }
+            saveCheckpoint();
         } finally {
             lock.unlock();
         }
@@ -272,6 +299,15 @@ public class SystemOperationMap extends ScanOperationMap {
         lock.lock();
         StringBuilder builder = new StringBuilder();
         try {
+            if (onlineIndices != null) {
+                appendProgress("ONLINE", onlineIndices, online, onlineResumeIndex, builder);
+            }
+            if (qosIndices != null) {
+                appendProgress("QOS", qosIndices, qosNearline, qosNearlineResumeIndex, builder);
+            }
+            if (onlineIndices != null || qosIndices != null) {
+                builder.append("\n");
+            }
             online.entrySet().forEach(e ->
                   builder.append(e.getValue()).append("\n"));
             if (!online.isEmpty() && !qosNearline.isEmpty()) {
@@ -299,10 +335,17 @@ public class SystemOperationMap extends ScanOperationMap {
         return stringBuilder.toString();
     }
 
+    @Override
+    public synchronized void initialize() {
+        loadCheckpoint();
+        super.initialize();
+    }
+
     public void runScans() {
         lock.lock();
         try {
-            if (!isQosNearlineRunning() && isQosNearlinePastExpiration()) {
+            if (!isQosNearlineRunning()
+                  && (isQosNearlinePastExpiration() || qosNearlineResumeIndex != null)) {
                 LOGGER.info("runScans: starting qos (nearline) system scans");
                 start(true);
             }
@@ -312,7 +355,11 @@ public class SystemOperationMap extends ScanOperationMap {
                  *  If online is enabled, do the direct namespace scan;
                  *  otherwise, schedule a pool scan.
                  */
-                if (isOnlinePastExpiration()) {
+                if (onlineScanEnabled && onlineResumeIndex != null) {
+                    LOGGER.info("runScans: resuming ONLINE system scans from {}",
+                          onlineResumeIndex);
+                    start(false);
+                } else if (isOnlinePastExpiration()) {
                     if (onlineScanEnabled) {
                         LOGGER.info("runScans: starting ONLINE system scans");
                         start(false);
@@ -330,6 +377,10 @@ public class SystemOperationMap extends ScanOperationMap {
         }
     }
 
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
     public void setCounters(QoSScannerCounters counters) {
         this.counters = counters;
     }
@@ -446,6 +497,24 @@ public class SystemOperationMap extends ScanOperationMap {
         // NOP
     }
 
+    @GuardedBy("lock")
+    private void appendProgress(String kind, ScanIndices indices,
+          Map<String, SystemScanOperation> running, Long resumeIndex, StringBuilder builder) {
+        long resume = resumeIndex == null ? indices.start : resumeIndex;
+        long dispatched = indices.dispatched + running.values().stream()
+              .filter(o -> o.task != null).mapToLong(o -> o.task.getCount()).sum();
+        double seconds = Math.max(1L, System.currentTimeMillis() - indices.started) / 1000.0;
+        builder.append(String.format(SCAN_PROGRESS,
+              kind,
+              indices.start,
+              indices.end,
+              resume,
+              String.format("%.1f", 100 * (double) (resume - indices.start)
+                    / (double) Math.max(1L, indices.end - indices.start)),
+              dispatched,
+              String.format("%.1f", dispatched / seconds)));
+    }
+
     private void cancel(SystemScanOperation operation) {
         operation.cancel();
         if (operation.task != null) {
@@ -468,12 +537,38 @@ public class SystemOperationMap extends ScanOperationMap {
         return qosNearline ? qosNearlineBatchSize : onlineBatchSize;
     }
 
+    /**
+     * Records the index from which the scan would have to be resumed and saves it.  This is the
+     * lowest start index of the running partitions, or the start index of the next partition if
+     * there are none.
+     */
+    @GuardedBy("lock")
+    private void checkpoint(boolean qos) {
+        ScanIndices indices = qos ? qosIndices : onlineIndices;
+        Long resumeIndex = null;
+        if (indices != null) {
+            resumeIndex = (qos ? qosNearline : online).values().stream()
+                  .mapToLong(o -> o.from).min().orElse(indices.nextOffset());
+        }
+
+        if (qos) {
+            qosNearlineResumeIndex = resumeIndex;
+        } else {
+            onlineResumeIndex = resumeIndex;
+        }
+
+        saveCheckpoint();
+    }
+
     @GuardedBy("lock")
     private void handleDone(SystemScanOperation operation) {
         operation.scanLabel = ScanLabel.FINISHED;
         remove(operation.id);
         history.add(operation.toString());
 
+        ScanIndices indices = operation.qos ? qosIndices : onlineIndices;
+        indices.dispatched += operation.getRunningTotal();
+
         boolean hasNext = hasNext(operation.qos);
 
         LOGGER.info("handleDone, hasNext {}, qos {}, online {}, qos {}.", hasNext,
@@ -494,10 +589,11 @@ public class SystemOperationMap extends ScanOperationMap {
         } else {
             int loopWidth = maxConcurrentRunning;
             int batchSize = getBatchSize(operation.qos);
-            long fromIndex = (operation.from / batchSize) + loopWidth;
-            long toIndex = (operation.to / batchSize) + loopWidth;
-            submit(fromIndex, toIndex, operation.qos);
+            long fromIndex = ((operation.from - indices.start) / batchSize) + loopWidth;
+            submit(fromIndex, fromIndex + 1, operation.qos);
         }
+
+        checkpoint(operation.qos);
     }
 
     private boolean isOnlineRunning() {
@@ -519,6 +615,77 @@ public class SystemOperationMap extends ScanOperationMap {
               onlineRescanWindow);
     }
 
+    /**
+     * Reads the resume indices saved by a previous instance of the service.  NOP if there is no
+     * checkpoint file.
+     */
+    private void loadCheckpoint() {
+        if (checkpointFile == null) {
+            return;
+        }
+
+        Path path = Path.of(checkpointFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.US_ASCII)) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length != 2) {
+                    continue;
+                }
+                long index = Long.parseLong(parts[1]);
+                if (QOS_NEARLINE_CHECKPOINT.equals(parts[0])) {
+                    qosNearlineResumeIndex = index;
+                } else if (ONLINE_CHECKPOINT.equals(parts[0])) {
+                    onlineResumeIndex = index;
+                }
+            }
+            LOGGER.info("loaded system scan checkpoint: online {}, qos {}.", onlineResumeIndex,
+                  qosNearlineResumeIndex);
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.error("Unable to reload system scan checkpoint file: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the resume indices to the checkpoint file, replacing it atomically; deletes the file
+     * if no scan is in progress.
+     */
+    @GuardedBy("lock")
+    private void saveCheckpoint() {
+        if (checkpointFile == null) {
+            return;
+        }
+
+        Path path = Path.of(checkpointFile);
+        try {
+            if (onlineResumeIndex == null && qosNearlineResumeIndex == null) {
+                Files.deleteIfExists(path);
+                return;
+            }
+
+            List<String> lines = new ArrayList<>();
+            if (onlineResumeIndex != null) {
+                lines.add(ONLINE_CHECKPOINT + " " + onlineResumeIndex);
+            }
+            if (qosNearlineResumeIndex != null) {
+                lines.add(QOS_NEARLINE_CHECKPOINT + " " + qosNearlineResumeIndex);
+            }
+
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, lines, StandardCharsets.US_ASCII);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING,
+                  StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Unable to save system scan checkpoint file: {}", e.getMessage());
+        }
+    }
+
     @GuardedBy("lock")
     private void put(SystemScanOperation operation) {
         if (operation.isQos()) {
@@ -541,19 +708,31 @@ public class SystemOperationMap extends ScanOperationMap {
     }
 
     /*
-     *  Launch the first tasks up to the max concurrent.
+     *  Launch the first tasks up to the max concurrent, resuming from the checkpoint
+     *  if there is one.  The max index is inclusive.
      */
     @GuardedBy("lock")
     private void start(boolean qos) throws CacheException {
         long[] minMaxIndices = handler.getMinMaxIndices(qos);
         int count = maxConcurrentRunning;
+        Long resumeIndex = qos ? qosNearlineResumeIndex : onlineResumeIndex;
+        long first = resumeIndex == null ? minMaxIndices[0]
+              : Math.max(resumeIndex, minMaxIndices[0]);
 
-        if (minMaxIndices[1] == 0) {
+        if (minMaxIndices[1] == 0 || first > minMaxIndices[1]) {
             LOGGER.info("start: no {} entries to scan.", qos ? "qos (nearline)" : "online");
+            if (resumeIndex != null) {
+                if (qos) {
+                    qosNearlineResumeIndex = null;
+                } else {
+                    onlineResumeIndex = null;
+                }
+                saveCheckpoint();
+            }
             return;
         }
 
-        ScanIndices indices = new ScanIndices(minMaxIndices[0], minMaxIndices[1]);
+        ScanIndices indices = new ScanIndices(first, minMaxIndices[1] + 1);
 
         if (qos) {
             qosIndices = indices;
@@ -573,6 +752,8 @@ public class SystemOperationMap extends ScanOperationMap {
             lastOnlineScanStart = System.currentTimeMillis();
             state |= ONLINE;
         }
+
+        checkpoint(qos);
     }
 
     @GuardedBy("lock")
@@ -162,6 +162,10 @@ public final class SystemScanOperation extends ScanOperation<SystemScanTask> {
         return isComplete;
     }
 
+    long getRunningTotal() {
+        return runningTotal;
+    }
+
     boolean isQos() {
         return qos;
     }
@@ -62,6 +62,7 @@ package org.dcache.qos.services.scanner.namespace;
 import static org.dcache.qos.data.QoSMessageType.SYSTEM_SCAN;
 import static org.dcache.util.SqlHelper.tryToClose;
 
+import com.google.common.base.Throwables;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.PnfsId;
 import java.io.PrintWriter;
@@ -71,6 +72,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.sql.DataSource;
 import org.dcache.chimera.BackEndErrorChimeraFsException;
@@ -89,6 +93,12 @@ import org.slf4j.LoggerFactory;
  * Provides handling of specialized long-running queries which require direct access to the
  * underlying namespace database.
  * <p/>
+ * The scan queries are paginated on the inumber (keyset pagination):  each page is a separate
+ * query returning at most fetch-size rows beginning after the last inumber of the previous page.
+ * This keeps the result sets small regardless of the driver's cursor support, and allows
+ * the caller to record how far the scan has progressed.  Pool scans can furthermore be split
+ * into inumber ranges which are queried concurrently.
+ * <p/>
  * Class is not marked final so that a test version can be implemented by extension.
  */
 public class LocalNamespaceAccess implements NamespaceAccess {
@@ -104,7 +114,8 @@ public class LocalNamespaceAccess implements NamespaceAccess {
           + " AND iaccess_latency = 1"
           + " AND inumber >= ?"
           + " AND inumber < ?"
-          + " ORDER BY inumber ASC";
+          + " ORDER BY inumber ASC"
+          + " LIMIT ?";
 
     /**
      * The qos scan checks consistency for all NEARLINE CUSTODIAL files for which a policy is defined.
@@ -116,18 +127,23 @@ public class LocalNamespaceAccess implements NamespaceAccess {
           + " AND inumber >= ?"
           + " AND inumber < ?"
           + " AND EXISTS (SELECT * FROM t_qos_policy WHERE id = iqos_policy)"
-          + " ORDER BY inumber ASC";
+          + " ORDER BY inumber ASC"
+          + " LIMIT ?";
 
     /**
      * Pool status or config changes should be concerned only with the disk status of the file, so
      * we check only ONLINE files again.  Files for which a QoS policy is defined are included.
      */
     static final String SQL_GET_ONLINE_FOR_LOCATION
-          = "SELECT n.ipnfsid FROM t_locationinfo l, t_inodes n"
+          = "SELECT l.inumber, n.ipnfsid FROM t_locationinfo l, t_inodes n"
           + " WHERE l.inumber = n.inumber"
           + " AND l.itype = 1"
           + " AND n.iaccess_latency = 1"
-          + " AND l.ilocation = ?";
+          + " AND l.ilocation = ?"
+          + " AND l.inumber >= ?"
+          + " AND l.inumber < ?"
+          + " ORDER BY l.inumber ASC"
+          + " LIMIT ?";
 
     /**
      * Get the current range of the entire scan.
@@ -144,6 +160,11 @@ public class LocalNamespaceAccess implements NamespaceAccess {
           + " AND n.inumber = n1.inumber"
           + " AND l1.ilocation NOT IN (%s))";
 
+    /**
+     * Page size used when no fetch size is configured.
+     */
+    static final int DEFAULT_PAGE_SIZE = 1000;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(LocalNamespaceAccess.class);
 
     interface QueryHandler<S> {
@@ -166,6 +187,16 @@ public class LocalNamespaceAccess implements NamespaceAccess {
      */
     private int fetchSize;
 
+    /**
+     * Number of inumber ranges into which a pool scan is split.
+     */
+    private int poolScanPartitions = 1;
+
+    /**
+     * Runs the partitions of pool scans.
+     */
+    private ExecutorService partitionService;
+
     public long[] getMinMaxInumbers() throws CacheException {
         try {
             Connection connection = getConnection();
@@ -189,7 +220,22 @@ public class LocalNamespaceAccess implements NamespaceAccess {
 
     @Override
     public void handlePoolScan(PoolScanSummary poolScan) throws CacheException {
-        handleQuery((connection, scan) -> handleQuery(connection, scan), poolScan);
+        if (poolScanPartitions <= 1 || partitionService == null) {
+            handleQuery((connection, scan) -> handleQuery(connection, scan, 0L, Long.MAX_VALUE),
+                  poolScan);
+            return;
+        }
+
+        long[] minMax = getMinMaxInumbers();
+        List<Future<?>> partitions = new ArrayList<>();
+        for (long[] range : partition(minMax[0], minMax[1] + 1, poolScanPartitions)) {
+            partitions.add(partitionService.submit(() -> {
+                handleQuery((connection, scan) -> handleQuery(connection, scan, range[0], range[1]),
+                      poolScan);
+                return null;
+            }));
+        }
+        waitFor(partitions, poolScan);
     }
 
     @Override
@@ -230,10 +276,30 @@ public class LocalNamespaceAccess implements NamespaceAccess {
         this.fetchSize = fetchSize;
     }
 
+    public void setPartitionService(ExecutorService partitionService) {
+        this.partitionService = partitionService;
+    }
+
+    public void setPoolScanPartitions(int poolScanPartitions) {
+        this.poolScanPartitions = poolScanPartitions;
+    }
+
     public void setVerificationListener(QoSVerificationListener verificationListener) {
         this.verificationListener = verificationListener;
     }
 
+    /**
+     * Splits [from, to) into at most the given number of contiguous ranges of (nearly) equal size.
+     */
+    static List<long[]> partition(long from, long to, int partitions) {
+        List<long[]> ranges = new ArrayList<>();
+        long width = Math.max(1L, (to - from + partitions - 1) / partitions);
+        for (long start = from; start < to; start += width) {
+            ranges.add(new long[]{start, Math.min(start + width, to)});
+        }
+        return ranges;
+    }
+
     private Connection getConnection() throws ChimeraFsException {
         try {
             return connectionPool.getConnection();
@@ -261,109 +327,139 @@ public class LocalNamespaceAccess implements NamespaceAccess {
     }
 
     /**
-     * The query processes all online replicas for the location by batching the returned pnfsids
-     * into lists to be dispatched to the verification service.
+     * Waits for the partitions of a pool scan.  If one of them fails, the others are cancelled.
      */
-    private void handleQuery(Connection connection, PoolScanSummary scan)
+    private void waitFor(List<Future<?>> partitions, PoolScanSummary scan) throws CacheException {
+        try {
+            for (Future<?> partition : partitions) {
+                partition.get();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("pool scan of {} was interrupted.", scan.getId());
+            scan.setCancelled(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, CacheException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new CacheException(CacheException.UNEXPECTED_SYSTEM_EXCEPTION,
+                  String.format("Could not handle query %s", scan), cause);
+        } finally {
+            partitions.forEach(p -> p.cancel(true));
+        }
+    }
+
+    private int getPageSize() {
+        return fetchSize > 0 ? fetchSize : DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Runs the query for the next page.  The range parameters and the limit must be the last
+     * three parameters of the statement, starting at the given index.
+     *
+     * @return the inumber of the last row of the page, or -1 if the page is empty.
+     */
+    private long nextPage(PreparedStatement statement, int index, long from, long to,
+          List<PnfsId> replicas) throws SQLException {
+        statement.setLong(index, from);
+        statement.setLong(index + 1, to);
+        statement.setInt(index + 2, getPageSize());
+
+        long last = -1L;
+        ResultSet resultSet = statement.executeQuery();
+        try {
+            while (resultSet.next()) {
+                last = resultSet.getLong(1);
+                replicas.add(new PnfsId(resultSet.getString(2)));
+            }
+        } finally {
+            tryToClose(resultSet);
+        }
+        return last;
+    }
+
+    /**
+     * The query processes the online replicas for the location within the given inumber range,
+     * one page at a time; each page is dispatched to the verification service.
+     */
+    private void handleQuery(Connection connection, PoolScanSummary scan, long from, long to)
           throws SQLException, QoSException {
         PreparedStatement statement = null;
-        ResultSet resultSet = null;
         String pool = scan.getId();
         String group = scan.getGroup();
         String storageUnit = scan.getStorageUnit();
         QoSMessageType type = scan.getType();
         boolean forced = scan.isForced();
-        List<PnfsId> replicas = new ArrayList<>();
-        QoSScannerVerificationRequest request;
+        int pageSize = getPageSize();
 
-        LOGGER.debug("handleQuery: (pool {})(group {})(storageUnit {})(type {})(forced {})",
-              pool, group, storageUnit, type, forced);
+        LOGGER.debug("handleQuery: (pool {})(group {})(storageUnit {})(type {})(forced {})"
+              + "(inumber {} to {})", pool, group, storageUnit, type, forced, from, to);
 
         try {
             statement = connection.prepareStatement(SQL_GET_ONLINE_FOR_LOCATION);
             statement.setString(1, pool);
-            statement.setFetchSize(fetchSize);
-            if (scan.isCancelled()) {
-                return;
-            }
 
-            resultSet = statement.executeQuery();
-
-            while (resultSet.next() && !scan.isCancelled()) {
-                replicas.add(new PnfsId(resultSet.getString(1)));
-                scan.incrementCount();
-                if (replicas.size() >= fetchSize) {
-                    request = new QoSScannerVerificationRequest(pool, replicas, type, group,
-                          storageUnit, forced);
-                    verificationListener.fileQoSVerificationRequested(request);
-                    replicas = new ArrayList<>();
+            while (from < to && !scan.isCancelled()) {
+                List<PnfsId> replicas = new ArrayList<>();
+                long last = nextPage(statement, 2, from, to, replicas);
+                if (replicas.isEmpty() || scan.isCancelled()) {
+                    break;
                 }
-            }
 
-            if (!replicas.isEmpty() && !scan.isCancelled()) {
-                request = new QoSScannerVerificationRequest(pool, replicas, type, group,
-                      storageUnit, forced);
-                verificationListener.fileQoSVerificationRequested(request);
+                scan.incrementCount(replicas.size());
+                verificationListener.fileQoSVerificationRequested(
+                      new QoSScannerVerificationRequest(pool, replicas, type, group, storageUnit,
+                            forced));
+
+                if (replicas.size() < pageSize) {
+                    break;
+                }
+                from = last + 1;
             }
         } finally {
-            tryToClose(resultSet);
             tryToClose(statement);
         }
     }
 
     /**
-     * The query processes file inodes by batching the returned pnfsids into lists to be dispatched
-     * to the verification service.
+     * The query processes file inodes one page at a time; each page is dispatched to the
+     * verification service.  The last inumber of each dispatched page is recorded in the scan.
      */
     private void handleQuery(Connection connection, SystemScanSummary scan)
           throws SQLException, QoSException {
-        long start = scan.getFrom();
+        long from = scan.getFrom();
         long to = scan.getTo();
+        int pageSize = getPageSize();
 
         PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        List<PnfsId> replicas = new ArrayList<>();
-        QoSScannerVerificationRequest request;
 
         LOGGER.debug("handleQuery: for {} system scan,  inumber {} to inumber {}.",
-              scan.isQosNearline() ? "nearline qos": "online", start);
+              scan.isQosNearline() ? "nearline qos" : "online", from, to);
 
         String sql = scan.isQosNearline() ? SQL_GET_NEARLINE_QOS_PNFSIDS : SQL_GET_ONLINE_PNFSIDS;
 
         try {
             statement = connection.prepareStatement(sql);
-            statement.setLong(1, start);
-            statement.setLong(2, to);
-            statement.setFetchSize(fetchSize);
-            if (scan.isCancelled()) {
-                return;
-            }
-
-            resultSet = statement.executeQuery();
-            long index = start;
 
-            while (resultSet.next() && !scan.isCancelled()) {
-                index = resultSet.getLong(1);
-                replicas.add(new PnfsId(resultSet.getString(2)));
-                scan.incrementCount();
-                if (replicas.size() == fetchSize) {
-                    request = new QoSScannerVerificationRequest(scan.getId(), replicas,
-                          SYSTEM_SCAN, null, null, true);
-                    verificationListener.fileQoSVerificationRequested(request);
-                    replicas = new ArrayList<>();
+            while (from < to && !scan.isCancelled()) {
+                List<PnfsId> replicas = new ArrayList<>();
+                long last = nextPage(statement, 1, from, to, replicas);
+                if (replicas.isEmpty() || scan.isCancelled()) {
+                    break;
                 }
-            }
 
-            scan.setLastIndex(index);
+                scan.incrementCount(replicas.size());
+                verificationListener.fileQoSVerificationRequested(
+                      new QoSScannerVerificationRequest(scan.getId(), replicas, SYSTEM_SCAN, null,
+                            null, true));
+                scan.setLastIndex(last);
 
-            if (!replicas.isEmpty() && !scan.isCancelled()) {
-                request = new QoSScannerVerificationRequest(scan.getId(), replicas,
-                      SYSTEM_SCAN, null, null, true);
-                verificationListener.fileQoSVerificationRequested(request);
+                if (replicas.size() < pageSize) {
+                    break;
+                }
+                from = last + 1;
             }
         } finally {
-            tryToClose(resultSet);
             tryToClose(statement);
         }
     }
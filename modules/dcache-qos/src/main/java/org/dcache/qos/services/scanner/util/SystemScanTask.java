@@ -76,6 +76,13 @@ public final class SystemScanTask extends ScanTask {
         scan = new SystemScanSummary(id, from, to, full);
     }
 
+    /**
+     * @return the number of files dispatched for verification so far.
+     */
+    public long getCount() {
+        return scan.getCount();
+    }
+
     @Override
     public void run() {
         if (!scan.isCancelled()) {
@@ -81,6 +81,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -167,13 +168,27 @@ public class VerifyOperationManager extends RunnableModule implements CellInfoPr
         }
     }
 
+    /*
+     *  The queue is lock-free, as it is added to by many threads for every
+     *  terminated operation.
+     */
     abstract class OperationProcessor {
-        final List<PnfsId> queue = new ArrayList<>();
+        final ConcurrentLinkedQueue<PnfsId> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
 
         void add(PnfsId pnfsId) {
-            synchronized (queue) {
-                queue.add(pnfsId);
+            queue.add(pnfsId);
+            size.incrementAndGet();
+        }
+
+        List<PnfsId> drain() {
+            List<PnfsId> drained = new ArrayList<>();
+            PnfsId pnfsId;
+            while ((pnfsId = queue.poll()) != null) {
+                drained.add(pnfsId);
             }
+            size.addAndGet(-drained.size());
+            return drained;
         }
 
         abstract void process();
@@ -188,17 +203,14 @@ public class VerifyOperationManager extends RunnableModule implements CellInfoPr
 
         void process() {
             LOGGER.trace("Running reaper.");
-            List<PnfsId> tmp;
 
-            synchronized (queue) {
-                if (queue.size() < maxRunning) {
-                    return;
-                }
-                LOGGER.trace("Reaper deleting {} operations.", queue.size());
-                tmp = queue.stream().collect(Collectors.toList());
-                queue.clear();
+            if (size.get() < maxRunning) {
+                return;
             }
 
+            List<PnfsId> tmp = drain();
+            LOGGER.trace("Reaper deleting {} operations.", tmp.size());
+
             removalExecutor.submit(()->operationDao.deleteBatch(tmp, maxRunning));
         }
     }
@@ -208,23 +220,11 @@ public class VerifyOperationManager extends RunnableModule implements CellInfoPr
      *  verification or VOIDs and removes the operation.
      */
     class OperationPostProcessor  extends OperationProcessor {
-        final List<PnfsId> queue = new ArrayList<>();
-
-        void add(PnfsId pnfsId) {
-            synchronized (queue) {
-                queue.add(pnfsId);
-            }
-        }
 
         void process() {
             LOGGER.trace("Running postprocessor.");
 
-            List<PnfsId> tmp;
-
-            synchronized (queue) {
-                tmp = queue.stream().collect(Collectors.toList());
-                queue.clear();
-            }
+            List<PnfsId> tmp = drain();
 
             tmp.forEach(pnfsId->postProcessExecutor.submit(()->postProcess(pnfsId)));
         }
@@ -462,7 +462,7 @@ public class VerifyOperationManager extends RunnableModule implements CellInfoPr
         operationMap.values().stream().filter(filter.getPredicate())
               .forEach(op -> op.setState(CANCELED));
 
-        queueIndex.signalAll();
+        queueIndex.sweepAll();
 
         /*
          * The queues do not access the store, so we can go ahead and delete here
@@ -790,14 +790,22 @@ public class VerifyOperationManager extends RunnableModule implements CellInfoPr
     public void shutdown() {
         queueIndex.stopQueues();
         stopStatisticsCollector();
-        operationDao.deleteBatch(reaper.queue, maxRunning);
+        operationDao.deleteBatch(reaper.drain(), maxRunning);
         super.shutdown();
     }
 
+    /*
+     *  Called for every new or terminated operation.  Only the first signal after
+     *  the consumer thread has started a sweep needs to wake it up; subsequent ones
+     *  are picked up by the check at the end of the sweep.
+     */
     @Override
-    public synchronized void signal() {
-        signalled.incrementAndGet();
-        notifyAll();
+    public void signal() {
+        if (signalled.getAndIncrement() == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
     }
 
     public int size() {
@@ -858,7 +866,9 @@ public class VerifyOperationManager extends RunnableModule implements CellInfoPr
     }
 
     private synchronized void await() throws InterruptedException {
-        wait(timeoutUnit.toMillis(timeout));
+        if (signalled.get() == 0) {
+            wait(timeoutUnit.toMillis(timeout));
+        }
     }
 
     private void addFirst(VerifyOperation operation) {
@@ -63,15 +63,14 @@ import com.google.common.annotations.VisibleForTesting;
 import diskCacheV111.util.PnfsId;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import javax.annotation.concurrent.GuardedBy;
 import org.dcache.qos.services.verifier.data.VerifyOperationQueueIndex.QueueType;
 import org.dcache.util.SignalAware;
 import org.slf4j.Logger;
@@ -81,17 +80,27 @@ import org.slf4j.LoggerFactory;
  *  Responsible for the management of a verify operation of a given message type.
  *  Uses three internal queues to track the state of the operation (running, ready, waiting).
  *  Calls back the manager when an operation is ready for post-processing.
+ *  <p/>
+ *  None of the queues is guarded by a lock:  the ready queue is a lock-free deque, and running
+ *  and waiting are concurrent sets.  Only the queue's own thread moves operations from ready to
+ *  running and collects terminated operations, so producers adding operations never contend
+ *  with it.  Operations in the ready queue only become terminal by being canceled; instead of
+ *  scanning the (possibly very long) ready queue on every pass, terminated ready operations
+ *  are skipped when they reach the head of the queue, and the whole queue is swept only after
+ *  a cancellation.
  */
 public class VerifyOperationQueue implements SignalAware, Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VerifyOperationQueue.class);
 
-    private final Deque<PnfsId> running = new LinkedList<PnfsId>();
-    private final Deque<PnfsId> ready = new LinkedList<PnfsId>();
-    private final Deque<PnfsId> waiting = new LinkedList<PnfsId>();
-    private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
-    private final Lock write = lock.writeLock();
-    private final Lock read = lock.readLock();
+    private final Set<PnfsId> running = ConcurrentHashMap.newKeySet();
+    private final Deque<PnfsId> ready = new ConcurrentLinkedDeque<>();
+    private final Set<PnfsId> waiting = ConcurrentHashMap.newKeySet();
+
+    /**
+     *  Set when operations may have been canceled while in the ready queue.
+     */
+    private final AtomicBoolean sweepReady = new AtomicBoolean(false);
 
     /**
      * For reporting operations terminated or canceled while the consumer thread is doing work
@@ -120,21 +129,17 @@ public class VerifyOperationQueue implements SignalAware, Runnable {
     }
 
     public boolean addFirst(PnfsId pnfsId) {
-        write.lock();
         try {
             return ready.offerFirst(pnfsId);
         } finally {
-            write.unlock();
             signal();
         }
     }
 
     public boolean addLast(PnfsId pnfsId) {
-        write.lock();
         try {
             return ready.offerLast(pnfsId);
         } finally {
-            write.unlock();
             signal();
         }
     }
@@ -149,30 +154,15 @@ public class VerifyOperationQueue implements SignalAware, Runnable {
     }
 
     public boolean isRunning(PnfsId pnfsId) {
-        read.lock();
-        try {
-            return running.contains(pnfsId);
-        } finally {
-            read.unlock();
-        }
+        return running.contains(pnfsId);
     }
 
     public boolean isWaiting(PnfsId pnfsId) {
-        read.lock();
-        try {
-            return waiting.contains(pnfsId);
-        } finally {
-            read.unlock();
-        }
+        return waiting.contains(pnfsId);
     }
 
     public boolean isReady(PnfsId pnfsId) {
-        read.lock();
-        try {
-            return ready.contains(pnfsId);
-        } finally {
-            read.unlock();
-        }
+        return ready.contains(pnfsId);
     }
 
     public void run() {
@@ -210,40 +200,56 @@ public class VerifyOperationQueue implements SignalAware, Runnable {
         LOGGER.info("Exiting {} queue processing.", queueType);
     }
 
+    /**
+     *  Only the first signal after the queue thread has started a pass needs to wake it up;
+     *  subsequent ones are picked up by the check at the end of the pass.
+     */
     @Override
-    public synchronized void signal() {
-        signalled.incrementAndGet();
-        notifyAll();
+    public void signal() {
+        if (signalled.getAndIncrement() == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     *  Requests that the next pass also collects the terminated operations from the ready
+     *  queue.
+     */
+    public void sweep() {
+        sweepReady.set(true);
+        signal();
     }
 
     public void updateToWaiting(PnfsId pnfsId) {
-        write.lock();
-        try {
-            running.remove(pnfsId);
-            waiting.addLast(pnfsId);
-        } finally {
-            write.unlock();
-        }
+        running.remove(pnfsId);
+        waiting.add(pnfsId);
     }
 
     @VisibleForTesting
     void processReady() {
         List<PnfsId> next = new ArrayList<>();
-
-        write.lock();
-        try {
-            int available = operationManager.getMaxRunning() - running.size();
-            LOGGER.debug("{} queue, available to run: {}", queueType, available);
-            while (available > 0 && !ready.isEmpty()) {
-                PnfsId pnfsId = ready.removeFirst();
-                running.addLast(pnfsId);
-                next.add(pnfsId);
-                --available;
+        List<PnfsId> skipped = new ArrayList<>();
+
+        int available = operationManager.getMaxRunning() - running.size();
+        LOGGER.debug("{} queue, available to run: {}", queueType, available);
+        while (available > 0) {
+            PnfsId pnfsId = ready.pollFirst();
+            if (pnfsId == null) {
+                break;
             }
-        } finally {
-            write.unlock();
+            if (terminated.test(pnfsId)) {
+                skipped.add(pnfsId);
+                continue;
+            }
+            running.add(pnfsId);
+            next.add(pnfsId);
+            --available;
         }
 
+        skipped.forEach(operationManager::submitForPostProcessing);
+
         for (PnfsId pnfsId : next) {
             operationManager.submitToRun(pnfsId, queueType.executorService);
         }
@@ -262,29 +268,31 @@ public class VerifyOperationQueue implements SignalAware, Runnable {
     }
 
     private synchronized void await() throws InterruptedException {
-        wait(operationManager.getTimeoutUnit().toMillis(operationManager.getTimeout()));
+        if (signalled.get() == 0) {
+            wait(operationManager.getTimeoutUnit().toMillis(operationManager.getTimeout()));
+        }
     }
 
-    @GuardedBy("lock")
-    private List<PnfsId> removeFrom(String name, Deque<PnfsId> deque) {
-        LOGGER.debug("{} queue, {} before remove {}.", queueType, name, deque.size());
-        List<PnfsId> from = deque.stream().filter(terminated).collect(Collectors.toList());
-        from.forEach(deque::remove);
-        LOGGER.debug("{} queue, {} after remove {}.", queueType, name, deque.size());
-        return from;
+    private void removeFrom(String name, Iterable<PnfsId> queue, List<PnfsId> removed) {
+        int before = removed.size();
+        for (Iterator<PnfsId> i = queue.iterator(); i.hasNext(); ) {
+            PnfsId pnfsId = i.next();
+            if (terminated.test(pnfsId)) {
+                i.remove();
+                removed.add(pnfsId);
+            }
+        }
+        LOGGER.debug("{} queue, removed {} from {}.", queueType, removed.size() - before, name);
     }
 
     private List<PnfsId> terminated() {
-        write.lock();
-        try {
-            List<PnfsId> terminated = new ArrayList<>();
-            terminated.addAll(removeFrom("running", running));
-            terminated.addAll(removeFrom("waiting", waiting));
-            terminated.addAll(removeFrom("ready", ready));
-            LOGGER.debug("{} queue, terminated {}.", queueType, terminated.size());
-            return terminated;
-        } finally {
-            write.unlock();
+        List<PnfsId> terminated = new ArrayList<>();
+        removeFrom("running", running, terminated);
+        removeFrom("waiting", waiting, terminated);
+        if (sweepReady.getAndSet(false)) {
+            removeFrom("ready", ready, terminated);
         }
+        LOGGER.debug("{} queue, terminated {}.", queueType, terminated.size());
+        return terminated;
     }
 }
@@ -167,6 +167,13 @@ public class VerifyOperationQueueIndex {
         Arrays.stream(operationQueues).forEach(SignalAware::signal);
     }
 
+    /**
+     *  Signals the queues to also remove canceled operations from their ready queues.
+     */
+    public void sweepAll() {
+        Arrays.stream(operationQueues).forEach(VerifyOperationQueue::sweep);
+    }
+
     public void startQueues() {
         Arrays.stream(operationQueues).map(FireAndForgetTask::new).forEach(queueExecutor::submit);
     }
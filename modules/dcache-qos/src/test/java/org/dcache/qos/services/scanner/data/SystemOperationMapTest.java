@@ -0,0 +1,107 @@
+package org.dcache.qos.services.scanner.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.dcache.qos.services.scanner.handlers.SysOpHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SystemOperationMapTest {
+
+    private static final Pattern OPERATION = Pattern.compile("(\\S+) \\| ONLINE \\(from (\\d+)");
+
+    private Path dir;
+    private Path checkpoint;
+    private SysOpHandler handler;
+    private SystemOperationMap map;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("qos-scanner");
+        checkpoint = dir.resolve("system-scan-checkpoint");
+
+        handler = mock(SysOpHandler.class);
+        given(handler.getSystemTaskService()).willReturn(mock(ExecutorService.class));
+        given(handler.getMinMaxIndices(anyBoolean())).willReturn(new long[]{1L, 100L});
+
+        map = new SystemOperationMap();
+        map.setHandler(handler);
+        map.setCheckpointFile(checkpoint.toString());
+        map.setMaxConcurrentRunning(2);
+        map.setOnlineBatchSize(10);
+        map.setOnlineScanEnabled(true);
+        map.setOnlineRescanWindow(2);
+        map.setOnlineRescanWindowUnit(TimeUnit.DAYS);
+        map.setQosNearlineRescanWindow(2);
+        map.setQosNearlineRescanWindowUnit(TimeUnit.DAYS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        map.shutdown();
+        Files.deleteIfExists(checkpoint);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    public void shouldCheckpointLowestRunningPartition() throws Exception {
+        map.startScan(false);
+        assertThat(checkpoint(), contains("online 1"));
+
+        map.update(operationStartingAt(1), 0, null);
+
+        assertThat(checkpoint(), contains("online 11"));
+        assertThat(map.getSystemScanStatus(), containsString("ONLINE (from 21 to 31)"));
+    }
+
+    @Test
+    public void shouldResumeScanFromCheckpoint() throws Exception {
+        Files.write(checkpoint, List.of("online 51"), StandardCharsets.US_ASCII);
+        map.initialize();
+
+        map.runScans();
+
+        String status = map.getSystemScanStatus();
+        assertThat(status, containsString("ONLINE scan: inumber 51 to 101"));
+        assertThat(status, containsString("ONLINE (from 51 to 61)"));
+        assertThat(status, containsString("ONLINE (from 61 to 71)"));
+    }
+
+    @Test
+    public void shouldRemoveCheckpointWhenScanIsCancelled() throws Exception {
+        map.startScan(false);
+
+        map.cancelAll(false);
+
+        assertThat(Files.exists(checkpoint), is(false));
+    }
+
+    private List<String> checkpoint() throws Exception {
+        return Files.readAllLines(checkpoint, StandardCharsets.US_ASCII);
+    }
+
+    private String operationStartingAt(long from) {
+        Matcher matcher = OPERATION.matcher(map.getSystemScanStatus());
+        while (matcher.find()) {
+            if (Long.parseLong(matcher.group(2)) == from) {
+                return matcher.group(1);
+            }
+        }
+        throw new AssertionError("No operation starting at " + from);
+    }
+}
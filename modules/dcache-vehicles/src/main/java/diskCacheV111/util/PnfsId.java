@@ -7,6 +7,9 @@ import static com.google.common.base.Preconditions.checkArgument;
 import com.google.common.base.Strings;
 import com.google.common.hash.Funnel;
 import com.google.common.hash.PrimitiveSink;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HexFormat;
@@ -51,6 +54,33 @@ public class PnfsId implements Serializable, Comparable<PnfsId> {
         _a = HexFormat.of().parseHex(expandedId.toUpperCase());
     }
 
+    private PnfsId(byte[] a) {
+        checkArgument(a.length * 2 == PNFS_ID_SIZE || a.length * 2 == CHIMERA_ID_SIZE,
+              "Illegal pnfsid length");
+        _a = a;
+    }
+
+    /**
+     * Writes the binary form of this PnfsId to a data output stream.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(_a.length);
+        out.write(_a);
+    }
+
+    /**
+     * Reads a PnfsId written by {@link #writeTo}.
+     */
+    public static PnfsId createFrom(DataInput in) throws IOException {
+        byte[] a = new byte[in.readUnsignedByte()];
+        in.readFully(a);
+        try {
+            return new PnfsId(a);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -1,5 +1,14 @@
 package org.dcache.vehicles;
 
+import static dmg.cells.nucleus.MsgSerializerSchema.readEnumSet;
+import static dmg.cells.nucleus.MsgSerializerSchema.readString;
+import static dmg.cells.nucleus.MsgSerializerSchema.readStringMap;
+import static dmg.cells.nucleus.MsgSerializerSchema.readStrings;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeEnumSet;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeObject;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeString;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeStringMap;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeStrings;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toMap;
 import static org.dcache.namespace.FileAttribute.ACCESS_LATENCY;
@@ -33,6 +42,9 @@ import diskCacheV111.util.AccessLatency;
 import diskCacheV111.util.PnfsId;
 import diskCacheV111.util.RetentionPolicy;
 import diskCacheV111.vehicles.StorageInfo;
+import dmg.cells.nucleus.MsgSerializerSchema;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
@@ -42,6 +54,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -52,6 +65,7 @@ import org.dcache.auth.Subjects;
 import org.dcache.namespace.FileAttribute;
 import org.dcache.namespace.FileType;
 import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
 
 /**
  * <code>FileAttributes</code> encapsulates attributes about a logical file.
@@ -834,6 +848,206 @@ public class FileAttributes implements Serializable, Cloneable {
         return isDefined(attribute) ? Optional.ofNullable(value) : Optional.empty();
     }
 
+    /**
+     * Writes the defined attributes to a data output stream using the compact encoding of
+     * {@link dmg.cells.nucleus.MsgSerializerSchema}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        writeEnumSet(out, _definedAttributes);
+        for (FileAttribute attribute : _definedAttributes) {
+            switch (attribute) {
+                case ACCESS_LATENCY:
+                    out.writeByte(_accessLatency.getId());
+                    break;
+                case ACCESS_TIME:
+                    out.writeLong(_atime);
+                    break;
+                case ACL:
+                    writeObject(out, _acl);
+                    break;
+                case CACHECLASS:
+                    writeString(out, _cacheClass);
+                    break;
+                case CHECKSUM:
+                    out.writeInt(_checksums.size());
+                    for (Checksum checksum : _checksums) {
+                        out.writeByte(checksum.getType().getType());
+                        out.writeUTF(checksum.getValue());
+                    }
+                    break;
+                case CHANGE_TIME:
+                    out.writeLong(_ctime);
+                    break;
+                case CREATION_TIME:
+                    out.writeLong(_creationTime);
+                    break;
+                case FLAGS:
+                    writeStringMap(out, _flags);
+                    break;
+                case HSM:
+                    writeString(out, _hsm);
+                    break;
+                case LOCATIONS:
+                    writeStrings(out, _locations);
+                    break;
+                case MODE:
+                    out.writeInt(_mode);
+                    break;
+                case MODIFICATION_TIME:
+                    out.writeLong(_mtime);
+                    break;
+                case OWNER:
+                    out.writeInt(_owner);
+                    break;
+                case OWNER_GROUP:
+                    out.writeInt(_group);
+                    break;
+                case RETENTION_POLICY:
+                    out.writeByte(_retentionPolicy.getId());
+                    break;
+                case SIZE:
+                    out.writeLong(_size);
+                    break;
+                case STORAGECLASS:
+                    writeString(out, _storageClass);
+                    break;
+                case STORAGEINFO:
+                    writeObject(out, _storageInfo);
+                    break;
+                case TYPE:
+                    out.writeByte(_fileType.ordinal());
+                    break;
+                case PNFSID:
+                    _pnfsId.writeTo(out);
+                    break;
+                case NLINK:
+                    out.writeInt(_nlink);
+                    break;
+                case XATTR:
+                    writeStringMap(out, _xattr);
+                    break;
+                case LABELS:
+                    writeStrings(out, _labels);
+                    break;
+                case QOS_POLICY:
+                    writeString(out, _qosPolicy);
+                    break;
+                case QOS_STATE:
+                    out.writeInt(_qosState);
+                    break;
+                default:
+                    // attributes without a value, like SIMPLE_TYPE
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads FileAttributes written by {@link #writeTo}.
+     */
+    public static FileAttributes createFrom(DataInput in) throws IOException {
+        FileAttributes attributes = new FileAttributes();
+        attributes._definedAttributes.addAll(readEnumSet(in, FileAttribute.class));
+        for (FileAttribute attribute : EnumSet.copyOf(attributes._definedAttributes)) {
+            switch (attribute) {
+                case ACCESS_LATENCY:
+                    attributes._accessLatency = AccessLatency.getAccessLatency(in.readByte());
+                    break;
+                case ACCESS_TIME:
+                    attributes._atime = in.readLong();
+                    break;
+                case ACL:
+                    attributes._acl = MsgSerializerSchema.readObject(in, ACL.class);
+                    break;
+                case CACHECLASS:
+                    attributes._cacheClass = intern(readString(in));
+                    break;
+                case CHECKSUM:
+                    int count = in.readInt();
+                    Set<Checksum> checksums = new HashSet<>(count * 2);
+                    for (int i = 0; i < count; i++) {
+                        ChecksumType type = ChecksumType.getChecksumType(in.readByte());
+                        checksums.add(new Checksum(type, in.readUTF()));
+                    }
+                    attributes._checksums = checksums;
+                    break;
+                case CHANGE_TIME:
+                    attributes._ctime = in.readLong();
+                    break;
+                case CREATION_TIME:
+                    attributes._creationTime = in.readLong();
+                    break;
+                case FLAGS:
+                    Map<String, String> flags = readStringMap(in);
+                    if (flags != null) {
+                        flags = flags.entrySet().stream()
+                              .collect(toMap(e -> e.getKey().intern(), e -> e.getValue()));
+                    }
+                    attributes._flags = flags;
+                    break;
+                case HSM:
+                    attributes._hsm = intern(readString(in));
+                    break;
+                case LOCATIONS:
+                    attributes._locations = readStrings(in);
+                    break;
+                case MODE:
+                    attributes._mode = in.readInt();
+                    break;
+                case MODIFICATION_TIME:
+                    attributes._mtime = in.readLong();
+                    break;
+                case OWNER:
+                    attributes._owner = in.readInt();
+                    break;
+                case OWNER_GROUP:
+                    attributes._group = in.readInt();
+                    break;
+                case RETENTION_POLICY:
+                    attributes._retentionPolicy = RetentionPolicy.getRetentionPolicy(in.readByte());
+                    break;
+                case SIZE:
+                    attributes._size = in.readLong();
+                    break;
+                case STORAGECLASS:
+                    attributes._storageClass = intern(readString(in));
+                    break;
+                case STORAGEINFO:
+                    attributes._storageInfo = MsgSerializerSchema.readObject(in, StorageInfo.class);
+                    break;
+                case TYPE:
+                    attributes._fileType = FileType.values()[in.readByte()];
+                    break;
+                case PNFSID:
+                    attributes._pnfsId = PnfsId.createFrom(in);
+                    break;
+                case NLINK:
+                    attributes._nlink = in.readInt();
+                    break;
+                case XATTR:
+                    attributes._xattr = readStringMap(in);
+                    break;
+                case LABELS:
+                    List<String> labels = readStrings(in);
+                    attributes._labels = labels == null ? null : new HashSet<>(labels);
+                    break;
+                case QOS_POLICY:
+                    attributes._qosPolicy = readString(in);
+                    break;
+                case QOS_STATE:
+                    attributes._qosState = in.readInt();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return attributes;
+    }
+
+    private static String intern(String s) {
+        return s == null ? null : s.intern();
+    }
+
     private void readObject(ObjectInputStream stream)
           throws IOException, ClassNotFoundException {
         stream.defaultReadObject();
@@ -0,0 +1,83 @@
+package org.dcache.vehicles;
+
+import static java.util.Objects.requireNonNull;
+
+import diskCacheV111.util.CacheException;
+import diskCacheV111.vehicles.Message;
+import diskCacheV111.vehicles.PnfsMessage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.dcache.namespace.FileAttribute;
+
+/**
+ * Vehicle for getting the attributes of several files by path in a single request.
+ * <p>
+ * PnfsManager looks up all paths in the same name space transaction. The message as a whole
+ * succeeds even if some of the lookups fail; the outcome of each lookup is available through
+ * {@link #getFileAttributes(String)} and {@link #getFailure(String)}.
+ *
+ * @see PnfsGetFileAttributes
+ */
+public class PnfsGetFileAttributesBatch extends PnfsMessage {
+
+    private static final long serialVersionUID = -2367716394251218045L;
+
+    private final List<String> _paths;
+    private final Set<FileAttribute> _attributes;
+    private final Map<String, FileAttributes> _fileAttributes = new HashMap<>();
+    private final Map<String, CacheException> _failures = new HashMap<>();
+
+    public PnfsGetFileAttributesBatch(Collection<String> paths, Set<FileAttribute> attr) {
+        _paths = new ArrayList<>(paths);
+        _attributes = requireNonNull(attr);
+        setReplyRequired(true);
+    }
+
+    public List<String> getPaths() {
+        return _paths;
+    }
+
+    /**
+     * Get set of requested {@link FileAttributes}.
+     */
+    public Set<FileAttribute> getRequestedAttributes() {
+        return _attributes;
+    }
+
+    public void setFileAttributes(String path, FileAttributes attributes) {
+        _fileAttributes.put(path, attributes);
+    }
+
+    /**
+     * Returns the attributes of the file with the given path, or null if the lookup failed or the
+     * path was not part of the request.
+     */
+    public FileAttributes getFileAttributes(String path) {
+        return _fileAttributes.get(path);
+    }
+
+    public void setFailure(String path, CacheException failure) {
+        _failures.put(path, failure);
+    }
+
+    /**
+     * Returns why the lookup of the given path failed, or null if it did not fail.
+     */
+    public CacheException getFailure(String path) {
+        return _failures.get(path);
+    }
+
+    @Override
+    public boolean invalidates(Message message) {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ";paths=" + _paths.size();
+    }
+}
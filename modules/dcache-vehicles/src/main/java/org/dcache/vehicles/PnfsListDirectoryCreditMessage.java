@@ -0,0 +1,61 @@
+package org.dcache.vehicles;
+
+import static java.util.Objects.requireNonNull;
+
+import diskCacheV111.vehicles.PnfsMessage;
+import java.util.UUID;
+
+/**
+ * Grants PnfsManager credit to send further partial replies to a PnfsListDirectoryMessage, or
+ * cancels the listing.
+ * <p>
+ * A PnfsListDirectoryMessage with a non-zero window allows PnfsManager to send that many partial
+ * replies. Once those are sent, PnfsManager suspends the listing until the requestor has consumed
+ * replies and granted more credit with this message.
+ *
+ * @see PnfsListDirectoryMessage#setWindow
+ */
+public class PnfsListDirectoryCreditMessage extends PnfsMessage {
+
+    private static final long serialVersionUID = 3206957839018337498L;
+
+    private final UUID _uuid;
+    private final int _credits;
+    private final boolean _isCancelled;
+
+    private PnfsListDirectoryCreditMessage(UUID uuid, int credits, boolean isCancelled) {
+        _uuid = requireNonNull(uuid);
+        _credits = credits;
+        _isCancelled = isCancelled;
+        setReplyRequired(false);
+    }
+
+    /**
+     * Grants credit for the given number of partial replies to the listing with the given UUID.
+     */
+    public PnfsListDirectoryCreditMessage(UUID uuid, int credits) {
+        this(uuid, credits, false);
+    }
+
+    /**
+     * Returns a message cancelling the listing with the given UUID.
+     */
+    public static PnfsListDirectoryCreditMessage cancel(UUID uuid) {
+        return new PnfsListDirectoryCreditMessage(uuid, 0, true);
+    }
+
+    /**
+     * Returns the UUID of the PnfsListDirectoryMessage this message refers to.
+     */
+    public UUID getUUID() {
+        return _uuid;
+    }
+
+    public int getCredits() {
+        return _credits;
+    }
+
+    public boolean isCancelled() {
+        return _isCancelled;
+    }
+}
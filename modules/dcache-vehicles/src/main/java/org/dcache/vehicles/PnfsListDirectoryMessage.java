@@ -46,6 +46,12 @@ public class PnfsListDirectoryMessage extends PnfsMessage {
     private boolean _isFinal;
     private int _messageCount = 0;
 
+    /**
+     * The number of partial replies the requestor is willing to buffer. Zero means that replies
+     * are not flow controlled.
+     */
+    private int _window;
+
 
 
     /**
@@ -155,6 +161,20 @@ public class PnfsListDirectoryMessage extends PnfsMessage {
         _messageCount = messageCount;
     }
 
+    /**
+     * Returns the number of partial replies PnfsManager may send without having received credit
+     * from the requestor. Zero means that replies are not flow controlled.
+     *
+     * @see PnfsListDirectoryCreditMessage
+     */
+    public int getWindow() {
+        return _window;
+    }
+
+    public void setWindow(int window) {
+        _window = window;
+    }
+
     public PathType getPathType() {
         return _pathType;
     }
@@ -0,0 +1,55 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import dmg.cells.nucleus.MessageCodec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.dcache.vehicles.FileAttributes;
+
+/**
+ * Compact encoding of {@link FileAttributes}.
+ */
+public class FileAttributesCodec implements MessageCodec<FileAttributes> {
+
+    @Override
+    public Class<FileAttributes> getType() {
+        return FileAttributes.class;
+    }
+
+    @Override
+    public short getId() {
+        return 2;
+    }
+
+    @Override
+    public byte getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void encode(FileAttributes attributes, DataOutput out) throws IOException {
+        attributes.writeTo(out);
+    }
+
+    @Override
+    public FileAttributes decode(DataInput in, byte version) throws IOException {
+        return FileAttributes.createFrom(in);
+    }
+}
@@ -0,0 +1,145 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import static dmg.cells.nucleus.MsgSerializerSchema.readEnumSet;
+import static dmg.cells.nucleus.MsgSerializerSchema.readObject;
+import static dmg.cells.nucleus.MsgSerializerSchema.readString;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeEnumSet;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeObject;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeString;
+
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.Message;
+import diskCacheV111.vehicles.PnfsMessage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import javax.security.auth.Subject;
+import org.dcache.acl.enums.AccessMask;
+import org.dcache.auth.Subjects;
+import org.dcache.auth.attributes.Restriction;
+import org.dcache.auth.attributes.Restrictions;
+
+/**
+ * Utility methods shared by the {@link dmg.cells.nucleus.MessageCodec}s of dCache messages.
+ */
+public final class MessageCodecs {
+
+    private MessageCodecs() {
+    }
+
+    /**
+     * Writes the fields of {@link Message}.
+     */
+    public static void writeMessage(Message message, DataOutput out) throws IOException {
+        out.writeBoolean(message.getReplyRequired());
+        out.writeBoolean(message.isReply());
+        out.writeInt(message.getReturnCode());
+        writeObject(out, message.getErrorObject());
+        out.writeLong(message.getId());
+        writeSubject(out, message.getSubject());
+    }
+
+    /**
+     * Reads the fields written by {@link #writeMessage} into the given message.
+     */
+    public static void readMessage(Message message, DataInput in) throws IOException {
+        message.setReplyRequired(in.readBoolean());
+        boolean isReply = in.readBoolean();
+        int returnCode = in.readInt();
+        Serializable errorObject = readObject(in, Serializable.class);
+        if (isReply) {
+            message.setReply(returnCode, errorObject);
+        } else {
+            message.clearReply();
+        }
+        message.setId(in.readLong());
+        message.setSubject(readSubject(in));
+    }
+
+    /**
+     * Writes the fields of {@link PnfsMessage}, including those of {@link Message}.
+     */
+    public static void writePnfsMessage(PnfsMessage message, DataOutput out) throws IOException {
+        writeMessage(message, out);
+        writePnfsId(out, message.getPnfsId());
+        writeString(out, message.getPnfsPath());
+        writeRestriction(out, message.getRestriction());
+        out.writeBoolean(message.isFollowSymlink());
+        writeEnumSet(out, message.getAccessMask());
+    }
+
+    /**
+     * Reads the fields written by {@link #writePnfsMessage} into the given message.
+     */
+    public static void readPnfsMessage(PnfsMessage message, DataInput in) throws IOException {
+        readMessage(message, in);
+        message.setPnfsId(readPnfsId(in));
+        message.setPnfsPath(readString(in));
+        message.setRestriction(readRestriction(in));
+        message.setFollowSymlink(in.readBoolean());
+        message.setAccessMask(readEnumSet(in, AccessMask.class));
+    }
+
+    public static void writePnfsId(DataOutput out, PnfsId id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            id.writeTo(out);
+        }
+    }
+
+    public static PnfsId readPnfsId(DataInput in) throws IOException {
+        return in.readBoolean() ? PnfsId.createFrom(in) : null;
+    }
+
+    /**
+     * Writes a Subject. The root subject, which is used by most internal messages, is encoded as
+     * a single byte.
+     */
+    public static void writeSubject(DataOutput out, Subject subject) throws IOException {
+        if (Subjects.ROOT.equals(subject)) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            writeObject(out, subject);
+        }
+    }
+
+    public static Subject readSubject(DataInput in) throws IOException {
+        return in.readBoolean() ? readObject(in, Subject.class) : Subjects.ROOT;
+    }
+
+    /**
+     * Writes a Restriction. The absence of restrictions is encoded as a single byte.
+     */
+    public static void writeRestriction(DataOutput out, Restriction restriction)
+          throws IOException {
+        if (Restrictions.none().equals(restriction)) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            writeObject(out, restriction);
+        }
+    }
+
+    public static Restriction readRestriction(DataInput in) throws IOException {
+        return in.readBoolean() ? readObject(in, Restriction.class) : Restrictions.none();
+    }
+}
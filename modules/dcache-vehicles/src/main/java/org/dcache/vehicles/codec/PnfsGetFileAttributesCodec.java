@@ -0,0 +1,75 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import static dmg.cells.nucleus.MsgSerializerSchema.readEnumSet;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeEnumSet;
+
+import diskCacheV111.util.PnfsId;
+import dmg.cells.nucleus.MessageCodec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
+
+/**
+ * Compact encoding of {@link PnfsGetFileAttributes} requests and replies.
+ */
+public class PnfsGetFileAttributesCodec implements MessageCodec<PnfsGetFileAttributes> {
+
+    @Override
+    public Class<PnfsGetFileAttributes> getType() {
+        return PnfsGetFileAttributes.class;
+    }
+
+    @Override
+    public short getId() {
+        return 3;
+    }
+
+    @Override
+    public byte getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void encode(PnfsGetFileAttributes message, DataOutput out) throws IOException {
+        writeEnumSet(out, message.getRequestedAttributes());
+        MessageCodecs.writePnfsMessage(message, out);
+        out.writeBoolean(message.getUpdateAtime());
+        FileAttributes attributes = message.getFileAttributes();
+        out.writeBoolean(attributes != null);
+        if (attributes != null) {
+            attributes.writeTo(out);
+        }
+    }
+
+    @Override
+    public PnfsGetFileAttributes decode(DataInput in, byte version) throws IOException {
+        PnfsGetFileAttributes message =
+              new PnfsGetFileAttributes((PnfsId) null, readEnumSet(in, FileAttribute.class));
+        MessageCodecs.readPnfsMessage(message, in);
+        message.setUpdateAtime(in.readBoolean());
+        if (in.readBoolean()) {
+            message.setFileAttributes(FileAttributes.createFrom(in));
+        }
+        return message;
+    }
+}
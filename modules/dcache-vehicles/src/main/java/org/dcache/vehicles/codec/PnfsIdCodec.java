@@ -0,0 +1,55 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import diskCacheV111.util.PnfsId;
+import dmg.cells.nucleus.MessageCodec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Compact encoding of {@link PnfsId}.
+ */
+public class PnfsIdCodec implements MessageCodec<PnfsId> {
+
+    @Override
+    public Class<PnfsId> getType() {
+        return PnfsId.class;
+    }
+
+    @Override
+    public short getId() {
+        return 1;
+    }
+
+    @Override
+    public byte getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void encode(PnfsId id, DataOutput out) throws IOException {
+        id.writeTo(out);
+    }
+
+    @Override
+    public PnfsId decode(DataInput in, byte version) throws IOException {
+        return PnfsId.createFrom(in);
+    }
+}
@@ -0,0 +1,66 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import diskCacheV111.vehicles.PoolAcceptFileMessage;
+import diskCacheV111.vehicles.ProtocolInfo;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.OptionalLong;
+import org.dcache.pool.assumption.Assumption;
+import org.dcache.vehicles.FileAttributes;
+
+/**
+ * Compact encoding of {@link PoolAcceptFileMessage}.
+ */
+public class PoolAcceptFileMessageCodec extends PoolIoFileMessageCodec<PoolAcceptFileMessage> {
+
+    @Override
+    public Class<PoolAcceptFileMessage> getType() {
+        return PoolAcceptFileMessage.class;
+    }
+
+    @Override
+    public short getId() {
+        return 5;
+    }
+
+    @Override
+    public byte getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void encodeArguments(PoolAcceptFileMessage message, DataOutput out)
+          throws IOException {
+        out.writeLong(message.getMaximumSize().orElse(0));
+        out.writeLong(message.getPreallocated());
+    }
+
+    @Override
+    protected PoolAcceptFileMessage create(String pool, ProtocolInfo protocolInfo,
+          FileAttributes fileAttributes, Assumption assumption, DataInput in)
+          throws IOException {
+        long maximumSize = in.readLong();
+        long preallocated = in.readLong();
+        return new PoolAcceptFileMessage(pool, protocolInfo, fileAttributes, assumption,
+              maximumSize == 0 ? OptionalLong.empty() : OptionalLong.of(maximumSize),
+              preallocated);
+    }
+}
@@ -0,0 +1,91 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import static dmg.cells.nucleus.MsgSerializerSchema.readObject;
+import static dmg.cells.nucleus.MsgSerializerSchema.readString;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeObject;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeString;
+
+import diskCacheV111.vehicles.PoolIoFileMessage;
+import diskCacheV111.vehicles.ProtocolInfo;
+import dmg.cells.nucleus.MessageCodec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.dcache.pool.assumption.Assumption;
+import org.dcache.vehicles.FileAttributes;
+
+/**
+ * Base class for the compact encoding of mover requests.
+ * <p>
+ * The constructor arguments are written first, followed by subclass specific constructor
+ * arguments, the {@link diskCacheV111.vehicles.Message} fields and the mutable fields of
+ * {@link PoolIoFileMessage}.
+ */
+public abstract class PoolIoFileMessageCodec<T extends PoolIoFileMessage>
+      implements MessageCodec<T> {
+
+    @Override
+    public void encode(T message, DataOutput out) throws IOException {
+        out.writeUTF(message.getPoolName());
+        writeObject(out, message.getProtocolInfo());
+        message.getFileAttributes().writeTo(out);
+        writeObject(out, message.getAssumption());
+        encodeArguments(message, out);
+        MessageCodecs.writeMessage(message, out);
+        out.writeBoolean(message.isPool2Pool());
+        writeString(out, message.getIoQueueName());
+        out.writeInt(message.getMoverId());
+        writeString(out, message.getInitiator());
+        out.writeBoolean(message.isForceSourceMode());
+        writeString(out, message.getBillingPath());
+        writeString(out, message.getTransferPath());
+    }
+
+    @Override
+    public T decode(DataInput in, byte version) throws IOException {
+        String pool = in.readUTF();
+        ProtocolInfo protocolInfo = readObject(in, ProtocolInfo.class);
+        FileAttributes fileAttributes = FileAttributes.createFrom(in);
+        Assumption assumption = readObject(in, Assumption.class);
+        T message = create(pool, protocolInfo, fileAttributes, assumption, in);
+        MessageCodecs.readMessage(message, in);
+        if (in.readBoolean()) {
+            message.setPool2Pool();
+        }
+        message.setIoQueueName(readString(in));
+        message.setMoverId(in.readInt());
+        message.setInitiator(readString(in));
+        message.setForceSourceMode(in.readBoolean());
+        message.setBillingPath(readString(in));
+        message.setTransferPath(readString(in));
+        return message;
+    }
+
+    /**
+     * Writes subclass specific constructor arguments.
+     */
+    protected abstract void encodeArguments(T message, DataOutput out) throws IOException;
+
+    /**
+     * Creates a new message, reading the subclass specific constructor arguments from the input.
+     */
+    protected abstract T create(String pool, ProtocolInfo protocolInfo,
+          FileAttributes fileAttributes, Assumption assumption, DataInput in) throws IOException;
+}
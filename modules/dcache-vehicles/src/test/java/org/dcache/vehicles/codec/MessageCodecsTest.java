@@ -0,0 +1,136 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.util.RetentionPolicy;
+import dmg.cells.nucleus.MsgSerializerSchema;
+import dmg.cells.nucleus.SerializationHandler;
+import java.util.EnumSet;
+import java.util.List;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.namespace.FileType;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
+import org.junit.Test;
+
+public class MessageCodecsTest {
+
+    private static final PnfsId PNFSID = new PnfsId("0000D9A8E2C6D4B840FAA8E5C0F8A1E8D0C1");
+
+    @Test
+    public void shouldRoundTripPnfsId() {
+        byte[] encoded = SerializationHandler.encode(PNFSID, SerializationHandler.Serializer.SCHEMA);
+
+        assertTrue(MsgSerializerSchema.isSchemaEncoded(encoded));
+        assertThat(SerializationHandler.decode(encoded), is(equalTo(PNFSID)));
+    }
+
+    @Test
+    public void shouldRoundTripFileAttributes() {
+        FileAttributes attributes = FileAttributes.of()
+              .pnfsId(PNFSID)
+              .size(42)
+              .fileType(FileType.REGULAR)
+              .accessLatency(AccessLatency.ONLINE)
+              .retentionPolicy(RetentionPolicy.REPLICA)
+              .checksum(new Checksum(ChecksumType.ADLER32, "01020304"))
+              .storageClass("test:disk")
+              .hsm("osm")
+              .locations(List.of("pool1", "pool2"))
+              .xattr("name", "value")
+              .build();
+
+        FileAttributes decoded = (FileAttributes) SerializationHandler.decode(
+              SerializationHandler.encode(attributes, SerializationHandler.Serializer.SCHEMA));
+
+        assertThat(decoded.getDefinedAttributes(), is(equalTo(attributes.getDefinedAttributes())));
+        assertThat(decoded.getPnfsId(), is(equalTo(PNFSID)));
+        assertThat(decoded.getSize(), is(42L));
+        assertThat(decoded.getFileType(), is(FileType.REGULAR));
+        assertThat(decoded.getAccessLatency(), is(AccessLatency.ONLINE));
+        assertThat(decoded.getRetentionPolicy(), is(RetentionPolicy.REPLICA));
+        assertThat(decoded.getChecksums(), is(equalTo(attributes.getChecksums())));
+        assertThat(decoded.getStorageClass(), is("test:disk"));
+        assertThat(decoded.getHsm(), is("osm"));
+        assertThat(decoded.getLocations(), is(equalTo(attributes.getLocations())));
+        assertThat(decoded.getXattrs(), is(equalTo(attributes.getXattrs())));
+    }
+
+    @Test
+    public void shouldRoundTripPnfsGetFileAttributesRequest() {
+        PnfsGetFileAttributes message = new PnfsGetFileAttributes(PNFSID,
+              EnumSet.of(FileAttribute.SIZE, FileAttribute.LOCATIONS));
+        message.setUpdateAtime(true);
+        message.setId(17);
+
+        PnfsGetFileAttributes decoded = (PnfsGetFileAttributes) SerializationHandler.decode(
+              SerializationHandler.encode(message, SerializationHandler.Serializer.SCHEMA));
+
+        assertThat(decoded.getPnfsId(), is(equalTo(PNFSID)));
+        assertThat(decoded.getPnfsPath(), is(nullValue()));
+        assertThat(decoded.getRequestedAttributes(),
+              is(equalTo(message.getRequestedAttributes())));
+        assertTrue(decoded.getUpdateAtime());
+        assertTrue(decoded.getReplyRequired());
+        assertFalse(decoded.isReply());
+        assertThat(decoded.getId(), is(17L));
+        assertThat(decoded.getFileAttributes(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldRoundTripPnfsGetFileAttributesReply() {
+        PnfsGetFileAttributes message = new PnfsGetFileAttributes("/data/file",
+              EnumSet.of(FileAttribute.SIZE));
+        message.setFileAttributes(FileAttributes.ofSize(1024));
+        message.setFailed(2, "failure");
+
+        PnfsGetFileAttributes decoded = (PnfsGetFileAttributes) SerializationHandler.decode(
+              SerializationHandler.encode(message, SerializationHandler.Serializer.SCHEMA));
+
+        assertThat(decoded.getPnfsId(), is(nullValue()));
+        assertThat(decoded.getPnfsPath(), is("/data/file"));
+        assertTrue(decoded.isReply());
+        assertThat(decoded.getReturnCode(), is(2));
+        assertThat(decoded.getErrorObject(), is("failure"));
+        assertThat(decoded.getFileAttributes().getSize(), is(1024L));
+    }
+
+    @Test
+    public void shouldBeSmallerThanJavaSerialization() {
+        PnfsGetFileAttributes message = new PnfsGetFileAttributes(PNFSID,
+              EnumSet.of(FileAttribute.SIZE, FileAttribute.LOCATIONS));
+
+        byte[] schema = SerializationHandler.encode(message, SerializationHandler.Serializer.SCHEMA);
+        byte[] jos = SerializationHandler.encode(message, SerializationHandler.Serializer.JOS);
+
+        assertThat(schema.length, is(lessThan(jos.length)));
+    }
+}
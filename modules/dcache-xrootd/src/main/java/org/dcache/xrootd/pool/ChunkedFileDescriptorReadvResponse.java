@@ -2,44 +2,230 @@ package org.dcache.xrootd.pool;
 
 import static org.dcache.xrootd.protocol.XrootdProtocol.kXR_FileNotOpen;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 import org.dcache.xrootd.core.XrootdException;
 import org.dcache.xrootd.protocol.messages.ReadVRequest;
 import org.dcache.xrootd.stream.AbstractChunkedReadvResponse;
 
+/**
+ * Vector read response backed by file descriptors.
+ * <p>
+ * Segments are not read one by one. Instead, the segments following the requested one, up to
+ * the maximum frame size, are sorted by file and offset. Adjacent, overlapping or nearly
+ * adjacent segments are merged into a single read, and the reads of a window are issued in
+ * parallel. The individual segments are then served as slices of the merged buffers without
+ * copying.
+ */
 public class ChunkedFileDescriptorReadvResponse extends AbstractChunkedReadvResponse {
 
+    /**
+     * Segments separated by at most this many bytes are read together.
+     */
+    private static final int MAX_MERGE_GAP = 4096;
+
     private final List<FileDescriptor> descriptors;
+    private final Range[] segments;
+    private final int windowSize;
+
+    /**
+     * Issues the reads of a window in parallel.
+     */
+    private final Executor executor;
+
+    /**
+     * Index of the first segment not yet covered by a window.
+     */
+    private int nextSegment;
+
+    /**
+     * Merged reads of the current window.
+     */
+    private final List<Range> window = new ArrayList<>();
 
     public ChunkedFileDescriptorReadvResponse(ReadVRequest request,
           int maxFrameSize,
-          List<FileDescriptor> descriptors) {
+          List<FileDescriptor> descriptors,
+          Executor executor) {
         super(request, maxFrameSize);
         this.descriptors = descriptors;
+        this.segments = Stream.of(request.getReadRequestList())
+              .map(r -> new Range(r.getFileHandle(), r.getOffset(), r.BytesToRead()))
+              .toArray(Range[]::new);
+        this.windowSize = maxFrameSize;
+        this.executor = executor;
     }
 
     @Override
     protected long getSize(int fd) throws IOException, XrootdException {
-        if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
-            throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
-        }
-        return descriptors.get(fd).getChannel().size();
+        return getDescriptor(fd).getChannel().size();
     }
 
     @Override
     protected ByteBuf read(ByteBufAllocator alloc, int fd, long position, int length)
           throws IOException, XrootdException {
+        FileDescriptor descriptor = getDescriptor(fd);
+
+        ByteBuf chunk = slice(fd, position, length);
+        if (chunk == null && readWindow(alloc, fd, position)) {
+            chunk = slice(fd, position, length);
+        }
+        return (chunk != null) ? chunk : readSegment(alloc, descriptor, position, length);
+    }
+
+    @Override
+    public void close() throws Exception {
+        releaseWindow();
+        super.close();
+    }
+
+    private FileDescriptor getDescriptor(int fd) throws XrootdException {
         if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
             throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
         }
+        return descriptors.get(fd);
+    }
+
+    /**
+     * Returns a slice of the current window covering the segment, or null if the segment is not
+     * part of the window.
+     */
+    private ByteBuf slice(int fd, long position, int length) {
+        for (Range range : window) {
+            if (range.fd == fd && range.start <= position
+                  && position + length <= range.start + range.length) {
+                int index = (int) (position - range.start);
+                int available = Math.max(0, Math.min(length, range.buffer.writerIndex() - index));
+                return range.buffer.retainedSlice(index, available);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the window of segments starting with the given segment.
+     *
+     * @return false if the segment is not found in the request
+     */
+    private boolean readWindow(ByteBufAllocator alloc, int fd, long position)
+          throws IOException, XrootdException {
+        int first = nextSegment;
+        while (first < segments.length && (segments[first].fd != fd
+              || segments[first].start != position)) {
+            first++;
+        }
+        if (first == segments.length) {
+            return false;
+        }
+
+        int last = windowEnd(segments, first, windowSize);
+        nextSegment = last;
 
-        FileDescriptor descriptor = descriptors.get(fd);
+        releaseWindow();
+        window.addAll(merge(List.of(segments).subList(first, last)));
 
+        try {
+            for (Range range : window) {
+                range.buffer = alloc.ioBuffer((int) range.length);
+            }
+            if (window.size() == 1) {
+                Range range = window.get(0);
+                range.read(getDescriptor(range.fd));
+            } else {
+                List<CompletableFuture<Void>> reads = new ArrayList<>(window.size());
+                for (Range range : window) {
+                    FileDescriptor descriptor = getDescriptor(range.fd);
+                    reads.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            range.read(descriptor);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, executor));
+                }
+                CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).get();
+            }
+        } catch (InterruptedException e) {
+            releaseWindow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading");
+        } catch (ExecutionException e) {
+            releaseWindow();
+            Throwable cause = e.getCause() instanceof CompletionException
+                  ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        } catch (IOException | XrootdException | RuntimeException e) {
+            releaseWindow();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index after the last segment of the window starting with segment
+     * {@code first}. A window holds at least one segment and otherwise as many segments as fit
+     * into {@code windowSize} bytes.
+     */
+    @VisibleForTesting
+    static int windowEnd(Range[] segments, int first, int windowSize) {
+        int last = first + 1;
+        long size = segments[first].length;
+        while (last < segments.length && size + segments[last].length <= windowSize) {
+            size += segments[last].length;
+            last++;
+        }
+        return last;
+    }
+
+    /**
+     * Returns the ranges to read for the given segments, ordered by file and offset. Segments of
+     * the same file that overlap or are separated by at most {@link #MAX_MERGE_GAP} bytes are
+     * read as a single range.
+     */
+    @VisibleForTesting
+    static List<Range> merge(List<Range> segments) {
+        List<Range> sorted = new ArrayList<>(segments);
+        sorted.sort(Comparator.comparingInt((Range r) -> r.fd).thenComparingLong(r -> r.start));
+
+        List<Range> ranges = new ArrayList<>();
+        for (Range segment : sorted) {
+            Range previous = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            long end = segment.start + segment.length;
+            if (previous != null && previous.fd == segment.fd
+                  && segment.start <= previous.start + previous.length + MAX_MERGE_GAP) {
+                previous.length = Math.max(previous.length, end - previous.start);
+            } else {
+                ranges.add(new Range(segment.fd, segment.start, segment.length));
+            }
+        }
+        return ranges;
+    }
+
+    private void releaseWindow() {
+        for (Range range : window) {
+            ReferenceCountUtil.release(range.buffer);
+        }
+        window.clear();
+    }
+
+    private static ByteBuf readSegment(ByteBufAllocator alloc, FileDescriptor descriptor,
+          long position, int length) throws IOException {
         ByteBuf chunk = alloc.ioBuffer(length);
         try {
             ByteBuffer buffer = chunk.nioBuffer(0, length);
@@ -51,4 +237,28 @@ public class ChunkedFileDescriptorReadvResponse extends AbstractChunkedReadvResp
             throw e;
         }
     }
+
+    /**
+     * A contiguous region of a file: either a segment of the request or a region read in one go.
+     */
+    @VisibleForTesting
+    static class Range {
+
+        final int fd;
+        final long start;
+        long length;
+        private ByteBuf buffer;
+
+        Range(int fd, long start, long length) {
+            this.fd = fd;
+            this.start = start;
+            this.length = length;
+        }
+
+        void read(FileDescriptor descriptor) throws IOException {
+            ByteBuffer nio = buffer.nioBuffer(0, (int) length);
+            descriptor.read(nio, start);
+            buffer.writerIndex(nio.position());
+        }
+    }
 }
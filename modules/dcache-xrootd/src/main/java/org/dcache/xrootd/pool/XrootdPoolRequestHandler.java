@@ -656,7 +656,8 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler {
             }
         }
 
-        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, copyDescriptors());
+        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, copyDescriptors(),
+              _server.getReadvExecutor());
     }
 
     /**
@@ -54,6 +54,8 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -154,6 +156,8 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
     private Map<String, String> queryConfig;
     private NioEventLoopGroup thirdPartyClientGroup;
     private ScheduledExecutorService thirdPartyShutdownExecutor;
+    private int readvThreads;
+    private ExecutorService readvExecutor;
 
     private SigningPolicy signingPolicy;
     private ServerProtocolFlags serverProtocolFlags;
@@ -185,6 +189,13 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
         return thirdPartyShutdownExecutor;
     }
 
+    /**
+     * Returns the executor reading the regions of a vector read window in parallel.
+     */
+    public ExecutorService getReadvExecutor() {
+        return readvExecutor;
+    }
+
     @Override
     public synchronized void start() throws IOException {
         super.start();
@@ -192,6 +203,9 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
               .setNameFormat("xrootd-tpc-client-%d")
               .build();
         thirdPartyClientGroup = new NioEventLoopGroup(0, new CDCThreadFactory(factory));
+        int threads = (readvThreads > 0) ? readvThreads : Runtime.getRuntime().availableProcessors();
+        readvExecutor = Executors.newFixedThreadPool(threads,
+              new ThreadFactoryBuilder().setNameFormat("xrootd-readv-%d").setDaemon(true).build());
         reconnectTimers = new HashMap<>();
     }
 
@@ -296,6 +310,11 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
         this.tpcServerResponseTimeoutUnit = unit;
     }
 
+    @Required
+    public void setReadvThreads(int readvThreads) {
+        this.readvThreads = readvThreads;
+    }
+
     @Required
     public void setThirdPartyShutdownExecutor(
           ScheduledExecutorService thirdPartyShutdownExecutor) {
@@ -461,6 +480,9 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
     protected void initialiseShutdown() {
         super.initialiseShutdown();
         shutdownGracefully(thirdPartyClientGroup);
+        if (readvExecutor != null) {
+            readvExecutor.shutdown();
+        }
     }
 
     private void handleUploadAbort(NettyMover<XrootdProtocolInfo> mover, Throwable cause)
@@ -0,0 +1,67 @@
+package org.dcache.xrootd.pool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.dcache.xrootd.pool.ChunkedFileDescriptorReadvResponse.Range;
+import org.junit.Test;
+
+public class ChunkedFileDescriptorReadvResponseTest {
+
+    @Test
+    public void shouldFillWindowUpToWindowSize() {
+        Range[] segments = {
+              new Range(0, 0, 100), new Range(0, 1000, 200), new Range(0, 5000, 300),
+              new Range(0, 9000, 100)};
+
+        assertThat(ChunkedFileDescriptorReadvResponse.windowEnd(segments, 0, 600), is(3));
+        assertThat(ChunkedFileDescriptorReadvResponse.windowEnd(segments, 3, 600), is(4));
+    }
+
+    @Test
+    public void shouldIncludeSegmentLargerThanWindow() {
+        Range[] segments = {new Range(0, 0, 1000), new Range(0, 1000, 10)};
+
+        assertThat(ChunkedFileDescriptorReadvResponse.windowEnd(segments, 0, 100), is(1));
+    }
+
+    @Test
+    public void shouldMergeSegmentsSeparatedBySmallGaps() {
+        List<Range> ranges = ChunkedFileDescriptorReadvResponse.merge(List.of(
+              new Range(0, 0, 100), new Range(0, 200, 100), new Range(0, 4396, 4)));
+
+        assertThat(describe(ranges), is(List.of("0:0+4400")));
+    }
+
+    @Test
+    public void shouldNotMergeSegmentsSeparatedByLargeGaps() {
+        List<Range> ranges = ChunkedFileDescriptorReadvResponse.merge(List.of(
+              new Range(0, 0, 100), new Range(0, 4197, 100)));
+
+        assertThat(describe(ranges), is(List.of("0:0+100", "0:4197+100")));
+    }
+
+    @Test
+    public void shouldMergeUnorderedAndOverlappingSegments() {
+        List<Range> ranges = ChunkedFileDescriptorReadvResponse.merge(List.of(
+              new Range(0, 500, 100), new Range(0, 0, 1000), new Range(0, 900, 50)));
+
+        assertThat(describe(ranges), is(List.of("0:0+1000")));
+    }
+
+    @Test
+    public void shouldNotMergeSegmentsOfDifferentFiles() {
+        List<Range> ranges = ChunkedFileDescriptorReadvResponse.merge(List.of(
+              new Range(1, 0, 100), new Range(0, 100, 100), new Range(0, 0, 100)));
+
+        assertThat(describe(ranges), is(List.of("0:0+200", "1:0+100")));
+    }
+
+    private static List<String> describe(List<Range> ranges) {
+        return ranges.stream()
+              .map(r -> r.fd + ":" + r.start + "+" + r.length)
+              .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package diskCacheV111.namespace;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import dmg.cells.nucleus.CellMessage;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Distributes messages to a fixed number of worker threads such that messages with the same key
+ * are processed one at a time and in arrival order, while messages with different keys may be
+ * processed by any idle worker.
+ * <p>
+ * Every worker owns a lane. Messages are queued per key and a key with pending messages is
+ * placed on the ready list of the lane it was submitted to. A worker takes keys from the ready
+ * list of its own lane; if that is empty, it steals the oldest key from the lane with the longest
+ * ready list. While a message is processed its key is not on any ready list, thus no other worker
+ * can pick up the next message with the same key until {@link #complete} is called.
+ * <p>
+ * All state is guarded by a single lock. The scheduler is meant for name space operations that
+ * each take at least a database round trip, for which the lock is not a bottleneck.
+ */
+class MessageScheduler {
+
+    /**
+     * Number of buckets of the depth and wait time histograms. Bucket {@code i} counts values
+     * smaller than {@code 2^i}, the last bucket counts everything else.
+     */
+    private static final int HISTOGRAM_BUCKETS = 16;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _notEmpty = _lock.newCondition();
+    private final Map<Object, KeyQueue> _keys = new HashMap<>();
+    private final Lane[] _lanes;
+    private final int _maxLaneSize;
+    private boolean _isShutdown;
+
+    /**
+     * @param lanes       number of lanes, one per worker thread
+     * @param maxLaneSize maximum number of queued messages per lane or 0 for no limit
+     */
+    MessageScheduler(int lanes, int maxLaneSize) {
+        checkArgument(lanes > 0, "Number of lanes must be positive");
+        checkArgument(maxLaneSize >= 0, "Lane size must not be negative");
+        _lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            _lanes[i] = new Lane();
+        }
+        _maxLaneSize = maxLaneSize;
+    }
+
+    int getLaneCount() {
+        return _lanes.length;
+    }
+
+    /**
+     * Queues a message.
+     *
+     * @param lane     lane to place the key on if it has no pending messages
+     * @param key      messages with equal keys are processed in order; null if the message may be
+     *                 processed independently of all other messages
+     * @param envelope the message
+     * @return false if the lane is full or the scheduler is shut down
+     */
+    boolean offer(int lane, Object key, CellMessage envelope) {
+        _lock.lock();
+        try {
+            if (_isShutdown) {
+                return false;
+            }
+            KeyQueue queue = (key == null) ? null : _keys.get(key);
+            Lane target = _lanes[(queue == null) ? lane : queue.lane];
+            if (_maxLaneSize > 0 && target.size >= _maxLaneSize) {
+                return false;
+            }
+            if (queue == null) {
+                queue = new KeyQueue(key, lane);
+                if (key != null) {
+                    _keys.put(key, queue);
+                }
+                target.ready.addLast(queue);
+                _notEmpty.signal();
+            }
+            queue.messages.addLast(new Entry(envelope, System.nanoTime()));
+            target.size++;
+            target.depths.add(target.size);
+            return true;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next message for the worker owning the given lane, blocking until one is
+     * available. Further messages accepted by {@code compatible} may be added to the batch, up to
+     * {@code maxBatchSize} in total, as long as their keys are next on the same ready list.
+     * Every returned task must be passed to {@link #complete} once processed.
+     *
+     * @return the tasks or null if the scheduler has been shut down
+     */
+    List<Task> take(int lane, int maxBatchSize,
+          BiPredicate<CellMessage, CellMessage> compatible) throws InterruptedException {
+        _lock.lockInterruptibly();
+        try {
+            Lane own = _lanes[lane];
+            while (true) {
+                if (_isShutdown) {
+                    return null;
+                }
+                Lane source = own.ready.isEmpty() ? longestReadyList() : own;
+                if (source != null) {
+                    Task first = dequeue(source, source != own);
+                    if (maxBatchSize == 1) {
+                        return Collections.singletonList(first);
+                    }
+                    List<Task> tasks = new ArrayList<>();
+                    tasks.add(first);
+                    while (tasks.size() < maxBatchSize) {
+                        KeyQueue next = source.ready.peekFirst();
+                        if (next == null || !compatible.test(first.envelope,
+                              next.messages.getFirst().envelope)) {
+                            break;
+                        }
+                        tasks.add(dequeue(source, source != own));
+                    }
+                    return tasks;
+                }
+                _notEmpty.await();
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private Lane longestReadyList() {
+        Lane longest = null;
+        for (Lane lane : _lanes) {
+            if (!lane.ready.isEmpty()
+                  && (longest == null || lane.ready.size() > longest.ready.size())) {
+                longest = lane;
+            }
+        }
+        return longest;
+    }
+
+    private Task dequeue(Lane lane, boolean isStolen) {
+        KeyQueue queue = lane.ready.removeFirst();
+        Entry entry = queue.messages.removeFirst();
+        lane.size--;
+        lane.waits.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.whenQueued));
+        if (isStolen) {
+            lane.stolen++;
+        }
+        return new Task(queue, entry.envelope);
+    }
+
+    /**
+     * Removes messages queued behind the given task. Messages are tested in order, starting with
+     * the one following the task; the scan ends at the first message matching {@code stop}.
+     *
+     * @return the removed messages, in order
+     */
+    List<CellMessage> removeQueued(Task task, Predicate<CellMessage> stop,
+          Predicate<CellMessage> remove) {
+        _lock.lock();
+        try {
+            List<CellMessage> removed = new ArrayList<>();
+            Iterator<Entry> i = task.queue.messages.iterator();
+            while (i.hasNext()) {
+                CellMessage envelope = i.next().envelope;
+                if (stop.test(envelope)) {
+                    break;
+                }
+                if (remove.test(envelope)) {
+                    i.remove();
+                    _lanes[task.queue.lane].size--;
+                    removed.add(envelope);
+                }
+            }
+            return removed;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the keys of processed tasks, making their next messages available.
+     */
+    void complete(List<Task> tasks) {
+        _lock.lock();
+        try {
+            for (Task task : tasks) {
+                KeyQueue queue = task.queue;
+                if (queue.messages.isEmpty()) {
+                    if (queue.key != null) {
+                        _keys.remove(queue.key);
+                    }
+                } else {
+                    _lanes[queue.lane].ready.addLast(queue);
+                    _notEmpty.signal();
+                }
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Shuts the scheduler down. Workers blocked in {@link #take} return null.
+     *
+     * @return messages that were queued but not yet taken
+     */
+    List<CellMessage> shutdown() {
+        _lock.lock();
+        try {
+            _isShutdown = true;
+            List<CellMessage> drained = new ArrayList<>();
+            for (KeyQueue queue : _keys.values()) {
+                queue.messages.forEach(e -> drained.add(e.envelope));
+                queue.messages.clear();
+            }
+            for (Lane lane : _lanes) {
+                for (KeyQueue queue : lane.ready) {
+                    queue.messages.forEach(e -> drained.add(e.envelope));
+                    queue.messages.clear();
+                }
+                lane.ready.clear();
+                lane.size = 0;
+            }
+            _keys.clear();
+            _notEmpty.signalAll();
+            return drained;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages queued in the given lane.
+     */
+    int size(int lane) {
+        _lock.lock();
+        try {
+            return _lanes[lane].size;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages queued in all lanes.
+     */
+    int size() {
+        _lock.lock();
+        try {
+            return totalSize();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the messages queued in the given lane, grouped by key.
+     */
+    List<CellMessage> getQueued(int lane) {
+        _lock.lock();
+        try {
+            List<CellMessage> queued = new ArrayList<>();
+            for (KeyQueue queue : _keys.values()) {
+                if (queue.lane == lane) {
+                    queue.messages.forEach(e -> queued.add(e.envelope));
+                }
+            }
+            for (KeyQueue queue : _lanes[lane].ready) {
+                if (queue.key == null) {
+                    queue.messages.forEach(e -> queued.add(e.envelope));
+                }
+            }
+            return queued;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    void resetStatistics() {
+        _lock.lock();
+        try {
+            for (Lane lane : _lanes) {
+                lane.stolen = 0;
+                lane.depths.reset();
+                lane.waits.reset();
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    void getInfo(PrintWriter pw) {
+        _lock.lock();
+        try {
+            pw.println("Threads (" + _lanes.length + ") Queue");
+            for (int i = 0; i < _lanes.length; i++) {
+                pw.println("    [" + i + "] " + _lanes[i].size + " (stolen "
+                      + _lanes[i].stolen + ")");
+            }
+            pw.println();
+            pw.println("Threads: " + totalSize());
+            pw.println();
+            pw.println("Queue depth on arrival (messages):");
+            printHistograms(pw, l -> l.depths);
+            pw.println();
+            pw.println("Queue wait time (ms):");
+            printHistograms(pw, l -> l.waits);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private int totalSize() {
+        int size = 0;
+        for (Lane lane : _lanes) {
+            size += lane.size;
+        }
+        return size;
+    }
+
+    private void printHistograms(PrintWriter pw,
+          Function<Lane, Histogram> histogram) {
+        StringBuilder header = new StringBuilder("        ");
+        for (int b = 0; b < HISTOGRAM_BUCKETS - 1; b++) {
+            header.append(String.format(" %7s", "<" + (1L << b)));
+        }
+        header.append(String.format(" %7s", ">=" + (1L << (HISTOGRAM_BUCKETS - 2))));
+        pw.println(header);
+        for (int i = 0; i < _lanes.length; i++) {
+            StringBuilder line = new StringBuilder(String.format("    %-4s", "[" + i + "]"));
+            for (long count : histogram.apply(_lanes[i]).buckets) {
+                line.append(String.format(" %7d", count));
+            }
+            pw.println(line);
+        }
+    }
+
+    /**
+     * A message taken for processing.
+     */
+    static class Task {
+
+        private final KeyQueue queue;
+        private final CellMessage envelope;
+
+        private Task(KeyQueue queue, CellMessage envelope) {
+            this.queue = queue;
+            this.envelope = envelope;
+        }
+
+        CellMessage getMessage() {
+            return envelope;
+        }
+    }
+
+    private static class Entry {
+
+        private final CellMessage envelope;
+        private final long whenQueued;
+
+        private Entry(CellMessage envelope, long whenQueued) {
+            this.envelope = envelope;
+            this.whenQueued = whenQueued;
+        }
+    }
+
+    /**
+     * Pending messages with the same key.
+     */
+    private static class KeyQueue {
+
+        private final Object key;
+        private final int lane;
+        private final Deque<Entry> messages = new ArrayDeque<>();
+
+        private KeyQueue(Object key, int lane) {
+            this.key = key;
+            this.lane = lane;
+        }
+    }
+
+    private static class Lane {
+
+        /**
+         * Keys with pending messages that are not being processed, in the order they became
+         * ready.
+         */
+        private final Deque<KeyQueue> ready = new ArrayDeque<>();
+        private final Histogram depths = new Histogram();
+        private final Histogram waits = new Histogram();
+        private int size;
+        private long stolen;
+    }
+
+    /**
+     * Histogram with power of two buckets.
+     */
+    private static class Histogram {
+
+        private final long[] buckets = new long[HISTOGRAM_BUCKETS];
+
+        void add(long value) {
+            int bucket = (value <= 0) ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+            buckets[Math.min(bucket, HISTOGRAM_BUCKETS - 1)]++;
+        }
+
+        void reset() {
+            Arrays.fill(buckets, 0);
+        }
+    }
+}
@@ -47,6 +47,7 @@ import diskCacheV111.util.NotDirCacheException;
 import diskCacheV111.util.PermissionDeniedCacheException;
 import diskCacheV111.util.PnfsId;
 import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.util.TimeoutCacheException;
 import diskCacheV111.vehicles.DoorCancelledUploadNotificationMessage;
 import diskCacheV111.vehicles.Message;
 import diskCacheV111.vehicles.PnfsAddCacheLocationMessage;
@@ -104,14 +105,17 @@ import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -141,6 +145,7 @@ import org.dcache.quota.data.QuotaRequest;
 import org.dcache.quota.data.QuotaType;
 import org.dcache.util.Args;
 import org.dcache.util.ByteUnit;
+import org.dcache.util.CacheExceptionFactory;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
 import org.dcache.util.ColumnWriter;
@@ -150,6 +155,8 @@ import org.dcache.util.TimeUtils;
 import org.dcache.vehicles.FileAttributes;
 import org.dcache.vehicles.PnfsCreateSymLinkMessage;
 import org.dcache.vehicles.PnfsGetFileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributesBatch;
+import org.dcache.vehicles.PnfsListDirectoryCreditMessage;
 import org.dcache.vehicles.PnfsListLabelsMessage;
 import org.dcache.vehicles.PnfsListDirectoryMessage;
 import org.dcache.vehicles.PnfsRemoveChecksumMessage;
@@ -192,6 +199,30 @@ public class PnfsManagerV3
           new RequestExecutionTimeGauges<>("PnfsManagerV3");
     private final RequestCounters<Class<?>> _foldedCounters =
           new RequestCounters<>("PnfsManagerV3.Folded");
+    private final RequestCounters<Class<?>> _batchedCounters =
+          new RequestCounters<>("PnfsManagerV3.Batched");
+
+    /**
+     * These messages may be processed together with messages of the same type in a single
+     * transaction.
+     */
+    private static final Set<Class<? extends PnfsMessage>> BATCHABLE = Set.of(
+          PnfsAddCacheLocationMessage.class,
+          PnfsGetFileAttributes.class
+    );
+
+    /**
+     * Return codes of messages in a batch that are results rather than failures of the batch.
+     * The name space detects these conditions with queries before it modifies anything, e.g. a
+     * cache location is only inserted for an existing inode, so they normally leave the
+     * transaction of the batch intact. Should a statement fail nevertheless, e.g. because a file
+     * is deleted concurrently, the transaction is marked rollback-only, its commit fails and the
+     * batch is processed one message at a time.
+     */
+    private static final Set<Integer> BATCH_RESULT_CODES = Set.of(
+          CacheException.FILE_NOT_FOUND,
+          CacheException.PERMISSION_DENIED
+    );
 
     /**
      * These messages are subject to being discarded if their time to live has been exceeded (or is
@@ -204,13 +235,21 @@ public class PnfsManagerV3
           PnfsCreateEntryMessage.class,
           PnfsCreateUploadPath.class,
           PnfsGetFileAttributes.class,
+          PnfsGetFileAttributesBatch.class,
           PnfsListDirectoryMessage.class
     };
 
+    /**
+     * How long a flow controlled directory listing waits for credit from the requestor before it
+     * is aborted. The listing keeps its database cursor open while it waits.
+     */
+    private static final long LIST_CREDIT_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
     private int _threads;
     private int _directoryListLimit;
     private int _queueMaxSize;
     private int _listThreads;
+    private int _flowControlledListThreads;
     private long _logSlowThreshold;
 
     private ScheduledFuture<?> updateFsFuture;
@@ -233,15 +272,31 @@ public class PnfsManagerV3
      */
     private boolean _canFold;
 
+    /**
+     * Maximum number of queued messages of the same type processed in a single transaction.
+     */
+    private int _batchSize = 1;
+
     /**
      * Queues for list operations.
      */
     private BlockingQueue<CellMessage>[] _listQueues;
 
     /**
-     * Tasks queues used for messages that do not operate on cache locations.
+     * Queue for flow controlled list operations. These are served by their own threads, as they
+     * may be suspended while waiting for credit from the requestor.
      */
-    private BlockingQueue<CellMessage>[] _fifos;
+    private BlockingQueue<CellMessage> _flowControlledListQueue;
+
+    /**
+     * Flow controlled directory listings in progress, indexed by the UUID of the request.
+     */
+    private final Map<UUID, ListHandlerImpl> _flowControlledListings = new ConcurrentHashMap<>();
+
+    /**
+     * Schedules all messages except directory listings to the processing threads.
+     */
+    private MessageScheduler _scheduler;
 
     /**
      * Executor for ProcessThread instances.
@@ -290,6 +345,7 @@ public class PnfsManagerV3
         _gauges.addGauge(PnfsGetParentMessage.class);
         _gauges.addGauge(PnfsSetFileAttributes.class);
         _gauges.addGauge(PnfsGetFileAttributes.class);
+        _gauges.addGauge(PnfsGetFileAttributesBatch.class);
         _gauges.addGauge(PnfsListDirectoryMessage.class);
         _gauges.addGauge(PnfsRemoveChecksumMessage.class);
         _gauges.addGauge(PnfsCreateSymLinkMessage.class);
@@ -364,6 +420,12 @@ public class PnfsManagerV3
         _listThreads = threads;
     }
 
+    @Required
+    public void setFlowControlledListThreads(int threads) {
+        checkArgument(threads > 0, "Number of flow controlled list threads must be positive");
+        _flowControlledListThreads = threads;
+    }
+
     @Required
     public void setCacheModificationRelay(String path) {
         _cacheModificationRelay =
@@ -412,6 +474,11 @@ public class PnfsManagerV3
         _canFold = folding;
     }
 
+    public void setBatchSize(int batchSize) {
+        checkArgument(batchSize > 0, "Batch size must be positive");
+        _batchSize = batchSize;
+    }
+
     @Required
     public void setDirectoryListLimit(int limit) {
         _directoryListLimit = limit;
@@ -449,15 +516,10 @@ public class PnfsManagerV3
     public void init() {
         _stub = new CellStub(getCellEndpoint());
 
-        _fifos = new BlockingQueue[_threads];
-        LOGGER.info("Starting {} threads", _fifos.length);
-        for (int i = 0; i < _fifos.length; i++) {
-            if (_queueMaxSize > 0) {
-                _fifos[i] = new LinkedBlockingQueue<>(_queueMaxSize);
-            } else {
-                _fifos[i] = new LinkedBlockingQueue<>();
-            }
-            executor.execute(new ProcessThread(_fifos[i]));
+        _scheduler = new MessageScheduler(_threads, _queueMaxSize);
+        LOGGER.info("Starting {} threads", _threads);
+        for (int i = 0; i < _threads; i++) {
+            executor.execute(new WorkerThread(i));
         }
 
         if (useParallelListing) {
@@ -498,11 +560,27 @@ public class PnfsManagerV3
                 executor.execute(t);
             }
         }
+
+        /**
+         * Flow controlled listings get their own queue, such that a listing suspended while
+         * waiting for credit never blocks one of the list threads above.
+         */
+        if (_queueMaxSize > 0) {
+            _flowControlledListQueue = new LinkedBlockingQueue<>(_queueMaxSize);
+        } else {
+            _flowControlledListQueue = new LinkedBlockingQueue<>();
+        }
+        for (int i = 0; i < _flowControlledListThreads; i++) {
+            ProcessThread t = new ProcessThread(_flowControlledListQueue);
+            _listProcessThreads.add(t);
+            executor.execute(t);
+        }
     }
 
     public void shutdown() throws InterruptedException {
-        drainQueues(_fifos);
+        rejectMessages(_scheduler.shutdown());
         drainQueues(_listQueues);
+        drainQueue(_flowControlledListQueue);
         MoreExecutors.shutdownAndAwaitTermination(executor, 1, TimeUnit.SECONDS);
     }
 
@@ -511,10 +589,15 @@ public class PnfsManagerV3
     }
 
     private void drainQueue(BlockingQueue<CellMessage> queue) {
-        String error = "Name space is shutting down.";
         ArrayList<CellMessage> drained = new ArrayList<>();
         queue.drainTo(drained);
-        for (CellMessage envelope : drained) {
+        rejectMessages(drained);
+        queue.offer(SHUTDOWN_SENTINEL);
+    }
+
+    private void rejectMessages(List<CellMessage> messages) {
+        String error = "Name space is shutting down.";
+        for (CellMessage envelope : messages) {
             Message msg = (Message) envelope.getMessageObject();
             if (msg.getReplyRequired()) {
                 envelope.setMessageObject(new NoRouteToCellException(envelope, error));
@@ -522,7 +605,6 @@ public class PnfsManagerV3
                 sendMessage(envelope);
             }
         }
-        queue.offer(SHUTDOWN_SENTINEL);
     }
 
     @Override
@@ -591,19 +673,15 @@ public class PnfsManagerV3
         pw.println("List queue: "
               + Arrays.stream(_listQueues)
               .mapToInt(BlockingQueue::size).sum());
+        pw.println("Flow controlled list queue: " + _flowControlledListQueue.size());
         pw.println();
-        pw.println("Threads (" + _fifos.length + ") Queue");
-        for (int i = 0; i < _fifos.length; i++) {
-            pw.println("    [" + i + "] " + _fifos[i].size());
-        }
-        pw.println();
-        pw.println("Threads: "
-              + Arrays.stream(_fifos).mapToInt(BlockingQueue::size).sum());
+        _scheduler.getInfo(pw);
         pw.println();
 
         pw.println("Statistics:");
         pw.println(_gauges.toString());
         pw.println(_foldedCounters.toString());
+        pw.println(_batchedCounters.toString());
     }
 
     @Required
@@ -622,10 +700,14 @@ public class PnfsManagerV3
               + "\n"
               + "\"folds\" is the message folding counts, labelled 'PnfsManagerV3.Folded'.\n"
               + "\n"
+              + "\"batches\" is the batched message counts, labelled 'PnfsManagerV3.Batched'.\n"
+              + "\n"
+              + "\"queues\" is the queue depth and wait time histograms.\n"
+              + "\n"
               + "\"all\" resets everything.\n"
               + "\n"
               + "If this option is not specified then \"all\" is assumed.",
-              values = {"calls", "folds", "all"})
+              values = {"calls", "folds", "batches", "queues", "all"})
         private String target;
 
         @Override
@@ -637,6 +719,8 @@ public class PnfsManagerV3
                 case "all":
                     _gauges.reset();
                     _foldedCounters.reset();
+                    _batchedCounters.reset();
+                    _scheduler.resetStatistics();
                     break;
                 case "calls":
                     _gauges.reset();
@@ -644,6 +728,12 @@ public class PnfsManagerV3
                 case "folds":
                     _foldedCounters.reset();
                     break;
+                case "batches":
+                    _batchedCounters.reset();
+                    break;
+                case "queues":
+                    _scheduler.resetStatistics();
+                    break;
                 default:
                     throw new CommandException("Unknown target \"" + target + "\".");
             }
@@ -928,7 +1018,7 @@ public class PnfsManagerV3
             dumpThreadQueue(threadId);
             return "dumped";
         }
-        for (int threadId = 0; threadId < _fifos.length; ++threadId) {
+        for (int threadId = 0; threadId < _scheduler.getLaneCount(); ++threadId) {
             dumpThreadQueue(threadId);
         }
         return "dumped";
@@ -1610,13 +1700,15 @@ public class PnfsManagerV3
         public String call() {
             ColumnWriter writer = buildColumnWriter();
 
-            if (Arrays.stream(_listQueues).anyMatch(q -> !q.isEmpty())) {
+            if (Arrays.stream(_listQueues).anyMatch(q -> !q.isEmpty())
+                  || !_flowControlledListQueue.isEmpty()) {
                 writer.section("QUEUED REQUESTS");
                 for (BlockingQueue<CellMessage> queue : _listQueues) {
                     if (!queue.isEmpty()) {
                         queue.forEach(e -> addRow(writer.row(), e));
                     }
                 }
+                _flowControlledListQueue.forEach(e -> addRow(writer.row(), e));
             }
 
             List<ActivityReport> activity = _listProcessThreads.stream()
@@ -1696,11 +1788,10 @@ public class PnfsManagerV3
     }
 
     private void dumpThreadQueue(int queueId) {
-        if (queueId < 0 || queueId >= _fifos.length) {
+        if (queueId < 0 || queueId >= _scheduler.getLaneCount()) {
             throw new IllegalArgumentException(" illegal queue #" + queueId);
         }
-        BlockingQueue<CellMessage> fifo = _fifos[queueId];
-        Object[] fifoContent = fifo.toArray();
+        Object[] fifoContent = _scheduler.getQueued(queueId).toArray();
 
         LOGGER.warn("PnfsManager thread #{} queue dump ({}):", queueId, fifoContent.length);
 
@@ -2170,6 +2261,12 @@ public class PnfsManagerV3
      * This filter collects entries and sends partial replies for the PnfsListDirectoryMessage when
      * a certain number of entries have been collected. The filter will not send the final reply
      * (the caller has to do that).
+     * <p>
+     * If the request has a window, then the filter blocks before sending a partial reply until
+     * the requestor has granted credit for it. This suspends the listing while the requestor is
+     * busy consuming earlier replies. Such listings are processed by the flow controlled list
+     * threads, and their partial replies are not folded into other requests, as those requests
+     * would not be subject to the flow control.
      */
     private class ListHandlerImpl implements ListHandler {
 
@@ -2183,6 +2280,8 @@ public class PnfsManagerV3
         private long _deadline;
         private int _messageCount;
         private final BlockingQueue<CellMessage> _fifo;
+        private final Semaphore _credits;
+        private volatile boolean _isCancelled;
 
         public ListHandlerImpl(CellPath requestor, UOID uoid,
               PnfsListDirectoryMessage msg,
@@ -2201,9 +2300,47 @@ public class PnfsManagerV3
                         ? Long.MAX_VALUE
                         : System.currentTimeMillis() + initialDelay;
             _fifo = fifo;
+            _credits = (msg.getWindow() > 0) ? new Semaphore(msg.getWindow()) : null;
+        }
+
+        public boolean isFlowControlled() {
+            return _credits != null;
         }
 
-        private void sendPartialReply() {
+        public void grant(int credits) {
+            if (_credits != null && credits > 0) {
+                _credits.release(credits);
+            }
+        }
+
+        public void cancel() {
+            _isCancelled = true;
+            if (_credits != null) {
+                _credits.release();
+            }
+        }
+
+        private void awaitCredit() throws CacheException {
+            if (_credits == null) {
+                return;
+            }
+            try {
+                if (!_isCancelled
+                      && !_credits.tryAcquire(LIST_CREDIT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutCacheException(
+                          "Timeout waiting for requestor to consume directory listing");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutCacheException("Directory listing was interrupted");
+            }
+            if (_isCancelled) {
+                throw new ListCancelledCacheException();
+            }
+        }
+
+        private void sendPartialReply() throws CacheException {
+            awaitCredit();
             _msg.setReply();
             CellMessage envelope = new CellMessage(_requestor, _msg);
             envelope.setLastUOID(_uoid);
@@ -2212,7 +2349,7 @@ public class PnfsManagerV3
             _msg.setMessageCount(_messageCount);
 
 
-            if (!useParallelListing) {
+            if (!useParallelListing && _credits == null) {
                 /**
                  * fold other list requests for the same target in the queue
                  */
@@ -2238,7 +2375,7 @@ public class PnfsManagerV3
         }
 
         @Override
-        public void addEntry(String name, FileAttributes attrs) {
+        public void addEntry(String name, FileAttributes attrs) throws CacheException {
             if (Subjects.isRoot(_subject)
                   || !_restriction.isRestricted(READ_METADATA, _directory, name, true)) {
                 long now = System.currentTimeMillis();
@@ -2257,6 +2394,18 @@ public class PnfsManagerV3
         }
     }
 
+    /**
+     * Thrown when the requestor of a flow controlled directory listing cancels the listing.
+     */
+    private static class ListCancelledCacheException extends CacheException {
+
+        private static final long serialVersionUID = 1L;
+
+        ListCancelledCacheException() {
+            super("Directory listing cancelled by requestor");
+        }
+    }
+
     private void listDirectory(CellMessage envelope, PnfsListDirectoryMessage msg,
           BlockingQueue<CellMessage> fifo) {
         if (!msg.getReplyRequired()) {
@@ -2279,20 +2428,30 @@ public class PnfsManagerV3
                   new ListHandlerImpl(source, envelope.getUOID(),
                         msg, initialDelay, delay, fifo);
 
-            if (msg.getPathType() == PnfsListDirectoryMessage.PathType.LABEL) {
-                _nameSpaceProvider.listVirtualDirectory(msg.getSubject(), path.substring(1),
-                      msg.getRange(),
-                      msg.getRequestedAttributes(),
-                      handler);
+            if (handler.isFlowControlled()) {
+                _flowControlledListings.put(msg.getUUID(), handler);
+            }
+            try {
+                if (msg.getPathType() == PnfsListDirectoryMessage.PathType.LABEL) {
+                    _nameSpaceProvider.listVirtualDirectory(msg.getSubject(), path.substring(1),
+                          msg.getRange(),
+                          msg.getRequestedAttributes(),
+                          handler);
 
-            } else {
-                _nameSpaceProvider.list(msg.getSubject(), path,
-                      msg.getPattern(),
-                      msg.getRange(),
-                      msg.getRequestedAttributes(),
-                      handler);
+                } else {
+                    _nameSpaceProvider.list(msg.getSubject(), path,
+                          msg.getPattern(),
+                          msg.getRange(),
+                          msg.getRequestedAttributes(),
+                          handler);
+                }
+            } finally {
+                _flowControlledListings.remove(msg.getUUID(), handler);
             }
             msg.setSucceeded(handler.getMessageCount() + 1);
+        } catch (ListCancelledCacheException e) {
+            LOGGER.debug("Listing of {} cancelled by requestor", msg.getPnfsPath());
+            msg.setFailed(e.getRc(), e.getMessage());
         } catch (FileNotFoundCacheException | NotDirCacheException e) {
             msg.setFailed(e.getRc(), e.getMessage());
         } catch (CacheException e) {
@@ -2491,6 +2650,126 @@ public class PnfsManagerV3
         }
     }
 
+    /**
+     * Processes messages from the scheduler lane with the given index, stealing from other lanes
+     * when idle.
+     */
+    private class WorkerThread implements Runnable {
+
+        private final int _lane;
+
+        private WorkerThread(int lane) {
+            _lane = lane;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<MessageScheduler.Task> tasks;
+                while ((tasks = _scheduler.take(_lane, _batchSize,
+                      PnfsManagerV3::canBatch)) != null) {
+                    try {
+                        if (tasks.size() == 1) {
+                            process(tasks.get(0));
+                        } else {
+                            processBatch(tasks);
+                        }
+                    } finally {
+                        _scheduler.complete(tasks);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void process(MessageScheduler.Task task) {
+            CellMessage message = task.getMessage();
+            CDC.setMessageContext(message);
+            try {
+                /* Discard messages if we are close to their
+                 * timeout (within 10% of the TTL or 10 seconds,
+                 * whatever is smaller)
+                 */
+                PnfsMessage pnfs = (PnfsMessage) message.getMessageObject();
+                if (message.getLocalAge() > message.getAdjustedTtl() && useEarlyDiscard(pnfs)) {
+                    LOGGER.warn("Discarding {} because its time to live has been exceeded.",
+                          pnfs.getClass().getSimpleName());
+                    sendTimeout(message, "TTL exceeded");
+                    return;
+                }
+                processPnfsMessage(message, pnfs);
+                fold(task, pnfs);
+            } catch (Throwable e) {
+                LOGGER.warn("processPnfsMessage: {} : {}",
+                      Thread.currentThread().getName(), e);
+            } finally {
+                CDC.clearMessageContext();
+            }
+        }
+
+        private void processBatch(List<MessageScheduler.Task> tasks) {
+            try {
+                List<CellMessage> envelopes = new ArrayList<>(tasks.size());
+                List<MessageScheduler.Task> processed = new ArrayList<>(tasks.size());
+                for (MessageScheduler.Task task : tasks) {
+                    CellMessage envelope = task.getMessage();
+                    PnfsMessage pnfs = (PnfsMessage) envelope.getMessageObject();
+                    if (envelope.getLocalAge() > envelope.getAdjustedTtl()
+                          && useEarlyDiscard(pnfs)) {
+                        CDC.setMessageContext(envelope);
+                        try {
+                            LOGGER.warn("Discarding {} because its time to live has been exceeded.",
+                                  pnfs.getClass().getSimpleName());
+                            sendTimeout(envelope, "TTL exceeded");
+                        } finally {
+                            CDC.clearMessageContext();
+                        }
+                    } else {
+                        envelopes.add(envelope);
+                        processed.add(task);
+                    }
+                }
+
+                processPnfsMessages(envelopes);
+
+                for (MessageScheduler.Task task : processed) {
+                    CDC.setMessageContext(task.getMessage());
+                    try {
+                        fold(task, (PnfsMessage) task.getMessage().getMessageObject());
+                    } finally {
+                        CDC.clearMessageContext();
+                    }
+                }
+            } catch (Throwable e) {
+                LOGGER.warn("processPnfsMessages: {} : {}",
+                      Thread.currentThread().getName(), e);
+            }
+        }
+
+        private void fold(MessageScheduler.Task task, PnfsMessage message) {
+            if (_canFold && message.getReturnCode() == 0) {
+                List<CellMessage> folded = _scheduler.removeQueued(task,
+                      envelope -> ((PnfsMessage) envelope.getMessageObject()).invalidates(message),
+                      envelope -> ((PnfsMessage) envelope.getMessageObject()).fold(message));
+                for (CellMessage envelope : folded) {
+                    LOGGER.info("Folded {}", envelope.getMessageObject().getClass().getSimpleName());
+                    _foldedCounters.incrementRequests(message.getClass());
+                    envelope.revertDirection();
+                    sendMessage(envelope);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if {@code other} may be processed in the same transaction as {@code first}.
+     */
+    private static boolean canBatch(CellMessage first, CellMessage other) {
+        Class<?> type = first.getMessageObject().getClass();
+        return BATCHABLE.contains(type) && other.getMessageObject().getClass() == type;
+    }
+
     /*
      *  ------------------------------------- QUOTA SYSTEM -------------------------------------
      */
@@ -2773,7 +3052,8 @@ public class PnfsManagerV3
 	if (!useParallelListing) {
 	    index = (int)(Math.abs((long)Objects.hashCode(path.toString())) % _listThreads);
 	}
-        BlockingQueue<CellMessage> queue = _listQueues[index];
+        BlockingQueue<CellMessage> queue =
+              (message.getWindow() > 0) ? _flowControlledListQueue : _listQueues[index];
 
         /**
          * Do counts only if maxListRequestsInQueue is enabled
@@ -2797,33 +3077,56 @@ public class PnfsManagerV3
         }
     }
 
+    /**
+     * Grants credit to, or cancels, a flow controlled directory listing. Processed on the message
+     * thread, as the flow controlled list thread may be blocked waiting for the credit.
+     */
+    public void messageArrived(CellMessage envelope, PnfsListDirectoryCreditMessage message) {
+        ListHandlerImpl handler = _flowControlledListings.get(message.getUUID());
+        if (handler != null) {
+            if (message.isCancelled()) {
+                handler.cancel();
+            } else {
+                handler.grant(message.getCredits());
+            }
+        }
+    }
+
     public void messageArrived(CellMessage envelope, PnfsMessage message)
           throws CacheException {
         PnfsId pnfsId = message.getPnfsId();
         String path = message.getPnfsPath();
 
+        /* Messages with the same key are processed in order. The index
+         * selects the thread preferred for the key; idle threads steal
+         * keys from other threads.
+         */
+        Object key;
         int index;
         if (pnfsId != null) {
+            key = pnfsId;
             index = (int) (Math.abs((long) pnfsId.hashCode()) % _threads);
             LOGGER.info("Using thread [{}] {}", pnfsId, index);
         } else if (path != null) {
             if (message instanceof PnfsCreateEntryMessage && useParentHashOnCreate) {
                 try {
-                    FsPath parentPath = FsPath.create(path).parent();
-                    index = (int) (Math.abs((long) parentPath
-                          .toString()
-                          .hashCode()) % _threads);
+                    String parentPath = FsPath.create(path).parent().toString();
+                    key = parentPath;
+                    index = (int) (Math.abs((long) parentPath.hashCode()) % _threads);
                     LOGGER.info("Using parent hash to select thread [{}] {}", path, index);
                 } catch (IllegalStateException e) {
+                    key = path;
                     index = (int) (Math.abs((long) path.hashCode()) % _threads);
                     LOGGER.info("Using thread [{}] {}", path, index);
                 }
             } else {
+                key = path;
                 index = (int) (Math.abs((long) path.hashCode()) % _threads);
                 LOGGER.info("Using thread [{}] {}", path, index);
             }
         } else {
-            index = _random.nextInt(_fifos.length);
+            key = null;
+            index = _random.nextInt(_scheduler.getLaneCount());
             LOGGER.info("Using random thread {}", index);
         }
 
@@ -2831,7 +3134,7 @@ public class PnfsManagerV3
          * try to add a message into queue.
          * tell requester, that queue is full
          */
-        if (!_fifos[index].offer(envelope)) {
+        if (!_scheduler.offer(index, key, envelope)) {
             throw new MissingResourceCacheException("PnfsManager queue limit exceeded");
         }
     }
@@ -2867,6 +3170,103 @@ public class PnfsManagerV3
         postProcessMessage(message, pnfsMessage);
     }
 
+    /**
+     * Processes messages of the same type in a single transaction and sends the replies once
+     * the transaction is committed. A message failing with one of {@link #BATCH_RESULT_CODES}
+     * is answered with that failure. If a message fails otherwise or the transaction cannot be
+     * committed, the transaction is rolled back and the messages are processed one by one, so that a failing message neither affects
+     * the others nor leaves them in an aborted transaction. The diagnostic context is set for
+     * each message while it is processed.
+     */
+    @VisibleForTesting
+    void processPnfsMessages(List<CellMessage> envelopes) {
+        if (envelopes.isEmpty()) {
+            return;
+        }
+
+        long ctime = System.currentTimeMillis();
+        boolean committed;
+        try {
+            processMessagesTransactionally(envelopes);
+            committed = true;
+        } catch (BatchFailedException e) {
+            committed = false;
+        } catch (TransactionException e) {
+            LOGGER.warn("Name space transaction for {} messages failed: {}",
+                  envelopes.size(), e.getMessage());
+            committed = false;
+        }
+
+        Class<? extends PnfsMessage> type =
+              ((PnfsMessage) envelopes.get(0).getMessageObject()).getClass();
+        _batchedCounters.incrementRequests(type, envelopes.size());
+
+        if (!committed) {
+            _batchedCounters.incrementFailed(type, envelopes.size());
+            for (CellMessage envelope : envelopes) {
+                PnfsMessage pnfsMessage = (PnfsMessage) envelope.getMessageObject();
+                CDC.setMessageContext(envelope);
+                try {
+                    pnfsMessage.clearReply();
+                    processPnfsMessage(envelope, pnfsMessage);
+                } finally {
+                    CDC.clearMessageContext();
+                }
+            }
+            return;
+        }
+
+        long duration = (System.currentTimeMillis() - ctime) / envelopes.size();
+        for (CellMessage envelope : envelopes) {
+            PnfsMessage pnfsMessage = (PnfsMessage) envelope.getMessageObject();
+            CDC.setMessageContext(envelope);
+            try {
+                _gauges.update(pnfsMessage.getClass(), duration);
+                LOGGER.info("{} processed in {} ms (batch of {})", pnfsMessage.getClass(),
+                      duration, envelopes.size());
+                postProcessMessage(envelope, pnfsMessage);
+            } finally {
+                CDC.clearMessageContext();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    RequestCounters<Class<?>> getBatchedCounters() {
+        return _batchedCounters;
+    }
+
+    @Transactional
+    void processMessagesTransactionally(List<CellMessage> envelopes) {
+        for (CellMessage envelope : envelopes) {
+            PnfsMessage pnfsMessage = (PnfsMessage) envelope.getMessageObject();
+            CDC.setMessageContext(envelope);
+            try {
+                if (!processMessageTransactionally(envelope, pnfsMessage)) {
+                    throw new BatchFailedException();
+                }
+            } finally {
+                CDC.clearMessageContext();
+            }
+            int rc = pnfsMessage.getReturnCode();
+            if (rc != 0 && !BATCH_RESULT_CODES.contains(rc)) {
+                throw new BatchFailedException();
+            }
+        }
+    }
+
+    /**
+     * Thrown to roll back the transaction of a batch in which a message failed.
+     */
+    private static class BatchFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        BatchFailedException() {
+            super(null, null, false, false);
+        }
+    }
+
     @Transactional
     boolean processMessageTransactionally(CellMessage message, PnfsMessage pnfsMessage) {
         if (pnfsMessage instanceof PnfsAddCacheLocationMessage) {
@@ -2895,6 +3295,8 @@ public class PnfsManagerV3
             getParent((PnfsGetParentMessage) pnfsMessage);
         } else if (pnfsMessage instanceof PnfsGetFileAttributes) {
             getFileAttributes((PnfsGetFileAttributes) pnfsMessage);
+        } else if (pnfsMessage instanceof PnfsGetFileAttributesBatch) {
+            getFileAttributes((PnfsGetFileAttributesBatch) pnfsMessage);
         } else if (pnfsMessage instanceof PnfsSetFileAttributes) {
             setFileAttributes((PnfsSetFileAttributes) pnfsMessage);
         } else if (pnfsMessage instanceof PnfsRemoveChecksumMessage) {
@@ -3136,6 +3538,26 @@ public class PnfsManagerV3
         }
     }
 
+    /**
+     * Looks up the attributes of each path of the batch. The lookups share the transaction of the
+     * message; a failed lookup is recorded in the message rather than failing the batch.
+     */
+    public void getFileAttributes(PnfsGetFileAttributesBatch message) {
+        for (String path : message.getPaths()) {
+            PnfsGetFileAttributes lookup =
+                  new PnfsGetFileAttributes(path, message.getRequestedAttributes());
+            lookup.setSubject(message.getSubject());
+            lookup.setRestriction(message.getRestriction());
+            getFileAttributes(lookup);
+            if (lookup.getReturnCode() == 0) {
+                message.setFileAttributes(path, lookup.getFileAttributes());
+            } else {
+                message.setFailure(path, CacheExceptionFactory.exceptionOf(lookup));
+            }
+        }
+        message.setSucceeded();
+    }
+
     public void setFileAttributes(PnfsSetFileAttributes message) {
         try {
             checkRestriction(message, UPDATE_METADATA);
@@ -2,6 +2,9 @@ package diskCacheV111.poolManager;
 
 import com.google.common.collect.ImmutableMap;
 import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolCostInfo.NamedPoolQueueInfo;
+import diskCacheV111.pools.PoolCostInfo.PoolQueueInfo;
+import diskCacheV111.pools.PoolCostInfo.PoolSpaceInfo;
 import diskCacheV111.pools.PoolV2Mode;
 import diskCacheV111.vehicles.CostModulePoolInfoTable;
 import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
@@ -13,14 +16,20 @@ import dmg.cells.nucleus.CellSetupProvider;
 import dmg.util.command.Argument;
 import dmg.util.command.Command;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import org.dcache.poolmanager.PoolInfo;
@@ -40,10 +49,42 @@ public class CostModuleV1
 
     private static final long serialVersionUID = -267023006449629909L;
 
-    private final Map<String, Entry> _hash = new HashMap<>();
-    private boolean _cachedPercentileCostCutIsValid;
-    private double _cachedPercentileCostCut;
-    private double _cachedPercentileFraction;
+    /**
+     * Cost information of each known pool.
+     * <p>
+     * Readers access the map without locking. Writers synchronize on the cost module to keep
+     * the map, the sorted costs and the change log consistent with each other.
+     */
+    private final Map<String, Entry> _hash = new ConcurrentHashMap<>();
+
+    /**
+     * The performance costs of all pools in {@code _hash} in ascending order.
+     * <p>
+     * The array is never modified once published; writers replace it with an updated copy.
+     */
+    private transient volatile double[] _sortedCosts = new double[0];
+
+    /**
+     * Identifies this instance of the cost module; versions of different instances are not
+     * comparable.
+     */
+    private final long _epoch = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * Incremented whenever the cost information of a pool changes.
+     */
+    private long _version;
+
+    /**
+     * The version at which each pool last changed. Used to compute deltas for subscribers of
+     * the pool monitor and not part of the serialized form.
+     */
+    private transient Map<String, Long> _changes = new HashMap<>();
+
+    /**
+     * The oldest version from which a delta can be computed.
+     */
+    private transient long _changesSince;
 
     /**
      * Information about some specific pool.
@@ -54,6 +95,7 @@ public class CostModuleV1
 
         private final long timestamp;
         private final PoolCostInfo _info;
+        private final double _performanceCost;
         private double _fakeCpu = -1.0;
         private final ImmutableMap<String, String> _tagMap;
         private final CellAddressCore _address;
@@ -62,6 +104,7 @@ public class CostModuleV1
             timestamp = System.currentTimeMillis();
             _address = address;
             _info = info;
+            _performanceCost = info.getPerformanceCost();
             _tagMap =
                   (tagMap == null)
                         ? ImmutableMap.of()
@@ -76,6 +119,10 @@ public class CostModuleV1
             return _info;
         }
 
+        public double getPerformanceCost() {
+            return _performanceCost;
+        }
+
         public ImmutableMap<String, String> getTagMap() {
             return _tagMap;
         }
@@ -83,6 +130,107 @@ public class CostModuleV1
         public PoolInfo getPoolInfo() {
             return new PoolInfo(_address, _info, _tagMap);
         }
+
+        /**
+         * Returns whether the other entry describes the same pool state, ignoring the time at
+         * which the information was received.
+         */
+        public boolean isEquivalent(Entry other) {
+            return Objects.equals(_address, other._address)
+                  && _tagMap.equals(other._tagMap)
+                  && isEquivalent(_info, other._info);
+        }
+
+        private static boolean isEquivalent(PoolCostInfo a, PoolCostInfo b) {
+            if (a.getMoverCostFactor() != b.getMoverCostFactor()
+                  || !isEquivalent(a.getSpaceInfo(), b.getSpaceInfo())
+                  || !isEquivalent(a.getStoreQueue(), b.getStoreQueue())
+                  || !isEquivalent(a.getRestoreQueue(), b.getRestoreQueue())
+                  || !isEquivalent(a.getP2pQueue(), b.getP2pQueue())
+                  || !isEquivalent(a.getP2pClientQueue(), b.getP2pClientQueue())) {
+                return false;
+            }
+            Map<String, NamedPoolQueueInfo> queues = a.getExtendedMoverHash();
+            Map<String, NamedPoolQueueInfo> otherQueues = b.getExtendedMoverHash();
+            if (!queues.keySet().equals(otherQueues.keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, NamedPoolQueueInfo> queue : queues.entrySet()) {
+                if (!isEquivalent(queue.getValue(), otherQueues.get(queue.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isEquivalent(PoolQueueInfo a, PoolQueueInfo b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            return a.getActive() == b.getActive()
+                  && a.getMaxActive() == b.getMaxActive()
+                  && a.getQueued() == b.getQueued()
+                  && a.getReaders() == b.getReaders()
+                  && a.getWriters() == b.getWriters();
+        }
+
+        private static boolean isEquivalent(PoolSpaceInfo a, PoolSpaceInfo b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            return a.getTotalSpace() == b.getTotalSpace()
+                  && a.getFreeSpace() == b.getFreeSpace()
+                  && a.getPreciousSpace() == b.getPreciousSpace()
+                  && a.getRemovableSpace() == b.getRemovableSpace()
+                  && a.getLRUSeconds() == b.getLRUSeconds()
+                  && a.getGap() == b.getGap()
+                  && a.getBreakEven() == b.getBreakEven();
+        }
+    }
+
+    /**
+     * The changes to the cost information of pools between two versions of a cost module.
+     * <p>
+     * A delta holds the current state of every pool that changed after the base version. It can
+     * thus be applied to any copy of the cost module with a version between the base version and
+     * the version of the delta.
+     */
+    public static class Delta implements Serializable {
+
+        private static final long serialVersionUID = 2946361340211958385L;
+
+        private final long _epoch;
+        private final long _baseVersion;
+        private final long _version;
+        private final Map<String, Entry> _updated;
+        private final Set<String> _removed;
+
+        private Delta(long epoch, long baseVersion, long version, Map<String, Entry> updated,
+              Set<String> removed) {
+            _epoch = epoch;
+            _baseVersion = baseVersion;
+            _version = version;
+            _updated = updated;
+            _removed = removed;
+        }
+
+        public long getBaseVersion() {
+            return _baseVersion;
+        }
+
+        public long getVersion() {
+            return _version;
+        }
+
+        public boolean isEmpty() {
+            return _updated.isEmpty() && _removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "Delta{" + _baseVersion + ".." + _version + ";updated=" + _updated.size()
+                  + ";removed=" + _removed.size() + "}";
+        }
     }
 
     public synchronized void messageArrived(CellMessage envelope, PoolManagerPoolUpMessage msg) {
@@ -98,95 +246,188 @@ public class CostModuleV1
               poolMode.isDisabled(PoolV2Mode.DISABLED_STRICT) ||
               poolMode.isDisabled(PoolV2Mode.DISABLED_DEAD);
 
-        if (isNewPool || shouldRemovePool) {
-            _cachedPercentileCostCutIsValid = false;
-        } else {
-            PoolCostInfo currentInfo = poolEntry.getPoolCostInfo();
-            considerInvalidatingCache(currentInfo, newInfo);
-        }
-
         if (shouldRemovePool) {
-            _hash.remove(poolName);
+            if (_hash.remove(poolName) != null) {
+                updateSortedCosts(poolEntry, null);
+                recordChange(poolName);
+            }
         } else if (newInfo != null) {
-            _hash.put(poolName, new Entry(poolAddress, newInfo, msg.getTagMap()));
+            Entry newEntry = new Entry(poolAddress, newInfo, msg.getTagMap());
+            _hash.put(poolName, newEntry);
+            updateSortedCosts(poolEntry, newEntry);
+            if (isNewPool || !newEntry.isEquivalent(poolEntry)) {
+                recordChange(poolName);
+            }
+        }
+    }
+
+    /**
+     * Replaces the cost of the old entry with that of the new entry in the sorted costs.
+     * Either entry may be null. Must be called while synchronized on the cost module.
+     */
+    private void updateSortedCosts(@Nullable Entry oldEntry, @Nullable Entry newEntry) {
+        if (oldEntry == null) {
+            if (newEntry != null) {
+                _sortedCosts = withCost(_sortedCosts, newEntry.getPerformanceCost());
+            }
+        } else if (newEntry == null) {
+            _sortedCosts = withoutCost(_sortedCosts, oldEntry.getPerformanceCost());
+        } else if (Double.compare(oldEntry.getPerformanceCost(), newEntry.getPerformanceCost())
+              != 0) {
+            _sortedCosts = withReplacedCost(_sortedCosts, oldEntry.getPerformanceCost(),
+                  newEntry.getPerformanceCost());
         }
     }
 
-    private void considerInvalidatingCache(PoolCostInfo currentInfo, PoolCostInfo newInfo) {
-        if (!_cachedPercentileCostCutIsValid) {
-            return;
+    private static double[] withReplacedCost(double[] costs, double oldCost, double newCost) {
+        int from = Arrays.binarySearch(costs, oldCost);
+        if (from < 0) {
+            LOGGER.warn("Cost {} is missing from sorted pool costs.", oldCost);
+            return withCost(costs, newCost);
+        }
+        int to = Arrays.binarySearch(costs, newCost);
+        if (to < 0) {
+            to = -to - 1;
+        }
+        double[] result = costs.clone();
+        if (to > from) {
+            /* Entries between the old and the new position move down by one. */
+            to--;
+            System.arraycopy(costs, from + 1, result, from, to - from);
+        } else {
+            System.arraycopy(costs, to, result, to + 1, from - to);
         }
+        result[to] = newCost;
+        return result;
+    }
 
-        double currentCost = getPerformanceCost(currentInfo);
-        double newCost = getPerformanceCost(newInfo);
-        considerInvalidatingCache(currentCost, newCost);
+    private static double[] withCost(double[] costs, double cost) {
+        int index = Arrays.binarySearch(costs, cost);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        double[] result = new double[costs.length + 1];
+        System.arraycopy(costs, 0, result, 0, index);
+        result[index] = cost;
+        System.arraycopy(costs, index, result, index + 1, costs.length - index);
+        return result;
     }
 
-    private void considerInvalidatingCache(double currentCost, PoolCostInfo newInfo) {
-        if (!_cachedPercentileCostCutIsValid) {
-            return;
+    private static double[] withoutCost(double[] costs, double cost) {
+        int index = Arrays.binarySearch(costs, cost);
+        if (index < 0) {
+            LOGGER.warn("Cost {} is missing from sorted pool costs.", cost);
+            return costs;
         }
+        double[] result = new double[costs.length - 1];
+        System.arraycopy(costs, 0, result, 0, index);
+        System.arraycopy(costs, index + 1, result, index, costs.length - index - 1);
+        return result;
+    }
+
+    private void sortCosts() {
+        _sortedCosts = _hash.values().stream().mapToDouble(Entry::getPerformanceCost).sorted()
+              .toArray();
+    }
+
+    private void recordChange(String poolName) {
+        _version++;
+        _changes.put(poolName, _version);
+    }
+
+    /**
+     * Returns the current version of the cost information.
+     */
+    public synchronized long getVersion() {
+        return _version;
+    }
 
-        double newCost = getPerformanceCost(newInfo);
-        considerInvalidatingCache(currentCost, newCost);
+    /**
+     * Returns the changes since the given version of this cost module.
+     * <p>
+     * Pools that merely sent a heartbeat with unchanged cost information are not part of the
+     * delta.
+     *
+     * @param version a version previously returned by {@link #getVersion}
+     * @return the changes, or null if they are not known and a full copy has to be used instead
+     */
+    @Nullable
+    public synchronized Delta getChangesSince(long version) {
+        if (version < _changesSince || version > _version) {
+            return null;
+        }
+        Map<String, Entry> updated = new HashMap<>();
+        Set<String> removed = new HashSet<>();
+        for (Map.Entry<String, Long> change : _changes.entrySet()) {
+            if (change.getValue() > version) {
+                String poolName = change.getKey();
+                Entry entry = _hash.get(poolName);
+                if (entry == null) {
+                    removed.add(poolName);
+                } else {
+                    updated.put(poolName, entry);
+                }
+            }
+        }
+        return new Delta(_epoch, version, _version, updated, removed);
     }
 
-    /* Check whether we should invalidate the cached.  We must do this when
-     * a pool changes its relationship to the cost threshold:
-     *       o  a pool with cost less than the cached value assumes a cost greater
-     *                  than the cached value,
-     *       o  a pool with cost greater than the cached value assumes a cost less
-     *                  than the cached value.
-     *       o  a pool with cost equal to the cached value assumes a cost less
-     *                  than or greater than the cached value.
+    /**
+     * Applies a delta obtained from another copy of this cost module.
+     * <p>
+     * Deltas that do not add anything to the current version are ignored.
+     *
+     * @return false if the delta cannot be applied because it originates from a different cost
+     * module or because changes between the current version and the base version of the delta
+     * are missing; the cost module is left unchanged in that case.
      */
-    private void considerInvalidatingCache(double currentCost, double newCost) {
-        if (Math.signum(currentCost - _cachedPercentileCostCut) !=
-              Math.signum(newCost - _cachedPercentileCostCut)) {
-            _cachedPercentileCostCutIsValid = false;
+    public synchronized boolean apply(Delta delta) {
+        if (delta._epoch != _epoch || delta._baseVersion > _version) {
+            return false;
+        }
+        if (delta._version > _version) {
+            for (String poolName : delta._removed) {
+                Entry entry = _hash.remove(poolName);
+                if (entry != null) {
+                    updateSortedCosts(entry, null);
+                }
+                _changes.put(poolName, delta._version);
+            }
+            for (Map.Entry<String, Entry> update : delta._updated.entrySet()) {
+                Entry entry = update.getValue();
+                updateSortedCosts(_hash.put(update.getKey(), entry), entry);
+                _changes.put(update.getKey(), delta._version);
+            }
+            _version = delta._version;
         }
+        return true;
     }
 
     private double getPerformanceCost(PoolCostInfo info) {
         return info.getPerformanceCost();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The costs are kept sorted as pools report them, thus this is a constant time lookup that
+     * does not block concurrent updates.
+     */
     @Override
-    public synchronized double getPoolsPercentilePerformanceCost(double fraction) {
+    public double getPoolsPercentilePerformanceCost(double fraction) {
 
         if (fraction <= 0 || fraction >= 1) {
             throw new IllegalArgumentException(
                   "supplied fraction (" + Double.toString(fraction) + ") not between 0 and 1");
         }
 
-        if (!_cachedPercentileCostCutIsValid || _cachedPercentileFraction != fraction) {
-            _cachedPercentileCostCut = calculatePercentileCostCut(fraction);
-            _cachedPercentileFraction = fraction;
-            _cachedPercentileCostCutIsValid = true;
-        }
-
-        return _cachedPercentileCostCut;
-    }
-
-    private double calculatePercentileCostCut(double fraction) {
-        if (_hash.isEmpty()) {
+        double[] costs = _sortedCosts;
+        if (costs.length == 0) {
             LOGGER.debug("no pools available");
             return 0;
         }
 
-        LOGGER.debug("{} pools available", _hash.size());
-
-        double[] poolCosts = new double[_hash.size()];
-
-        int idx = 0;
-        for (Entry poolInfo : _hash.values()) {
-            poolCosts[idx] = getPerformanceCost(poolInfo.getPoolCostInfo());
-            idx++;
-        }
-
-        Arrays.sort(poolCosts);
-
-        return poolCosts[(int) Math.floor(fraction * _hash.size())];
+        return costs[(int) Math.floor(fraction * costs.length)];
     }
 
     @Command(name = "cm set debug")
@@ -270,7 +511,7 @@ public class CostModuleV1
 
     public static final String hh_xcm_ls = "";
 
-    public synchronized Object ac_xcm_ls_$_0(Args args) {
+    public Object ac_xcm_ls_$_0(Args args) {
         CostModulePoolInfoTable reply = new CostModulePoolInfoTable();
         for (Entry e : _hash.values()) {
             reply.addPoolCostInfo(e.getPoolCostInfo().getPoolName(), e.getPoolCostInfo());
@@ -280,7 +521,7 @@ public class CostModuleV1
 
     public static final String hh_cm_ls = " -t | -r <pattern> # list all pools";
 
-    public synchronized String ac_cm_ls_$_0_1(Args args) {
+    public String ac_cm_ls_$_0_1(Args args) {
         StringBuilder sb = new StringBuilder();
         boolean useTime = args.hasOption("t");
         boolean useReal = args.hasOption("r");
@@ -310,7 +551,7 @@ public class CostModuleV1
     }
 
     @Override
-    public synchronized Collection<PoolCostInfo> getPoolCostInfos() {
+    public Collection<PoolCostInfo> getPoolCostInfos() {
         Collection<PoolCostInfo> costInfos = new ArrayList<>();
         for (Entry entry : _hash.values()) {
             if (entry.isValid()) {
@@ -322,7 +563,7 @@ public class CostModuleV1
 
     @Override
     @Nullable
-    public synchronized PoolCostInfo getPoolCostInfo(String poolName) {
+    public PoolCostInfo getPoolCostInfo(String poolName) {
         Entry entry = _hash.get(poolName);
         if (entry != null && entry.isValid()) {
             return entry.getPoolCostInfo();
@@ -332,7 +573,7 @@ public class CostModuleV1
 
     @Override
     @Nullable
-    public synchronized PoolInfo getPoolInfo(String pool) {
+    public PoolInfo getPoolInfo(String pool) {
         Entry entry = _hash.get(pool);
         if (entry != null && entry.isValid()) {
             return entry.getPoolInfo();
@@ -341,7 +582,7 @@ public class CostModuleV1
     }
 
     @Override
-    public synchronized Map<String, PoolInfo> getPoolInfoAsMap(Iterable<String> pools) {
+    public Map<String, PoolInfo> getPoolInfoAsMap(Iterable<String> pools) {
         Map<String, PoolInfo> map = new HashMap<>();
         for (String pool : pools) {
             Entry entry = _hash.get(pool);
@@ -355,4 +596,11 @@ public class CostModuleV1
     private synchronized void writeObject(ObjectOutputStream stream) throws IOException {
         stream.defaultWriteObject();
     }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        _changes = new HashMap<>();
+        _changesSince = _version;
+        sortCosts();
+    }
 }
\ No newline at end of file
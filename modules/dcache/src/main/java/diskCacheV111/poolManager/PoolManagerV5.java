@@ -100,6 +100,8 @@ public class PoolManagerV5
     private long _poolMonitorUpdatePeriod;
     private TimeUnit _poolMonitorUpdatePeriodUnit;
     private double _poolMonitorMaxUpdatesPerSecond;
+    private long _poolMonitorFullUpdatePeriod;
+    private TimeUnit _poolMonitorFullUpdatePeriodUnit;
 
     private Args _args;
 
@@ -158,6 +160,16 @@ public class PoolManagerV5
         _poolMonitorMaxUpdatesPerSecond = maxUpdatesPerSecond;
     }
 
+    @Required
+    public void setPoolMonitorFullUpdatePeriod(long period) {
+        _poolMonitorFullUpdatePeriod = period;
+    }
+
+    @Required
+    public void setPoolMonitorFullUpdatePeriodUnit(TimeUnit unit) {
+        _poolMonitorFullUpdatePeriodUnit = unit;
+    }
+
     public void init() {
         String watchdogParam = _args.getOpt("watchdog");
         if (watchdogParam != null && !watchdogParam.isEmpty()) {
@@ -273,35 +285,92 @@ public class PoolManagerV5
         }
     }
 
+    /**
+     * Publishes the pool monitor to subscribers.
+     * <p>
+     * Structural changes and every full update period publish the complete pool monitor. In
+     * between, only the cost information of pools that changed since the previous update is
+     * published. Subscribers apply these deltas to their copy of the pool monitor and fetch a
+     * new copy if they detect a gap.
+     */
     private class PoolMonitorThread extends Thread {
 
         private boolean isChanged;
 
         private final RateLimiter limiter = RateLimiter.create(_poolMonitorMaxUpdatesPerSecond);
 
+        private long lastFullUpdate;
+
+        private long publishedVersion;
+
         @Override
         public void run() {
             try {
                 limiter.acquire();
+                boolean isFullUpdate = true;
                 while (!Thread.interrupted()) {
-                    if (LOGGER.isDebugEnabled()) { // For RT 9250.
-                        if (_poolMonitor.getPoolSelectionUnit().getLinkGroups().isEmpty()) {
-                            LOGGER.debug("notifying with PoolMonitor that has empty linkgroups");
-                        }
+                    if (isFullUpdate || !publishDelta()) {
+                        publishPoolMonitor();
                     }
-                    _poolMonitorTopic.notify(_poolMonitor);
-                    waitUntilNextUpdate();
+                    isFullUpdate = waitUntilNextUpdate();
                     limiter.acquire();
                 }
             } catch (InterruptedException ignored) {
             }
         }
 
-        protected synchronized void waitUntilNextUpdate() throws InterruptedException {
+        private void publishPoolMonitor() {
+            if (LOGGER.isDebugEnabled()) { // For RT 9250.
+                if (_poolMonitor.getPoolSelectionUnit().getLinkGroups().isEmpty()) {
+                    LOGGER.debug("notifying with PoolMonitor that has empty linkgroups");
+                }
+            }
+            /* The version is read before the pool monitor is serialized, thus subscribers
+             * may receive a later version. This is harmless as deltas can be applied to any
+             * version between their base version and their own version.
+             */
+            long version = (_costModule instanceof CostModuleV1)
+                  ? ((CostModuleV1) _costModule).getVersion() : 0;
+            _poolMonitorTopic.notify(_poolMonitor);
+            publishedVersion = version;
+            lastFullUpdate = System.currentTimeMillis();
+        }
+
+        /**
+         * Publishes the changes to pool costs since the last update.
+         *
+         * @return false if a full update has to be published instead
+         */
+        private boolean publishDelta() {
+            if (!(_costModule instanceof CostModuleV1) || System.currentTimeMillis()
+                  >= lastFullUpdate + _poolMonitorFullUpdatePeriodUnit.toMillis(
+                  _poolMonitorFullUpdatePeriod)) {
+                return false;
+            }
+            CostModuleV1.Delta delta = ((CostModuleV1) _costModule).getChangesSince(
+                  publishedVersion);
+            if (delta == null) {
+                return false;
+            }
+            if (!delta.isEmpty()) {
+                _poolMonitorTopic.notify(delta);
+            }
+            publishedVersion = delta.getVersion();
+            return true;
+        }
+
+        /**
+         * Waits until the next update is due.
+         *
+         * @return whether a structural change requires a full update
+         */
+        protected synchronized boolean waitUntilNextUpdate() throws InterruptedException {
             if (!isChanged) {
                 _poolMonitorUpdatePeriodUnit.timedWait(this, _poolMonitorUpdatePeriod);
             }
+            boolean wasChanged = isChanged;
             isChanged = false;
+            return wasChanged;
         }
 
         public synchronized void onChange() {
@@ -10,6 +10,7 @@ import static org.dcache.namespace.FileAttribute.CACHECLASS;
 import static org.dcache.namespace.FileAttribute.HSM;
 import static org.dcache.namespace.FileAttribute.STORAGECLASS;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
@@ -17,6 +18,7 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -54,10 +56,12 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.dcache.namespace.FileAttribute;
@@ -96,11 +100,24 @@ public class PoolSelectionUnitV2
     private final Map<String, LinkGroup> _linkGroups = new HashMap<>();
     private final Map<String, UGroup> _uGroups = new HashMap<>();
     private final Map<String, Unit> _units = new HashMap<>();
-    private final Cache<String, PoolPreferenceLevel[]> cachedMatchValue =
+
+    /**
+     * Cache of the links matching a selection, ordered by preference. Only the setup determines
+     * which links match, thus the cache is invalidated on every setup change.
+     */
+    private final Cache<SelectionKey, List<List<Link>>> _selectionCache =
           CacheBuilder.newBuilder()
                 .maximumSize(100000)
+                .recordStats()
                 .build();
     private boolean _useRegex;
+
+    /**
+     * Index of store units used when regex matching is enabled. Discarded whenever the setup is
+     * modified and rebuilt on first use.
+     */
+    private transient volatile StoreUnitIndex _storeUnitIndex;
+
     private boolean _allPoolsActive;
     public  boolean _cachingEnabeled;
 
@@ -655,43 +672,12 @@ public class PoolSelectionUnitV2
         String storeUnitName = storageClass + "@" + hsm;
 
         Map<String, String> variableMap = storageInfo.getMap();
-        String netUnitGroup = null;
 
         LOGGER.debug(
               "running match: type={} store={} dCacheUnit={} net={} protocol={} keys={} locations={} linkGroup={}",
               type, storeUnitName, dCacheUnitName, netUnitName, protocolUnitName,
               variableMap, storageInfo.locations(), linkGroupName);
 
-
-
-        String cacheKey = null;
-        if (_cachingEnabeled) {
-
-            try {
-                Unit unit = _netHandler.match(netUnitName);
-                netUnitGroup = unit._uGroupList.values()
-                      .stream()
-                      .map(UGroup::getName).findFirst().get();
-
-            LOGGER.debug("this IP address  belongs to {} in uGroup {} ", netUnitName, netUnitGroup);
-
-
-            } catch (UnknownHostException e) {
-                LOGGER.error("Caching did not work, please check the configuration " + e);
-            }
-
-            cacheKey = type.toString() + storeUnitName + dCacheUnitName +
-                  netUnitGroup + protocolUnitName + linkGroupName;
-
-            PoolPreferenceLevel[] cachedMatchValueTmp = cachedMatchValue.getIfPresent(cacheKey);
-            if (cachedMatchValueTmp != null) {
-                //counter = counter + 1;
-                //System.out.println("counter " + counter);
-                return cachedMatchValueTmp;
-
-            }
-        }
-
         PoolPreferenceLevel[] result = null;
         rlock();
         try {
@@ -703,9 +689,25 @@ public class PoolSelectionUnitV2
             addNetUnit(units, netUnitName);
 
             LinkGroup linkGroup = resolveLinkGroup(linkGroupName);
-            Set<Link> sortedSet = findMatchingLinks(units, linkGroup, type);
 
-            List<List<Link>> linkLists = matchPreferences(type, sortedSet);
+            List<List<Link>> linkLists;
+            if (_cachingEnabeled) {
+                /* The cache is only accessed with the read lock held, thus entries cannot
+                 * survive a setup change: wlock() invalidates the cache once all readers left.
+                 */
+                SelectionKey key = new SelectionKey(type, units, linkGroup);
+                linkLists = _selectionCache.getIfPresent(key);
+                if (linkLists == null) {
+                    linkLists = matchLinks(type, units, linkGroup);
+                    _selectionCache.put(key, linkLists);
+                }
+            } else {
+                linkLists = matchLinks(type, units, linkGroup);
+            }
+
+            /* Pool state and the exclusion predicate change independently of the setup
+             * and are therefore always applied to the matched links.
+             */
             result = buildPreferenceLevels(type, linkLists, fileAttributes, exclude);
         } finally {
             runlock();
@@ -714,44 +716,61 @@ public class PoolSelectionUnitV2
         if (LOGGER.isDebugEnabled()) {
             logResult(result);
         }
-        if (_cachingEnabeled){
-            cachedMatchValue.put(cacheKey, result);
-        }
         return result;
     }
 
-    private void resolveStorageUnit(List<Unit> list, String storeUnitName) {
-        if (_useRegex) {
-            Unit universalCoverage = null;
-            Unit classCoverage = null;
+    private List<List<Link>> matchLinks(DirectionType type, List<Unit> units,
+          LinkGroup linkGroup) {
+        Set<Link> sortedSet = findMatchingLinks(units, linkGroup, type);
+        return matchPreferences(type, sortedSet).stream()
+              .map(ImmutableList::copyOf)
+              .collect(ImmutableList.toImmutableList());
+    }
 
-            for (Unit unit : _units.values()) {
-                if (unit.getType() != STORE) {
-                    continue;
-                }
+    /**
+     * Returns statistics of the pool selection cache.
+     */
+    public CacheStats getSelectionCacheStats() {
+        return _selectionCache.stats();
+    }
 
-                if (unit.getName().equals("*@*")) {
-                    universalCoverage = unit;
-                } else if (unit.getName().equals("*@" + storeUnitName)) {
-                    classCoverage = unit;
-                } else {
-                    if (Pattern.matches(unit.getName(), storeUnitName)) {
-                        list.add(unit);
-                        break;
-                    }
-                }
+    /**
+     * Returns the store unit index. Must be called with at least the read lock held.
+     */
+    private StoreUnitIndex getStoreUnitIndex() {
+        StoreUnitIndex index = _storeUnitIndex;
+        if (index == null) {
+            /* Concurrent readers may build the index at the same time; they all build the
+             * same index as the setup cannot change while the read lock is held.
+             */
+            index = new StoreUnitIndex(_units.values());
+            _storeUnitIndex = index;
+        }
+        return index;
+    }
+
+    private Unit getStoreUnit(String name) {
+        Unit unit = _units.get(name);
+        return (unit != null && unit.getType() == STORE) ? unit : null;
+    }
+
+    private void resolveStorageUnit(List<Unit> list, String storeUnitName) {
+        if (_useRegex) {
+            Unit unit = getStoreUnitIndex().match(storeUnitName);
+            if (unit != null) {
+                list.add(unit);
+                return;
             }
 
-            if (list.isEmpty()) {
-                if (classCoverage != null) {
-                    list.add(classCoverage);
-                } else if (universalCoverage != null) {
-                    list.add(universalCoverage);
-                } else {
+            unit = getStoreUnit("*@" + storeUnitName);
+            if (unit == null) {
+                unit = getStoreUnit("*@*");
+                if (unit == null) {
                     throw new IllegalArgumentException(
                           "Unit not found : " + storeUnitName);
                 }
             }
+            list.add(unit);
         } else {
             Unit unit = _units.get(storeUnitName);
             if (unit == null) {
@@ -2662,9 +2681,8 @@ public class PoolSelectionUnitV2
     protected void wlock() {
 
         _psuWriteLock.lock();
-        if (_cachingEnabeled) {
-            cachedMatchValue.invalidateAll();
-        }
+        _storeUnitIndex = null;
+        _selectionCache.invalidateAll();
     }
 
     protected void wunlock() {
@@ -3271,4 +3289,127 @@ public class PoolSelectionUnitV2
             runlock();
         }
     }
+
+    /**
+     * Resolves store unit names against store units whose names are regular expressions.
+     * <p>
+     * Units whose names contain no regex meta characters only match themselves and are found with
+     * a hash lookup; such an exact match takes precedence. All other units are tried in order
+     * with their precompiled pattern, skipping those whose literal prefix does not match. Units
+     * named {@code *@...} are handled by the caller and units with invalid patterns never match.
+     * <p>
+     * As the index is immutable, the outcome of pattern matching is remembered for up to
+     * {@link #MAX_RESOLVED} store unit names.
+     */
+    private static class StoreUnitIndex {
+
+        private static final int MAX_RESOLVED = 10_000;
+
+        private static final CharMatcher REGEX_META_CHARACTERS =
+              CharMatcher.anyOf("\\^$.|?*+()[]{}");
+        private static final CharMatcher REGEX_QUANTIFIERS = CharMatcher.anyOf("?*+{");
+
+        private final Map<String, Unit> literals = new HashMap<>();
+        private final List<StoreUnitPattern> patterns = new ArrayList<>();
+        private final Map<String, Optional<Unit>> resolved = new ConcurrentHashMap<>();
+
+        StoreUnitIndex(Collection<Unit> units) {
+            for (Unit unit : units) {
+                String name = unit.getName();
+                if (unit.getType() != STORE || name.startsWith("*@")) {
+                    continue;
+                }
+                int prefix = REGEX_META_CHARACTERS.indexIn(name);
+                if (prefix < 0) {
+                    literals.put(name, unit);
+                } else {
+                    if (name.indexOf('|') >= 0) {
+                        prefix = 0;
+                    } else if (prefix > 0 && REGEX_QUANTIFIERS.matches(name.charAt(prefix))) {
+                        prefix--;
+                    }
+                    try {
+                        patterns.add(new StoreUnitPattern(Pattern.compile(name),
+                              name.substring(0, prefix), unit));
+                    } catch (PatternSyntaxException e) {
+                        LOGGER.debug("Ignoring store unit {} for regex matching: {}",
+                              name, e.getMessage());
+                    }
+                }
+            }
+        }
+
+        Unit match(String storeUnitName) {
+            Unit unit = literals.get(storeUnitName);
+            if (unit != null) {
+                return unit;
+            }
+            Optional<Unit> match = resolved.get(storeUnitName);
+            if (match == null) {
+                match = patterns.stream()
+                      .filter(p -> p.matches(storeUnitName))
+                      .map(p -> p.unit)
+                      .findFirst();
+                if (resolved.size() < MAX_RESOLVED) {
+                    resolved.put(storeUnitName, match);
+                }
+            }
+            return match.orElse(null);
+        }
+    }
+
+    private static class StoreUnitPattern {
+
+        private final Pattern pattern;
+        private final String prefix;
+        private final Unit unit;
+
+        StoreUnitPattern(Pattern pattern, String prefix, Unit unit) {
+            this.pattern = pattern;
+            this.prefix = prefix;
+            this.unit = unit;
+        }
+
+        boolean matches(String storeUnitName) {
+            return storeUnitName.startsWith(prefix) && pattern.matcher(storeUnitName).matches();
+        }
+    }
+
+    /**
+     * Key of the selection cache: the I/O direction, the units matched by the request and the
+     * link group. Units and link groups are compared by identity, which is sufficient as the
+     * cache does not survive setup changes.
+     */
+    private static class SelectionKey {
+
+        private final DirectionType type;
+        private final List<Unit> units;
+        private final LinkGroup linkGroup;
+        private final int hashCode;
+
+        SelectionKey(DirectionType type, List<Unit> units, LinkGroup linkGroup) {
+            this.type = type;
+            this.units = ImmutableList.copyOf(units);
+            this.linkGroup = linkGroup;
+            this.hashCode = Objects.hash(type, this.units, linkGroup);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SelectionKey)) {
+                return false;
+            }
+            SelectionKey other = (SelectionKey) o;
+            return type == other.type && units.equals(other.units)
+                  && linkGroup == other.linkGroup;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -25,7 +25,20 @@ public class HsmRunSystem extends RunSystem {
 
     public String execute() throws IOException, CacheException {
         go();
-        int returnCode = getExitValue();
+        checkReturnCode(storageName, getExitValue(), getErrorString());
+        return getOutputString();
+    }
+
+    /**
+     * Translates the return code of an HSM script into an exception.
+     *
+     * @param storageName the name of the HSM instance
+     * @param returnCode  the code returned by the script
+     * @param error       the error output of the script
+     * @throws CacheException if the return code signals a failure
+     */
+    public static void checkReturnCode(String storageName, int returnCode, String error)
+          throws CacheException {
         try {
             switch (returnCode) {
                 case 0:
@@ -33,20 +46,20 @@ public class HsmRunSystem extends RunSystem {
                 case 71:
                     throw new CacheException(CacheException.HSM_DELAY_ERROR,
                           "HSM script failed (script reported 71: "
-                                + getErrorString() + ")");
+                                + error + ")");
                 case 72:
                     throw new InProgressCacheException(72,
                           "HSM script requested retry (script reported 72: "
-                                + getErrorString() + ")");
+                                + error + ")");
                 case 143:
                     throw new TimeoutCacheException(
                           "HSM script was killed (script reported 143: "
-                                + getErrorString() + ")");
+                                + error + ")");
                 default:
                     throw new CacheException(returnCode,
                           "HSM script failed (script reported: "
                                 + returnCode + ": "
-                                + getErrorString() + ")");
+                                + error + ")");
             }
         } catch (InProgressCacheException e) {
             throw e;
@@ -54,14 +67,13 @@ public class HsmRunSystem extends RunSystem {
             LOGGER.error(AlarmMarkerFactory.getMarker(PredefinedAlarm.HSM_SCRIPT_FAILURE,
                         NetworkUtils.getCanonicalHostName(),
                         storageName,
-                        extractPossibleEnstoreIds(getErrorString())),
+                        extractPossibleEnstoreIds(error)),
                   e.getMessage());
             throw e;
         }
-        return getOutputString();
     }
 
-    private String extractPossibleEnstoreIds(String error) {
+    private static String extractPossibleEnstoreIds(String error) {
         StringBuilder ids = new StringBuilder();
 
         /*
@@ -193,6 +193,26 @@ public class PnfsHandler implements CellMessageSender {
         send(msg);
     }
 
+    /**
+     * Sends a PnfsMessage notification to a specific PnfsManager instance, e.g. the instance that
+     * replied to an earlier request. No reply is expected for a notification and no failure is
+     * reported if the message could not be delivered.
+     */
+    public void notify(CellPath destination, PnfsMessage msg) {
+        checkState(_cellStub != null, "Missing endpoint");
+
+        if (_subject != null) {
+            msg.setSubject(_subject);
+        }
+
+        if (_restriction != null) {
+            msg.setRestriction(_restriction);
+        }
+
+        msg.setReplyRequired(false);
+        _cellStub.notify(destination, msg);
+    }
+
     public void clearCacheLocation(PnfsId id) {
         clearCacheLocation(id, false);
     }
@@ -484,17 +484,23 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
             ByteBuf endMarker = createMultipartEnd();
             totalLen += endMarker.readableBytes();
 
+            /* Without zero-copy, nearby ranges share a single read from the file. */
+            SharedFileWindow[] windows = _useZeroCopy
+                  ? new SharedFileWindow[ranges.size()]
+                  : SharedFileWindow.forRanges(file, ranges, _chunkSize);
+
             context.write(new HttpMultipartResponse(digest, totalLen))
                   .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             for (int i = 0; i < ranges.size(); i++) {
                 HttpByteRange range = ranges.get(i);
                 context.write(fragmentMarkers[i])
                       .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-                context.write(read(context, file, range.getLower(), range.getUpper()))
+                context.write(read(context, file, range.getLower(), range.getUpper(), windows[i]))
                       .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             }
 
             var writeAndFlush =  context.writeAndFlush(new DefaultLastHttpContent(endMarker));
+            writeAndFlush.addListener(f -> SharedFileWindow.releaseAll(windows));
             if (stopMover) {
                 writeAndFlush.addListener(f -> file.release());
             }
@@ -804,13 +810,22 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
      */
     private Object read(ChannelHandlerContext context, NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file,
           long lowerRange, long upperRange) {
+        return read(context, file, lowerRange, upperRange, null);
+    }
+
+    /**
+     * Like {@link #read(ChannelHandlerContext, NettyTransferService.NettyMoverChannel, long,
+     * long)}, but serves the range from the given window if it is not null.
+     */
+    private Object read(ChannelHandlerContext context, NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file,
+          long lowerRange, long upperRange, SharedFileWindow window) {
         /* need to count position 0 as well */
         long length = (upperRange - lowerRange) + 1;
 
         if (_useZeroCopy) {
             return asFileRegion(file, lowerRange, length);
         }
-        return new ReusableChunkedNioFile(file, lowerRange, length, _chunkSize);
+        return new ReusableChunkedNioFile(file, lowerRange, length, _chunkSize, window);
     }
 
     private FileRegion asFileRegion(NettyTransferService<? extends ProtocolInfo>.NettyMoverChannel file,
@@ -32,6 +32,7 @@ public class ReusableChunkedNioFile implements ChunkedInput<ByteBuf> {
     private final long _startOffset;
     private final long _endOffset;
     private final int _chunkSize;
+    private final SharedFileWindow _window;
 
     private volatile long _offset;
 
@@ -39,6 +40,18 @@ public class ReusableChunkedNioFile implements ChunkedInput<ByteBuf> {
           long offset,
           long length,
           int chunkSize) {
+        this(channel, offset, length, chunkSize, null);
+    }
+
+    /**
+     * Creates a ChunkedInput for a range of the file. If a window is given, the chunks are
+     * slices of the window rather than being read from the channel individually.
+     */
+    ReusableChunkedNioFile(RepositoryChannel channel,
+          long offset,
+          long length,
+          int chunkSize,
+          SharedFileWindow window) {
         if (channel == null) {
             throw new NullPointerException("Channel must not be null");
         }
@@ -58,8 +71,13 @@ public class ReusableChunkedNioFile implements ChunkedInput<ByteBuf> {
                   " (expected: 1 or greater)");
         }
 
+        if (window != null && !window.contains(offset, length)) {
+            throw new IllegalArgumentException("window does not contain range");
+        }
+
         _channel = channel;
         _chunkSize = chunkSize;
+        _window = window;
         _startOffset = _offset = offset;
         _endOffset = _offset + length;
     }
@@ -95,7 +113,14 @@ public class ReusableChunkedNioFile implements ChunkedInput<ByteBuf> {
         }
 
         int length = (int) Math.min(_chunkSize, _endOffset - offset);
-        ByteBuf chunk = allocator.buffer(length);
+        if (_window != null) {
+            ByteBuf chunk = _window.slice(allocator, offset, length);
+            _offset = offset + chunk.readableBytes();
+            return chunk;
+        }
+
+        /* read into a direct buffer to avoid a copy through a temporary buffer in the JDK */
+        ByteBuf chunk = allocator.ioBuffer(length);
         boolean release = true;
         try {
             ByteBuffer buffer = chunk.nioBuffer(0, length);
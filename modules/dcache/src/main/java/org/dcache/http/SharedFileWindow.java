@@ -0,0 +1,170 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import diskCacheV111.util.HttpByteRange;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.dcache.pool.repository.RepositoryChannel;
+
+/**
+ * A contiguous region of a file that is read once into a direct buffer and shared by several
+ * byte ranges of the same response.
+ * <p>
+ * Clients such as analysis frameworks request many small, nearby ranges in a single
+ * multipart request. When the response cannot be sent with zero-copy file regions (e.g. because
+ * it is encrypted) reading each range into its own buffer costs one system call and one
+ * allocation per range. Instead, ranges close to each other are served as slices of a single
+ * buffer. The buffer is read lazily when the first slice is requested and released once the
+ * response has been written.
+ */
+class SharedFileWindow {
+
+    /**
+     * Upper limit on the size of a window.
+     */
+    static final int MAX_WINDOW_SIZE = 1024 * 1024;
+
+    private final RepositoryChannel _channel;
+    private final long _offset;
+    private final int _length;
+
+    private ByteBuf _buffer;
+    private boolean _isReleased;
+
+    SharedFileWindow(RepositoryChannel channel, long offset, int length) {
+        checkArgument(offset >= 0, "offset must not be negative");
+        checkArgument(length > 0 && length <= MAX_WINDOW_SIZE, "invalid length: %s", length);
+        _channel = requireNonNull(channel);
+        _offset = offset;
+        _length = length;
+    }
+
+    /**
+     * Groups the ranges of a multipart request into windows. Ranges are grouped if the gap
+     * between them does not exceed {@code maxGap} bytes and the resulting window does not exceed
+     * {@link #MAX_WINDOW_SIZE}. Ranges that do not share a window with any other range are not
+     * assigned a window.
+     *
+     * @return an array with the window of each range, or null for ranges without a window
+     */
+    static SharedFileWindow[] forRanges(RepositoryChannel channel, List<HttpByteRange> ranges,
+          long maxGap) {
+        SharedFileWindow[] windows = new SharedFileWindow[ranges.size()];
+        int[] order = IntStream.range(0, ranges.size()).boxed()
+              .sorted(Comparator.comparingLong(i -> ranges.get(i).getLower()))
+              .mapToInt(Integer::intValue)
+              .toArray();
+
+        int first = 0;
+        while (first < order.length) {
+            long lower = ranges.get(order[first]).getLower();
+            long upper = ranges.get(order[first]).getUpper();
+            int last = first;
+            while (last + 1 < order.length) {
+                HttpByteRange next = ranges.get(order[last + 1]);
+                long newUpper = Math.max(upper, next.getUpper());
+                if (next.getLower() - upper - 1 > maxGap
+                      || newUpper - lower + 1 > MAX_WINDOW_SIZE) {
+                    break;
+                }
+                upper = newUpper;
+                last++;
+            }
+            if (last > first) {
+                SharedFileWindow window =
+                      new SharedFileWindow(channel, lower, (int) (upper - lower + 1));
+                for (int i = first; i <= last; i++) {
+                    windows[order[i]] = window;
+                }
+            }
+            first = last + 1;
+        }
+        return windows;
+    }
+
+    /**
+     * Releases all distinct windows in the given array.
+     */
+    static void releaseAll(SharedFileWindow[] windows) {
+        for (SharedFileWindow window : windows) {
+            if (window != null) {
+                window.release();
+            }
+        }
+    }
+
+    boolean contains(long offset, long length) {
+        return offset >= _offset && offset + length <= _offset + _length;
+    }
+
+    /**
+     * Returns a retained slice of the window. The slice may be shorter than requested if the
+     * file ends within the window.
+     */
+    synchronized ByteBuf slice(ByteBufAllocator allocator, long offset, int length)
+          throws IOException {
+        if (_isReleased) {
+            throw new IOException("Response has already completed");
+        }
+        if (_buffer == null) {
+            _buffer = read(allocator);
+        }
+        int index = (int) (offset - _offset);
+        int available = Math.max(0, Math.min(length, _buffer.writerIndex() - index));
+        return _buffer.retainedSlice(index, available);
+    }
+
+    synchronized void release() {
+        if (!_isReleased) {
+            _isReleased = true;
+            if (_buffer != null) {
+                _buffer.release();
+                _buffer = null;
+            }
+        }
+    }
+
+    private ByteBuf read(ByteBufAllocator allocator) throws IOException {
+        ByteBuf buffer = allocator.ioBuffer(_length);
+        try {
+            ByteBuffer nioBuffer = buffer.nioBuffer(0, _length);
+            long position = _offset;
+            while (nioBuffer.hasRemaining()) {
+                int bytes = _channel.read(nioBuffer, position);
+                if (bytes < 0) {
+                    break;
+                }
+                position += bytes;
+            }
+            buffer.writerIndex(nioBuffer.position());
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+    }
+}
@@ -20,6 +20,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.stream.Collectors;
 import javax.annotation.concurrent.GuardedBy;
 import org.dcache.pool.repository.ForwardingRepositoryChannel;
@@ -49,6 +53,12 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
      */
     private final List<MessageDigest> _digests;
 
+    /**
+     * Executor on which digests are updated in parallel, or null if all digests are updated by
+     * the writing thread.
+     */
+    private final Executor _digestExecutor;
+
     /**
      * Cached checksum after getChecksums is called the first time.
      */
@@ -92,7 +102,22 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
     ByteBuffer _zerosBuffer = ZERO_BUFFER.duplicate();
 
     public ChecksumChannel(RepositoryChannel inner, Set<ChecksumType> types) {
+        this(inner, types, null);
+    }
+
+    /**
+     * Creates a ChecksumChannel that, if more than one checksum type is calculated, updates each
+     * digest on its own thread of {@code digestExecutor}. All digests read the same read-only view
+     * of the written data and each write waits for all digests to consume it, thus the cost of a
+     * write is bound by the slowest digest rather than the sum of all digests.
+     *
+     * @param digestExecutor executor for updating digests, or null to update all digests in the
+     *                       writing thread
+     */
+    public ChecksumChannel(RepositoryChannel inner, Set<ChecksumType> types,
+          Executor digestExecutor) {
         _channel = inner;
+        _digestExecutor = digestExecutor;
         _digests = types.stream()
               .map(t -> t.createMessageDigest())
               .collect(Collectors.toList());
@@ -333,7 +358,7 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
             // update offset prior digest calculation as digests#update will update position in the buffer
             _nextChecksumOffset += buffer.remaining();
 
-            _digests.forEach(d -> d.update(buffer.duplicate()));
+            updateDigests(_digests, buffer);
 
             long expectedOffsetAfterRead = _nextChecksumOffset + bytesToRead;
             try {
@@ -361,7 +386,7 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
 
                 _readBackBuffer.flip();
 
-                digests.forEach(d -> d.update(_readBackBuffer.asReadOnlyBuffer()));
+                updateDigests(digests, _readBackBuffer.asReadOnlyBuffer());
 
                 bytesToRead -= bytesRead;
                 offset += bytesRead;
@@ -371,4 +396,45 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
             throw e;
         }
     }
+
+    /**
+     * Feeds the remaining content of {@code buffer} to all digests without changing the position of
+     * the buffer. Returns once all digests have been updated.
+     */
+    @GuardedBy("_digests")
+    private void updateDigests(Collection<MessageDigest> digests, ByteBuffer buffer)
+          throws InterruptedIOException {
+        if (_digestExecutor == null || digests.size() < 2) {
+            digests.forEach(d -> d.update(buffer.duplicate()));
+            return;
+        }
+
+        List<Future<?>> updates = new ArrayList<>(digests.size());
+        MessageDigest local = null;
+        for (MessageDigest digest : digests) {
+            if (local == null) {
+                local = digest;
+            } else {
+                FutureTask<?> update =
+                      new FutureTask<>(() -> digest.update(buffer.duplicate()), null);
+                _digestExecutor.execute(update);
+                updates.add(update);
+            }
+        }
+        local.update(buffer.duplicate());
+
+        try {
+            for (Future<?> update : updates) {
+                update.get();
+            }
+        } catch (InterruptedException e) {
+            updates.forEach(f -> f.cancel(false));
+            _isChecksumViable = false;
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            _isChecksumViable = false;
+            throw new RuntimeException("Digest calculation failed: "
+                  + e.getCause(), e.getCause());
+        }
+    }
 }
@@ -0,0 +1,340 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.script;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.base.Throwables;
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.HsmRunSystem;
+import diskCacheV111.util.TimeoutCacheException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-lived instance of an HSM integration script that processes many requests.
+ * <p>
+ * The script is started with {@code coprocess} as its only argument and reads requests from
+ * standard input, one per line. A request consists of a numeric request id followed by the
+ * arguments the script would have received had it been launched for this request alone, e.g.
+ * {@code 42 get <pnfsid> <file> -si=<storage-info> -uri=<uri>}. Fields are separated by a tab;
+ * backslash, tab, newline and carriage return within a field are escaped as {@code \\},
+ * {@code \t}, {@code \n} and {@code \r}.
+ * <p>
+ * For every request the script eventually writes a reply line to standard output with the
+ * request id, the return code the script would have exited with and optionally the lines the
+ * script would have written to standard output (e.g. the URI of a flushed file) or, on
+ * failure, an error message, using the same format. Replies may be written in any order, thus
+ * the script may process requests concurrently. Anything written to standard error is logged.
+ * <p>
+ * If a request times out or the requesting thread is interrupted, the line
+ * {@code <id> cancel} is sent to the script. The script should then abort the request if it
+ * is still in progress; any later reply for the request is ignored.
+ * <p>
+ * If the script exits, outstanding requests fail and the next request starts a new instance.
+ */
+class HsmCoProcess {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HsmCoProcess.class);
+
+    /**
+     * How long a script that is shut down may take to finish outstanding requests.
+     */
+    private static final long SHUTDOWN_GRACE_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Queued in place of a request to make the writer close the input of the script.
+     */
+    private static final String END_OF_INPUT = "";
+
+    private final String storageName;
+    private final String command;
+    private final AtomicLong ids = new AtomicLong();
+
+    private Instance instance;
+    private boolean isShutdown;
+
+    HsmCoProcess(String storageName, String command) {
+        this.storageName = storageName;
+        this.command = command;
+    }
+
+    /**
+     * Submits a request to the script and waits for its reply.
+     *
+     * @param timeout how long to wait for the reply in milliseconds
+     * @param args    the arguments of the request
+     * @return the output of the script
+     * @throws CacheException       if the script reports a failure or does not reply in time
+     * @throws IOException          if the request cannot be submitted or the script exits
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    String execute(long timeout, String... args)
+          throws IOException, CacheException, InterruptedException {
+        long id = ids.incrementAndGet();
+        Instance instance = getInstance();
+        CompletableFuture<Reply> future = instance.submit(id, args);
+        try {
+            Reply reply = future.get(timeout, MILLISECONDS);
+            HsmRunSystem.checkReturnCode(storageName, reply.returnCode, reply.output);
+            return reply.output;
+        } catch (TimeoutException e) {
+            instance.cancel(id);
+            throw new TimeoutCacheException(
+                  "HSM script did not reply within " + timeout + " ms");
+        } catch (InterruptedException e) {
+            instance.cancel(id);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            instance.pending.remove(id);
+        }
+    }
+
+    /**
+     * Asks the script to exit once it has replied to all outstanding requests. The script is
+     * killed if it does not exit within a grace period.
+     */
+    synchronized void shutdown() {
+        isShutdown = true;
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private synchronized Instance getInstance() throws IOException {
+        if (isShutdown) {
+            throw new IOException("HSM script has been shut down");
+        }
+        if (instance == null || instance.hasExited) {
+            instance = new Instance(new ProcessBuilder(command, "coprocess").start());
+        }
+        return instance;
+    }
+
+    static String escape(String field) {
+        StringBuilder escaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    static String unescape(String field) {
+        StringBuilder unescaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                i++;
+                switch (field.charAt(i)) {
+                    case 't':
+                        unescaped.append('\t');
+                        break;
+                    case 'n':
+                        unescaped.append('\n');
+                        break;
+                    case 'r':
+                        unescaped.append('\r');
+                        break;
+                    default:
+                        unescaped.append(field.charAt(i));
+                }
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * The reply of the script to a single request.
+     */
+    private static class Reply {
+
+        private final int returnCode;
+        private final String output;
+
+        Reply(int returnCode, String output) {
+            this.returnCode = returnCode;
+            this.output = output;
+        }
+    }
+
+    /**
+     * A running instance of the script with the requests it has not replied to yet.
+     */
+    private class Instance {
+
+        private final Process process;
+        private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+        private final Map<Long, CompletableFuture<Reply>> pending = new ConcurrentHashMap<>();
+        private volatile boolean hasExited;
+
+        Instance(Process process) {
+            this.process = process;
+            LOGGER.info("Started HSM script {} as co-process {}.", command, process.pid());
+            startThread("writer", this::writeRequests);
+            startThread("reader", this::readReplies);
+            startThread("stderr", () -> logErrors(process.getErrorStream()));
+        }
+
+        private void startThread(String name, Runnable target) {
+            Thread thread = new Thread(target, "hsm-" + storageName + "-" + name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        CompletableFuture<Reply> submit(long id, String[] args) throws IOException {
+            CompletableFuture<Reply> future = new CompletableFuture<>();
+            pending.put(id, future);
+            if (hasExited) {
+                pending.remove(id);
+                throw new IOException("HSM script exited");
+            }
+            StringBuilder line = new StringBuilder().append(id);
+            for (String arg : args) {
+                line.append('\t').append(escape(arg));
+            }
+            line.append('\n');
+            requests.add(line.toString());
+            return future;
+        }
+
+        /**
+         * Asks the script to abort a request it has not replied to yet.
+         */
+        void cancel(long id) {
+            if (pending.remove(id) != null && !hasExited) {
+                requests.add(id + "\tcancel\n");
+            }
+        }
+
+        void close() {
+            requests.add(END_OF_INPUT);
+            process.onExit()
+                  .completeOnTimeout(process, SHUTDOWN_GRACE_PERIOD, MILLISECONDS)
+                  .thenAccept(Process::destroy);
+        }
+
+        /**
+         * Writes queued requests to the script, so that submitters never block on a script
+         * that does not read its input.
+         */
+        private void writeRequests() {
+            try (Writer stdin = new BufferedWriter(
+                  new OutputStreamWriter(process.getOutputStream(), UTF_8))) {
+                String line;
+                while (!(line = requests.take()).equals(END_OF_INPUT)) {
+                    stdin.write(line);
+                    if (requests.isEmpty()) {
+                        stdin.flush();
+                    }
+                }
+            } catch (IOException e) {
+                if (!hasExited) {
+                    LOGGER.warn("Failed to write to HSM script: {}", e.getMessage());
+                    process.destroy();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void readReplies() {
+            try (BufferedReader in = new BufferedReader(
+                  new InputStreamReader(process.getInputStream(), UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    try {
+                        long id = Long.parseLong(fields[0]);
+                        int returnCode = Integer.parseInt(fields[1]);
+                        List<String> output = new ArrayList<>();
+                        for (int i = 2; i < fields.length; i++) {
+                            output.add(unescape(fields[i]));
+                        }
+                        CompletableFuture<Reply> future = pending.remove(id);
+                        if (future != null) {
+                            future.complete(new Reply(returnCode, String.join("\n", output)));
+                        }
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        LOGGER.warn("Ignoring malformed reply from HSM script: {}", line);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to read from HSM script: {}", e.getMessage());
+            } finally {
+                hasExited = true;
+                requests.add(END_OF_INPUT);
+                IOException cause = new IOException("HSM script exited");
+                pending.values().forEach(f -> f.completeExceptionally(cause));
+                pending.clear();
+                LOGGER.info("HSM script co-process {} exited.", process.pid());
+            }
+        }
+
+        private void logErrors(InputStream stderr) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(stderr, UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    LOGGER.warn("HSM script: {}", line);
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Failed to read error output of HSM script: {}", e.getMessage());
+            }
+        }
+    }
+}
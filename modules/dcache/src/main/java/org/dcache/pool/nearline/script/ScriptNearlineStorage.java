@@ -65,6 +65,11 @@ import org.slf4j.LoggerFactory;
  * <p>
  * This implementation provides backwards compatibility with the legacy HSM scripts that used to be
  * the only HSM integration in dCache.
+ * <p>
+ * By default the script is launched once per request. With the {@code coprocess} option, a
+ * single long-lived instance of the script processes all requests of this HSM instance; see
+ * {@link HsmCoProcess} for the protocol. The concurrency limits then bound the number of
+ * requests submitted to the script at the same time.
  */
 public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
 
@@ -78,13 +83,14 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
     public static final String CONCURRENT_GETS = "c:gets";
     public static final String CONCURRENT_REMOVES = "c:removes";
     public static final String POLLING_DELAY = "p:delay";
+    public static final String COPROCESS = "coprocess";
 
     private static final int DEFAULT_FLUSH_THREADS = 100;
     private static final int DEFAULT_STAGE_THREADS = 100;
     private static final int DEFAULT_REMOVE_THREADS = 1;
     private static final Collection<String> PROPERTIES = asList(COMMAND, CONCURRENT_PUTS,
           CONCURRENT_GETS, CONCURRENT_REMOVES,
-          POLLING_DELAY);
+          POLLING_DELAY, COPROCESS);
     private static final long DEFAULT_RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
 
     private final ExecutorService executor = Executors.newCachedThreadPool();
@@ -100,6 +106,7 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
     private volatile String command;
     private volatile List<String> options;
     private volatile long retryDelay;
+    private volatile HsmCoProcess coprocess;
 
     public ScriptNearlineStorage(String type, String name) {
         super(type, name);
@@ -127,13 +134,14 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
     }
 
     @Override
-    protected Set<URI> flush(FlushRequest request) throws IOException, CacheException {
+    protected Set<URI> flush(FlushRequest request)
+          throws IOException, CacheException, InterruptedException {
         try {
             Set<URI> locations = new HashSet<>();
             String[] storeCommand = getFlushCommand(request.getReplicaUri(),
                   request.getFileAttributes());
-            String output = new HsmRunSystem(name, MAX_LINES,
-                  request.getDeadline() - System.currentTimeMillis(), storeCommand).execute();
+            String output = execute(request.getDeadline() - System.currentTimeMillis(),
+                  storeCommand);
             for (String uri : Splitter.on("\n").trimResults().omitEmptyStrings().split(output)) {
                 try {
                     locations.add(new URI(uri));
@@ -149,12 +157,12 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
     }
 
     @Override
-    protected Set<Checksum> stage(StageRequest request) throws IOException, CacheException {
+    protected Set<Checksum> stage(StageRequest request)
+          throws IOException, CacheException, InterruptedException {
         try {
             FileAttributes attributes = request.getFileAttributes();
             String[] fetchCommand = getFetchCommand(request.getReplicaUri(), attributes);
-            new HsmRunSystem(name, MAX_LINES, request.getDeadline() - System.currentTimeMillis(),
-                  fetchCommand).execute();
+            execute(request.getDeadline() - System.currentTimeMillis(), fetchCommand);
             return readChecksumFromHsm(request.getFile());
         } catch (IllegalThreadStateException e) {
             throw new CacheException(3, e.getMessage(), e);
@@ -162,9 +170,23 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
     }
 
     @Override
-    protected void remove(RemoveRequest request) throws IOException, CacheException {
-        new HsmRunSystem(name, MAX_LINES, request.getDeadline() - System.currentTimeMillis(),
-              getRemoveCommand(request.getUri())).execute();
+    protected void remove(RemoveRequest request)
+          throws IOException, CacheException, InterruptedException {
+        execute(request.getDeadline() - System.currentTimeMillis(),
+              getRemoveCommand(request.getUri()));
+    }
+
+    /**
+     * Runs the script with the given command line, either by submitting it to the co-process
+     * or by launching the script.
+     */
+    private String execute(long timeout, String[] command)
+          throws IOException, CacheException, InterruptedException {
+        HsmCoProcess coprocess = this.coprocess;
+        if (coprocess != null) {
+            return coprocess.execute(timeout, Arrays.copyOfRange(command, 1, command.length));
+        }
+        return new HsmRunSystem(name, MAX_LINES, timeout, command).execute();
     }
 
     @Override
@@ -183,6 +205,12 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
         retryDelay = properties.containsKey(POLLING_DELAY)
               ? TimeUnit.SECONDS.toMillis(Integer.parseInt(properties.get(POLLING_DELAY)))
               : DEFAULT_RETRY_DELAY;
+
+        HsmCoProcess previous = coprocess;
+        coprocess = isCoprocessEnabled(properties) ? new HsmCoProcess(name, command) : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
     }
 
     @Override
@@ -193,6 +221,10 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
         removeExecutor.shutdown();
         scheduledExecutor.shutdown();
         executor.shutdown();
+        HsmCoProcess coprocess = this.coprocess;
+        if (coprocess != null) {
+            coprocess.shutdown();
+        }
     }
 
     @VisibleForTesting
@@ -268,6 +300,14 @@ public class ScriptNearlineStorage extends AbstractBlockingNearlineStorage {
         executor.setMaximumPoolSize(n);
     }
 
+    private boolean isCoprocessEnabled(Map<String, String> properties) {
+        if (!properties.containsKey(COPROCESS)) {
+            return false;
+        }
+        String value = properties.get(COPROCESS);
+        return Strings.isNullOrEmpty(value) || Boolean.parseBoolean(value);
+    }
+
     private String buildCommand(Map<String, String> properties) {
         return properties.get(COMMAND);
     }
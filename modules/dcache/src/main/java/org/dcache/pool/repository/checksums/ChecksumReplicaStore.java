@@ -21,11 +21,13 @@ import diskCacheV111.util.CacheException;
 import diskCacheV111.util.PnfsId;
 import java.nio.file.OpenOption;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import org.dcache.pool.classic.ChecksumModuleV1;
 import org.dcache.pool.repository.DuplicateEntryException;
 import org.dcache.pool.repository.ForwardingReplicaStore;
 import org.dcache.pool.repository.ReplicaRecord;
 import org.dcache.pool.repository.ReplicaStore;
+import org.dcache.util.BoundedCachedExecutor;
 
 /**
  * This class wraps some existing ReplicaStore and adds support for on-the-fly checksum
@@ -35,12 +37,30 @@ public class ChecksumReplicaStore extends ForwardingReplicaStore {
 
     private final ReplicaStore inner;
     private final ChecksumModuleV1 csm;
+    private ExecutorService digestExecutor;
 
     public ChecksumReplicaStore(ReplicaStore inner, ChecksumModuleV1 csm) {
         this.inner = inner;
         this.csm = csm;
     }
 
+    /**
+     * Sets the number of threads used to update the digests of uploads for which more than one
+     * checksum type is calculated. With zero threads, all digests are updated by the mover.
+     */
+    public void setDigestThreads(int threads) {
+        if (digestExecutor != null) {
+            digestExecutor.shutdown();
+        }
+        digestExecutor = (threads > 0) ? new BoundedCachedExecutor(threads) : null;
+    }
+
+    public void shutdown() {
+        if (digestExecutor != null) {
+            digestExecutor.shutdown();
+        }
+    }
+
     @Override
     protected ReplicaStore delegate() {
         return inner;
@@ -49,6 +69,7 @@ public class ChecksumReplicaStore extends ForwardingReplicaStore {
     @Override
     public ReplicaRecord create(PnfsId id, Set<? extends OpenOption> flags)
           throws DuplicateEntryException, CacheException {
-        return new ChecksumReplicaRecord(super.create(id, flags), csm.getDefaultChecksumTypes());
+        return new ChecksumReplicaRecord(super.create(id, flags), csm.getDefaultChecksumTypes(),
+              digestExecutor);
     }
 }
@@ -136,6 +136,30 @@ public abstract class AbstractBerkeleyDBReplicaStore implements ReplicaStore, En
         return views.getAccessTimeInfo();
     }
 
+    /**
+     * Returns the StorageInfo of a replica, or null if there is none. The record is converted to
+     * the compact format if necessary; the caller must hold the lock of the replica.
+     */
+    StorageInfo readStorageInfo(String id) {
+        return views.getStorageInfo(id);
+    }
+
+    /**
+     * Returns the state of a replica, or null if there is none. The record is converted to the
+     * compact format if necessary; the caller must hold the lock of the replica.
+     */
+    CacheRepositoryEntryState readState(String id) {
+        return views.getState(id);
+    }
+
+    /**
+     * Returns the AccessTimeInfo of a replica, or null if there is none. The record is converted
+     * to the compact format if necessary; the caller must hold the lock of the replica.
+     */
+    AccessTimeInfo readAccessTimeInfo(String id) {
+        return views.getAccessTime(id);
+    }
+
     /**
      * Closes the database.
      */
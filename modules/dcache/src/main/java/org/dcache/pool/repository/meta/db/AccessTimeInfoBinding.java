@@ -0,0 +1,48 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.bind.serial.ClassCatalog;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+
+/**
+ * Compact binding for {@link AccessTimeInfo}.
+ * <p>
+ * The record holds a flag byte indicating which of the two time stamps are defined, followed by
+ * the defined time stamps as packed longs.
+ */
+class AccessTimeInfoBinding extends CompactBinding<AccessTimeInfo> {
+
+    private static final int LAST_ACCESS_TIME = 1;
+    private static final int CREATION_TIME = 2;
+
+    AccessTimeInfoBinding(ClassCatalog catalog) {
+        super(catalog, AccessTimeInfo.class);
+    }
+
+    @Override
+    protected AccessTimeInfo read(TupleInput input) {
+        int flags = input.readUnsignedByte();
+        AccessTimeInfo info = new AccessTimeInfo();
+        if ((flags & LAST_ACCESS_TIME) != 0) {
+            info.setLastAccessTime(input.readPackedLong());
+        }
+        if ((flags & CREATION_TIME) != 0) {
+            info.setCreationTime(input.readPackedLong());
+        }
+        return info;
+    }
+
+    @Override
+    protected void write(AccessTimeInfo info, TupleOutput output) {
+        Long lastAccessTime = info.getLastAccessTime();
+        Long creationTime = info.getCreationTime();
+        output.writeUnsignedByte((lastAccessTime != null ? LAST_ACCESS_TIME : 0)
+              | (creationTime != null ? CREATION_TIME : 0));
+        if (lastAccessTime != null) {
+            output.writePackedLong(lastAccessTime);
+        }
+        if (creationTime != null) {
+            output.writePackedLong(creationTime);
+        }
+    }
+}
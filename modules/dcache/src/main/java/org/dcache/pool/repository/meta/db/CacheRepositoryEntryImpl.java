@@ -109,7 +109,7 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
 
         } else {
 
-            AccessTimeInfo accessTimeInfo = repository.getAccessTimeInfo().get(pnfsId.toString());
+            AccessTimeInfo accessTimeInfo = repository.readAccessTimeInfo(pnfsId.toString());
             long size = storageInfo.getLegacySize();
             if (size == 0) {
                 try {
@@ -233,7 +233,7 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
     private synchronized StorageInfo getStorageInfo() {
         StorageInfo si = _storageInfoCache.get();
         if (si == null) {
-            si = _repository.getStorageInfoMap().get(_pnfsId.toString());
+            si = _repository.readStorageInfo(_pnfsId.toString());
             _storageInfoCache = new SoftReference<>(si);
         }
         return si;
@@ -390,7 +390,7 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
         try {
             String id = pnfsId.toString();
 
-            CacheRepositoryEntryState state = repository.getStateMap().get(id);
+            CacheRepositoryEntryState state = repository.readState(id);
 
             if (state != null) {
                 return new CacheRepositoryEntryImpl(repository, pnfsId, state.getState(),
@@ -0,0 +1,81 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.bind.serial.ClassCatalog;
+import com.sleepycat.bind.serial.SerialBinding;
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.DatabaseEntry;
+import java.io.ObjectStreamConstants;
+
+/**
+ * Tuple binding writing records in a compact, versioned binary format.
+ * <p>
+ * Earlier versions stored records with a {@link SerialBinding}. Such records start with the
+ * {@link ObjectStreamConstants#TC_OBJECT} marker of Java serialization, while records in the
+ * compact format start with a format version that never takes that value. Both formats are
+ * thus read transparently. Objects which cannot be represented in the compact format are
+ * written with the serial binding.
+ */
+abstract class CompactBinding<T> extends TupleBinding<T> {
+
+    /**
+     * Version of the compact format written by this binding.
+     */
+    private static final int VERSION = 1;
+
+    private final EntryBinding<T> serialBinding;
+
+    CompactBinding(ClassCatalog catalog, Class<T> type) {
+        serialBinding = new SerialBinding<>(catalog, type);
+    }
+
+    /**
+     * Returns whether the record was written in the serial format of earlier versions.
+     */
+    static boolean isSerial(DatabaseEntry entry) {
+        return entry.getSize() > 0
+              && entry.getData()[entry.getOffset()] == ObjectStreamConstants.TC_OBJECT;
+    }
+
+    @Override
+    public T entryToObject(DatabaseEntry entry) {
+        return isSerial(entry) ? serialBinding.entryToObject(entry) : super.entryToObject(entry);
+    }
+
+    @Override
+    public void objectToEntry(T object, DatabaseEntry entry) {
+        if (isCompact(object)) {
+            super.objectToEntry(object, entry);
+        } else {
+            serialBinding.objectToEntry(object, entry);
+        }
+    }
+
+    @Override
+    public T entryToObject(TupleInput input) {
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported record format version " + version);
+        }
+        return read(input);
+    }
+
+    @Override
+    public void objectToEntry(T object, TupleOutput output) {
+        output.writeUnsignedByte(VERSION);
+        write(object, output);
+    }
+
+    /**
+     * Returns whether the object can be represented in the compact format.
+     */
+    protected boolean isCompact(T object) {
+        return true;
+    }
+
+    protected abstract T read(TupleInput input);
+
+    protected abstract void write(T object, TupleOutput output);
+}
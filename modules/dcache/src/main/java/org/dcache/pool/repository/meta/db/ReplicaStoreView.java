@@ -3,19 +3,30 @@ package org.dcache.pool.repository.meta.db;
 import com.sleepycat.bind.EntryBinding;
 import com.sleepycat.bind.serial.ClassCatalog;
 import com.sleepycat.bind.serial.SerialBinding;
+import com.sleepycat.collections.CurrentTransaction;
 import com.sleepycat.collections.StoredMap;
+import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DiskOrderedCursor;
+import com.sleepycat.je.LockMode;
 import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
 import diskCacheV111.vehicles.StorageInfo;
 import java.util.stream.Collector;
 
 /**
  * MetaDataRepositoryViews encapsulates creation of views into MetaDataRepositoryDatabase.
+ * <p>
+ * Values are stored in the compact format of {@link CompactBinding}. Records written in the
+ * serial format of earlier versions are rewritten in the compact format when read through
+ * {@link #getState}, {@link #getStorageInfo} or {@link #getAccessTime}, unless the database is
+ * read-only.
  */
 class ReplicaStoreView {
 
     private final ReplicaStoreDatabase db;
+    private final CurrentTransaction currentTransaction;
+    private final boolean isMigrating;
     private final StoredMap<String, StorageInfo> storageInfoMap;
     private final StoredMap<String, CacheRepositoryEntryState> stateMap;
     private final StoredMap<String, AccessTimeInfo> accessTimeInfo;
@@ -29,15 +40,17 @@ class ReplicaStoreView {
 
     public ReplicaStoreView(ReplicaStoreDatabase db) {
         this.db = db;
+        currentTransaction = CurrentTransaction.getInstance(db.getEnvironment());
+        isMigrating = !db.getEnvironment().getConfig().getReadOnly();
         ClassCatalog catalog = db.getClassCatalog();
         keyBinding =
               new SerialBinding<>(catalog, String.class);
         storageInfoBinding =
-              new SerialBinding<>(catalog, StorageInfo.class);
+              new StorageInfoBinding(catalog);
         stateBinding =
-              new SerialBinding<>(catalog, CacheRepositoryEntryState.class);
+              new StateBinding(catalog);
         accessTimeInfoBinding =
-              new SerialBinding<>(catalog, AccessTimeInfo.class);
+              new AccessTimeInfoBinding(catalog);
         storageInfoMap =
               new StoredMap<>(db.getStorageInfoDatabase(),
                     keyBinding, storageInfoBinding, true);
@@ -64,6 +77,40 @@ class ReplicaStoreView {
         return accessTimeInfo;
     }
 
+    public final StorageInfo getStorageInfo(String id) {
+        return get(db.getStorageInfoDatabase(), storageInfoBinding, id);
+    }
+
+    public final CacheRepositoryEntryState getState(String id) {
+        return get(db.getStateDatabase(), stateBinding, id);
+    }
+
+    public final AccessTimeInfo getAccessTime(String id) {
+        return get(db.getAccessInfoStore(), accessTimeInfoBinding, id);
+    }
+
+    /**
+     * Reads a record, rewriting it in the compact format if it was written in the serial format.
+     *
+     * @return the value of the record, or null if there is no such record
+     */
+    private <T> T get(Database database, EntryBinding<T> binding, String id) {
+        Transaction txn = currentTransaction.getTransaction();
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry data = new DatabaseEntry();
+        keyBinding.objectToEntry(id, key);
+        if (database.get(txn, key, data, LockMode.DEFAULT) != OperationStatus.SUCCESS) {
+            return null;
+        }
+        T value = binding.entryToObject(data);
+        if (isMigrating && CompactBinding.isSerial(data)) {
+            binding.objectToEntry(value, data);
+            if (!CompactBinding.isSerial(data)) {
+                database.put(txn, key, data);
+            }
+        }
+        return value;
+    }
 
     public final <A, R> R collectKeys(Collector<String, A, R> collector) {
         A accumulator = collector.supplier().get();
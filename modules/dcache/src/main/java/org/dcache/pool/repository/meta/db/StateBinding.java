@@ -0,0 +1,91 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.bind.serial.ClassCatalog;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.dcache.pool.repository.ReplicaState;
+import org.dcache.pool.repository.StickyRecord;
+
+/**
+ * Compact binding for {@link CacheRepositoryEntryState}.
+ * <p>
+ * The record holds a state code followed by the number of sticky records and the owner and
+ * expiration time of each sticky record.
+ */
+class StateBinding extends CompactBinding<CacheRepositoryEntryState> {
+
+    StateBinding(ClassCatalog catalog) {
+        super(catalog, CacheRepositoryEntryState.class);
+    }
+
+    @Override
+    protected CacheRepositoryEntryState read(TupleInput input) {
+        ReplicaState state = toState(input.readUnsignedByte());
+        int count = input.readPackedInt();
+        List<StickyRecord> sticky = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String owner = input.readString();
+            sticky.add(new StickyRecord(owner, input.readPackedLong()));
+        }
+        return new CacheRepositoryEntryState(state, sticky);
+    }
+
+    @Override
+    protected void write(CacheRepositoryEntryState state, TupleOutput output) {
+        output.writeUnsignedByte(toCode(state.getState()));
+        Collection<StickyRecord> sticky = state.stickyRecords();
+        output.writePackedInt(sticky.size());
+        for (StickyRecord record : sticky) {
+            output.writeString(record.owner());
+            output.writePackedLong(record.expire());
+        }
+    }
+
+    /*
+     * The codes are part of the record format and must not change.
+     */
+    private static int toCode(ReplicaState state) {
+        switch (state) {
+            case NEW:
+                return 0;
+            case FROM_CLIENT:
+                return 1;
+            case FROM_STORE:
+                return 2;
+            case CACHED:
+                return 3;
+            case PRECIOUS:
+                return 4;
+            case BROKEN:
+                return 5;
+            case REMOVED:
+                return 6;
+            default:
+                throw new IllegalArgumentException("Unexpected state: " + state);
+        }
+    }
+
+    private static ReplicaState toState(int code) {
+        switch (code) {
+            case 0:
+                return ReplicaState.NEW;
+            case 1:
+                return ReplicaState.FROM_CLIENT;
+            case 2:
+                return ReplicaState.FROM_STORE;
+            case 3:
+                return ReplicaState.CACHED;
+            case 4:
+                return ReplicaState.PRECIOUS;
+            case 5:
+                return ReplicaState.BROKEN;
+            case 6:
+                return ReplicaState.REMOVED;
+            default:
+                throw new IllegalArgumentException("Unknown state code: " + code);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.bind.serial.ClassCatalog;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.OSMStorageInfo;
+import diskCacheV111.vehicles.StorageInfo;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binding for {@link GenericStorageInfo} and {@link OSMStorageInfo}.
+ * <p>
+ * Other StorageInfo implementations, as well as storage info without access latency or
+ * retention policy, are written with the serial binding.
+ */
+class StorageInfoBinding extends CompactBinding<StorageInfo> {
+
+    private static final String UNKNOWN_BITFILE_ID = "<Unknown>";
+
+    /*
+     * Type and flag values are part of the record format and must not change.
+     */
+    private static final int GENERIC = 0;
+    private static final int OSM = 1;
+
+    private static final int IS_NEW = 1;
+    private static final int SET_HSM = 2;
+    private static final int SET_STORAGE_CLASS = 4;
+    private static final int SET_BITFILE_ID = 8;
+    private static final int SET_LOCATION = 16;
+
+    StorageInfoBinding(ClassCatalog catalog) {
+        super(catalog, StorageInfo.class);
+    }
+
+    @Override
+    protected boolean isCompact(StorageInfo info) {
+        return (info.getClass() == GenericStorageInfo.class
+              || info.getClass() == OSMStorageInfo.class)
+              && info.getLegacyAccessLatency() != null
+              && info.getLegacyRetentionPolicy() != null;
+    }
+
+    @Override
+    protected StorageInfo read(TupleInput input) {
+        GenericStorageInfo info;
+        int type = input.readUnsignedByte();
+        switch (type) {
+            case GENERIC:
+                info = new GenericStorageInfo();
+                info.setStorageClass(intern(input.readString()));
+                break;
+            case OSM:
+                String store = intern(input.readString());
+                String group = intern(input.readString());
+                info = new OSMStorageInfo(store, group);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage info type: " + type);
+        }
+
+        int flags = input.readUnsignedByte();
+        info.setIsNew((flags & IS_NEW) != 0);
+        info.isSetHsm((flags & SET_HSM) != 0);
+        info.isSetStorageClass((flags & SET_STORAGE_CLASS) != 0);
+        info.isSetBitFileId((flags & SET_BITFILE_ID) != 0);
+        info.isSetAddLocation((flags & SET_LOCATION) != 0);
+
+        info.setHsm(intern(input.readString()));
+        info.setCacheClass(intern(input.readString()));
+        info.setBitfileId(input.readString());
+        info.setLegacySize(input.readPackedLong());
+        info.setLegacyAccessLatency(AccessLatency.getAccessLatency(input.readPackedInt()));
+        info.setLegacyRetentionPolicy(RetentionPolicy.getRetentionPolicy(input.readPackedInt()));
+
+        int locations = input.readPackedInt();
+        for (int i = 0; i < locations; i++) {
+            info.addLocation(URI.create(input.readString()));
+        }
+        int keys = input.readPackedInt();
+        for (int i = 0; i < keys; i++) {
+            String key = intern(input.readString());
+            info.setKey(key, input.readString());
+        }
+        return info;
+    }
+
+    @Override
+    protected void write(StorageInfo info, TupleOutput output) {
+        if (info instanceof OSMStorageInfo) {
+            OSMStorageInfo osm = (OSMStorageInfo) info;
+            output.writeUnsignedByte(OSM);
+            output.writeString(osm.getStore());
+            output.writeString(osm.getStorageGroup());
+        } else {
+            output.writeUnsignedByte(GENERIC);
+            output.writeString(info.getStorageClass());
+        }
+
+        output.writeUnsignedByte((info.isCreatedOnly() ? IS_NEW : 0)
+              | (info.isSetHsm() ? SET_HSM : 0)
+              | (info.isSetStorageClass() ? SET_STORAGE_CLASS : 0)
+              | (info.isSetBitFileId() ? SET_BITFILE_ID : 0)
+              | (info.isSetAddLocation() ? SET_LOCATION : 0));
+
+        String bitfileId = info.getBitfileId();
+        output.writeString(info.getHsm());
+        output.writeString(info.getCacheClass());
+        output.writeString(UNKNOWN_BITFILE_ID.equals(bitfileId) ? null : bitfileId);
+        output.writePackedLong(info.getLegacySize());
+        output.writePackedInt(info.getLegacyAccessLatency().getId());
+        output.writePackedInt(info.getLegacyRetentionPolicy().getId());
+
+        List<URI> locations = info.locations();
+        output.writePackedInt(locations.size());
+        for (URI location : locations) {
+            output.writeString(location.toString());
+        }
+        Map<String, String> keys = info.getMap();
+        output.writePackedInt(keys.size());
+        for (Map.Entry<String, String> key : keys.entrySet()) {
+            output.writeString(key.getKey());
+            output.writeString(key.getValue());
+        }
+    }
+
+    private static String intern(String s) {
+        return s == null ? null : s.intern();
+    }
+}
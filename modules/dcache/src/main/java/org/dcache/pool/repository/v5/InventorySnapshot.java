@@ -0,0 +1,177 @@
+package org.dcache.pool.repository.v5;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import diskCacheV111.util.PnfsId;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import org.dcache.pool.repository.ReplicaState;
+
+/**
+ * Compact, checksummed snapshot of the CACHED and PRECIOUS replicas of a pool.
+ * <p>
+ * The snapshot allows the repository to come online without reading the meta data record of
+ * every replica. The file consists of a header with the time the snapshot was taken and whether
+ * it was taken during a clean shutdown, followed by one record per replica and a CRC32 checksum
+ * over all preceding bytes.
+ * <p>
+ * Snapshots are written to a temporary file that is atomically moved into place, thus readers
+ * see either the previous or the new snapshot.
+ */
+class InventorySnapshot {
+
+    private static final int MAGIC = 0x64435249;
+    private static final int VERSION = 1;
+
+    /**
+     * Inventory information about a single replica.
+     */
+    static class Entry {
+
+        private final PnfsId _pnfsId;
+        private final ReplicaState _state;
+        private final long _size;
+        private final boolean _isSticky;
+        private final long _accessTime;
+
+        Entry(PnfsId pnfsId, ReplicaState state, long size, boolean isSticky,
+              long accessTime) {
+            if (state != ReplicaState.CACHED && state != ReplicaState.PRECIOUS) {
+                throw new IllegalArgumentException("Invalid inventory state: " + state);
+            }
+            _pnfsId = requireNonNull(pnfsId);
+            _state = state;
+            _size = size;
+            _isSticky = isSticky;
+            _accessTime = accessTime;
+        }
+
+        PnfsId getPnfsId() {
+            return _pnfsId;
+        }
+
+        ReplicaState getState() {
+            return _state;
+        }
+
+        long getReplicaSize() {
+            return _size;
+        }
+
+        boolean isSticky() {
+            return _isSticky;
+        }
+
+        long getLastAccessTime() {
+            return _accessTime;
+        }
+    }
+
+    private final long _creationTime;
+    private final boolean _isClean;
+    private final Map<PnfsId, Entry> _entries;
+
+    private InventorySnapshot(long creationTime, boolean isClean, Map<PnfsId, Entry> entries) {
+        _creationTime = creationTime;
+        _isClean = isClean;
+        _entries = entries;
+    }
+
+    /**
+     * Returns the time in milliseconds since the epoch at which the snapshot was taken.
+     */
+    long getCreationTime() {
+        return _creationTime;
+    }
+
+    /**
+     * Returns whether the snapshot was taken while the repository shut down cleanly.
+     */
+    boolean isClean() {
+        return _isClean;
+    }
+
+    Map<PnfsId, Entry> getEntries() {
+        return _entries;
+    }
+
+    /**
+     * Writes a snapshot of the given entries to {@code file}.
+     */
+    static void write(Path file, Iterable<Entry> entries, boolean isClean) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(
+              new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)),
+                    crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeBoolean(isClean);
+            for (Entry entry : entries) {
+                out.writeBoolean(true);
+                entry.getPnfsId().writeTo(out);
+                out.writeBoolean(entry.getState() == ReplicaState.PRECIOUS);
+                out.writeLong(entry.getReplicaSize());
+                out.writeBoolean(entry.isSticky());
+                out.writeLong(entry.getLastAccessTime());
+            }
+            out.writeBoolean(false);
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot in {@code file}.
+     *
+     * @return the snapshot, or null if there is no snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    static InventorySnapshot read(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(
+              new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an inventory snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported inventory snapshot version " + version);
+            }
+            long creationTime = in.readLong();
+            boolean isClean = in.readBoolean();
+            Map<PnfsId, Entry> entries = new HashMap<>();
+            while (in.readBoolean()) {
+                PnfsId id = PnfsId.createFrom(in);
+                ReplicaState state = in.readBoolean() ? ReplicaState.PRECIOUS
+                      : ReplicaState.CACHED;
+                long size = in.readLong();
+                boolean isSticky = in.readBoolean();
+                long accessTime = in.readLong();
+                entries.put(id, new Entry(id, state, size, isSticky, accessTime));
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected || in.read() != -1) {
+                throw new IOException("Inventory snapshot checksum mismatch");
+            }
+            return new InventorySnapshot(creationTime, isClean, entries);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
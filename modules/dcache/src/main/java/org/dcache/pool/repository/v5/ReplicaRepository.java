@@ -5,12 +5,15 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 import static org.dcache.namespace.FileAttribute.PNFSID;
 import static org.dcache.namespace.FileAttribute.STORAGEINFO;
+import static org.dcache.pool.repository.ReplicaState.CACHED;
 import static org.dcache.pool.repository.ReplicaState.NEW;
 import static org.dcache.pool.repository.ReplicaState.PRECIOUS;
 import static org.dcache.pool.repository.ReplicaState.REMOVED;
 import static org.dcache.util.ByteUnit.GiB;
+import static org.dcache.util.Exceptions.messageOrClassName;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.DiskErrorCacheException;
 import diskCacheV111.util.DiskSpace;
@@ -28,8 +31,12 @@ import dmg.cells.nucleus.CellInfoProvider;
 import dmg.cells.nucleus.CellSetupProvider;
 import dmg.util.command.Argument;
 import dmg.util.command.Command;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.nio.file.OpenOption;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,6 +45,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.Set;
@@ -47,15 +55,19 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.concurrent.GuardedBy;
@@ -87,6 +99,7 @@ import org.dcache.pool.repository.StateChangeListener;
 import org.dcache.pool.repository.StickyChangeEvent;
 import org.dcache.pool.repository.StickyRecord;
 import org.dcache.pool.repository.json.RepositoryData;
+import org.dcache.pool.repository.v5.InventorySnapshot.Entry;
 import org.dcache.util.CacheExceptionFactory;
 import org.dcache.vehicles.FileAttributes;
 import org.slf4j.Logger;
@@ -143,11 +156,45 @@ public class ReplicaRepository
     private final Set<PnfsId> _removable =
           Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    /**
+     * Replicas accounted for from the inventory snapshot whose meta data has not been read yet.
+     */
+    private final Map<PnfsId, Entry> _unvalidated = new ConcurrentHashMap<>();
+
     /**
      * Threads pool size to scan the repository to check metadata.
      */
     private Integer scanThreads;
 
+    /**
+     * File holding the inventory snapshot, or null if snapshots are disabled.
+     */
+    private Path _inventoryFile;
+
+    /**
+     * Interval between periodic inventory snapshots.
+     */
+    private long _inventoryPeriod = 1;
+    private TimeUnit _inventoryPeriodUnit = TimeUnit.HOURS;
+
+    /**
+     * Maximum age of an inventory snapshot that was not written during a clean shutdown.
+     */
+    private long _inventoryMaxAge = 1;
+    private TimeUnit _inventoryMaxAgeUnit = TimeUnit.DAYS;
+
+    /**
+     * Periodic inventory snapshot task.
+     */
+    @GuardedBy("_stateLock")
+    private ScheduledFuture<?> _inventoryTask;
+
+    /**
+     * Executor reading the meta data of replicas loaded from the inventory snapshot.
+     */
+    @GuardedBy("_stateLock")
+    private ExecutorService _validationExecutor;
+
     /**
      * workQueue attributes to scan the repository to check metadata.
      */
@@ -295,6 +342,40 @@ public class ReplicaRepository
         this.scanThreads = scanThreads;
     }
 
+    /**
+     * Sets the file holding the inventory snapshot. If set, the repository periodically and on
+     * shutdown writes a snapshot of its CACHED and PRECIOUS replicas to the file. On startup, the
+     * replicas in the snapshot are accounted for without reading their meta data, and the meta data
+     * is read in the background once the repository is open.
+     */
+    public void setInventoryFile(File file) {
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _inventoryFile = (file == null) ? null : file.toPath();
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
+    public void setInventoryPeriod(long period) {
+        checkArgument(period > 0, "Inventory snapshot period must be positive");
+        _inventoryPeriod = period;
+    }
+
+    public void setInventoryPeriodUnit(TimeUnit unit) {
+        _inventoryPeriodUnit = requireNonNull(unit);
+    }
+
+    public void setInventoryMaxAge(long age) {
+        checkArgument(age >= 0, "Inventory snapshot age must be non-negative");
+        _inventoryMaxAge = age;
+    }
+
+    public void setInventoryMaxAgeUnit(TimeUnit unit) {
+        _inventoryMaxAgeUnit = requireNonNull(unit);
+    }
+
 
     /**
      * Get pool name to which repository belongs.
@@ -380,16 +461,20 @@ public class ReplicaRepository
                 @Override
                 public void stateChanged(StateChangeEvent event) {
                     PnfsId id = event.getPnfsId();
+                    long accounted = (event.getOldState() == NEW) ? releaseUnvalidated(id) : 0L;
                     if (event.getOldState() != NEW || event.getNewState() != REMOVED) {
                         if (event.getOldState() == NEW) {
                             long size = event.getNewEntry().getReplicaSize();
                             /* Usually space has to be allocated before writing the
                              * data to disk, however during pool startup we are notified
                              * about "new" files that already consume space, so we
-                             * adjust the allocation here.
+                             * adjust the allocation here. Replicas loaded from the
+                             * inventory snapshot have already been accounted for.
                              */
-                            if (size > 0) {
-                                _account.growTotalAndUsed(id, size);
+                            if (size > accounted) {
+                                _account.growTotalAndUsed(id, size - accounted);
+                            } else if (size < accounted) {
+                                _account.free(id, accounted - size);
                             }
                             scheduleExpirationTask(event.getNewEntry());
                         }
@@ -404,6 +489,8 @@ public class ReplicaRepository
                         }
 
                         _stateChangeListeners.stateChanged(event);
+                    } else if (accounted > 0) {
+                        _account.free(id, accounted);
                     }
                     switch (event.getNewState()) {
                         case REMOVED:
@@ -547,6 +634,21 @@ public class ReplicaRepository
             _store.init();
 
             Collection<PnfsId> ids = _store.index();
+            InventorySnapshot snapshot = readInventory(ids);
+            if (snapshot != null) {
+                LOGGER.warn("Accounting for {} files from inventory snapshot {}.",
+                      snapshot.getEntries().size(), _inventoryFile);
+                for (Entry entry : snapshot.getEntries().values()) {
+                    preload(entry);
+                }
+                List<PnfsId> remaining = new ArrayList<>();
+                for (PnfsId id : ids) {
+                    if (!_unvalidated.containsKey(id)) {
+                        remaining.add(id);
+                    }
+                }
+                ids = remaining;
+            }
             int fileCount = ids.size();
 
             LOGGER.info("Checking meta data for {} files with {} threads.", fileCount, scanThreads);
@@ -609,6 +711,14 @@ public class ReplicaRepository
                 if (!compareAndSetState(State.LOADING, State.OPEN)) {
                     throw new IllegalStateException("Repository was closed during loading.");
                 }
+                if (!_unvalidated.isEmpty()) {
+                    startValidation();
+                }
+                if (_inventoryFile != null) {
+                    _inventoryTask = _executor.scheduleWithFixedDelay(
+                          () -> saveInventory(false), _inventoryPeriod, _inventoryPeriod,
+                          _inventoryPeriodUnit);
+                }
             } finally {
                 _stateLock.writeLock().unlock();
             }
@@ -970,6 +1080,10 @@ public class ReplicaRepository
     @Override
     public void getInfo(PrintWriter pw) {
         getDataObject().print(pw);
+        int unvalidated = _unvalidated.size();
+        if (unvalidated > 0) {
+            pw.println("Inventory validation pending for " + unvalidated + " files");
+        }
         pw.println("Sweeper Policy");
         pw.println("    lru   : " + _sweeper.getLru());
         pw.println("    margin: " + _sweeper.getMargin());
@@ -1035,6 +1149,15 @@ public class ReplicaRepository
     public void shutdown() {
         _stateLock.writeLock().lock();
         try {
+            if (_inventoryTask != null) {
+                _inventoryTask.cancel(false);
+            }
+            if (_validationExecutor != null) {
+                _validationExecutor.shutdownNow();
+            }
+            if (_state == State.OPEN && _inventoryFile != null) {
+                saveInventory(true);
+            }
             _stateChangeListeners.stop();
             _state = State.CLOSED;
             _store.close();
@@ -1043,6 +1166,174 @@ public class ReplicaRepository
         }
     }
 
+    /**
+     * Reads the inventory snapshot if it may be trusted for the given replicas.
+     * <p>
+     * A snapshot written during a clean shutdown is trusted once; it is deleted once read as it
+     * no longer reflects the repository after the pool starts. A periodic snapshot is trusted
+     * unless it is older than the configured maximum age. In either case all replicas of the
+     * snapshot must still be present in the repository.
+     *
+     * @return the snapshot, or null if all replicas have to be checked
+     */
+    private InventorySnapshot readInventory(Collection<PnfsId> ids) {
+        if (_inventoryFile == null) {
+            return null;
+        }
+        try {
+            InventorySnapshot snapshot = InventorySnapshot.read(_inventoryFile);
+            if (snapshot == null) {
+                LOGGER.info("No inventory snapshot found in {}.", _inventoryFile);
+                return null;
+            }
+            if (snapshot.isClean()) {
+                Files.delete(_inventoryFile);
+            } else if (System.currentTimeMillis() - snapshot.getCreationTime()
+                  > _inventoryMaxAgeUnit.toMillis(_inventoryMaxAge)) {
+                LOGGER.warn("Ignoring inventory snapshot {} as it is too old.", _inventoryFile);
+                return null;
+            }
+            if (!ids.containsAll(snapshot.getEntries().keySet())) {
+                LOGGER.warn("Ignoring inventory snapshot {} as it is out of date.",
+                      _inventoryFile);
+                return null;
+            }
+            return snapshot;
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring inventory snapshot {}: {}", _inventoryFile,
+                  messageOrClassName(e));
+            return null;
+        }
+    }
+
+    /**
+     * Accounts for a replica of the inventory snapshot without reading its meta data.
+     * <p>
+     * Space of such replicas is not accounted as removable, as the sweeper does not learn about
+     * them until their meta data has been read.
+     */
+    private void preload(Entry entry) {
+        PnfsId id = entry.getPnfsId();
+        _unvalidated.put(id, entry);
+        if (entry.getReplicaSize() > 0) {
+            _account.growTotalAndUsed(id, entry.getReplicaSize());
+        }
+        if (entry.getState() == PRECIOUS) {
+            _account.adjustPrecious(id, entry.getReplicaSize());
+        }
+    }
+
+    /**
+     * Removes a replica from the set of replicas loaded from the inventory snapshot and reverts
+     * its precious space.
+     *
+     * @return the used space accounted for the replica
+     */
+    private long releaseUnvalidated(PnfsId id) {
+        Entry entry = _unvalidated.remove(id);
+        if (entry == null) {
+            return 0L;
+        }
+        if (entry.getState() == PRECIOUS) {
+            _account.adjustPrecious(id, -entry.getReplicaSize());
+        }
+        return entry.getReplicaSize();
+    }
+
+    /**
+     * Reads the meta data of all replicas loaded from the inventory snapshot in the background.
+     * Precious replicas are read first, as they cannot be flushed before.
+     */
+    @GuardedBy("_stateLock")
+    private void startValidation() {
+        ConcurrentLinkedQueue<PnfsId> queue = new ConcurrentLinkedQueue<>();
+        _unvalidated.values().stream().filter(e -> e.getState() == PRECIOUS)
+              .forEach(e -> queue.add(e.getPnfsId()));
+        _unvalidated.values().stream().filter(e -> e.getState() == CACHED)
+              .forEach(e -> queue.add(e.getPnfsId()));
+
+        LOGGER.info("Checking meta data for {} files in the background with {} threads.",
+              queue.size(), scanThreads);
+        Stopwatch watch = Stopwatch.createStarted();
+        AtomicInteger running = new AtomicInteger(scanThreads);
+        _validationExecutor = Executors.newFixedThreadPool(scanThreads,
+              new ThreadFactoryBuilder().setNameFormat("inventory-validation-%d").build());
+        for (int i = 0; i < scanThreads; i++) {
+            _validationExecutor.execute(() -> {
+                try {
+                    PnfsId id;
+                    while ((id = queue.poll()) != null) {
+                        if (_unvalidated.containsKey(id) && readReplicaRecord(id) == null) {
+                            long accounted = releaseUnvalidated(id);
+                            if (accounted > 0) {
+                                _account.free(id, accounted);
+                            }
+                        }
+                    }
+                    if (running.decrementAndGet() == 0) {
+                        LOGGER.info("Done checking meta data of inventory snapshot in {}", watch);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (CacheException | RuntimeException e) {
+                    LOGGER.error("Failed to check meta data: {}", messageOrClassName(e));
+                    fail(FaultAction.DEAD, "Failed to check meta data: " + messageOrClassName(e));
+                }
+            });
+        }
+        _validationExecutor.shutdown();
+    }
+
+    /**
+     * Writes a snapshot of the CACHED and PRECIOUS replicas to the inventory file.
+     */
+    private void saveInventory(boolean isClean) {
+        _stateLock.readLock().lock();
+        try {
+            if (_state != State.OPEN) {
+                return;
+            }
+            Stopwatch watch = Stopwatch.createStarted();
+            Set<PnfsId> ids = _store.index();
+            InventorySnapshot.write(_inventoryFile,
+                  () -> ids.stream().map(this::toInventoryEntry)
+                        .filter(Objects::nonNull).iterator(),
+                  isClean);
+            LOGGER.info("Wrote inventory snapshot to {} in {}", _inventoryFile, watch);
+        } catch (IOException | CacheException e) {
+            LOGGER.warn("Failed to write inventory snapshot to {}: {}", _inventoryFile,
+                  messageOrClassName(e));
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the inventory snapshot entry of a replica, or null if the replica is neither
+     * CACHED nor PRECIOUS.
+     */
+    private Entry toInventoryEntry(PnfsId id) {
+        Entry entry = _unvalidated.get(id);
+        if (entry != null) {
+            return entry;
+        }
+        try {
+            ReplicaRecord record = _store.get(id);
+            if (record != null) {
+                synchronized (record) {
+                    ReplicaState state = record.getState();
+                    if (state == CACHED || state == PRECIOUS) {
+                        return new Entry(id, state, record.getReplicaSize(), record.isSticky(),
+                              record.getLastAccessTime());
+                    }
+                }
+            }
+        } catch (CacheException e) {
+            LOGGER.debug("Omitting {} from inventory snapshot: {}", id, e.getMessage());
+        }
+        return null;
+    }
+
     @GuardedBy("getReplicaRecord(entry.getPnfsid())")
     protected void updateRemovable(CacheEntry entry) {
         PnfsId id = entry.getPnfsId();
@@ -24,6 +24,7 @@ import static org.dcache.util.MathUtils.subWithInfinity;
 
 import com.google.common.util.concurrent.MoreExecutors;
 import diskCacheV111.poolManager.CostModule;
+import diskCacheV111.poolManager.CostModuleV1;
 import diskCacheV111.poolManager.PoolSelectionUnit;
 import diskCacheV111.pools.PoolCostInfo;
 import diskCacheV111.util.CacheException;
@@ -64,6 +65,8 @@ public class RemotePoolMonitor
     private CellStub poolManagerStub;
     private PoolMonitor poolMonitor;
     private long refreshCount;
+    private long deltaCount;
+    private boolean isResyncing;
     private CellAddressCore previousMonitorSource;
 
     @Required
@@ -79,6 +82,7 @@ public class RemotePoolMonitor
 
         }
         pw.println("refresh count = " + refreshCount);
+        pw.println("delta count = " + deltaCount);
         pw.println("active refresh target = " + poolManagerStub);
     }
 
@@ -152,10 +156,34 @@ public class RemotePoolMonitor
         acceptMonitor(monitor);
     }
 
+    /**
+     * Applies changes to pool costs published by pool manager in between full updates.
+     * <p>
+     * If the changes cannot be applied because earlier changes were missed, a complete copy of
+     * the pool monitor is fetched. Deltas received while the fetch is in progress are dropped.
+     */
+    public void messageArrived(CellMessage envelope, CostModuleV1.Delta delta) {
+        synchronized (this) {
+            if (poolMonitor == null || isResyncing) {
+                return;
+            }
+            CostModule costModule = poolMonitor.getCostModule();
+            if (costModule instanceof CostModuleV1 && ((CostModuleV1) costModule).apply(delta)) {
+                lastRefreshTime = System.currentTimeMillis();
+                deltaCount++;
+                return;
+            }
+            isResyncing = true;
+        }
+        LOGGER.debug("Cannot apply pool cost update {}; fetching pool monitor.", delta);
+        fetchMonitor(0);
+    }
+
     private synchronized void acceptMonitor(SerializablePoolMonitor monitor) {
         poolMonitor = monitor;
         lastRefreshTime = System.currentTimeMillis();
         refreshCount++;
+        isResyncing = false;
         notifyAll();
     }
 
@@ -4,7 +4,9 @@ import com.google.common.collect.Range;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FsPath;
 import diskCacheV111.util.PnfsHandler;
+import dmg.cells.nucleus.CellMessage;
 import dmg.cells.nucleus.CellMessageReceiver;
+import dmg.cells.nucleus.CellPath;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -21,6 +23,7 @@ import org.dcache.namespace.FileAttribute;
 import org.dcache.util.CacheExceptionFactory;
 import org.dcache.util.Glob;
 import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsListDirectoryCreditMessage;
 import org.dcache.vehicles.PnfsListDirectoryMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +37,10 @@ import org.slf4j.LoggerFactory;
  * consequence that a ListDirectoryHandler cannot be used from the Cells messages thread. Any
  * attempt to do so will cause the message thread to block, as the replies cannot be delivered to
  * the ListDirectoryHandler.
+ * <p>
+ * Replies may be flow controlled: given a window, PnfsManager sends at most that many partial
+ * replies ahead of the consumer of the stream and suspends the listing until the consumer has
+ * caught up. This bounds the memory used for listings consumed by slow clients.
  */
 public class ListDirectoryHandler
       implements CellMessageReceiver, DirectoryListSource {
@@ -44,11 +51,20 @@ public class ListDirectoryHandler
     private final PnfsHandler _pnfs;
     private final Map<UUID, Stream> _replies =
           new ConcurrentHashMap<>();
+    private volatile int _window;
 
     public ListDirectoryHandler(PnfsHandler pnfs) {
         _pnfs = pnfs;
     }
 
+    /**
+     * Sets the number of partial replies PnfsManager may send ahead of the consumer of a listing.
+     * Zero, the default, disables flow control.
+     */
+    public void setWindow(int window) {
+        _window = window;
+    }
+
     /**
      * Sends a directory list request to PnfsManager. The result is provided as a stream of
      * directory entries.
@@ -90,11 +106,13 @@ public class ListDirectoryHandler
         PnfsListDirectoryMessage msg =
               new PnfsListDirectoryMessage(dir, pattern, range, attributes);
         UUID uuid = msg.getUUID();
+        int window = _window;
         boolean success = false;
-        Stream stream = new Stream(dir, uuid);
+        Stream stream = new Stream(dir, uuid, window);
         try {
             msg.setSubject(subject);
             msg.setRestriction(restriction);
+            msg.setWindow(window);
             _replies.put(uuid, stream);
             _pnfs.send(msg);
             stream.waitForMoreEntries();
@@ -102,7 +120,7 @@ public class ListDirectoryHandler
             return stream;
         } finally {
             if (!success) {
-                _replies.remove(uuid);
+                stream.close();
             }
         }
     }
@@ -147,13 +165,25 @@ public class ListDirectoryHandler
      * Callback for delivery of replies from PnfsManager. PnfsListDirectoryMessage have to be routed
      * to this message.
      */
+    public void messageArrived(CellMessage envelope, PnfsListDirectoryMessage reply) {
+        messageArrived(envelope.getSourcePath().revert(), reply);
+    }
+
+    /**
+     * Callback for delivery of replies from PnfsManager for receivers that do not have access to
+     * the envelope. Credit for further replies is sent to the default PnfsManager.
+     */
     public void messageArrived(PnfsListDirectoryMessage reply) {
+        messageArrived((CellPath) null, reply);
+    }
+
+    private void messageArrived(CellPath source, PnfsListDirectoryMessage reply) {
         if (reply.isReply()) {
             try {
                 UUID uuid = reply.getUUID();
                 Stream stream = _replies.get(uuid);
                 if (stream != null) {
-                    stream.put(reply);
+                    stream.put(source, reply);
                 } else {
                     LOGGER.warn(
                           "Received list result for an unknown request. Directory listing was possibly incomplete.");
@@ -177,26 +207,60 @@ public class ListDirectoryHandler
               new LinkedBlockingQueue<>();
         private final UUID _uuid;
         private final String _path;
+        private final int _window;
+        private volatile CellPath _pnfsManager;
         private boolean _isFinal;
         private Iterator<DirectoryEntry> _iterator;
         private int _count;
         private int _total;
+        private int _consumed;
 
         public Stream(String path, UUID uuid) {
+            this(path, uuid, 0);
+        }
+
+        public Stream(String path, UUID uuid, int window) {
             _path = path;
             _uuid = uuid;
+            _window = window;
         }
 
         @Override
         public void close() {
-            _replies.remove(_uuid);
+            if (_replies.remove(_uuid) != null && _window > 0 && !_isFinal) {
+                sendToPnfsManager(PnfsListDirectoryCreditMessage.cancel(_uuid));
+            }
         }
 
-        private void put(PnfsListDirectoryMessage msg)
+        private void put(CellPath source, PnfsListDirectoryMessage msg)
               throws InterruptedException {
+            if (source != null && _pnfsManager == null) {
+                _pnfsManager = source;
+            }
             _queue.put(msg);
         }
 
+        /**
+         * Grants PnfsManager credit for the consumed partial replies. Credit is granted in
+         * batches of half the window, such that PnfsManager can keep sending while the consumer
+         * drains the other half.
+         */
+        private void grantCredit() {
+            if (_window > 0 && ++_consumed >= Math.max(1, _window / 2)) {
+                sendToPnfsManager(new PnfsListDirectoryCreditMessage(_uuid, _consumed));
+                _consumed = 0;
+            }
+        }
+
+        private void sendToPnfsManager(PnfsListDirectoryCreditMessage msg) {
+            CellPath pnfsManager = _pnfsManager;
+            if (pnfsManager != null) {
+                _pnfs.notify(pnfsManager, msg);
+            } else {
+                _pnfs.notify(msg);
+            }
+        }
+
         private void waitForMoreEntries()
               throws InterruptedException, CacheException {
             if (_isFinal) {
@@ -220,9 +284,14 @@ public class ListDirectoryHandler
             }
 
             if (msg.getReturnCode() != 0) {
+                _isFinal = true;
                 throw CacheExceptionFactory.exceptionOf(msg);
             }
 
+            if (!msg.isFinal()) {
+                grantCredit();
+            }
+
             _iterator = msg.getEntries().iterator();
 
             /* If the message is empty, then the iterator has no next
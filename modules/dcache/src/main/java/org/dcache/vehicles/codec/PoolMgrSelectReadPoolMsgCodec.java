@@ -0,0 +1,101 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles.codec;
+
+import static dmg.cells.nucleus.MsgSerializerSchema.readEnumSet;
+import static dmg.cells.nucleus.MsgSerializerSchema.readObject;
+import static dmg.cells.nucleus.MsgSerializerSchema.readString;
+import static dmg.cells.nucleus.MsgSerializerSchema.readStrings;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeEnumSet;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeObject;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeString;
+import static dmg.cells.nucleus.MsgSerializerSchema.writeStrings;
+
+import diskCacheV111.poolManager.RequestContainerV5.RequestState;
+import diskCacheV111.vehicles.Pool;
+import diskCacheV111.vehicles.PoolMgrSelectReadPoolMsg;
+import diskCacheV111.vehicles.ProtocolInfo;
+import dmg.cells.nucleus.MessageCodec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import org.dcache.auth.attributes.Restriction;
+import org.dcache.vehicles.FileAttributes;
+
+/**
+ * Compact encoding of {@link PoolMgrSelectReadPoolMsg} requests and replies.
+ */
+public class PoolMgrSelectReadPoolMsgCodec implements MessageCodec<PoolMgrSelectReadPoolMsg> {
+
+    @Override
+    public Class<PoolMgrSelectReadPoolMsg> getType() {
+        return PoolMgrSelectReadPoolMsg.class;
+    }
+
+    @Override
+    public short getId() {
+        return 6;
+    }
+
+    @Override
+    public byte getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void encode(PoolMgrSelectReadPoolMsg message, DataOutput out) throws IOException {
+        message.getFileAttributes().writeTo(out);
+        writeObject(out, message.getProtocolInfo());
+        writeObject(out, message.getContext());
+        writeEnumSet(out, message.getAllowedStates());
+        MessageCodecs.writeRestriction(out, message.getRestriction());
+        MessageCodecs.writeMessage(message, out);
+        writeObject(out, message.getPool());
+        writeString(out, message.getIoQueueName());
+        writeString(out, message.getBillingPath());
+        writeString(out, message.getTransferPath());
+        writeString(out, message.getLinkGroup());
+        writeStrings(out, message.getExcludedHosts());
+        writeString(out, message.getPoolGroup());
+    }
+
+    @Override
+    public PoolMgrSelectReadPoolMsg decode(DataInput in, byte version) throws IOException {
+        FileAttributes fileAttributes = FileAttributes.createFrom(in);
+        ProtocolInfo protocolInfo = readObject(in, ProtocolInfo.class);
+        PoolMgrSelectReadPoolMsg.Context context =
+              readObject(in, PoolMgrSelectReadPoolMsg.Context.class);
+        EnumSet<RequestState> allowedStates = readEnumSet(in, RequestState.class);
+        Restriction restriction = MessageCodecs.readRestriction(in);
+        PoolMgrSelectReadPoolMsg message = new PoolMgrSelectReadPoolMsg(fileAttributes,
+              protocolInfo, context, allowedStates, restriction);
+        MessageCodecs.readMessage(message, in);
+        message.setPool(readObject(in, Pool.class));
+        message.setIoQueueName(readString(in));
+        message.setBillingPath(readString(in));
+        message.setTransferPath(readString(in));
+        message.setLinkGroup(readString(in));
+        List<String> excludedHosts = readStrings(in);
+        message.setExcludedHosts(excludedHosts == null ? null : new HashSet<>(excludedHosts));
+        message.setPoolGroup(readString(in));
+        return message;
+    }
+}
@@ -0,0 +1,171 @@
+package diskCacheV111.namespace;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MessageSchedulerTest {
+
+    private MessageScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new MessageScheduler(2, 0);
+    }
+
+    @Test
+    public void shouldProcessMessagesWithSameKeyInOrder() throws Exception {
+        scheduler.offer(0, "a", message("a1"));
+        scheduler.offer(0, "a", message("a2"));
+
+        List<MessageScheduler.Task> first = scheduler.take(0, 1, (x, y) -> false);
+        assertThat(payloads(first), contains("a1"));
+
+        scheduler.complete(first);
+
+        assertThat(payloads(scheduler.take(0, 1, (x, y) -> false)), contains("a2"));
+    }
+
+    @Test
+    public void shouldNotHandOutKeyWhileInProgress() throws Exception {
+        scheduler.offer(0, "a", message("a1"));
+        scheduler.offer(0, "a", message("a2"));
+        scheduler.offer(0, "b", message("b1"));
+
+        assertThat(payloads(scheduler.take(0, 1, (x, y) -> false)), contains("a1"));
+
+        // a2 must wait for a1, but b1 is free to be stolen by the idle lane
+        assertThat(payloads(scheduler.take(1, 1, (x, y) -> false)), contains("b1"));
+        assertThat(scheduler.size(0), is(1));
+    }
+
+    @Test
+    public void shouldStealFromLongestLane() throws Exception {
+        scheduler = new MessageScheduler(3, 0);
+        scheduler.offer(0, "a", message("a1"));
+        scheduler.offer(1, "b", message("b1"));
+        scheduler.offer(1, "c", message("c1"));
+
+        assertThat(payloads(scheduler.take(2, 1, (x, y) -> false)), contains("b1"));
+    }
+
+    @Test
+    public void shouldBatchCompatibleMessages() throws Exception {
+        scheduler.offer(0, "a", message("x1"));
+        scheduler.offer(0, "b", message("x2"));
+        scheduler.offer(0, "c", message("y1"));
+        scheduler.offer(0, "d", message("x3"));
+
+        List<MessageScheduler.Task> tasks = scheduler.take(0, 10, MessageSchedulerTest::sameType);
+
+        assertThat(payloads(tasks), contains("x1", "x2"));
+    }
+
+    @Test
+    public void shouldLimitBatchSize() throws Exception {
+        scheduler.offer(0, "a", message("x1"));
+        scheduler.offer(0, "b", message("x2"));
+        scheduler.offer(0, "c", message("x3"));
+
+        List<MessageScheduler.Task> tasks = scheduler.take(0, 2, MessageSchedulerTest::sameType);
+
+        assertThat(payloads(tasks), contains("x1", "x2"));
+    }
+
+    @Test
+    public void shouldRejectMessagesWhenLaneIsFull() {
+        scheduler = new MessageScheduler(2, 2);
+
+        assertTrue(scheduler.offer(0, "a", message("a1")));
+        assertTrue(scheduler.offer(0, "b", message("b1")));
+        assertFalse(scheduler.offer(0, "c", message("c1")));
+        assertTrue(scheduler.offer(1, "d", message("d1")));
+    }
+
+    @Test
+    public void shouldQueueMessageWithKeyOnLaneOfKey() {
+        scheduler = new MessageScheduler(2, 1);
+
+        assertTrue(scheduler.offer(0, "a", message("a1")));
+        assertFalse(scheduler.offer(1, "a", message("a2")));
+    }
+
+    @Test
+    public void shouldRemoveQueuedMessagesUntilStopped() throws Exception {
+        scheduler.offer(0, "a", message("a1"));
+        scheduler.offer(0, "a", message("a2"));
+        scheduler.offer(0, "a", message("b3"));
+        scheduler.offer(0, "a", message("stop"));
+        scheduler.offer(0, "a", message("a5"));
+
+        List<MessageScheduler.Task> tasks = scheduler.take(0, 1, (x, y) -> false);
+        List<CellMessage> removed = scheduler.removeQueued(tasks.get(0),
+              m -> m.getMessageObject().equals("stop"),
+              m -> m.getMessageObject().toString().startsWith("a"));
+
+        assertThat(removed.stream().map(CellMessage::getMessageObject)
+              .collect(Collectors.toList()), contains("a2"));
+        assertThat(scheduler.size(0), is(3));
+    }
+
+    @Test
+    public void shouldReturnQueuedMessagesOnShutdown() throws Exception {
+        scheduler.offer(0, "a", message("a1"));
+        scheduler.offer(0, "a", message("a2"));
+        scheduler.offer(1, null, message("n1"));
+        scheduler.take(0, 1, (x, y) -> false);
+
+        List<CellMessage> drained = scheduler.shutdown();
+
+        assertThat(drained.stream().map(CellMessage::getMessageObject)
+              .collect(Collectors.toList()), containsInAnyOrder("a2", "n1"));
+        assertThat(scheduler.take(0, 1, (x, y) -> false), is(nullValue()));
+        assertFalse(scheduler.offer(0, "b", message("b1")));
+    }
+
+    @Test
+    public void shouldWakeUpIdleWorker() throws Exception {
+        CountDownLatch taken = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            try {
+                if (scheduler.take(1, 1, (x, y) -> false) != null) {
+                    taken.countDown();
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        worker.start();
+
+        scheduler.offer(0, "a", message("a1"));
+
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        worker.join();
+    }
+
+    private static boolean sameType(CellMessage first, CellMessage other) {
+        return first.getMessageObject().toString().charAt(0)
+              == other.getMessageObject().toString().charAt(0);
+    }
+
+    private static List<Object> payloads(List<MessageScheduler.Task> tasks) {
+        return tasks.stream().map(t -> t.getMessage().getMessageObject())
+              .collect(Collectors.toList());
+    }
+
+    private static CellMessage message(String payload) {
+        return new CellMessage(new CellAddressCore("PnfsManager"), payload);
+    }
+}
@@ -156,6 +156,24 @@ public class PoolSelectionUnitV2Test {
         psu.removeFromPoolGroup("group", "@bar");
     }
 
+    @Test
+    public void testRegexStorageUnitResolution() {
+        psu.setRegex("on");
+        psu.createUnit("h1:.*@osm", false, true, false, false);
+
+        assertEquals("h1:.*@osm", psu.getStorageUnit("h1:raw@osm").getName());
+
+        psu.createUnit("zeus:.*@osm", false, true, false, false);
+
+        assertEquals("zeus:.*@osm", psu.getStorageUnit("zeus:raw@osm").getName());
+
+        psu.createUnit("zeus:raw@osm", false, true, false, false);
+        psu.createUnit("herab?:.*@osm", false, true, false, false);
+
+        assertEquals("zeus:raw@osm", psu.getStorageUnit("zeus:raw@osm").getName());
+        assertEquals("herab?:.*@osm", psu.getStorageUnit("hera:raw@osm").getName());
+    }
+
     @Test
     public void testThatReadWithSpecificValuesMatchesTapePools() {
         whenMatchIsCalledWith("read -storageClass=tape.dcache-devel-test -hsm=enstore 127.0.0.1 Http/1");
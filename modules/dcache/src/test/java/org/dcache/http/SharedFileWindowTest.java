@@ -0,0 +1,101 @@
+package org.dcache.http;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import diskCacheV111.util.HttpByteRange;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.dcache.pool.repository.RepositoryChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedFileWindowTest {
+
+    private RepositoryChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        channel = mock(RepositoryChannel.class);
+        when(channel.isOpen()).thenReturn(true);
+        when(channel.read(any(ByteBuffer.class), anyLong())).thenAnswer(invocation -> {
+            ByteBuffer buffer = invocation.getArgument(0);
+            long position = invocation.getArgument(1);
+            int count = buffer.remaining();
+            for (int i = 0; i < count; i++) {
+                buffer.put((byte) (position + i));
+            }
+            return count;
+        });
+    }
+
+    @Test
+    public void shouldGroupNearbyRanges() {
+        SharedFileWindow[] windows = SharedFileWindow.forRanges(channel,
+              List.of(new HttpByteRange(100, 199), new HttpByteRange(0, 9),
+                    new HttpByteRange(20, 29), new HttpByteRange(10_000, 10_009)), 64);
+
+        assertThat(windows[0], is(nullValue()));
+        assertThat(windows[1], is(notNullValue()));
+        assertThat(windows[2], is(sameInstance(windows[1])));
+        assertThat(windows[3], is(nullValue()));
+    }
+
+    @Test
+    public void shouldNotExceedMaximumWindowSize() {
+        SharedFileWindow[] windows = SharedFileWindow.forRanges(channel,
+              List.of(new HttpByteRange(0, SharedFileWindow.MAX_WINDOW_SIZE - 1),
+                    new HttpByteRange(SharedFileWindow.MAX_WINDOW_SIZE,
+                          SharedFileWindow.MAX_WINDOW_SIZE)), 64);
+
+        assertThat(windows[0], is(nullValue()));
+        assertThat(windows[1], is(nullValue()));
+    }
+
+    @Test
+    public void shouldReadWindowOnceForAllRanges() throws Exception {
+        SharedFileWindow[] windows = SharedFileWindow.forRanges(channel,
+              List.of(new HttpByteRange(0, 9), new HttpByteRange(20, 29)), 64);
+
+        ReusableChunkedNioFile first = new ReusableChunkedNioFile(channel, 0, 10, 4, windows[0]);
+        ReusableChunkedNioFile second = new ReusableChunkedNioFile(channel, 20, 10, 4, windows[1]);
+
+        assertThat(readAll(first), is(bytes(0, 10)));
+        assertThat(readAll(second), is(bytes(20, 10)));
+        verify(channel, times(1)).read(any(ByteBuffer.class), anyLong());
+
+        SharedFileWindow.releaseAll(windows);
+    }
+
+    private static byte[] readAll(ReusableChunkedNioFile input) throws Exception {
+        byte[] data = new byte[(int) input.length()];
+        int offset = 0;
+        while (!input.isEndOfInput()) {
+            ByteBuf chunk = input.readChunk(UnpooledByteBufAllocator.DEFAULT);
+            int length = chunk.readableBytes();
+            chunk.readBytes(data, offset, length);
+            chunk.release();
+            offset += length;
+        }
+        return data;
+    }
+
+    private static byte[] bytes(int position, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (position + i);
+        }
+        return data;
+    }
+}
@@ -7,6 +7,7 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,6 +31,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.dcache.pool.repository.FileRepositoryChannel;
 import org.dcache.pool.repository.FileStore;
 import org.dcache.pool.repository.RepositoryChannel;
@@ -281,6 +284,29 @@ public class ChecksumChannelTest {
         assertThat(chksumChannel.getChecksums(), contains(expectedChecksum));
     }
 
+    @Test
+    public void shouldCalculateAllChecksumsWithParallelDigests() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ChecksumChannel channel = new ChecksumChannel(
+                  new FileRepositoryChannel(testFile, FileStore.O_RW),
+                  EnumSet.of(ChecksumType.MD5_TYPE, ChecksumType.ADLER32,
+                        ChecksumType.SHA1), executor);
+            channel._readBackBuffer = ByteBuffer.allocate(2);
+
+            int[] blockorder = getRandomPermutationOfBlockOrder();
+            for (int i = 0; i < blockcount; i++) {
+                channel.write(buffers[blockorder[i]], blockorder[i] * blocksize);
+            }
+            channel.close();
+
+            assertThat(channel.getChecksums(), containsInAnyOrder(expectedChecksum,
+                  ChecksumType.ADLER32.calculate(data), ChecksumType.SHA1.calculate(data)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test(expected = IllegalStateException.class)
     public void shouldThrowIllegalStateExceptionOnGetChecksumBeforeClose() throws IOException {
         chksumChannel.getChecksums();
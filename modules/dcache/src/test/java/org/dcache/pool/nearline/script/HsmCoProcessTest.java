@@ -0,0 +1,125 @@
+package org.dcache.pool.nearline.script;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.TimeoutCacheException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HsmCoProcessTest {
+
+    private static final long TIMEOUT = 10_000;
+
+    private Path script;
+    private Path cancelled;
+    private HsmCoProcess coprocess;
+
+    @Before
+    public void setUp() throws Exception {
+        script = Files.createTempFile("hsm", ".sh",
+              PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        cancelled = Files.createTempFile("hsm", ".cancelled");
+        Files.write(script, List.of(
+              "#!/bin/sh",
+              "[ \"$1\" = coprocess ] || exit 1",
+              "while IFS= read -r line; do",
+              "  id=${line%%\t*}",
+              "  case \"${line#*\t}\" in",
+              "    put*) printf '%s\\t0\\tosm://osm/?bfid=%s\\n' \"$id\" \"$id\" ;;",
+              "    fail*) printf '%s\\t42\\tdisk\\\\twrite error\\n' \"$id\" ;;",
+              "    exit*) exit 0 ;;",
+              "    hang*) sleep 30 ;;",
+              "    cancel) echo \"$id\" >> " + cancelled + " ;;",
+              "  esac",
+              "done"), US_ASCII);
+        coprocess = new HsmCoProcess("osm", script.toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        coprocess.shutdown();
+        Files.deleteIfExists(script);
+        Files.deleteIfExists(cancelled);
+    }
+
+    @Test
+    public void shouldReturnOutputOfScript() throws Exception {
+        assertThat(coprocess.execute(TIMEOUT, "put", "0000ABCD", "/some/file"),
+              is("osm://osm/?bfid=1"));
+        assertThat(coprocess.execute(TIMEOUT, "put", "0000ABCD", "/some/file"),
+              is("osm://osm/?bfid=2"));
+    }
+
+    @Test
+    public void shouldTranslateReturnCode() throws Exception {
+        try {
+            coprocess.execute(TIMEOUT, "fail");
+            fail("Expected CacheException");
+        } catch (CacheException e) {
+            assertThat(e.getRc(), is(42));
+            assertThat(e.getMessage(), containsString("disk\twrite error"));
+        }
+    }
+
+    @Test
+    public void shouldRestartScriptAfterExit() throws Exception {
+        try {
+            coprocess.execute(TIMEOUT, "exit");
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+
+        assertThat(coprocess.execute(TIMEOUT, "put", "0000ABCD", "/some/file"),
+              is("osm://osm/?bfid=2"));
+    }
+
+    @Test
+    public void shouldCancelRequestOnTimeout() throws Exception {
+        try {
+            coprocess.execute(500, "wait");
+            fail("Expected TimeoutCacheException");
+        } catch (TimeoutCacheException expected) {
+        }
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (Files.size(cancelled) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(Files.readAllLines(cancelled), is(List.of("1")));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldTimeOutIfScriptDoesNotReadRequests() throws Exception {
+        try {
+            coprocess.execute(500, "hang");
+            fail("Expected TimeoutCacheException");
+        } catch (TimeoutCacheException expected) {
+        }
+
+        /* The request is larger than the pipe buffer of the script's input. */
+        try {
+            coprocess.execute(500, "put", "x".repeat(1024 * 1024));
+            fail("Expected TimeoutCacheException");
+        } catch (TimeoutCacheException expected) {
+        }
+    }
+
+    @Test
+    public void shouldUnescapeEscapedFields() {
+        String field = "a\tb\\c\nd\re";
+
+        assertThat(HsmCoProcess.escape(field).indexOf('\t'), is(-1));
+        assertThat(HsmCoProcess.unescape(HsmCoProcess.escape(field)), is(field));
+    }
+}
@@ -2,6 +2,7 @@ package org.dcache.pool.nearline.script;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItemInArray;
+import static org.hamcrest.Matchers.not;
 
 import diskCacheV111.vehicles.GenericStorageInfo;
 import diskCacheV111.vehicles.StorageInfo;
@@ -62,6 +63,21 @@ public class ScriptNearlineStorageTest {
               hasItemInArray("-uri=proto://some/sub/dir"));
     }
 
+    @Test
+    public void testCoprocessOptionIsNotPassedToScript() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("command", "/path/to/shell/script.sh");
+        properties.put("coprocess", "");
+        properties.put("hsmBase", "/hsm");
+        storage.configure(properties);
+
+        String[] command = storage.getRemoveCommand(URI.create("proto://some/sub/dir"));
+
+        assertThat(command, hasItemInArray("-hsmBase=/hsm"));
+        assertThat(command, not(hasItemInArray("-coprocess")));
+        storage.shutdown();
+    }
+
     private FileAttributes createFileAttributes() {
         StorageInfo info = new GenericStorageInfo("testHsm", "testStorageClass");
         info.addLocation(URI.create(
@@ -0,0 +1,170 @@
+package org.dcache.pool.repository.meta.db;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.bind.serial.SerialBinding;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.LockMode;
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.OSMStorageInfo;
+import diskCacheV111.vehicles.StorageInfo;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+import org.dcache.pool.repository.ReplicaState;
+import org.dcache.pool.repository.StickyRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplicaStoreViewTest {
+
+    private static final String ID = "0000A2E8E7A5E6A54A7DB2AAF2CF9F9CC60F";
+
+    private Path dir;
+    private ReplicaStoreDatabase db;
+    private ReplicaStoreView view;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("meta");
+        db = new ReplicaStoreDatabase(new Properties(), dir.toFile(), false);
+        view = new ReplicaStoreView(db);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void shouldReadAndMigrateSerialState() {
+        CacheRepositoryEntryState state = new CacheRepositoryEntryState(ReplicaState.PRECIOUS,
+              List.of(new StickyRecord("system", -1), new StickyRecord("pin", 1234567890123L)));
+        int serialSize = putSerial(db.getStateDatabase(), CacheRepositoryEntryState.class, state);
+
+        CacheRepositoryEntryState migrated = view.getState(ID);
+
+        assertThat(migrated.getState(), is(ReplicaState.PRECIOUS));
+        assertThat(migrated.stickyRecords(), containsInAnyOrder(
+              new StickyRecord("system", -1), new StickyRecord("pin", 1234567890123L)));
+        assertThat(isSerial(db.getStateDatabase()), is(false));
+        assertThat(rawSize(db.getStateDatabase()), is(lessThan(serialSize)));
+        assertThat(view.getStateMap().get(ID).stickyRecords(), containsInAnyOrder(
+              new StickyRecord("system", -1), new StickyRecord("pin", 1234567890123L)));
+    }
+
+    @Test
+    public void shouldReadAndMigrateSerialAccessTime() {
+        AccessTimeInfo info = new AccessTimeInfo(1600000000000L);
+        info.setLastAccessTime(1700000000000L);
+        int serialSize = putSerial(db.getAccessInfoStore(), AccessTimeInfo.class, info);
+
+        AccessTimeInfo migrated = view.getAccessTime(ID);
+
+        assertThat(migrated.getCreationTime(), is(1600000000000L));
+        assertThat(migrated.getLastAccessTime(), is(1700000000000L));
+        assertThat(isSerial(db.getAccessInfoStore()), is(false));
+        assertThat(rawSize(db.getAccessInfoStore()), is(lessThan(serialSize)));
+    }
+
+    /*
+     * The legacy size, access latency and retention policy are part of the
+     * serialized record and must survive the migration to the compact format.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldReadAndMigrateSerialStorageInfo() {
+        OSMStorageInfo info = new OSMStorageInfo("atlas", "raw", "0001");
+        info.setLegacySize(42);
+        info.setLegacyAccessLatency(AccessLatency.ONLINE);
+        info.setLegacyRetentionPolicy(RetentionPolicy.REPLICA);
+        info.addLocation(URI.create("osm://osm/?store=atlas&group=raw&bfid=0001"));
+        info.setKey("path", "/data/file");
+        int serialSize = putSerial(db.getStorageInfoDatabase(), StorageInfo.class, info);
+
+        StorageInfo migrated = view.getStorageInfo(ID);
+
+        assertThat(migrated, is(info));
+        assertThat(migrated.getHsm(), is("osm"));
+        assertThat(migrated.getStorageClass(), is("atlas:raw"));
+        assertThat(migrated.getBitfileId(), is("0001"));
+        assertThat(migrated.isCreatedOnly(), is(false));
+        assertThat(migrated.locations(), contains(info.locations().get(0)));
+        assertThat(migrated.getKey("path"), is("/data/file"));
+        assertThat(isSerial(db.getStorageInfoDatabase()), is(false));
+        assertThat(rawSize(db.getStorageInfoDatabase()), is(lessThan(serialSize)));
+    }
+
+    /*
+     * The cache class and bitfile id are legacy fields that are still written to
+     * the compact format.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldRoundTripGenericStorageInfo() {
+        GenericStorageInfo info = new GenericStorageInfo("hsm", "test:disk");
+        info.setCacheClass("cache");
+        info.isSetHsm(true);
+
+        view.getStorageInfoMap().put(ID, info);
+        StorageInfo stored = view.getStorageInfoMap().get(ID);
+
+        assertThat(stored, is(info));
+        assertThat(stored.getCacheClass(), is("cache"));
+        assertThat(stored.isSetHsm(), is(true));
+        assertThat(stored.getBitfileId(), is("<Unknown>"));
+        assertThat(isSerial(db.getStorageInfoDatabase()), is(false));
+    }
+
+    @Test
+    public void shouldReturnNullForMissingRecord() {
+        assertThat(view.getState(ID), is(nullValue()));
+    }
+
+    private <T> int putSerial(Database database, Class<T> type, T value) {
+        EntryBinding<T> binding = new SerialBinding<>(db.getClassCatalog(), type);
+        DatabaseEntry data = new DatabaseEntry();
+        binding.objectToEntry(value, data);
+        database.put(null, key(), data);
+        assertThat(isSerial(database), is(true));
+        return data.getSize();
+    }
+
+    private DatabaseEntry get(Database database) {
+        DatabaseEntry data = new DatabaseEntry();
+        database.get(null, key(), data, LockMode.DEFAULT);
+        return data;
+    }
+
+    private boolean isSerial(Database database) {
+        return CompactBinding.isSerial(get(database));
+    }
+
+    private int rawSize(Database database) {
+        return get(database).getSize();
+    }
+
+    private DatabaseEntry key() {
+        DatabaseEntry key = new DatabaseEntry();
+        new SerialBinding<>(db.getClassCatalog(), String.class).objectToEntry(ID, key);
+        return key;
+    }
+}
@@ -0,0 +1,80 @@
+package org.dcache.pool.repository.v5;
+
+import static org.dcache.pool.repository.ReplicaState.CACHED;
+import static org.dcache.pool.repository.ReplicaState.PRECIOUS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import diskCacheV111.util.PnfsId;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.dcache.pool.repository.v5.InventorySnapshot.Entry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InventorySnapshotTest {
+
+    private static final PnfsId ID1 = new PnfsId("000000000001");
+    private static final PnfsId ID2 = new PnfsId("0000A2E8E7A5E6A54A7DB2AAF2CF9F9CC60F");
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        Path dir = Jimfs.newFileSystem(Configuration.unix()).getPath("/pool");
+        Files.createDirectory(dir);
+        file = dir.resolve("inventory");
+    }
+
+    @Test
+    public void shouldReadWhatWasWritten() throws Exception {
+        InventorySnapshot.write(file, List.of(new Entry(ID1, PRECIOUS, 1024, false, 17),
+              new Entry(ID2, CACHED, 0, true, 42)), true);
+
+        InventorySnapshot snapshot = InventorySnapshot.read(file);
+
+        assertTrue(snapshot.isClean());
+        assertEquals(2, snapshot.getEntries().size());
+        Entry entry1 = snapshot.getEntries().get(ID1);
+        assertEquals(PRECIOUS, entry1.getState());
+        assertEquals(1024, entry1.getReplicaSize());
+        assertFalse(entry1.isSticky());
+        assertEquals(17, entry1.getLastAccessTime());
+        Entry entry2 = snapshot.getEntries().get(ID2);
+        assertEquals(CACHED, entry2.getState());
+        assertEquals(0, entry2.getReplicaSize());
+        assertTrue(entry2.isSticky());
+        assertEquals(42, entry2.getLastAccessTime());
+    }
+
+    @Test
+    public void shouldReturnNullWithoutSnapshot() throws Exception {
+        assertNull(InventorySnapshot.read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldDetectCorruptSnapshot() throws Exception {
+        InventorySnapshot.write(file, List.of(new Entry(ID1, CACHED, 1024, false, 17)), false);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 12] ^= 1;
+        Files.write(file, bytes);
+
+        InventorySnapshot.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldDetectTruncatedSnapshot() throws Exception {
+        InventorySnapshot.write(file, List.of(new Entry(ID1, CACHED, 1024, false, 17)), false);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        InventorySnapshot.read(file);
+    }
+}
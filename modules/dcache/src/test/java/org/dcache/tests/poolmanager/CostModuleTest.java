@@ -2,6 +2,7 @@ package org.dcache.tests.poolmanager;
 
 import static org.dcache.util.ByteUnit.GiB;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -12,7 +13,15 @@ import diskCacheV111.pools.PoolV2Mode;
 import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
 import dmg.cells.nucleus.CellAddressCore;
 import dmg.cells.nucleus.CellMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 import org.dcache.pool.classic.IoQueueManager;
 import org.junit.Before;
 import org.junit.Test;
@@ -247,11 +256,125 @@ public class CostModuleTest {
         assertPercentileCost(FRACTION_JUST_BELOW_ONE, perfCost[2]);
     }
 
+    @Test
+    public void testPercentileAfterUpdatesAndRemovals() {
+        Random random = new Random(42);
+        Map<String, Double> costs = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            String pool = "pool" + random.nextInt(50);
+            CellAddressCore address = new CellAddressCore(pool, "poolDomain");
+            if (random.nextInt(10) == 0) {
+                _costModule.messageArrived(buildEnvelope(address),
+                      buildEmptyPoolUpMessage(pool, PoolV2Mode.DISABLED_DEAD));
+                costs.remove(pool);
+            } else {
+                PoolManagerPoolUpMessage message = buildPoolUpMessageWithCostAndQueue(pool,
+                      100, 20, 30, 50, random.nextInt(10), 10, 0, 0, 0, 0, 0, 0, 0);
+                _costModule.messageArrived(buildEnvelope(address), message);
+                costs.put(pool, message.getPoolCostInfo().getPerformanceCost());
+            }
+        }
+
+        double[] sorted = costs.values().stream().mapToDouble(Double::doubleValue).sorted()
+              .toArray();
+        assertEquals("percentile cost after random updates",
+              sorted[(int) Math.floor(DEFAULT_PERCENTILE * sorted.length)],
+              _costModule.getPoolsPercentilePerformanceCost(DEFAULT_PERCENTILE), 0);
+    }
+
+    @Test
+    public void testHeartbeatWithoutChangeIsNotPartOfDelta() throws Exception {
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS), buildPoolUpMessageWithCost(POOL_NAME, 100, 20, 30, 50));
+        long version = _costModule.getVersion();
+
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS), buildPoolUpMessageWithCost(POOL_NAME, 100, 20, 30, 50));
+
+        assertEquals("version after unchanged heartbeat", version, _costModule.getVersion());
+        assertTrue("delta after unchanged heartbeat",
+              _costModule.getChangesSince(version).isEmpty());
+    }
+
+    @Test
+    public void testDeltaUpdatesCopy() throws Exception {
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS), buildPoolUpMessageWithCost(POOL_NAME, 100, 20, 30, 50));
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS_2),
+              buildPoolUpMessageWithCost(POOL_NAME_2, 100, 20, 30, 50));
+        CostModuleV1 copy = copyOf(_costModule);
+        long version = _costModule.getVersion();
+
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS), buildPoolUpMessageWithCost(POOL_NAME, 100, 10, 30, 50));
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS_2),
+              buildEmptyPoolUpMessage(POOL_NAME_2, PoolV2Mode.DISABLED_DEAD));
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS_3),
+              buildPoolUpMessageWithCost(POOL_NAME_3, 100, 20, 30, 50));
+
+        assertTrue("applying delta", copy.apply(copyOf(_costModule.getChangesSince(version))));
+
+        assertEquals("version of copy", _costModule.getVersion(), copy.getVersion());
+        assertEquals("free space of updated pool", GiB.toBytes(10L),
+              copy.getPoolCostInfo(POOL_NAME).getSpaceInfo().getFreeSpace());
+        assertNull("removed pool", copy.getPoolCostInfo(POOL_NAME_2));
+        assertNotNull("added pool", copy.getPoolCostInfo(POOL_NAME_3));
+    }
+
+    @Test
+    public void testDeltaWithGapIsRejected() throws Exception {
+        CostModuleV1 copy = copyOf(_costModule);
+
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS), buildPoolUpMessageWithCost(POOL_NAME, 100, 20, 30, 50));
+        long version = _costModule.getVersion();
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS_2),
+              buildPoolUpMessageWithCost(POOL_NAME_2, 100, 20, 30, 50));
+
+        assertFalse("applying delta with gap",
+              copy.apply(copyOf(_costModule.getChangesSince(version))));
+        assertNull("pool after rejected delta", copy.getPoolCostInfo(POOL_NAME_2));
+    }
+
+    @Test
+    public void testDeltaFromOtherCostModuleIsRejected() throws Exception {
+        CostModuleV1 other = new CostModuleV1();
+        other.messageArrived(
+              buildEnvelope(POOL_ADDRESS), buildPoolUpMessageWithCost(POOL_NAME, 100, 20, 30, 50));
+
+        assertFalse("applying delta of other cost module",
+              _costModule.apply(copyOf(other.getChangesSince(0))));
+    }
+
+    @Test
+    public void testChangesBeforeCopyAreUnknown() throws Exception {
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS), buildPoolUpMessageWithCost(POOL_NAME, 100, 20, 30, 50));
+
+        assertNull("changes before copy", copyOf(_costModule).getChangesSince(0));
+    }
+
     /*
      *  SUPPORT METHODS FOR BUILDING MESSAGES AND ASSERTING
      */
 
 
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> T copyOf(T object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+              new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
     private static CellMessage buildEnvelope(CellAddressCore source) {
         CellMessage envelope = new CellMessage(new CellAddressCore("irrelevant"), null);
         envelope.addSourceAddress(source);
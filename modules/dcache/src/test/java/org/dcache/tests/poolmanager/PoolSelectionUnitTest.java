@@ -352,8 +352,75 @@ public class PoolSelectionUnitTest {
               null, // linkGroup
               defaultExclude);
 
-        assertTrue(preferenceRes1 == preferenceRes2);// not equal, same
+        assertEquals(1, _psu.getSelectionCacheStats().hitCount());
+        assertEquals(poolsOf(preferenceRes1), poolsOf(preferenceRes2));
+    }
+
+    @Test
+    public void testCachedSelectionAppliesExclusion() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("*", "*"), fileAttributes);
+
+        _psu._cachingEnabeled = true;
+
+        _psu.match(DirectionType.WRITE, "131.169.214.149", null, fileAttributes, null,
+              defaultExclude);
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.WRITE, "131.169.214.149",
+              null, fileAttributes, null, "default-write"::equals);
+
+        assertEquals(1, _psu.getSelectionCacheStats().hitCount());
+        assertEquals(List.of(List.of()), poolsOf(preference));
+    }
+
+    @Test
+    public void testCachedSelectionAppliesPoolMode() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("*", "*"), fileAttributes);
 
+        _psu._cachingEnabeled = true;
+
+        _psu.match(DirectionType.WRITE, "131.169.214.149", null, fileAttributes, null,
+              defaultExclude);
+        _psu.getPool("default-write").setPoolMode(new PoolV2Mode(PoolV2Mode.DISABLED_STRICT));
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.WRITE, "131.169.214.149",
+              null, fileAttributes, null, defaultExclude);
+
+        assertEquals(1, _psu.getSelectionCacheStats().hitCount());
+        assertEquals(List.of(List.of()), poolsOf(preference));
+    }
+
+    @Test
+    public void testCachedSelectionInvalidatedBySetupChange() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("*", "*"), fileAttributes);
+
+        _psu._cachingEnabeled = true;
+
+        _psu.match(DirectionType.WRITE, "131.169.214.149", null, fileAttributes, null,
+              defaultExclude);
+        _ci.command(new Args("psu create pool default-write-2"));
+        _psu.getPool("default-write-2").setPoolMode(new PoolV2Mode(PoolV2Mode.ENABLED));
+        _ci.command(new Args("psu addto pgroup default-write-pools default-write-2"));
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.WRITE, "131.169.214.149",
+              null, fileAttributes, null, defaultExclude);
+
+        assertEquals(0, _psu.getSelectionCacheStats().hitCount());
+        assertEquals(Set.of("default-write", "default-write-2"),
+              new HashSet<>(preference[0].getPoolList()));
+    }
+
+    private static List<List<String>> poolsOf(PoolPreferenceLevel[] levels) {
+        List<List<String>> pools = new ArrayList<>();
+        for (PoolPreferenceLevel level : levels) {
+            pools.add(level.getPoolList());
+        }
+        return pools;
     }
 
     /*
@@ -46,6 +46,7 @@ import java.util.OptionalLong;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
@@ -411,6 +412,41 @@ public class RepositorySubsystemTest
         assertSpaceRecord(repoSize, repoSize - 2048 - 1024, 1024, 1024);
     }
 
+    @Test
+    public void testLoadFromInventorySnapshot()
+          throws Exception {
+        Path inventory = metaRoot.resolve("inventory");
+        repository.setInventoryFile(inventory.toFile());
+        repository.init();
+        repository.load();
+        repository.shutdown();
+        replicaStore.close();
+        assertTrue(Files.exists(inventory));
+
+        sweeper.stop();
+        initRepository();
+        repository.setInventoryFile(inventory.toFile());
+        sweeper.setAccount(account);
+        sweeper.setRepository(repository);
+        sweeper.start();
+        stateChangeEvents.clear();
+
+        repository.init();
+        repository.load();
+        assertFalse(Files.exists(inventory));
+
+        /* Meta data is read in the background once the repository is open.
+         */
+        for (int i = 0; i < 3; i++) {
+            StateChangeEvent event = stateChangeEvents.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(NEW, event.getOldState());
+        }
+        assertSpaceRecord(repoSize, repoSize - 2048 - 1024, 1024, 1024);
+        assertCanOpen(id1, size1, PRECIOUS);
+        assertCanOpen(id2, size2, CACHED);
+    }
+
     @Test
     public void testOpenEntryBeforeLoad()
           throws IOException, CacheException, InterruptedException {
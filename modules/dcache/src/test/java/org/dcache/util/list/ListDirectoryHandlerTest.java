@@ -0,0 +1,145 @@
+package org.dcache.util.list;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.Range;
+import diskCacheV111.util.FsPath;
+import diskCacheV111.util.PnfsHandler;
+import diskCacheV111.vehicles.PnfsMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.security.auth.Subject;
+import org.dcache.auth.attributes.Restriction;
+import org.dcache.auth.attributes.Restrictions;
+import org.dcache.vehicles.PnfsListDirectoryCreditMessage;
+import org.dcache.vehicles.PnfsListDirectoryMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ListDirectoryHandlerTest {
+
+    private static final Subject SUBJECT = new Subject();
+    private static final Restriction RESTRICTION = Restrictions.none();
+
+    private PnfsHandler pnfs;
+    private ListDirectoryHandler handler;
+    private PnfsListDirectoryMessage request;
+    private List<PnfsListDirectoryCreditMessage> credits;
+
+    @Before
+    public void setUp() {
+        pnfs = mock(PnfsHandler.class);
+        given(pnfs.getPnfsTimeout()).willReturn(1000L);
+        credits = new ArrayList<>();
+        doAnswer(i -> credits.add(i.getArgument(0)))
+              .when(pnfs).notify(any(PnfsMessage.class));
+        handler = new ListDirectoryHandler(pnfs);
+        handler.setWindow(4);
+    }
+
+    @Test
+    public void shouldRequestWindowAndGrantCreditWhenHalfIsConsumed() throws Exception {
+        givenReplies(5);
+
+        try (DirectoryStream stream = list()) {
+            assertThat(request.getWindow(), is(4));
+
+            Iterator<DirectoryEntry> entries = stream.iterator();
+            entries.next();
+            assertThat(credits, is(empty()));
+            entries.next();
+            entries.next();
+            assertThat(credits(), contains(2));
+            while (entries.hasNext()) {
+                entries.next();
+            }
+            assertThat(credits(), contains(2, 2));
+        }
+
+        assertThat(credits.stream().anyMatch(PnfsListDirectoryCreditMessage::isCancelled),
+              is(false));
+    }
+
+    @Test
+    public void shouldCancelListingWhenClosedEarly() throws Exception {
+        givenReplies(5);
+
+        try (DirectoryStream stream = list()) {
+            stream.iterator().next();
+        }
+
+        assertThat(credits.size(), is(1));
+        assertThat(credits.get(0).isCancelled(), is(true));
+        assertThat(credits.get(0).getUUID(), is(request.getUUID()));
+    }
+
+    @Test
+    public void shouldNotGrantCreditWithoutWindow() throws Exception {
+        handler.setWindow(0);
+        givenReplies(5);
+
+        try (DirectoryStream stream = list()) {
+            stream.iterator().next();
+        }
+
+        assertThat(request.getWindow(), is(0));
+        assertThat(credits, is(empty()));
+    }
+
+    private DirectoryStream list() throws Exception {
+        return handler.list(SUBJECT, RESTRICTION, FsPath.create("/dir"), null, Range.all());
+    }
+
+    private List<Integer> credits() {
+        return credits.stream().map(PnfsListDirectoryCreditMessage::getCredits)
+              .collect(Collectors.toList());
+    }
+
+    /**
+     * Replies to the list request with the given number of messages, each containing a single
+     * entry.
+     */
+    private void givenReplies(int count) {
+        doAnswer(i -> {
+            request = i.getArgument(0);
+            for (int n = 0; n < count; n++) {
+                PnfsListDirectoryMessage reply = copyOf(request);
+                reply.addEntry("file" + n, null);
+                reply.setReply();
+                if (n == count - 1) {
+                    reply.setSucceeded(count);
+                }
+                handler.messageArrived(reply);
+            }
+            return null;
+        }).when(pnfs).send(any(PnfsMessage.class));
+    }
+
+    /**
+     * Returns a copy of the message, like a message that was sent to PnfsManager and back.
+     */
+    private static PnfsListDirectoryMessage copyOf(PnfsListDirectoryMessage msg)
+          throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(msg);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+              new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (PnfsListDirectoryMessage) in.readObject();
+        }
+    }
+}